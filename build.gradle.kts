@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.3.0"
     id("io.spring.dependency-management") version "1.1.5"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.ebanx"
@@ -15,14 +16,121 @@ repositories {
     mavenCentral()
 }
 
+// -Paot runs Spring AOT processing at build time; the generated bean definitions are used when the application starts
+// with -Dspring.aot.enabled=true. Bean conditions, such as the accounts.*.enabled flags, are evaluated during the
+// processing, so properties that switch modes go in -PaotArgs and need a rebuild to change.
+val aot = providers.gradleProperty("aot").isPresent
+if (aot) {
+    apply(plugin = "org.springframework.boot.aot")
+    tasks.named<JavaExec>("processAot") {
+        args(providers.gradleProperty("aotArgs").getOrElse("").split(" ").filter { it.isNotBlank() })
+    }
+}
+
+val loadtest by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[loadtest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadtest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter")
     implementation("org.springframework.boot:spring-boot-starter-web")
+    implementation("org.springframework.boot:spring-boot-starter-webflux")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
     implementation("org.springframework.boot:spring-boot-starter-validation")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    "loadtestImplementation"("org.hdrhistogram:HdrHistogram:2.2.2")
 }
 
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+tasks.test {
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+}
+
+tasks.register<Test>("benchmark") {
+    description = "Runs the tests tagged as benchmarks."
+    group = "verification"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    maxHeapSize = providers.gradleProperty("benchmarkHeap").getOrElse("8g")
+    systemProperties(System.getProperties().entries
+        .filter { it.key.toString().startsWith("accounts.") }
+        .associate { it.key.toString() to it.value })
+    testLogging {
+        showStandardStreams = true
+    }
+    outputs.upToDateWhen { false }
+}
+
+jmh {
+    jmhVersion = "1.37"
+    includes = listOf(providers.gradleProperty("jmhIncludes").getOrElse(".*"))
+    threads = providers.gradleProperty("jmhThreads").getOrElse("1").toInt()
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file(
+        "reports/jmh/results-${providers.gradleProperty("jmhThreads").getOrElse("1")}t.json")
+}
+
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs the open-loop HTTP load test; arguments are passed with -PloadTestArgs."
+    group = "verification"
+    classpath = loadtest.runtimeClasspath
+    mainClass = "com.ebanx.accounts.loadtest.AccountLoadTest"
+    args = listOf("--report-dir=${layout.buildDirectory.dir("reports/loadtest").get().asFile}") +
+        providers.gradleProperty("loadTestArgs").getOrElse("").split(" ").filter { it.isNotBlank() }
+    maxHeapSize = providers.gradleProperty("benchmarkHeap").getOrElse("8g")
+    outputs.upToDateWhen { false }
+}
+
+val cdsDirectory = layout.buildDirectory.dir("cds")
+val extractedJar = cdsDirectory.map { it.file("application/${tasks.bootJar.get().archiveFileName.get()}") }
+val cdsArchiveFile = cdsDirectory.map { it.file("application.jsa") }
+
+tasks.register<JavaExec>("extractBootJar") {
+    description = "Extracts the boot jar into an application jar and its libraries, the layout CDS needs."
+    group = "build"
+    dependsOn(tasks.bootJar)
+    classpath = files(tasks.bootJar.flatMap { it.archiveFile })
+    mainClass = "org.springframework.boot.loader.launch.JarLauncher"
+    systemProperty("jarmode", "tools")
+    args("extract", "--force", "--destination", cdsDirectory.get().dir("application").asFile.path)
+    outputs.dir(cdsDirectory.map { it.dir("application") })
+}
+
+tasks.register<JavaExec>("cdsArchive") {
+    description = "Trains a class-data-sharing archive by starting the extracted application until its context is up."
+    group = "build"
+    dependsOn("extractBootJar")
+    classpath = files(extractedJar)
+    mainClass = "com.ebanx.accounts.AccountApplication"
+    jvmArgs("-XX:ArchiveClassesAtExit=${cdsArchiveFile.get().asFile.path}")
+    systemProperty("spring.context.exit", "onRefresh")
+    systemProperty("spring.aot.enabled", aot)
+    outputs.file(cdsArchiveFile)
+}
+
+tasks.register<JavaExec>("bootRunOptimized") {
+    description = "Runs the extracted application with the CDS archive, and the AOT bean definitions with -Paot."
+    group = "application"
+    dependsOn("cdsArchive")
+    classpath = files(extractedJar)
+    mainClass = "com.ebanx.accounts.AccountApplication"
+    jvmArgs("-XX:SharedArchiveFile=${cdsArchiveFile.get().asFile.path}")
+    systemProperty("spring.aot.enabled", aot)
+}
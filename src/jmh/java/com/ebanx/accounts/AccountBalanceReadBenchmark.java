@@ -0,0 +1,93 @@
+package com.ebanx.accounts;
+
+import com.ebanx.accounts.reads.BalanceSnapshotPublisher;
+import com.ebanx.accounts.reads.ReadConsistency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance reads, 90% of them on accounts spread over the repository and 10% on one hot account, while a single writer
+ * keeps depositing into that hot account. A group is one writer and three readers; {@code -PjmhThreads=8} runs two
+ * groups, so read throughput against the thread count shows how reads scale with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountBalanceReadBenchmark {
+    private static final int SEQUENCE_LENGTH = 1 << 16;
+    private static final String HOT_ACCOUNT = "0";
+
+    @Param({"100000"})
+    public int accounts;
+
+    @Param({"LINEARIZABLE", "BOUNDED_STALENESS"})
+    public ReadConsistency consistency;
+
+    private AccountRepository accountRepository;
+    private BalanceSnapshotPublisher publisher;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        ids = AccountKeys.ids(accounts);
+        accountRepository = new AccountRepository(1024, accounts);
+        for (String id : ids) {
+            accountRepository.putBalance(id, 1_000_000L);
+        }
+        if (consistency == ReadConsistency.BOUNDED_STALENESS) {
+            publisher = new BalanceSnapshotPublisher(accountRepository, Duration.ofMillis(10));
+            accountRepository.setReadConsistency(consistency);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (publisher != null) {
+            publisher.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private int[] sequence;
+        private int next;
+
+        @Setup
+        public void setUp(AccountBalanceReadBenchmark benchmark, ThreadParams threadParams) {
+            sequence = AccountKeys.sequence(AccountKeys.UNIFORM, benchmark.accounts, SEQUENCE_LENGTH,
+                    threadParams.getThreadIndex());
+        }
+
+        String next(String[] ids) {
+            int index = next++;
+            return index % 10 == 0 ? HOT_ACCOUNT : ids[sequence[index & (SEQUENCE_LENGTH - 1)]];
+        }
+    }
+
+    @Benchmark
+    @Group("readsWhileHotAccountIsWritten")
+    @GroupThreads(1)
+    public long write() {
+        return accountRepository.createOrCreditAccount(HOT_ACCOUNT, 1L);
+    }
+
+    @Benchmark
+    @Group("readsWhileHotAccountIsWritten")
+    @GroupThreads(3)
+    public long read(Keys keys) {
+        return accountRepository.getBalance(keys.next(ids));
+    }
+}
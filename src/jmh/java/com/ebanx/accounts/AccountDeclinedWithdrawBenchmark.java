@@ -0,0 +1,105 @@
+package com.ebanx.accounts;
+
+import com.ebanx.accounts.dtos.AccountEventType;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.dtos.AccountResponseDto;
+import com.ebanx.accounts.exceptions.AccountNotFoundException;
+import com.ebanx.accounts.exceptions.AccountWithLowerBalanceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Withdraws where {@code declinedPercentage} of the requests hit an empty account, answered through
+ * {@link AccountResult} against the previous contract, where the service threw {@link AccountNotFoundException} and
+ * {@link AccountWithLowerBalanceException} and the controller caught them. The throwing variant rebuilds that contract
+ * on top of the current service, so both pay for the same repository work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountDeclinedWithdrawBenchmark {
+    private static final int ACCOUNTS = 100_000;
+    private static final int SEQUENCE_LENGTH = 1 << 14;
+
+    @Param({"20", "100"})
+    public int declinedPercentage;
+
+    private AccountService accountService;
+
+    @Setup
+    public void setUp() {
+        AccountRepository accountRepository = new AccountRepository(1024, ACCOUNTS);
+        String[] ids = AccountKeys.ids(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountRepository.putAccount(new AccountEntity(ids[i], i % 2 == 0 ? Long.MAX_VALUE / 4 : 0L));
+        }
+        accountService = new AccountService(accountRepository);
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+        private AccountRequestDto[] withdraws;
+        private int next;
+
+        @Setup
+        public void setUp(AccountDeclinedWithdrawBenchmark benchmark, ThreadParams threadParams) {
+            String[] ids = AccountKeys.ids(ACCOUNTS);
+            SplittableRandom random = new SplittableRandom(threadParams.getThreadIndex());
+            withdraws = new AccountRequestDto[SEQUENCE_LENGTH];
+            for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+                int account = random.nextInt(ACCOUNTS / 2) * 2;
+                if (random.nextInt(100) < benchmark.declinedPercentage) {
+                    account++;
+                }
+                withdraws[i] = new AccountRequestDto(AccountEventType.WITHDRAW, 10.5f, ids[account]);
+            }
+        }
+
+        int next() {
+            return next++ & (SEQUENCE_LENGTH - 1);
+        }
+    }
+
+    @Benchmark
+    public int withdrawResult(Requests requests) {
+        AccountResult<AccountResponseDto> result = accountService.withdrawFromAccount(
+                requests.withdraws[requests.next()]);
+        if (result instanceof AccountResult.Success) {
+            return 201;
+        }
+        return result instanceof AccountResult.NotFound ? 404 : 400;
+    }
+
+    @Benchmark
+    public int withdrawThrowing(Requests requests) {
+        try {
+            withdrawOrThrow(requests.withdraws[requests.next()]);
+            return 201;
+        } catch (AccountNotFoundException e) {
+            return 404;
+        } catch (AccountWithLowerBalanceException e) {
+            return 400;
+        }
+    }
+
+    private AccountResponseDto withdrawOrThrow(AccountRequestDto accountRequest) {
+        AccountResult<AccountResponseDto> result = accountService.withdrawFromAccount(accountRequest);
+        if (result instanceof AccountResult.Success<AccountResponseDto> success) {
+            return success.value();
+        }
+        if (result instanceof AccountResult.NotFound) {
+            throw new AccountNotFoundException();
+        }
+        throw new AccountWithLowerBalanceException();
+    }
+}
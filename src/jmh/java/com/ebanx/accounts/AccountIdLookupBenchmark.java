@@ -0,0 +1,66 @@
+package com.ebanx.accounts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance lookups over a large repository with the id decoded into a new {@code String} on every call, as a request
+ * would, for numeric ids (parsed into their key) against other ids (resolved through the interning dictionary).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountIdLookupBenchmark {
+    private static final int SEQUENCE_LENGTH = 1 << 20;
+
+    @Param({"10000000"})
+    public int accounts;
+
+    @Param({"numeric", "text"})
+    public String ids;
+
+    private AccountRepository accountRepository;
+    private byte[][] idBytes;
+
+    @Setup
+    public void setUp() {
+        accountRepository = new AccountRepository(1024, accounts);
+        idBytes = new byte[accounts][];
+        for (int i = 0; i < accounts; i++) {
+            String id = "numeric".equals(ids) ? String.valueOf(i) : "acct-" + i;
+            idBytes[i] = id.getBytes(StandardCharsets.ISO_8859_1);
+            accountRepository.putBalance(id, 1_000_000L);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private int[] sequence;
+        private int next;
+
+        @Setup
+        public void setUp(AccountIdLookupBenchmark benchmark, ThreadParams threadParams) {
+            sequence = AccountKeys.sequence(AccountKeys.UNIFORM, benchmark.accounts, SEQUENCE_LENGTH,
+                    threadParams.getThreadIndex());
+        }
+
+        int next() {
+            return sequence[next++ & (SEQUENCE_LENGTH - 1)];
+        }
+    }
+
+    @Benchmark
+    public long getBalance(Keys keys) {
+        return accountRepository.getBalance(new String(idBytes[keys.next()], StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,88 @@
+package com.ebanx.accounts;
+
+import com.ebanx.accounts.codec.AccountJsonCodec;
+import com.ebanx.accounts.dtos.AccountDto;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.dtos.AccountResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson binding of the {@code /event} request and response bodies, with readers and writers resolved once as
+ * Spring's message converters do, against {@link AccountJsonCodec} reading the same bytes and writing into a reused
+ * stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountJsonBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader requestReader = objectMapper.readerFor(AccountRequestDto.class);
+    private final ObjectWriter responseWriter = objectMapper.writerFor(AccountResponseDto.class);
+    private final AccountJsonCodec codec = new AccountJsonCodec(objectMapper);
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream(256);
+    private final byte[] depositRequest = "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":10.25}"
+            .getBytes(StandardCharsets.UTF_8);
+    private final byte[] transferRequest =
+            "{\"type\":\"transfer\",\"origin\":\"100\",\"destination\":\"300\",\"amount\":15}"
+                    .getBytes(StandardCharsets.UTF_8);
+    private final AccountResponseDto depositResponse = new AccountResponseDto(null, new AccountDto("100", 20.25f));
+    private final AccountResponseDto transferResponse =
+            new AccountResponseDto(new AccountDto("100", 5.25f), new AccountDto("300", 15f));
+
+    @Benchmark
+    public AccountRequestDto readDepositRequest() throws IOException {
+        return requestReader.readValue(depositRequest);
+    }
+
+    @Benchmark
+    public AccountRequestDto readTransferRequest() throws IOException {
+        return requestReader.readValue(transferRequest);
+    }
+
+    @Benchmark
+    public byte[] writeDepositResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(depositResponse);
+    }
+
+    @Benchmark
+    public byte[] writeTransferResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(transferResponse);
+    }
+
+    @Benchmark
+    public AccountRequestDto codecReadDepositRequest() throws IOException {
+        return codec.readRequest(depositRequest, 0, depositRequest.length);
+    }
+
+    @Benchmark
+    public AccountRequestDto codecReadTransferRequest() throws IOException {
+        return codec.readRequest(transferRequest, 0, transferRequest.length);
+    }
+
+    @Benchmark
+    public int codecWriteDepositResponse() throws IOException {
+        responseBody.reset();
+        codec.writeResponse(depositResponse, responseBody);
+        return responseBody.size();
+    }
+
+    @Benchmark
+    public int codecWriteTransferResponse() throws IOException {
+        responseBody.reset();
+        codec.writeResponse(transferResponse, responseBody);
+        return responseBody.size();
+    }
+}
@@ -0,0 +1,57 @@
+package com.ebanx.accounts;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Precomputed account-index sequences for benchmarks, so choosing the next account costs an array read rather than
+ * random-number generation inside the measured code.
+ */
+public final class AccountKeys {
+    public static final String UNIFORM = "uniform";
+    public static final String ZIPFIAN = "zipfian";
+
+    private static final double ZIPFIAN_EXPONENT = 0.99;
+
+    private AccountKeys() {}
+
+    public static String[] ids(int accounts) {
+        String[] ids = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = String.valueOf(i);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns {@code length} indexes in {@code [0, accounts)}, where {@code length} must be a power of two so callers
+     * can wrap around with a mask. Zipfian indexes follow the same skew YCSB uses: rank 0 is the hottest account.
+     */
+    public static int[] sequence(String distribution, int accounts, int length, long seed) {
+        if (Integer.bitCount(length) != 1) {
+            throw new IllegalArgumentException("Sequence length must be a power of two: " + length);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] sequence = new int[length];
+        if (UNIFORM.equals(distribution)) {
+            for (int i = 0; i < length; i++) {
+                sequence[i] = random.nextInt(accounts);
+            }
+            return sequence;
+        }
+        if (!ZIPFIAN.equals(distribution)) {
+            throw new IllegalArgumentException("Unknown key distribution " + distribution);
+        }
+        double[] cumulative = new double[accounts];
+        double total = 0;
+        for (int rank = 0; rank < accounts; rank++) {
+            total += 1.0 / Math.pow(rank + 1, ZIPFIAN_EXPONENT);
+            cumulative[rank] = total;
+        }
+        for (int i = 0; i < length; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            sequence[i] = Math.min(accounts - 1, rank >= 0 ? rank : -rank - 1);
+        }
+        return sequence;
+    }
+}
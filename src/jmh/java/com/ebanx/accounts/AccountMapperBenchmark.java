@@ -0,0 +1,49 @@
+package com.ebanx.accounts;
+
+import com.ebanx.accounts.dtos.AccountDto;
+import com.ebanx.accounts.dtos.AccountEventType;
+import com.ebanx.accounts.dtos.AccountResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountMapperBenchmark {
+    private final BigDecimal amount = new BigDecimal("1234.56");
+    private final long minorUnits = 123_456L;
+    private final AccountEntity origin = new AccountEntity("100", 123_456L);
+    private final AccountEntity destination = new AccountEntity("200", 654_321L);
+
+    @Benchmark
+    public long toMinorUnits() {
+        return AccountMapper.toMinorUnits(amount);
+    }
+
+    @Benchmark
+    public float toAmount() {
+        return AccountMapper.toAmount(minorUnits);
+    }
+
+    @Benchmark
+    public AccountDto toDto() {
+        return AccountMapper.toDto(origin);
+    }
+
+    @Benchmark
+    public AccountResponseDto toDepositResponseDto() {
+        return AccountMapper.toResponseDto(AccountMapper.toDto(destination), AccountEventType.DEPOSIT);
+    }
+
+    @Benchmark
+    public AccountResponseDto toTransferResponseDto() {
+        return AccountMapper.toResponseDto(origin, destination);
+    }
+}
@@ -0,0 +1,70 @@
+package com.ebanx.accounts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountRepositoryBenchmark {
+    private static final int SEQUENCE_LENGTH = 1 << 16;
+
+    @Param({"100000"})
+    public int accounts;
+
+    @Param({AccountKeys.UNIFORM, AccountKeys.ZIPFIAN})
+    public String distribution;
+
+    private AccountRepository accountRepository;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        ids = AccountKeys.ids(accounts);
+        accountRepository = new AccountRepository(1024, accounts);
+        for (String id : ids) {
+            accountRepository.putAccount(new AccountEntity(id, 1_000_000L));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private int[] sequence;
+        private int next;
+
+        @Setup
+        public void setUp(AccountRepositoryBenchmark benchmark, ThreadParams threadParams) {
+            sequence = AccountKeys.sequence(benchmark.distribution, benchmark.accounts, SEQUENCE_LENGTH,
+                    threadParams.getThreadIndex());
+        }
+
+        int next() {
+            return sequence[next++ & (SEQUENCE_LENGTH - 1)];
+        }
+    }
+
+    @Benchmark
+    public Optional<AccountEntity> getAccountById(Keys keys) {
+        return accountRepository.getAccountById(ids[keys.next()]);
+    }
+
+    @Benchmark
+    public long getBalance(Keys keys) {
+        return accountRepository.getBalance(ids[keys.next()]);
+    }
+
+    @Benchmark
+    public void putAccount(Keys keys) {
+        accountRepository.putAccount(new AccountEntity(ids[keys.next()], 1_000_000L));
+    }
+}
@@ -0,0 +1,94 @@
+package com.ebanx.accounts;
+
+import com.ebanx.accounts.dtos.AccountEventType;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.dtos.AccountResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The three {@link AccountService} operations. Thread count comes from the JMH run ({@code -PjmhThreads}), and every
+ * thread replays its own precomputed sequence of requests over the chosen key distribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountServiceBenchmark {
+    private static final int SEQUENCE_LENGTH = 1 << 14;
+
+    @Param({"100000"})
+    public int accounts;
+
+    @Param({AccountKeys.UNIFORM, AccountKeys.ZIPFIAN})
+    public String distribution;
+
+    private AccountService accountService;
+
+    @Setup
+    public void setUp() {
+        AccountRepository accountRepository = new AccountRepository(1024, accounts);
+        for (String id : AccountKeys.ids(accounts)) {
+            accountRepository.putAccount(new AccountEntity(id, Long.MAX_VALUE / 4));
+        }
+        accountService = new AccountService(accountRepository);
+    }
+
+    @State(Scope.Thread)
+    public static class Requests {
+        private AccountRequestDto[] deposits;
+        private AccountRequestDto[] withdraws;
+        private AccountRequestDto[] transfers;
+        private int next;
+
+        @Setup
+        public void setUp(AccountServiceBenchmark benchmark, ThreadParams threadParams) {
+            String[] ids = AccountKeys.ids(benchmark.accounts);
+            int[] origins = AccountKeys.sequence(benchmark.distribution, benchmark.accounts, SEQUENCE_LENGTH,
+                    threadParams.getThreadIndex());
+            int[] destinations = AccountKeys.sequence(benchmark.distribution, benchmark.accounts, SEQUENCE_LENGTH,
+                    ~threadParams.getThreadIndex());
+            deposits = new AccountRequestDto[SEQUENCE_LENGTH];
+            withdraws = new AccountRequestDto[SEQUENCE_LENGTH];
+            transfers = new AccountRequestDto[SEQUENCE_LENGTH];
+            for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+                deposits[i] = new AccountRequestDto(AccountEventType.DEPOSIT, 10.5f, ids[destinations[i]]);
+                withdraws[i] = new AccountRequestDto(AccountEventType.WITHDRAW, 10.5f, ids[origins[i]]);
+                transfers[i] = new AccountRequestDto(AccountEventType.TRANSFER, 10.5f, ids[origins[i]],
+                        ids[destinations[i]]);
+            }
+        }
+
+        int next() {
+            return next++ & (SEQUENCE_LENGTH - 1);
+        }
+    }
+
+    @Benchmark
+    public AccountResult<AccountResponseDto> deposit(Requests requests) {
+        return accountService.depositToAccount(requests.deposits[requests.next()]);
+    }
+
+    @Benchmark
+    public AccountResult<AccountResponseDto> withdraw(Requests requests) {
+        return accountService.withdrawFromAccount(requests.withdraws[requests.next()]);
+    }
+
+    @Benchmark
+    public AccountResult<AccountResponseDto> transfer(Requests requests) {
+        return accountService.transferBetweenAccount(requests.transfers[requests.next()]);
+    }
+
+    @Benchmark
+    public AccountResult<Float> getAccountBalance(Requests requests) {
+        return accountService.getAccountBalance(requests.withdraws[requests.next()].getOrigin());
+    }
+}
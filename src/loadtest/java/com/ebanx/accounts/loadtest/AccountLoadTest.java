@@ -0,0 +1,203 @@
+package com.ebanx.accounts.loadtest;
+
+import com.ebanx.accounts.AccountApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load test for {@code /event} and {@code /balance}. Requests are sent on a fixed schedule derived from the
+ * arrival rate, whether or not earlier ones have completed, and each latency is measured from its scheduled send
+ * time. An arrival that finds {@code --max-in-flight} requests outstanding waits in a queue for a free slot rather
+ * than being dropped, so the time it waits counts against it. Run with
+ * {@code ./gradlew loadTest -PloadTestArgs="--rate=5000 --duration=60"}; see {@link LoadTestOptions}.
+ */
+public class AccountLoadTest {
+    private static final int SEED_BATCH = 1000;
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestOptions options;
+    private final URI target;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String[] ids;
+
+    public AccountLoadTest(LoadTestOptions options, URI target) {
+        this.options = options;
+        this.target = target;
+        this.ids = new String[options.getAccounts()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = String.valueOf(i);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext application = null;
+        URI target = options.getTarget();
+        if (target == null) {
+            SpringApplication springApplication = new SpringApplication(AccountApplication.class);
+            springApplication.setDefaultProperties(Map.of("server.port", "0"));
+            application = springApplication.run();
+            target = URI.create("http://localhost:" + application.getEnvironment().getProperty("local.server.port"));
+        }
+        try {
+            Path report = new AccountLoadTest(options, target).run();
+            System.out.println("Load test report written to " + report.toAbsolutePath());
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+
+    public Path run() throws IOException, InterruptedException {
+        seedAccounts();
+        LatencyRecorder warmupRecorder = new LatencyRecorder();
+        drive(options.getWarmup(), warmupRecorder);
+        LatencyRecorder recorder = new LatencyRecorder();
+        long startedAt = System.nanoTime();
+        long sent = drive(options.getDuration(), recorder);
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        return new LoadTestReport(options, target, recorder, sent, seconds).write();
+    }
+
+    /**
+     * Sends requests on schedule for the given time and waits for the outstanding ones, returning how many were
+     * scheduled.
+     */
+    private long drive(Duration duration, LatencyRecorder recorder) throws InterruptedException {
+        if (duration.isZero()) {
+            return 0;
+        }
+        KeySampler keys = new KeySampler(ids.length, options.getSkew());
+        LoadTestOperation[] operations = weightedOperations(options.getMix());
+        SplittableRandom random = new SplittableRandom(duration.toNanos());
+        AtomicInteger inFlight = new AtomicInteger();
+        Queue<ScheduledRequest> queued = new ConcurrentLinkedQueue<>();
+        long intervalNanos = 1_000_000_000L / options.getRate();
+        long startedAt = System.nanoTime();
+        long requests = duration.toNanos() / intervalNanos;
+        for (long i = 0; i < requests; i++) {
+            long intendedAt = startedAt + i * intervalNanos;
+            for (long wait = intendedAt - System.nanoTime(); wait > 0; wait = intendedAt - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            LoadTestOperation operation = operations[random.nextInt(operations.length)];
+            if (inFlight.get() >= options.getMaxInFlight()) {
+                recorder.queue();
+            }
+            queued.add(new ScheduledRequest(operation, request(operation, keys, random), intendedAt));
+            dispatch(queued, inFlight, recorder);
+        }
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while ((inFlight.get() > 0 || !queued.isEmpty()) && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        for (ScheduledRequest abandoned = queued.poll(); abandoned != null; abandoned = queued.poll()) {
+            recorder.recordUnsent(abandoned.operation(), abandoned.intendedAt(), System.nanoTime());
+        }
+        return requests;
+    }
+
+    /**
+     * Sends queued requests, oldest first, while fewer than {@code --max-in-flight} are outstanding. Both the
+     * schedule and every completion call it, so a request never waits once a slot is free.
+     */
+    private void dispatch(Queue<ScheduledRequest> queued, AtomicInteger inFlight, LatencyRecorder recorder) {
+        while (!queued.isEmpty()) {
+            int outstanding = inFlight.get();
+            if (outstanding >= options.getMaxInFlight()) {
+                return;
+            }
+            if (!inFlight.compareAndSet(outstanding, outstanding + 1)) {
+                continue;
+            }
+            ScheduledRequest next = queued.poll();
+            if (next == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            long sentAt = System.nanoTime();
+            client.sendAsync(next.request(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        recorder.record(next.operation(), next.intendedAt(), sentAt, System.nanoTime(),
+                                failure != null || response.statusCode() >= 500);
+                        inFlight.decrementAndGet();
+                        dispatch(queued, inFlight, recorder);
+                    });
+        }
+    }
+
+    private HttpRequest request(LoadTestOperation operation, KeySampler keys, SplittableRandom random) {
+        String account = ids[keys.next(random)];
+        return switch (operation) {
+            case BALANCE -> HttpRequest.newBuilder(target.resolve("/balance?account_id=" + account)).GET().build();
+            case DEPOSIT -> event("{\"type\":\"deposit\",\"destination\":\"" + account + "\",\"amount\":10}");
+            case WITHDRAW -> event("{\"type\":\"withdraw\",\"origin\":\"" + account + "\",\"amount\":10}");
+            case TRANSFER -> event("{\"type\":\"transfer\",\"origin\":\"" + account + "\",\"destination\":\""
+                    + ids[keys.next(random)] + "\",\"amount\":10}");
+        };
+    }
+
+    private HttpRequest event(String body) {
+        return HttpRequest.newBuilder(target.resolve("/event"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * Resets the target and gives every account a starting balance through {@code /events}, so withdraws and
+     * transfers mostly succeed.
+     */
+    private void seedAccounts() throws IOException, InterruptedException {
+        send(HttpRequest.newBuilder(target.resolve("/reset")).POST(HttpRequest.BodyPublishers.noBody()).build());
+        for (int first = 0; first < ids.length; first += SEED_BATCH) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = first; i < Math.min(ids.length, first + SEED_BATCH); i++) {
+                body.append(i == first ? "" : ",")
+                        .append("{\"type\":\"deposit\",\"destination\":\"").append(ids[i])
+                        .append("\",\"amount\":1000000}");
+            }
+            send(HttpRequest.newBuilder(target.resolve("/events"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                    .build());
+        }
+    }
+
+    private void send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(request.uri() + " answered " + response.statusCode());
+        }
+    }
+
+    private record ScheduledRequest(LoadTestOperation operation, HttpRequest request, long intendedAt) {
+    }
+
+    private static LoadTestOperation[] weightedOperations(Map<LoadTestOperation, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        LoadTestOperation[] operations = new LoadTestOperation[total];
+        int next = 0;
+        for (Map.Entry<LoadTestOperation, Integer> weight : mix.entrySet()) {
+            for (int i = 0; i < weight.getValue(); i++) {
+                operations[next++] = weight.getKey();
+            }
+        }
+        return operations;
+    }
+}
@@ -0,0 +1,38 @@
+package com.ebanx.accounts.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Draws account indexes from a Zipf distribution with the given exponent; {@code 0} is uniform. Index 0 is the
+ * hottest account.
+ */
+public class KeySampler {
+    private final double[] cumulative;
+    private final int accounts;
+
+    public KeySampler(int accounts, double skew) {
+        this.accounts = accounts;
+        if (skew == 0) {
+            this.cumulative = null;
+            return;
+        }
+        this.cumulative = new double[accounts];
+        double total = 0;
+        for (int rank = 0; rank < accounts; rank++) {
+            total += 1.0 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < accounts; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+
+    public int next(SplittableRandom random) {
+        if (cumulative == null) {
+            return random.nextInt(accounts);
+        }
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(accounts - 1, rank >= 0 ? rank : -rank - 1);
+    }
+}
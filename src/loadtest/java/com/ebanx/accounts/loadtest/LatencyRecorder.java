@@ -0,0 +1,77 @@
+package com.ebanx.accounts.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-operation latency histograms in microseconds. {@code corrected} latencies are measured from the time the
+ * schedule said a request should be sent, so time a request spent queued behind a stalled server or an overloaded
+ * client counts against it, which is what avoids coordinated omission. {@code uncorrected} latencies start when the
+ * request was actually sent, the way a closed-loop tool would measure them.
+ */
+public class LatencyRecorder {
+    private static final long HIGHEST_TRACKABLE_MICROS = 3_600_000_000L;
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<LoadTestOperation, Histogram> corrected = new EnumMap<>(LoadTestOperation.class);
+    private final Map<LoadTestOperation, Histogram> uncorrected = new EnumMap<>(LoadTestOperation.class);
+    private final Map<LoadTestOperation, LongAdder> errors = new EnumMap<>(LoadTestOperation.class);
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder unsent = new LongAdder();
+
+    public LatencyRecorder() {
+        for (LoadTestOperation operation : LoadTestOperation.values()) {
+            corrected.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+            uncorrected.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public void record(LoadTestOperation operation, long intendedAt, long sentAt, long completedAt, boolean error) {
+        corrected.get(operation).recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (completedAt - intendedAt) / 1000));
+        uncorrected.get(operation).recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (completedAt - sentAt) / 1000));
+        if (error) {
+            errors.get(operation).increment();
+        }
+    }
+
+    /**
+     * Counts a request that had to wait for a free slot because too many were already outstanding.
+     */
+    public void queue() {
+        queued.increment();
+    }
+
+    /**
+     * Records a request still queued when the run gave up waiting: as an error, with the time it had waited so far.
+     */
+    public void recordUnsent(LoadTestOperation operation, long intendedAt, long abandonedAt) {
+        corrected.get(operation).recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (abandonedAt - intendedAt) / 1000));
+        errors.get(operation).increment();
+        unsent.increment();
+    }
+
+    public Histogram getCorrected(LoadTestOperation operation) {
+        return corrected.get(operation);
+    }
+
+    public Histogram getUncorrected(LoadTestOperation operation) {
+        return uncorrected.get(operation);
+    }
+
+    public long getErrors(LoadTestOperation operation) {
+        return errors.get(operation).sum();
+    }
+
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    public long getUnsent() {
+        return unsent.sum();
+    }
+}
@@ -0,0 +1,8 @@
+package com.ebanx.accounts.loadtest;
+
+public enum LoadTestOperation {
+    BALANCE,
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER
+}
@@ -0,0 +1,102 @@
+package com.ebanx.accounts.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line options, given as {@code --name=value}. Without {@code --target} the application is started in-process
+ * on a random port.
+ */
+public class LoadTestOptions {
+    private URI target;
+    private int rate = 2000;
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration duration = Duration.ofSeconds(60);
+    private int accounts = 100_000;
+    private double skew = 0.99;
+    private Map<LoadTestOperation, Integer> mix = new LinkedHashMap<>(Map.of(
+            LoadTestOperation.BALANCE, 50, LoadTestOperation.DEPOSIT, 20,
+            LoadTestOperation.WITHDRAW, 15, LoadTestOperation.TRANSFER, 15));
+    private int maxInFlight = 20_000;
+    private Path reportDirectory = Path.of("build", "reports", "loadtest");
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        LoadTestOptions options = new LoadTestOptions();
+        for (Map.Entry<String, String> option : values.entrySet()) {
+            String value = option.getValue();
+            switch (option.getKey()) {
+                case "target" -> options.target = URI.create(value);
+                case "rate" -> options.rate = Integer.parseInt(value);
+                case "warmup" -> options.warmup = Duration.ofSeconds(Long.parseLong(value));
+                case "duration" -> options.duration = Duration.ofSeconds(Long.parseLong(value));
+                case "accounts" -> options.accounts = Integer.parseInt(value);
+                case "skew" -> options.skew = Double.parseDouble(value);
+                case "mix" -> options.mix = parseMix(value);
+                case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                case "report-dir" -> options.reportDirectory = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option --" + option.getKey());
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Parses weights such as {@code balance:80,deposit:10,withdraw:5,transfer:5}.
+     */
+    private static Map<LoadTestOperation, Integer> parseMix(String value) {
+        Map<LoadTestOperation, Integer> mix = new LinkedHashMap<>();
+        for (String weight : value.split(",")) {
+            String[] parts = weight.split(":");
+            mix.put(LoadTestOperation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    public URI getTarget() {
+        return target;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public int getAccounts() {
+        return accounts;
+    }
+
+    public double getSkew() {
+        return skew;
+    }
+
+    public Map<LoadTestOperation, Integer> getMix() {
+        return mix;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public Path getReportDirectory() {
+        return reportDirectory;
+    }
+}
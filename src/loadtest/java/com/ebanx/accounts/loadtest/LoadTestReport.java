@@ -0,0 +1,131 @@
+package com.ebanx.accounts.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes a run's results into a timestamped directory: {@code summary.txt} for people, {@code summary.json} for
+ * comparing runs, and one {@code .hgrm} percentile distribution per operation and measurement that the HdrHistogram
+ * plotter can chart.
+ */
+public class LoadTestReport {
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final LoadTestOptions options;
+    private final URI target;
+    private final LatencyRecorder recorder;
+    private final long scheduled;
+    private final double seconds;
+
+    public LoadTestReport(LoadTestOptions options, URI target, LatencyRecorder recorder, long scheduled,
+                          double seconds) {
+        this.options = options;
+        this.target = target;
+        this.recorder = recorder;
+        this.scheduled = scheduled;
+        this.seconds = seconds;
+    }
+
+    public Path write() throws IOException {
+        Path directory = options.getReportDirectory()
+                .resolve(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(directory);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("target", target.toString());
+        summary.put("rate", options.getRate());
+        summary.put("durationSeconds", options.getDuration().toSeconds());
+        summary.put("accounts", options.getAccounts());
+        summary.put("skew", options.getSkew());
+        summary.put("mix", options.getMix());
+        summary.put("scheduled", scheduled);
+        summary.put("queued", recorder.getQueued());
+        summary.put("unsent", recorder.getUnsent());
+        long completed = 0;
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (LoadTestOperation operation : LoadTestOperation.values()) {
+            Histogram corrected = recorder.getCorrected(operation);
+            if (corrected.getTotalCount() == 0) {
+                continue;
+            }
+            completed += corrected.getTotalCount();
+            Map<String, Object> results = new LinkedHashMap<>();
+            results.put("count", corrected.getTotalCount());
+            results.put("errors", recorder.getErrors(operation));
+            results.put("correctedMillis", percentiles(corrected));
+            results.put("uncorrectedMillis", percentiles(recorder.getUncorrected(operation)));
+            operations.put(operation.name().toLowerCase(), results);
+            writeDistribution(directory.resolve(operation.name().toLowerCase() + "-corrected.hgrm"), corrected);
+            writeDistribution(directory.resolve(operation.name().toLowerCase() + "-uncorrected.hgrm"),
+                    recorder.getUncorrected(operation));
+        }
+        completed -= recorder.getUnsent();
+        summary.put("completed", completed);
+        summary.put("achievedRate", completed / seconds);
+        summary.put("operations", operations);
+
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(directory.resolve("summary.json").toFile(),
+                summary);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve("summary.txt")))) {
+            writeText(out, completed);
+        }
+        writeText(System.out, completed);
+        return directory;
+    }
+
+    private void writeText(PrintStream out, long completed) {
+        out.printf("target %s, %d req/s scheduled for %d s over %d accounts (skew %.2f), mix %s%n", target,
+                options.getRate(), options.getDuration().toSeconds(), options.getAccounts(), options.getSkew(),
+                options.getMix());
+        out.printf("achieved %.0f req/s, %d scheduled, %d completed, %d queued at the in-flight limit%n",
+                completed / seconds, scheduled, completed, recorder.getQueued());
+        if (recorder.getUnsent() > 0) {
+            out.printf("WARNING: %d requests were never sent before the drain timeout; they count as errors with the "
+                    + "latency they had waited, so the percentiles are a lower bound%n", recorder.getUnsent());
+        }
+        out.println();
+        out.printf("%-10s %-12s %10s %8s %10s %10s %10s %10s %10s%n", "operation", "latency", "count", "errors",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (LoadTestOperation operation : LoadTestOperation.values()) {
+            if (recorder.getCorrected(operation).getTotalCount() > 0) {
+                writeRow(out, operation, "corrected", recorder.getCorrected(operation));
+                writeRow(out, operation, "uncorrected", recorder.getUncorrected(operation));
+            }
+        }
+    }
+
+    private void writeRow(PrintStream out, LoadTestOperation operation, String latency, Histogram histogram) {
+        out.printf("%-10s %-12s %10d %8d", operation.name().toLowerCase(), latency, histogram.getTotalCount(),
+                recorder.getErrors(operation));
+        for (double percentile : PERCENTILES) {
+            out.printf(" %10.2f", histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI);
+        }
+        out.printf(" %10.2f%n", histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            percentiles.put("p" + percentile, histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI);
+        }
+        percentiles.put("max", histogram.getMaxValue() / MICROS_PER_MILLI);
+        return percentiles;
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.ebanx.accounts;
+
+import com.ebanx.accounts.dtos.AccountEventType;
+
+import java.util.Arrays;
+
+/**
+ * Events to be applied by {@link AccountRepository#applyAtomically} together with their outcome: the resulting
+ * balances once the batch is applied, or the index and cause of the event that made the whole batch fail.
+ */
+public class AccountBatch {
+    private AccountEventType[] types;
+    private String[] origins;
+    private String[] destinations;
+    private long[] amounts;
+    private long[] originBalances;
+    private long[] destinationBalances;
+    private int size;
+    private int failedIndex = -1;
+    private RuntimeException failure;
+
+    public AccountBatch(int expectedSize) {
+        int capacity = Math.max(1, expectedSize);
+        this.types = new AccountEventType[capacity];
+        this.origins = new String[capacity];
+        this.destinations = new String[capacity];
+        this.amounts = new long[capacity];
+        this.originBalances = new long[capacity];
+        this.destinationBalances = new long[capacity];
+    }
+
+    public void add(AccountEventType type, String origin, String destination, long amount) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            origins = Arrays.copyOf(origins, capacity);
+            destinations = Arrays.copyOf(destinations, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            originBalances = Arrays.copyOf(originBalances, capacity);
+            destinationBalances = Arrays.copyOf(destinationBalances, capacity);
+        }
+        types[size] = type;
+        origins[size] = origin;
+        destinations[size] = destination;
+        amounts[size] = amount;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public AccountEventType getType(int index) {
+        return types[index];
+    }
+
+    public String getOrigin(int index) {
+        return origins[index];
+    }
+
+    public String getDestination(int index) {
+        return destinations[index];
+    }
+
+    public long getAmount(int index) {
+        return amounts[index];
+    }
+
+    public long getOriginBalance(int index) {
+        return originBalances[index];
+    }
+
+    public long getDestinationBalance(int index) {
+        return destinationBalances[index];
+    }
+
+    public int getFailedIndex() {
+        return failedIndex;
+    }
+
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    void setBalances(int index, long originBalance, long destinationBalance) {
+        originBalances[index] = originBalance;
+        destinationBalances[index] = destinationBalance;
+    }
+
+    void fail(int index, RuntimeException failure) {
+        this.failedIndex = index;
+        this.failure = failure;
+    }
+}
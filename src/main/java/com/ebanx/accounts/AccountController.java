@@ -1,67 +1,258 @@
 package com.ebanx.accounts;
 
+import com.ebanx.accounts.admission.AccountAdmission;
+import com.ebanx.accounts.admission.GradientLimit;
+import com.ebanx.accounts.dtos.AccountBatchResultDto;
 import com.ebanx.accounts.dtos.AccountRequestDto;
 import com.ebanx.accounts.dtos.AccountResponseDto;
+import com.ebanx.accounts.dtos.AccountTransactionDto;
+import com.ebanx.accounts.dtos.AccountTransactionPageDto;
+import com.ebanx.accounts.exceptions.AccountBatchFailedException;
 import com.ebanx.accounts.exceptions.AccountNotFoundException;
-import com.ebanx.accounts.exceptions.AccountWithLowerBalanceException;
+import com.ebanx.accounts.exceptions.AccountReadOnlyException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "accounts", name = {"pipeline.enabled", "cluster.enabled"}, havingValue = "false",
+        matchIfMissing = true)
 public class AccountController {
+    private static final ObjectReader EVENT_READER = new ObjectMapper().readerFor(AccountRequestDto.class);
+    private static final ObjectWriter TRANSACTION_WRITER = new ObjectMapper().writerFor(AccountTransactionDto.class)
+            .withRootValueSeparator("\n");
+    private static final int MAX_TRANSACTIONS_PER_PAGE = 1000;
+    private static final ResponseEntity<Float> NOT_FOUND_RESPONSE = new ResponseEntity<>(0.0f, HttpStatus.NOT_FOUND);
+    private static final ResponseEntity<Void> BAD_REQUEST_RESPONSE = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    private static final ResponseEntity<Float> INVALID_BALANCE_RESPONSE = new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    private static final ResponseEntity<Void> KEY_REUSED_RESPONSE =
+            new ResponseEntity<>(HttpStatus.UNPROCESSABLE_ENTITY);
+    private static final ResponseEntity<Float> OVERLOADED_BALANCE_RESPONSE =
+            new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    private static final ResponseEntity<Void> OVERLOADED_RESPONSE =
+            new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    private static final ResponseEntity<Void> RATE_LIMITED_RESPONSE =
+            new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS);
+
     private final AccountService accountService;
+    private volatile AccountAdmission admission;
 
     public AccountController() {
         this.accountService = new AccountService();
     }
 
+    @Autowired
     public AccountController(AccountService accountService) {
         this.accountService = accountService;
     }
 
+    /**
+     * Limits how many balance reads and events are handled at once, answering the rest with 503 (or 429 for an
+     * account over its rate) before calling the service.
+     */
+    public void setAdmission(AccountAdmission admission) {
+        this.admission = admission;
+    }
+
+    public ResponseEntity<Float> getAccountBalance(String accountId){
+        return getAccountBalance(accountId, null);
+    }
+
+    /**
+     * With {@code as_of}, returns the balance the account had at that point instead: right after the ledger
+     * transaction with that sequence, or as of an ISO-8601 instant.
+     */
     @RequestMapping(value="balance", method = RequestMethod.GET)
-    public ResponseEntity<Float> getAccountBalance(@RequestParam("account_id") String accountId){
+    public ResponseEntity<Float> getAccountBalance(@RequestParam("account_id") String accountId,
+                                                   @RequestParam(value = "as_of", required = false) String asOf){
+        AccountAdmission admission = this.admission;
+        if (admission == null) {
+            return balance(accountId, asOf);
+        }
+        GradientLimit limit = admission.reads();
+        if (!limit.tryAcquire()) {
+            return OVERLOADED_BALANCE_RESPONSE;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            return balance(accountId, asOf);
+        } finally {
+            limit.release(startedAt);
+        }
+    }
+
+    private ResponseEntity<Float> balance(String accountId, String asOf) {
+        AccountResult<Float> result;
         try {
-            float accountBalance = accountService.getAccountBalance(accountId);
-            return new ResponseEntity<>(accountBalance, HttpStatus.OK);
-        } catch (AccountNotFoundException e) {
-            return new ResponseEntity<>(0.0f, HttpStatus.NOT_FOUND);
+            result = asOf == null ? accountService.getAccountBalance(accountId) : balanceAsOf(accountId, asOf);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return INVALID_BALANCE_RESPONSE;
         }
+        if (result instanceof AccountResult.Success<Float> success) {
+            return new ResponseEntity<>(success.value(), HttpStatus.OK);
+        }
+        return NOT_FOUND_RESPONSE;
     }
 
+    /**
+     * Pages through the history of an account, newest first. {@code cursor} takes the {@code next} of the previous
+     * page.
+     */
+    @RequestMapping(value="accounts/{id}/transactions", method = RequestMethod.GET)
+    public ResponseEntity<?> getAccountTransactions(@PathVariable("id") String accountId,
+                                                    @RequestParam(value = "cursor", required = false) Long cursor,
+                                                    @RequestParam(value = "limit", defaultValue = "50") int limit){
+        if(limit < 1 || limit > MAX_TRANSACTIONS_PER_PAGE) {
+            return BAD_REQUEST_RESPONSE;
+        }
+        AccountResult<AccountTransactionPageDto> result;
+        try {
+            result = accountService.getAccountTransactions(accountId, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return BAD_REQUEST_RESPONSE;
+        }
+        if (result instanceof AccountResult.Success<AccountTransactionPageDto> success) {
+            return new ResponseEntity<>(success.value(), HttpStatus.OK);
+        }
+        return NOT_FOUND_RESPONSE;
+    }
+
+    /**
+     * Streams the whole ledger as newline-delimited JSON, oldest transaction first, writing each one as it is read.
+     */
+    @RequestMapping(value="transactions", method = RequestMethod.GET, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTransactions(){
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer = TRANSACTION_WRITER.writeValues(new BufferedOutputStream(outputStream))) {
+                accountService.exportTransactions(transaction -> {
+                    try {
+                        writer.write(transaction);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * With admission control, a malformed event is answered before it takes anything, and the concurrency limit is
+     * checked before the account's rate, so an event turned away with 503 doesn't spend the account's token.
+     */
     @RequestMapping(value="event", method = RequestMethod.POST)
     public ResponseEntity<?> handleAccountEvent(@Valid
                                                                      @RequestBody AccountRequestDto accountRequestDto){
+        AccountAdmission admission = this.admission;
+        if (admission == null) {
+            return applyAccountEvent(accountRequestDto);
+        }
+        if (!accountRequestDto.validDepositRequest() && !accountRequestDto.validWithdrawRequest()
+                && !accountRequestDto.validTransferRequest()) {
+            return BAD_REQUEST_RESPONSE;
+        }
+        GradientLimit limit = admission.writes();
+        if (!limit.tryAcquire()) {
+            return OVERLOADED_RESPONSE;
+        }
+        String accountId = accountRequestDto.getOrigin() != null
+                ? accountRequestDto.getOrigin() : accountRequestDto.getDestination();
+        if (!admission.allowAccount(accountId)) {
+            limit.releaseUnmeasured();
+            return RATE_LIMITED_RESPONSE;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            return applyAccountEvent(accountRequestDto);
+        } finally {
+            limit.release(startedAt);
+        }
+    }
+
+    private ResponseEntity<?> applyAccountEvent(AccountRequestDto accountRequestDto) {
         if(accountRequestDto.validDepositRequest()) {
-            AccountResponseDto responseBody =  accountService.depositToAccount(accountRequestDto);
-            return new ResponseEntity<>(responseBody, HttpStatus.CREATED);
+            return toResponse(accountService.depositToAccount(accountRequestDto));
         }
 
         if(accountRequestDto.validWithdrawRequest()) {
-            try {
-                AccountResponseDto responseBody = accountService.withdrawFromAccount(accountRequestDto);
-                return new ResponseEntity<>(responseBody, HttpStatus.CREATED);
-            } catch (AccountNotFoundException e ) {
-                return new ResponseEntity<>(0.0f, HttpStatus.NOT_FOUND);
-            } catch (AccountWithLowerBalanceException e) {
-                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-            }
+            return toResponse(accountService.withdrawFromAccount(accountRequestDto));
         }
 
         if(accountRequestDto.validTransferRequest()) {
-            try {
-                AccountResponseDto responseBody = accountService.transferBetweenAccount(accountRequestDto);
-                return new ResponseEntity<>(responseBody, HttpStatus.CREATED);
-            } catch (AccountNotFoundException e ) {
-                return new ResponseEntity<>(0.0f, HttpStatus.NOT_FOUND);
-            } catch (AccountWithLowerBalanceException e) {
-                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-            }
+            return toResponse(accountService.transferBetweenAccount(accountRequestDto));
+        }
+
+        return BAD_REQUEST_RESPONSE;
+    }
+
+    /**
+     * Applies a JSON array of events in order. By default every event is applied independently and gets its own
+     * status; with {@code atomic=true} either all of them are applied or none is.
+     */
+    @RequestMapping(value="events", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<AccountBatchResultDto>> handleAccountEvents(
+            @RequestBody List<AccountRequestDto> accountRequests,
+            @RequestParam(value = "atomic", defaultValue = "false") boolean atomic){
+        if(atomic) {
+            return applyAtomically(accountRequests);
+        }
+        List<AccountBatchResultDto> results = new ArrayList<>(accountRequests.size());
+        for (AccountRequestDto accountRequest : accountRequests) {
+            results.add(applyEvent(accountRequest));
         }
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
 
-        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    /**
+     * Same as {@link #handleAccountEvents} for newline-delimited JSON. Without {@code atomic} each line is applied
+     * as soon as it is read, and a line that can't be parsed is answered with 400 like any other invalid event.
+     */
+    @RequestMapping(value="events", method = RequestMethod.POST, consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<AccountBatchResultDto>> handleAccountEventStream(
+            InputStream body,
+            @RequestParam(value = "atomic", defaultValue = "false") boolean atomic) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<AccountRequestDto> accountRequests = new ArrayList<>();
+        List<AccountBatchResultDto> results = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            AccountRequestDto accountRequest = readEvent(line);
+            if(atomic) {
+                accountRequests.add(accountRequest);
+            } else {
+                results.add(applyEvent(accountRequest));
+            }
+        }
+        return atomic ? applyAtomically(accountRequests) : new ResponseEntity<>(results, HttpStatus.OK);
     }
 
     @RequestMapping(value="reset", method = RequestMethod.POST)
@@ -69,4 +260,95 @@ public class AccountController {
         accountService.resetDatabase();
         return new ResponseEntity<>("OK", HttpStatus.OK);
     }
+
+    /**
+     * A replica that hasn't been promoted serves reads only.
+     */
+    @ExceptionHandler(AccountReadOnlyException.class)
+    public ResponseEntity<Void> readOnly() {
+        return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private AccountBatchResultDto applyEvent(AccountRequestDto accountRequestDto) {
+        if(accountRequestDto == null || !accountRequestDto.validEventRequest()) {
+            return new AccountBatchResultDto(HttpStatus.BAD_REQUEST.value(), null);
+        }
+        AccountResult<AccountResponseDto> result;
+        if(accountRequestDto.validDepositRequest()) {
+            result = accountService.depositToAccount(accountRequestDto);
+        } else if(accountRequestDto.validWithdrawRequest()) {
+            result = accountService.withdrawFromAccount(accountRequestDto);
+        } else {
+            result = accountService.transferBetweenAccount(accountRequestDto);
+        }
+        if (result instanceof AccountResult.Success<AccountResponseDto> success) {
+            return new AccountBatchResultDto(HttpStatus.CREATED.value(), success.value());
+        }
+        return new AccountBatchResultDto(toResponse(result).getStatusCode().value(), null);
+    }
+
+    /**
+     * Declined outcomes share prebuilt responses, so rejecting a request allocates nothing past the request itself.
+     */
+    private static ResponseEntity<?> toResponse(AccountResult<AccountResponseDto> result) {
+        if (result instanceof AccountResult.Success<AccountResponseDto> success) {
+            return new ResponseEntity<>(success.value(), HttpStatus.CREATED);
+        }
+        if (result instanceof AccountResult.NotFound) {
+            return NOT_FOUND_RESPONSE;
+        }
+        return result instanceof AccountResult.IdempotencyKeyReused ? KEY_REUSED_RESPONSE : BAD_REQUEST_RESPONSE;
+    }
+
+    /**
+     * On failure the response takes the status of the event that failed, and every other event is reported as
+     * 424 FAILED_DEPENDENCY since none of them was applied. An atomic batch can't honor idempotency keys, so an event
+     * carrying one is rejected with 400.
+     */
+    private ResponseEntity<List<AccountBatchResultDto>> applyAtomically(List<AccountRequestDto> accountRequests) {
+        for (int i = 0; i < accountRequests.size(); i++) {
+            AccountRequestDto accountRequest = accountRequests.get(i);
+            if(accountRequest == null || !accountRequest.validEventRequest()
+                    || accountRequest.getIdempotencyKey() != null) {
+                return batchFailure(accountRequests.size(), i, HttpStatus.BAD_REQUEST);
+            }
+        }
+        try {
+            List<AccountResponseDto> responses = accountService.applyEventsAtomically(accountRequests);
+            List<AccountBatchResultDto> results = new ArrayList<>(responses.size());
+            for (AccountResponseDto response : responses) {
+                results.add(new AccountBatchResultDto(HttpStatus.CREATED.value(), response));
+            }
+            return new ResponseEntity<>(results, HttpStatus.CREATED);
+        } catch (AccountBatchFailedException e) {
+            HttpStatus status = e.getCause() instanceof AccountNotFoundException
+                    ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+            return batchFailure(accountRequests.size(), e.getIndex(), status);
+        }
+    }
+
+    private static ResponseEntity<List<AccountBatchResultDto>> batchFailure(int size, int failedIndex,
+                                                                            HttpStatus status) {
+        List<AccountBatchResultDto> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(new AccountBatchResultDto(i == failedIndex ? status.value()
+                    : HttpStatus.FAILED_DEPENDENCY.value(), null));
+        }
+        return new ResponseEntity<>(results, status);
+    }
+
+    private AccountResult<Float> balanceAsOf(String accountId, String asOf) {
+        if (!asOf.isEmpty() && asOf.chars().allMatch(Character::isDigit)) {
+            return accountService.getAccountBalanceAsOf(accountId, Long.parseLong(asOf));
+        }
+        return accountService.getAccountBalanceAsOf(accountId, Instant.parse(asOf));
+    }
+
+    private static AccountRequestDto readEvent(String line) {
+        try {
+            return EVENT_READER.readValue(line);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
 }
@@ -2,12 +2,10 @@ package com.ebanx.accounts;
 
 
 public class AccountEntity {
-    private String accountId;
-    private Float balance;
+    private final String accountId;
+    private final long balance;
 
-    AccountEntity(){}
-
-    AccountEntity(String accountId, Float balance) {
+    public AccountEntity(String accountId, long balance) {
         this.accountId = accountId;
         this.balance = balance;
     }
@@ -16,11 +14,7 @@ public class AccountEntity {
         return accountId;
     }
 
-    public Float getBalance() {
+    public long getBalance() {
         return balance;
     }
-
-    public void setBalance(float balance) {
-        this.balance = balance;
-    }
 }
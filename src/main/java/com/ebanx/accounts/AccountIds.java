@@ -0,0 +1,230 @@
+package com.ebanx.accounts;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps account ids to primitive {@code long} keys, so tables store and compare keys instead of retaining and
+ * comparing id strings. A canonical decimal id of up to 18 digits ({@code "0"}, {@code "100"}, but not {@code "0100"}
+ * or {@code "-1"}) is its own key and is parsed without any lookup. Any other id is interned in the dictionary of its
+ * repository when an account is created with it and gets a negative key; looking an id up never interns it, so ids
+ * that only ever appear in reads or declined events cost nothing.
+ * <p>
+ * An interned key carries the id's hash in its low half, so {@link #hashOf(String)} tells where an id belongs before
+ * it is interned. {@link #clear()} drops every interned id, and keys handed out afterwards never repeat one handed out
+ * before, so a key computed before a clear is just unknown after it rather than another account's.
+ */
+public final class AccountIds {
+    public static final long NO_KEY = -1L;
+
+    private static final int MAX_NUMERIC_DIGITS = 18;
+    private static final int MAX_SERIAL = Integer.MAX_VALUE - 1;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private volatile Generation generation = new Generation(1);
+
+    /**
+     * Returns the key of the id, interning it if needed. Meant for an account being created.
+     *
+     * @throws IllegalStateException once about two billion ids have been interned
+     */
+    public long keyOf(String id) {
+        long key = numericKey(id);
+        if (key != NO_KEY) {
+            return key;
+        }
+        key = findInterned(generation, id);
+        return key != NO_KEY ? key : intern(id);
+    }
+
+    /**
+     * Same as {@link #keyOf(String)} for the UTF-8 id between the absolute positions {@code from} and {@code to} of the
+     * buffer. Only an id that isn't numeric is decoded into a string.
+     */
+    public long keyOf(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (length > 0 && length <= MAX_NUMERIC_DIGITS && (length == 1 || buffer.get(from) != '0')) {
+            long key = 0;
+            int i = from;
+            for (; i < to; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                key = key * 10 + digit;
+            }
+            if (i == to) {
+                return key;
+            }
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(from, bytes);
+        return keyOf(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the key of the id, or {@link #NO_KEY} if it isn't numeric and isn't interned, in which case no account
+     * has it.
+     */
+    public long find(String id) {
+        long key = numericKey(id);
+        return key != NO_KEY ? key : findInterned(generation, id);
+    }
+
+    /**
+     * Returns the id a key was made from, allocating a new string for numeric keys, or null for {@link #NO_KEY} and
+     * for keys interned before the last {@link #clear()}.
+     */
+    public String idOf(long key) {
+        if (key >= 0) {
+            return Long.toString(key);
+        }
+        if (key == NO_KEY) {
+            return null;
+        }
+        Generation current = generation;
+        int index = serialOf(key) - current.firstSerial;
+        String[] ids = current.ids;
+        return index >= 0 && index < ids.length ? ids[index] : null;
+    }
+
+    /**
+     * Returns whether the key is numeric or was interned since the last {@link #clear()}.
+     */
+    public boolean isCurrent(long key) {
+        return key >= 0 || (key != NO_KEY && serialOf(key) >= generation.firstSerial);
+    }
+
+    /**
+     * Drops every interned id. Callers make sure no key from before is stored anywhere afterwards.
+     */
+    public synchronized void clear() {
+        Generation current = generation;
+        generation = new Generation(current.firstSerial + current.count);
+    }
+
+    /**
+     * Spreads a key into a well-mixed hash for the open-addressing tables and the lock segments.
+     */
+    public static int hash(long key) {
+        return AccountTable.spread(key < 0 ? ~(int) key : (int) (key ^ (key >>> 32)));
+    }
+
+    /**
+     * Returns {@link #hash(long)} of the id's key, without interning the id.
+     */
+    public static int hashOf(String id) {
+        long key = numericKey(id);
+        return key != NO_KEY ? hash(key) : AccountTable.spread(id.hashCode());
+    }
+
+    static long numericKey(String id) {
+        int length = id.length();
+        if (length == 0 || length > MAX_NUMERIC_DIGITS || (length > 1 && id.charAt(0) == '0')) {
+            return NO_KEY;
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = id.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NO_KEY;
+            }
+            key = key * 10 + digit;
+        }
+        return key;
+    }
+
+    /**
+     * Packs the serial (from 1) in the high half and the id's hash in the low half, inverted so the key is negative.
+     * Serials stop short of {@code Integer.MAX_VALUE}, so no key is {@link #NO_KEY} or {@link AccountTable}'s empty
+     * slot marker.
+     */
+    private static long key(int serial, int hash) {
+        return ~(((long) serial << 32) | (hash & 0xFFFFFFFFL));
+    }
+
+    private static int serialOf(long key) {
+        return (int) (~key >>> 32);
+    }
+
+    /**
+     * Lock-free: an entry is published only after its id, so a reader that sees the entry can read the id. A reader
+     * racing with a resize may miss an id interned meanwhile, which {@link #intern} checks again under its lock.
+     */
+    private static long findInterned(Generation current, String id) {
+        int hash = id.hashCode();
+        long[] table = current.entries;
+        int mask = table.length - 1;
+        for (int slot = AccountTable.spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            long entry = (long) ENTRIES.getAcquire(table, slot);
+            if (entry == 0L) {
+                return NO_KEY;
+            }
+            if ((int) (entry >>> 32) == hash) {
+                int index = (int) entry - 1;
+                if (current.ids[index].equals(id)) {
+                    return key(current.firstSerial + index, hash);
+                }
+            }
+        }
+    }
+
+    private synchronized long intern(String id) {
+        Generation current = generation;
+        long key = findInterned(current, id);
+        if (key != NO_KEY) {
+            return key;
+        }
+        if (current.count > MAX_SERIAL - current.firstSerial) {
+            throw new IllegalStateException("Too many account ids");
+        }
+        int index = current.count++;
+        String[] ids = current.ids;
+        if (index == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length << 1);
+        }
+        ids[index] = id;
+        current.ids = ids;
+        long[] table = current.entries;
+        if (current.count > table.length - (table.length >> 2)) {
+            table = new long[table.length << 1];
+            for (int i = 0; i < index; i++) {
+                insert(table, ids[i], i);
+            }
+            insert(table, id, index);
+            current.entries = table;
+        } else {
+            insert(table, id, index);
+        }
+        return key(current.firstSerial + index, id.hashCode());
+    }
+
+    private static void insert(long[] table, String id, int index) {
+        int hash = id.hashCode();
+        int mask = table.length - 1;
+        int slot = AccountTable.spread(hash) & mask;
+        while (table[slot] != 0L) {
+            slot = (slot + 1) & mask;
+        }
+        ENTRIES.setRelease(table, slot, ((long) hash << 32) | (index + 1L));
+    }
+
+    /**
+     * The ids interned since one clear, as an open-addressing table of entries packing each id's hash with its index
+     * plus one, so a probe only dereferences an id whose hash already matches. {@code 0} marks a free entry.
+     */
+    private static final class Generation {
+        private final int firstSerial;
+        private volatile long[] entries = new long[INITIAL_CAPACITY];
+        private volatile String[] ids = new String[INITIAL_CAPACITY];
+        private int count;
+
+        private Generation(int firstSerial) {
+            this.firstSerial = firstSerial;
+        }
+    }
+}
@@ -2,15 +2,22 @@ package com.ebanx.accounts;
 
 import com.ebanx.accounts.dtos.AccountDto;
 import com.ebanx.accounts.dtos.AccountEventType;
-import com.ebanx.accounts.dtos.AccountRequestDto;
 import com.ebanx.accounts.dtos.AccountResponseDto;
+import com.ebanx.accounts.dtos.AccountTransactionDto;
 
-import java.util.Optional;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 public class AccountMapper {
+    private static final int MINOR_UNIT_DIGITS = 2;
+    private static final double MINOR_UNITS_PER_UNIT = 100.0;
 
     public static AccountDto toDto(AccountEntity accountEntity){
-        return new AccountDto(accountEntity.getAccountId(), accountEntity.getBalance());
+        return toDto(accountEntity.getAccountId(), accountEntity.getBalance());
+    }
+
+    public static AccountDto toDto(String accountId, long balance){
+        return new AccountDto(accountId, toAmount(balance));
     }
 
     public static AccountResponseDto toResponseDto(AccountDto accountDto, AccountEventType eventType){
@@ -28,12 +35,36 @@ public class AccountMapper {
         return new AccountResponseDto(toDto(originAccountEntity), toDto(destAccountEntity));
     }
 
-    public static AccountEntity toEntity(AccountRequestDto accountRequestDto){
-        String accountId = Optional.ofNullable(accountRequestDto.getDestination()).orElse(accountRequestDto.getOrigin());
-        return new AccountEntity(accountId, accountRequestDto.getAmount());
+    public static AccountResponseDto toResponseDto(AccountBatch batch, int index){
+        return switch (batch.getType(index)) {
+            case DEPOSIT -> new AccountResponseDto(null,
+                    toDto(batch.getDestination(index), batch.getDestinationBalance(index)));
+            case WITHDRAW -> new AccountResponseDto(toDto(batch.getOrigin(index), batch.getOriginBalance(index)), null);
+            case TRANSFER -> new AccountResponseDto(toDto(batch.getOrigin(index), batch.getOriginBalance(index)),
+                    toDto(batch.getDestination(index), batch.getDestinationBalance(index)));
+        };
+    }
+
+    public static AccountTransactionDto toTransactionDto(long sequence, long timestamp, AccountEventType type,
+                                                         String origin, String destination, long amount,
+                                                         long originBalance, long destinationBalance){
+        return new AccountTransactionDto(sequence, timestamp, type, toAmount(amount),
+                origin == null ? null : toDto(origin, originBalance),
+                destination == null ? null : toDto(destination, destinationBalance));
+    }
+
+    public static long toMinorUnits(BigDecimal amount){
+        return amount.setScale(MINOR_UNIT_DIGITS, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static float toAmount(long minorUnits){
+        return (float) (minorUnits / MINOR_UNITS_PER_UNIT);
     }
 
-    public static AccountEntity toEntity(AccountDto accountDto){
-        return new AccountEntity(accountDto.getId(), accountDto.getBalance());
+    /**
+     * Same as {@link #toAmount} without rounding, for sums too large for a float to hold to the cent.
+     */
+    public static BigDecimal toExactAmount(long minorUnits){
+        return BigDecimal.valueOf(minorUnits, MINOR_UNIT_DIGITS);
     }
 }
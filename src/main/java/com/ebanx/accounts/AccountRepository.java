@@ -1,33 +1,1203 @@
 package com.ebanx.accounts;
 
+import com.ebanx.accounts.dtos.AccountEventType;
+import com.ebanx.accounts.exceptions.AccountNotFoundException;
+import com.ebanx.accounts.exceptions.AccountReadOnlyException;
+import com.ebanx.accounts.exceptions.AccountWithLowerBalanceException;
+import com.ebanx.accounts.journal.AccountJournal;
+import com.ebanx.accounts.journal.JournalRecordType;
+import com.ebanx.accounts.ledger.AccountLedger;
+import com.ebanx.accounts.metrics.AccountMetrics;
+import com.ebanx.accounts.metrics.HotAccountTracker;
+import com.ebanx.accounts.reads.ReadConsistency;
 import org.springframework.stereotype.Repository;
 
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Concurrent account storage. Accounts are split into lock-striped segments, each holding a primitive
+ * {@link AccountTable} of balances in minor units keyed by {@link AccountIds} keys, so operations on disjoint
+ * accounts proceed in parallel, updates to the same account are never lost and the deposit/withdraw paths allocate
+ * nothing. Every change is appended to
+ * the attached {@link AccountJournal} under the same locks, before it is applied, and the caller waits for the
+ * journal to make it durable only after the locks are released. Applied changes are also recorded, under the same
+ * locks, in the attached {@link AccountLedger}.
+ * <p>
+ * Balance reads don't take the locks. Every segment is also a seqlock: writers bump its version to an odd value before
+ * changing the table and to the next even value after, and a reader retries until it reads the table within one even
+ * version, taking the lock only if writers keep interfering. With {@link ReadConsistency#BOUNDED_STALENESS}, reads
+ * come from a copy of each segment republished by {@link #publishSnapshots()} instead and never touch what writers
+ * write.
+ * <p>
+ * A read-only repository, such as a replica's, rejects every write with {@link AccountReadOnlyException} except the
+ * {@code replicate*} calls that apply the changes it copies.
+ * <p>
+ * An account with a split balance ({@link #splitBalance}) takes deposits without the segment lock: they land in a
+ * {@link SplitBalance}, and its balance is the table balance plus those credits. Debits, transfers and batches fold the
+ * credits into the table under the lock before checking funds, so they never overdraw. A deposit's result then is the
+ * balance read right after it, which may include concurrent deposits. Split balances produce no journal or ledger
+ * records, so a repository with a journal or a ledger attached refuses them.
+ * <p>
+ * The number of accounts and the sum of their balances are kept up to date by every write, so reading them scans
+ * nothing. Other whole-repository figures come from {@link #scan}, which reads the segments in parallel without
+ * holding their locks.
+ */
 @Repository
 public class AccountRepository {
+    public static final long NO_ACCOUNT = -1L;
+    public static final long INSUFFICIENT_FUNDS = -2L;
 
-    private final Map<String, AccountEntity> accounts;
+    private static final int DEFAULT_SEGMENTS = 1024;
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 8;
+    private static final int SEGMENTS_PER_SCAN_TASK = 16;
+    private static final int SCAN_BATCH = 1024;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final AccountIds accountIds = new AccountIds();
+    private volatile AccountJournal journal = AccountJournal.NONE;
+    private volatile AccountLedger ledger;
+    private volatile AccountMetrics metrics = AccountMetrics.NONE;
+    private volatile ReadConsistency readConsistency = ReadConsistency.LINEARIZABLE;
+    private volatile boolean readOnly;
+    private volatile HotAccountTracker depositContention;
+    private final ThreadLocal<DeferredDurability> deferredDurability =
+            ThreadLocal.withInitial(DeferredDurability::new);
+    /**
+     * Replaced under the monitor and the account's segment write lock, so a reader that sees an unchanged segment
+     * version also saw the split accounts current for that segment.
+     */
+    private volatile SplitAccounts splitAccounts = SplitAccounts.NONE;
+    private final LongAdder accountCount = new LongAdder();
+    private final LongAdder totalBalance = new LongAdder();
 
     public AccountRepository() {
-        this.accounts = new HashMap<>();
+        this(DEFAULT_SEGMENTS, 0);
+    }
+
+    public AccountRepository(int segmentCount, int expectedAccounts) {
+        int count = Integer.highestOneBit(Math.max(2, segmentCount) - 1) << 1;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(expectedAccounts / count);
+        }
+        this.segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(count);
     }
 
     public Optional<AccountEntity> getAccountById(String id) {
-        return Optional.ofNullable(accounts.get(id));
+        long balance = getBalance(id);
+        return balance == NO_ACCOUNT ? Optional.empty() : Optional.of(new AccountEntity(id, balance));
+    }
+
+    public long getBalance(String id) {
+        long key = accountIds.find(id);
+        if (key == AccountIds.NO_KEY) {
+            return NO_ACCOUNT;
+        }
+        Segment segment = segmentFor(key);
+        if (readConsistency == ReadConsistency.BOUNDED_STALENESS && splitAccounts.find(key) == null) {
+            AccountTable.Snapshot snapshot = segment.snapshot;
+            if (snapshot != null) {
+                return snapshot.balanceOf(key, NO_ACCOUNT);
+            }
+        }
+        return balanceOf(segment, key);
+    }
+
+    /**
+     * A fold is a write, so within one even version the table balance is fixed and split credits only grow. The cells
+     * are summed one after another, like {@code LongAdder.sum()}, so the result counts every deposit completed before
+     * the read and any subset of the concurrent ones: it lies between the balances the account had when the read
+     * started and when it ended, but with concurrent deposits it need not be a balance the account ever had.
+     */
+    private long balanceOf(Segment segment, long key) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long version = segment.version;
+            if ((version & 1L) == 0L) {
+                SplitBalance split = splitAccounts.find(key);
+                long balance = segment.table.balanceOf(key, NO_ACCOUNT);
+                long credits = split == null ? 0L : split.sum();
+                VarHandle.acquireFence();
+                if (segment.version == version) {
+                    return balance == NO_ACCOUNT ? NO_ACCOUNT : balance + credits;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        lock(segment);
+        try {
+            int slot = segment.table.find(key);
+            return slot == AccountTable.NOT_FOUND ? NO_ACCOUNT : segment.table.balanceAt(slot) + splitCredits(key);
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Returns the newest ledger transaction of the account, {@link AccountLedger#NO_TRANSACTION} if it has none, or
+     * {@link #NO_ACCOUNT}.
+     */
+    public long getLastTransaction(String id) {
+        long key = accountIds.find(id);
+        if (key == AccountIds.NO_KEY) {
+            return NO_ACCOUNT;
+        }
+        Segment segment = segmentFor(key);
+        lock(segment);
+        try {
+            int slot = segment.table.find(key);
+            return slot == AccountTable.NOT_FOUND ? NO_ACCOUNT : segment.table.transactionAt(slot);
+        } finally {
+            segment.unlock();
+        }
     }
 
     public void emptyDatabase() {
-        accounts.clear();
+        checkWritable();
+        clear();
     }
 
+    /**
+     * Same as {@link #emptyDatabase()}, even on a read-only repository.
+     */
+    public void replicateReset() {
+        clear();
+    }
+
+    private void clear() {
+        for (Segment segment : segments) {
+            segment.lock();
+            segment.beginWrite();
+        }
+        long ticket;
+        try {
+            ticket = journal.append(JournalRecordType.RESET, null, null, 0L, 0L, 0L);
+            long removedAccounts = 0L;
+            long removedBalance = 0L;
+            for (Segment segment : segments) {
+                AccountTable table = segment.table;
+                for (int slot = 0; slot < table.capacity(); slot++) {
+                    if (table.keyAt(slot) != AccountIds.NO_KEY) {
+                        removedBalance += table.balanceAt(slot);
+                    }
+                }
+                removedAccounts += table.size();
+                table.clear();
+            }
+            accountIds.clear();
+            for (SplitBalance split : splitAccounts.balances()) {
+                split.retire();
+                removedBalance += split.drain();
+            }
+            accountCount.add(-removedAccounts);
+            totalBalance.add(-removedBalance);
+            splitAccounts = SplitAccounts.NONE;
+            AccountLedger currentLedger = ledger;
+            if (currentLedger != null) {
+                currentLedger.clear();
+            }
+        } finally {
+            for (Segment segment : segments) {
+                segment.endWrite();
+                segment.unlock();
+            }
+        }
+        awaitDurable(journal, ticket);
+    }
+
+    /**
+     * Returns the number of accounts. Like {@link #getTotalBalance()}, it is exact when no write is in progress and
+     * otherwise may or may not count the writes in progress.
+     */
     public int getSize() {
-        return accounts.size();
+        return accountCount.intValue();
+    }
+
+    /**
+     * Returns the sum of the balances of every account, in minor units. A transfer leaves it alone and a batch or a
+     * replicated group adds its net change in one step, so it never shows money in flight between two accounts. Like
+     * any {@code LongAdder.sum()}, it may count some of the deposits and withdrawals in progress and not others.
+     */
+    public long getTotalBalance() {
+        return totalBalance.sum();
+    }
+
+    /**
+     * Returns the dictionary of this repository's account ids, which a reset clears.
+     */
+    public AccountIds getAccountIds() {
+        return accountIds;
+    }
+
+    public void forEachAccount(AccountVisitor visitor) {
+        for (Segment segment : segments) {
+            segment.lock();
+            try {
+                AccountTable table = segment.table;
+                for (int slot = 0; slot < table.capacity(); slot++) {
+                    String id = accountIds.idOf(table.keyAt(slot));
+                    if (id != null) {
+                        visitor.visit(id, table.balanceAt(slot) + splitCredits(table.keyAt(slot)));
+                    }
+                }
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs the scan over every account on the pool, one task per few segments, and returns the combined result. Each
+     * segment is read like a balance: without its lock, starting over if a writer changed it meanwhile, and under the
+     * lock only if writers keep interfering, so a writer waits at most for the scan of one segment. Every segment is
+     * seen as of one moment, but different segments as of different moments.
+     */
+    public <R> R scan(AccountScan<R> scan, ForkJoinPool pool) {
+        return pool.invoke(new ScanTask<>(scan, 0, segments.length));
+    }
+
+    private <R> R scanSegment(Segment segment, AccountScan<R> scan, long[] keys, long[] balances) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long version = segment.version;
+            if ((version & 1L) == 0L) {
+                R result = scanTable(segment.table, scan, keys, balances);
+                VarHandle.acquireFence();
+                if (segment.version == version) {
+                    return result;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        lock(segment);
+        try {
+            return scanTable(segment.table, scan, keys, balances);
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    private <R> R scanTable(AccountTable table, AccountScan<R> scan, long[] keys, long[] balances) {
+        R result = scan.newResult();
+        SplitAccounts splits = splitAccounts;
+        if (splits.keys().length == 0) {
+            table.forEach(keys, balances, (batchKeys, batchBalances, count) ->
+                    scan.visit(result, batchKeys, batchBalances, count));
+        } else {
+            table.forEach(keys, balances, (batchKeys, batchBalances, count) -> {
+                for (int i = 0; i < count; i++) {
+                    SplitBalance split = splits.find(batchKeys[i]);
+                    if (split != null) {
+                        batchBalances[i] += split.sum();
+                    }
+                }
+                scan.visit(result, batchKeys, batchBalances, count);
+            });
+        }
+        return result;
+    }
+
+    public void setJournal(AccountJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Lets the writes the calling thread makes from now on return as soon as they are applied, without waiting for the
+     * journal, until {@link #awaitDeferredDurability}. Meant for a caller that applies a run of events and answers them
+     * together, so the run waits for the journal once instead of once per event; it must not reveal their outcome
+     * before then.
+     */
+    public void deferDurability() {
+        deferredDurability.get().deferring = true;
+    }
+
+    /**
+     * Ends {@link #deferDurability} and waits until every write the calling thread made since is durable.
+     */
+    public void awaitDeferredDurability() {
+        DeferredDurability deferred = deferredDurability.get();
+        AccountJournal deferredJournal = deferred.journal;
+        long ticket = deferred.ticket;
+        deferred.deferring = false;
+        deferred.journal = null;
+        deferred.ticket = 0L;
+        if (deferredJournal != null) {
+            deferredJournal.awaitDurable(ticket);
+        }
+    }
+
+    private void awaitDurable(AccountJournal currentJournal, long ticket) {
+        if (currentJournal == AccountJournal.NONE) {
+            return;
+        }
+        DeferredDurability deferred = deferredDurability.get();
+        if (!deferred.deferring) {
+            currentJournal.awaitDurable(ticket);
+        } else if (deferred.journal == currentJournal) {
+            deferred.ticket = Math.max(deferred.ticket, ticket);
+        } else {
+            if (deferred.journal != null) {
+                deferred.journal.awaitDurable(deferred.ticket);
+            }
+            deferred.journal = currentJournal;
+            deferred.ticket = ticket;
+        }
+    }
+
+    public void setLedger(AccountLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    public void setMetrics(AccountMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setReadConsistency(ReadConsistency readConsistency) {
+        this.readConsistency = readConsistency;
+    }
+
+    /**
+     * Samples the accounts whose deposits find their segment locked into the tracker, or stops sampling if null.
+     */
+    public void setDepositContention(HotAccountTracker depositContention) {
+        this.depositContention = depositContention;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Copies every segment changed since its last copy for {@link ReadConsistency#BOUNDED_STALENESS} reads and returns
+     * how many were copied. A copy shares the pages of slots not written since the last one (see
+     * {@link AccountTable#snapshot}), and is taken like an optimistic read, and under the lock if writers keep
+     * interfering. Meant to be called from a single thread.
+     */
+    public int publishSnapshots() {
+        int published = 0;
+        for (Segment segment : segments) {
+            if (segment.snapshot == null || segment.snapshotVersion != segment.version) {
+                publishSnapshot(segment);
+                published++;
+            }
+        }
+        return published;
+    }
+
+    private void publishSnapshot(Segment segment) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long version = segment.version;
+            if ((version & 1L) == 0L) {
+                AccountTable.Snapshot copy = segment.table.snapshot(segment.snapshot);
+                VarHandle.acquireFence();
+                if (segment.version == version) {
+                    segment.snapshotVersion = version;
+                    segment.snapshot = copy;
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        lock(segment);
+        try {
+            segment.snapshotVersion = segment.version;
+            segment.snapshot = segment.table.snapshot(segment.snapshot);
+        } finally {
+            segment.unlock();
+        }
     }
 
     public void putAccount(AccountEntity account) {
-        accounts.put(account.getAccountId(), account);
+        putBalance(account.getAccountId(), account.getBalance());
+    }
+
+    public void putBalance(String id, long balance) {
+        checkWritable();
+        Segment segment = segmentFor(id);
+        long ticket;
+        lockForWrite(segment);
+        try {
+            ticket = journal.append(JournalRecordType.BALANCE, null, id, balance, 0L, balance);
+            long key = accountIds.keyOf(id);
+            SplitBalance split = splitAccounts.find(key);
+            if (split != null) {
+                totalBalance.add(-split.drain());
+            }
+            setBalance(segment.table, slotFor(segment.table, key), balance);
+        } finally {
+            unlockAfterWrite(segment);
+        }
+        awaitDurable(journal, ticket);
+    }
+
+    /**
+     * Sets the balances of the first {@code count} keys, as {@link #putBalance} does one at a time, waiting for the
+     * journal only once. Meant for bulk loads: the segments are locked one account at a time, so concurrent loads of
+     * different accounts rarely meet, and no id is rebuilt from its key unless a journal needs it. The keys come from
+     * {@link #getAccountIds()}; one interned before a reset that ran meanwhile is skipped, as if set before the reset.
+     * A loaded balance is no transaction, so a repository with a ledger attached refuses them.
+     *
+     * @throws IllegalStateException if a ledger is attached
+     */
+    public void putBalances(long[] keys, long[] balances, int count) {
+        checkWritable();
+        if (ledger != null) {
+            throw new IllegalStateException("Bulk loads can't be recorded in the ledger");
+        }
+        AccountJournal currentJournal = journal;
+        boolean journaled = currentJournal != AccountJournal.NONE;
+        long ticket = 0L;
+        for (int i = 0; i < count; i++) {
+            Segment segment = segmentFor(keys[i]);
+            lockForWrite(segment);
+            try {
+                if (!accountIds.isCurrent(keys[i])) {
+                    continue;
+                }
+                if (journaled) {
+                    ticket = currentJournal.append(JournalRecordType.BALANCE, null, accountIds.idOf(keys[i]),
+                            balances[i], 0L, balances[i]);
+                }
+                SplitBalance split = splitAccounts.find(keys[i]);
+                if (split != null) {
+                    totalBalance.add(-split.drain());
+                }
+                setBalance(segment.table, slotFor(segment.table, keys[i]), balances[i]);
+            } finally {
+                unlockAfterWrite(segment);
+            }
+        }
+        awaitDurable(currentJournal, ticket);
+    }
+
+    /**
+     * Sets the balances of the first {@code count} accounts, in order, so they become visible all at once and are
+     * journaled as one group. This is how a replica applies the changes of another repository, so it works even on a
+     * read-only repository; the ledger isn't told, since a balance carries no transaction.
+     */
+    public void replicateBalances(String[] ids, long[] balances, int count) {
+        if (count == 0) {
+            return;
+        }
+        BitSet involved = new BitSet(segments.length);
+        for (int i = 0; i < count; i++) {
+            involved.set(segmentIndex(ids[i]));
+        }
+        for (int i = involved.nextSetBit(0); i >= 0; i = involved.nextSetBit(i + 1)) {
+            lockForWrite(segments[i]);
+        }
+        long ticket = 0L;
+        try {
+            if (count == 1) {
+                ticket = journal.append(JournalRecordType.BALANCE, null, ids[0], balances[0], 0L, balances[0]);
+            } else {
+                journal.beginBatch(count);
+                try {
+                    for (int i = 0; i < count; i++) {
+                        ticket = journal.append(JournalRecordType.BALANCE, null, ids[i], balances[i], 0L,
+                                balances[i]);
+                    }
+                } finally {
+                    journal.endBatch();
+                }
+            }
+            long change = 0L;
+            for (int i = 0; i < count; i++) {
+                long key = accountIds.keyOf(ids[i]);
+                AccountTable table = segmentFor(key).table;
+                change += replaceBalance(table, slotFor(table, key), balances[i]);
+            }
+            totalBalance.add(change);
+        } finally {
+            for (int i = involved.nextSetBit(0); i >= 0; i = involved.nextSetBit(i + 1)) {
+                unlockAfterWrite(segments[i]);
+            }
+        }
+        awaitDurable(journal, ticket);
+    }
+
+    public long createOrCreditAccount(String id, long amount) {
+        checkWritable();
+        long key = accountIds.find(id);
+        Segment segment = segmentFor(id);
+        SplitBalance split = splitAccounts.find(key);
+        if (split != null) {
+            return creditSplit(segment, key, split, amount);
+        }
+        long ticket;
+        long balance;
+        lockForDeposit(segment, id);
+        try {
+            int slot = segment.table.find(accountIds.find(id));
+            balance = (slot == AccountTable.NOT_FOUND ? 0L : segment.table.balanceAt(slot)) + amount;
+            ticket = journal.append(JournalRecordType.DEPOSIT, null, id, amount, 0L, balance);
+            if (slot == AccountTable.NOT_FOUND) {
+                slot = slotFor(segment.table, accountIds.keyOf(id));
+            }
+            setBalance(segment.table, slot, balance);
+            record(AccountEventType.DEPOSIT, null, AccountTable.NOT_FOUND, segment.table, slot, amount, 0L, balance);
+        } finally {
+            unlockAfterWrite(segment);
+        }
+        awaitDurable(journal, ticket);
+        return balance;
+    }
+
+    public long creditAccount(String id, long amount) {
+        checkWritable();
+        long key = accountIds.find(id);
+        if (key == AccountIds.NO_KEY) {
+            return NO_ACCOUNT;
+        }
+        Segment segment = segmentFor(key);
+        SplitBalance split = splitAccounts.find(key);
+        if (split != null) {
+            return creditSplit(segment, key, split, amount);
+        }
+        long ticket;
+        long balance;
+        lockForDeposit(segment, id);
+        try {
+            int slot = segment.table.find(key);
+            if (slot == AccountTable.NOT_FOUND) {
+                return NO_ACCOUNT;
+            }
+            balance = segment.table.balanceAt(slot) + amount;
+            ticket = journal.append(JournalRecordType.DEPOSIT, null, id, amount, 0L, balance);
+            setBalance(segment.table, slot, balance);
+            record(AccountEventType.DEPOSIT, null, AccountTable.NOT_FOUND, segment.table, slot, amount, 0L, balance);
+        } finally {
+            unlockAfterWrite(segment);
+        }
+        awaitDurable(journal, ticket);
+        return balance;
+    }
+
+    public long debitAccount(String id, long amount) {
+        checkWritable();
+        long key = accountIds.find(id);
+        if (key == AccountIds.NO_KEY) {
+            return NO_ACCOUNT;
+        }
+        Segment segment = segmentFor(key);
+        long ticket;
+        long balance;
+        lockForWrite(segment);
+        try {
+            int slot = segment.table.find(key);
+            if (slot == AccountTable.NOT_FOUND) {
+                return NO_ACCOUNT;
+            }
+            foldSplit(segment.table, key);
+            balance = segment.table.balanceAt(slot);
+            if (balance < amount) {
+                return INSUFFICIENT_FUNDS;
+            }
+            balance -= amount;
+            ticket = journal.append(JournalRecordType.WITHDRAW, id, null, amount, balance, 0L);
+            setBalance(segment.table, slot, balance);
+            record(AccountEventType.WITHDRAW, segment.table, slot, null, AccountTable.NOT_FOUND, amount, balance, 0L);
+        } finally {
+            unlockAfterWrite(segment);
+        }
+        awaitDurable(journal, ticket);
+        return balance;
+    }
+
+    public AccountResult<AccountTransferEntity> transferBetweenAccounts(String originId, String destinationId,
+                                                                        long amount) {
+        checkWritable();
+        long originKey = accountIds.find(originId);
+        if (originKey == AccountIds.NO_KEY) {
+            return AccountResult.notFound();
+        }
+        Segment originSegment = segmentFor(originKey);
+        Segment destinationSegment = segmentFor(destinationId);
+        long ticket;
+        long originBalance;
+        long destinationBalance;
+        lockBothForWrite(originSegment, destinationSegment);
+        try {
+            int originSlot = originSegment.table.find(originKey);
+            if (originSlot == AccountTable.NOT_FOUND) {
+                return AccountResult.notFound();
+            }
+            foldSplit(originSegment.table, originKey);
+            originBalance = originSegment.table.balanceAt(originSlot);
+            if (originBalance < amount) {
+                return AccountResult.insufficientFunds();
+            }
+            if (originId.equals(destinationId)) {
+                destinationBalance = originBalance;
+                ticket = journal.append(JournalRecordType.TRANSFER, originId, destinationId, amount, originBalance,
+                        destinationBalance);
+                record(AccountEventType.TRANSFER, originSegment.table, originSlot, originSegment.table, originSlot,
+                        amount, originBalance, destinationBalance);
+            } else {
+                long destinationKey = accountIds.find(destinationId);
+                foldSplit(destinationSegment.table, destinationKey);
+                int destinationSlot = destinationSegment.table.find(destinationKey);
+                originBalance -= amount;
+                destinationBalance = (destinationSlot == AccountTable.NOT_FOUND
+                        ? 0L : destinationSegment.table.balanceAt(destinationSlot)) + amount;
+                ticket = journal.append(JournalRecordType.TRANSFER, originId, destinationId, amount, originBalance,
+                        destinationBalance);
+                // the two changes cancel out, so the total isn't touched
+                replaceBalance(originSegment.table, originSlot, originBalance);
+                if (destinationSlot == AccountTable.NOT_FOUND) {
+                    destinationSlot = slotFor(destinationSegment.table, accountIds.keyOf(destinationId));
+                }
+                replaceBalance(destinationSegment.table, destinationSlot, destinationBalance);
+                record(AccountEventType.TRANSFER, originSegment.table, originSlot, destinationSegment.table,
+                        destinationSlot, amount, originBalance, destinationBalance);
+            }
+        } finally {
+            unlockBothAfterWrite(originSegment, destinationSegment);
+        }
+        awaitDurable(journal, ticket);
+        return AccountResult.success(new AccountTransferEntity(new AccountEntity(originId, originBalance),
+                new AccountEntity(destinationId, destinationBalance)));
+    }
+
+    /**
+     * Applies every event of the batch or none of them. The segments of all the accounts involved are locked in
+     * index order and the events are first evaluated against a private copy of their balances; only if all of them
+     * succeed are the balances written to the tables and the records appended to the journal as one batch.
+     * Otherwise nothing changes and the batch records the first event that failed.
+     */
+    public boolean applyAtomically(AccountBatch batch) {
+        checkWritable();
+        if (batch.size() == 0) {
+            return true;
+        }
+        BitSet involved = new BitSet(segments.length);
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.getOrigin(i) != null) {
+                involved.set(segmentIndex(batch.getOrigin(i)));
+            }
+            if (batch.getDestination(i) != null) {
+                involved.set(segmentIndex(batch.getDestination(i)));
+            }
+        }
+        for (int i = involved.nextSetBit(0); i >= 0; i = involved.nextSetBit(i + 1)) {
+            lockForWrite(segments[i]);
+        }
+        long ticket = 0L;
+        try {
+            Map<String, Long> balances = new HashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                RuntimeException failure = evaluate(batch, i, balances);
+                if (failure != null) {
+                    batch.fail(i, failure);
+                    return false;
+                }
+            }
+            journal.beginBatch(batch.size());
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    ticket = journal.append(recordType(batch.getType(i)), batch.getOrigin(i),
+                            batch.getDestination(i), batch.getAmount(i), batch.getOriginBalance(i),
+                            batch.getDestinationBalance(i));
+                }
+            } finally {
+                journal.endBatch();
+            }
+            long change = 0L;
+            for (Map.Entry<String, Long> balance : balances.entrySet()) {
+                long key = accountIds.keyOf(balance.getKey());
+                AccountTable table = segmentFor(key).table;
+                change += replaceBalance(table, slotFor(table, key), balance.getValue());
+            }
+            totalBalance.add(change);
+            if (ledger != null) {
+                for (int i = 0; i < batch.size(); i++) {
+                    record(batch, i);
+                }
+            }
+        } finally {
+            for (int i = involved.nextSetBit(0); i >= 0; i = involved.nextSetBit(i + 1)) {
+                unlockAfterWrite(segments[i]);
+            }
+        }
+        awaitDurable(journal, ticket);
+        return true;
+    }
+
+    private RuntimeException evaluate(AccountBatch batch, int index, Map<String, Long> balances) {
+        String origin = batch.getOrigin(index);
+        String destination = batch.getDestination(index);
+        long amount = batch.getAmount(index);
+        if (batch.getType(index) == AccountEventType.DEPOSIT) {
+            long destinationBalance = Math.max(0L, lockedBalance(destination, balances)) + amount;
+            balances.put(destination, destinationBalance);
+            batch.setBalances(index, 0L, destinationBalance);
+            return null;
+        }
+        long originBalance = lockedBalance(origin, balances);
+        if (originBalance == NO_ACCOUNT) {
+            return new AccountNotFoundException();
+        }
+        if (originBalance < amount) {
+            return new AccountWithLowerBalanceException();
+        }
+        if (batch.getType(index) == AccountEventType.WITHDRAW) {
+            balances.put(origin, originBalance - amount);
+            batch.setBalances(index, originBalance - amount, 0L);
+        } else if (origin.equals(destination)) {
+            batch.setBalances(index, originBalance, originBalance);
+        } else {
+            long destinationBalance = Math.max(0L, lockedBalance(destination, balances)) + amount;
+            balances.put(origin, originBalance - amount);
+            balances.put(destination, destinationBalance);
+            batch.setBalances(index, originBalance - amount, destinationBalance);
+        }
+        return null;
+    }
+
+    /**
+     * Records an applied change in the ledger, if one is attached, as the newest transaction of the accounts
+     * involved. A missing side of the change has {@link AccountTable#NOT_FOUND} as its slot.
+     */
+    private void record(AccountEventType type, AccountTable originTable, int originSlot, AccountTable destinationTable,
+                        int destinationSlot, long amount, long originBalance, long destinationBalance) {
+        AccountLedger currentLedger = ledger;
+        if (currentLedger == null) {
+            return;
+        }
+        boolean sameAccount = originTable == destinationTable && originSlot == destinationSlot;
+        long sequence = currentLedger.append(type,
+                originSlot == AccountTable.NOT_FOUND ? AccountIds.NO_KEY : originTable.keyAt(originSlot),
+                destinationSlot == AccountTable.NOT_FOUND
+                        ? AccountIds.NO_KEY : destinationTable.keyAt(destinationSlot),
+                amount, originBalance, destinationBalance,
+                originSlot == AccountTable.NOT_FOUND ? AccountLedger.NO_TRANSACTION
+                        : originTable.transactionAt(originSlot),
+                destinationSlot == AccountTable.NOT_FOUND || sameAccount ? AccountLedger.NO_TRANSACTION
+                        : destinationTable.transactionAt(destinationSlot));
+        if (originSlot != AccountTable.NOT_FOUND) {
+            originTable.setTransactionAt(originSlot, sequence);
+        }
+        if (destinationSlot != AccountTable.NOT_FOUND) {
+            destinationTable.setTransactionAt(destinationSlot, sequence);
+        }
+    }
+
+    private void record(AccountBatch batch, int index) {
+        long origin = batch.getOrigin(index) == null ? AccountIds.NO_KEY : accountIds.find(batch.getOrigin(index));
+        long destination = batch.getDestination(index) == null
+                ? AccountIds.NO_KEY : accountIds.find(batch.getDestination(index));
+        AccountTable originTable = origin == AccountIds.NO_KEY ? null : segmentFor(origin).table;
+        AccountTable destinationTable = destination == AccountIds.NO_KEY ? null : segmentFor(destination).table;
+        record(batch.getType(index), originTable,
+                originTable == null ? AccountTable.NOT_FOUND : originTable.find(origin), destinationTable,
+                destinationTable == null ? AccountTable.NOT_FOUND : destinationTable.find(destination),
+                batch.getAmount(index), batch.getOriginBalance(index), batch.getDestinationBalance(index));
+    }
+
+    private long lockedBalance(String id, Map<String, Long> balances) {
+        Long pending = balances.get(id);
+        if (pending != null) {
+            return pending;
+        }
+        long key = accountIds.find(id);
+        AccountTable table = segmentFor(id).table;
+        foldSplit(table, key);
+        int slot = table.find(key);
+        return slot == AccountTable.NOT_FOUND ? NO_ACCOUNT : table.balanceAt(slot);
+    }
+
+    /**
+     * Splits the balance of an existing account, so its deposits stop taking the segment lock, and returns whether it
+     * wasn't split already.
+     *
+     * @throws IllegalStateException if a journal or a ledger is attached
+     */
+    public synchronized boolean splitBalance(String id) {
+        if (journal != AccountJournal.NONE || ledger != null) {
+            throw new IllegalStateException("Split balances can't be journaled or recorded in the ledger");
+        }
+        long key = accountIds.find(id);
+        if (key == AccountIds.NO_KEY) {
+            return false;
+        }
+        Segment segment = segmentFor(key);
+        lockForWrite(segment);
+        try {
+            if (segment.table.find(key) == AccountTable.NOT_FOUND || splitAccounts.find(key) != null) {
+                return false;
+            }
+            splitAccounts = splitAccounts.with(key, new SplitBalance());
+        } finally {
+            unlockAfterWrite(segment);
+        }
+        return true;
+    }
+
+    /**
+     * Folds the credits of a split account into its balance and takes deposits under the lock again. Returns whether
+     * the account was split.
+     */
+    public synchronized boolean mergeBalance(String id) {
+        long key = accountIds.find(id);
+        if (key == AccountIds.NO_KEY) {
+            return false;
+        }
+        Segment segment = segmentFor(key);
+        lockForWrite(segment);
+        try {
+            SplitBalance split = splitAccounts.find(key);
+            if (split == null) {
+                return false;
+            }
+            splitAccounts = splitAccounts.without(key);
+            split.retire();
+            fold(segment.table, key, split);
+        } finally {
+            unlockAfterWrite(segment);
+        }
+        return true;
+    }
+
+    public List<String> getSplitAccounts() {
+        List<String> ids = new ArrayList<>();
+        for (long key : splitAccounts.keys()) {
+            ids.add(accountIds.idOf(key));
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the number of deposits to each split account since the previous call.
+     */
+    public Map<String, Long> drainSplitDeposits() {
+        SplitAccounts current = splitAccounts;
+        Map<String, Long> deposits = new LinkedHashMap<>();
+        for (int i = 0; i < current.keys().length; i++) {
+            deposits.put(accountIds.idOf(current.keys()[i]), current.balances()[i].drainDeposits());
+        }
+        return deposits;
+    }
+
+    /**
+     * Credits a split account without its segment lock. A deposit that raced with the account being merged, or with a
+     * reset, may have credited a retired split balance nobody folds any more, so it folds it itself.
+     */
+    private long creditSplit(Segment segment, long key, SplitBalance split, long amount) {
+        split.add(amount);
+        totalBalance.add(amount);
+        if (split.isRetired()) {
+            lockForWrite(segment);
+            try {
+                fold(segment.table, key, split);
+            } finally {
+                unlockAfterWrite(segment);
+            }
+        }
+        long balance = balanceOf(segment, key);
+        return balance == NO_ACCOUNT ? amount : balance;
+    }
+
+    private void foldSplit(AccountTable table, long key) {
+        SplitBalance split = splitAccounts.find(key);
+        if (split != null) {
+            fold(table, key, split);
+        }
+    }
+
+    /**
+     * Moves the split credits into the table balance; called under the segment write lock. The credits of an account
+     * removed by a reset are dropped with it.
+     */
+    private void fold(AccountTable table, long key, SplitBalance split) {
+        long credits = split.drain();
+        int slot = table.find(key);
+        if (slot != AccountTable.NOT_FOUND) {
+            table.setBalanceAt(slot, table.balanceAt(slot) + credits);
+        } else {
+            totalBalance.add(-credits);
+        }
+    }
+
+    /**
+     * Finds or inserts the key, counting the account if it is new; called under the segment write lock.
+     */
+    private int slotFor(AccountTable table, long key) {
+        int size = table.size();
+        int slot = table.findOrInsert(key);
+        if (table.size() != size) {
+            accountCount.increment();
+        }
+        return slot;
+    }
+
+    /**
+     * Sets a balance and adds the change to the total; called under the segment write lock. A new slot's balance is 0.
+     */
+    private void setBalance(AccountTable table, int slot, long balance) {
+        totalBalance.add(replaceBalance(table, slot, balance));
+    }
+
+    /**
+     * Sets a balance and returns the change, for a write that adds the changes of all its balances to the total at
+     * once; called under the segment write lock. A new slot's balance is 0.
+     */
+    private long replaceBalance(AccountTable table, int slot, long balance) {
+        long change = balance - table.balanceAt(slot);
+        table.setBalanceAt(slot, balance);
+        return change;
+    }
+
+    private long splitCredits(long key) {
+        SplitBalance split = splitAccounts.find(key);
+        return split == null ? 0L : split.sum();
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new AccountReadOnlyException();
+        }
+    }
+
+    private static JournalRecordType recordType(AccountEventType type) {
+        return switch (type) {
+            case DEPOSIT -> JournalRecordType.DEPOSIT;
+            case WITHDRAW -> JournalRecordType.WITHDRAW;
+            case TRANSFER -> JournalRecordType.TRANSFER;
+        };
+    }
+
+    /**
+     * Acquires two segment locks without ever blocking while holding one of them: the thread blocks on whichever
+     * lock it failed to get and retries from there. This cannot deadlock, and a hot account's segment is never held
+     * while waiting for a cold one, so transfers against settlement accounts don't form convoys behind it.
+     */
+    private void lockBoth(Segment first, Segment second) {
+        if (first == second) {
+            lock(first);
+            return;
+        }
+        lock(first);
+        while (true) {
+            if (second.tryLock()) {
+                return;
+            }
+            first.unlock();
+            metrics.recordLockContention();
+            second.lock();
+            if (first.tryLock()) {
+                return;
+            }
+            second.unlock();
+            metrics.recordLockContention();
+            Thread.onSpinWait();
+            first.lock();
+        }
+    }
+
+    private void lockBothForWrite(Segment first, Segment second) {
+        lockBoth(first, second);
+        first.beginWrite();
+        if (second != first) {
+            second.beginWrite();
+        }
+    }
+
+    private static void unlockBothAfterWrite(Segment first, Segment second) {
+        if (second != first) {
+            second.endWrite();
+        }
+        first.endWrite();
+        unlockBoth(first, second);
+    }
+
+    private void lockForWrite(Segment segment) {
+        lock(segment);
+        segment.beginWrite();
+    }
+
+    /**
+     * Same as {@link #lockForWrite}, also sampling the account into the deposit contention tracker if the lock is
+     * held.
+     */
+    private void lockForDeposit(Segment segment, String id) {
+        if (!segment.tryLock()) {
+            metrics.recordLockContention();
+            HotAccountTracker tracker = depositContention;
+            if (tracker != null) {
+                tracker.sample(id);
+            }
+            segment.lock();
+        }
+        segment.beginWrite();
+    }
+
+    private static void unlockAfterWrite(Segment segment) {
+        segment.endWrite();
+        segment.unlock();
+    }
+
+    /**
+     * Takes the lock, reporting to the metrics when another thread holds it.
+     */
+    private void lock(ReentrantLock lock) {
+        if (!lock.tryLock()) {
+            metrics.recordLockContention();
+            lock.lock();
+        }
+    }
+
+    private static void unlockBoth(Segment first, Segment second) {
+        if (first != second) {
+            second.unlock();
+        }
+        first.unlock();
+    }
+
+    private Segment segmentFor(long key) {
+        return segments[segmentIndex(key)];
+    }
+
+    private Segment segmentFor(String id) {
+        return segments[segmentIndex(id)];
+    }
+
+    private int segmentIndex(long key) {
+        return AccountIds.hash(key) >>> segmentShift;
+    }
+
+    /**
+     * Same as {@link #segmentIndex(long)} for the id's key, without interning the id.
+     */
+    private int segmentIndex(String id) {
+        return AccountIds.hashOf(id) >>> segmentShift;
+    }
+
+    @FunctionalInterface
+    public interface AccountVisitor {
+        void visit(String id, long balance);
+    }
+
+    /**
+     * A computation over every account that {@link #scan} splits by segment: each segment is visited into a new
+     * result, a batch of accounts at a time, and results are then combined in no particular order. A result may be
+     * dropped half-visited, when its segment changed during the visit; only combined results hold what was read from
+     * a consistent segment.
+     */
+    public interface AccountScan<R> {
+        R newResult();
+
+        /**
+         * Visits the first {@code count} accounts of the arrays, which are reused for the next batch.
+         */
+        void visit(R result, long[] keys, long[] balances, int count);
+
+        R combine(R first, R second);
+    }
+
+    private final class ScanTask<R> extends RecursiveTask<R> {
+        private final AccountScan<R> scan;
+        private final int from;
+        private final int to;
+
+        private ScanTask(AccountScan<R> scan, int from, int to) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= SEGMENTS_PER_SCAN_TASK) {
+                long[] keys = new long[SCAN_BATCH];
+                long[] balances = new long[SCAN_BATCH];
+                R result = scanSegment(segments[from], scan, keys, balances);
+                for (int i = from + 1; i < to; i++) {
+                    result = scan.combine(result, scanSegment(segments[i], scan, keys, balances));
+                }
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask<R> left = new ScanTask<>(scan, from, middle);
+            left.fork();
+            R right = new ScanTask<>(scan, middle, to).compute();
+            return scan.combine(left.join(), right);
+        }
+    }
+
+    private static final class DeferredDurability {
+        private boolean deferring;
+        private AccountJournal journal;
+        private long ticket;
+    }
+
+    private record SplitAccounts(long[] keys, SplitBalance[] balances) {
+        private static final SplitAccounts NONE = new SplitAccounts(new long[0], new SplitBalance[0]);
+
+        private SplitBalance find(long key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return balances[i];
+                }
+            }
+            return null;
+        }
+
+        private SplitAccounts with(long key, SplitBalance balance) {
+            long[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            SplitBalance[] newBalances = Arrays.copyOf(balances, balances.length + 1);
+            newKeys[keys.length] = key;
+            newBalances[balances.length] = balance;
+            return new SplitAccounts(newKeys, newBalances);
+        }
+
+        private SplitAccounts without(long key) {
+            long[] newKeys = new long[keys.length - 1];
+            SplitBalance[] newBalances = new SplitBalance[balances.length - 1];
+            for (int i = 0, j = 0; i < keys.length; i++) {
+                if (keys[i] != key) {
+                    newKeys[j] = keys[i];
+                    newBalances[j++] = balances[i];
+                }
+            }
+            return new SplitAccounts(newKeys, newBalances);
+        }
+    }
+
+    private static final class Segment extends ReentrantLock {
+        private final AccountTable table;
+        /**
+         * Odd while a writer holding the lock is changing the table.
+         */
+        private volatile long version;
+        private volatile AccountTable.Snapshot snapshot;
+        private long snapshotVersion;
+
+        private Segment(int expectedAccounts) {
+            this.table = new AccountTable(expectedAccounts);
+        }
+
+        private void beginWrite() {
+            version = version + 1;
+            VarHandle.storeStoreFence();
+        }
+
+        private void endWrite() {
+            version = version + 1;
+        }
     }
 }
@@ -0,0 +1,48 @@
+package com.ebanx.accounts;
+
+/**
+ * Outcome of an account operation. A missing account and insufficient funds are ordinary business outcomes, declined
+ * on a good share of requests, so they are returned rather than thrown and carry no stack trace. Both are shared
+ * instances and cost no allocation.
+ */
+public sealed interface AccountResult<T>
+        permits AccountResult.Success, AccountResult.NotFound, AccountResult.InsufficientFunds,
+        AccountResult.IdempotencyKeyReused {
+
+    static <T> AccountResult<T> success(T value) {
+        return new Success<>(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> AccountResult<T> notFound() {
+        return (AccountResult<T>) NotFound.INSTANCE;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> AccountResult<T> insufficientFunds() {
+        return (AccountResult<T>) InsufficientFunds.INSTANCE;
+    }
+
+    /**
+     * The request carried an idempotency key already used by a different request.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> AccountResult<T> idempotencyKeyReused() {
+        return (AccountResult<T>) IdempotencyKeyReused.INSTANCE;
+    }
+
+    record Success<T>(T value) implements AccountResult<T> {
+    }
+
+    record NotFound<T>() implements AccountResult<T> {
+        private static final NotFound<?> INSTANCE = new NotFound<>();
+    }
+
+    record InsufficientFunds<T>() implements AccountResult<T> {
+        private static final InsufficientFunds<?> INSTANCE = new InsufficientFunds<>();
+    }
+
+    record IdempotencyKeyReused<T>() implements AccountResult<T> {
+        private static final IdempotencyKeyReused<?> INSTANCE = new IdempotencyKeyReused<>();
+    }
+}
@@ -1,95 +1,326 @@
 package com.ebanx.accounts;
 
-import com.ebanx.accounts.dtos.AccountDto;
+import com.ebanx.accounts.dtos.AccountEventType;
 import com.ebanx.accounts.dtos.AccountRequestDto;
 import com.ebanx.accounts.dtos.AccountResponseDto;
-import com.ebanx.accounts.exceptions.AccountNotFoundException;
-import com.ebanx.accounts.exceptions.AccountWithLowerBalanceException;
+import com.ebanx.accounts.dtos.AccountTransactionDto;
+import com.ebanx.accounts.dtos.AccountTransactionPageDto;
+import com.ebanx.accounts.exceptions.AccountBatchFailedException;
+import com.ebanx.accounts.idempotency.IdempotencyCache;
+import com.ebanx.accounts.ledger.AccountLedger;
+import com.ebanx.accounts.metrics.AccountMetrics;
+import com.ebanx.accounts.metrics.AccountOperation;
+import com.ebanx.accounts.metrics.AccountOutcome;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class AccountService {
     private final AccountRepository accountRepository;
+    private volatile AccountMetrics metrics = AccountMetrics.NONE;
+    private volatile IdempotencyCache idempotencyCache;
+    private volatile AccountLedger ledger;
 
     public AccountService() {
         this.accountRepository = new AccountRepository();
     }
 
+    @Autowired
     public AccountService(AccountRepository accountRepository) {
         this.accountRepository = accountRepository;
     }
 
+    public void setMetrics(AccountMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Enables deduplication of requests carrying an idempotency key. Without a cache keys are ignored.
+     */
+    public void setIdempotencyCache(IdempotencyCache idempotencyCache) {
+        this.idempotencyCache = idempotencyCache;
+    }
+
+    /**
+     * Enables transaction history queries. Without a ledger no account has any history.
+     */
+    public void setLedger(AccountLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    /**
+     * Empties the repository and forgets every idempotency key, so a key used before the reset is applied again.
+     */
     public void resetDatabase() {
         accountRepository.emptyDatabase();
+        IdempotencyCache currentIdempotencyCache = idempotencyCache;
+        if (currentIdempotencyCache != null) {
+            currentIdempotencyCache.clear();
+        }
     }
 
-    public Float getAccountBalance(String accountId) {
-        return accountRepository.getAccountById(accountId)
-                .map(AccountEntity::getBalance)
-                .orElseThrow(AccountNotFoundException::new);
+    public AccountResult<Float> getAccountBalance(String accountId) {
+        long startedAt = System.nanoTime();
+        metrics.recordAccess(accountId);
+        long balance = accountRepository.getBalance(accountId);
+        if (balance == AccountRepository.NO_ACCOUNT) {
+            metrics.recordOperation(AccountOperation.BALANCE, AccountOutcome.NOT_FOUND, startedAt);
+            return AccountResult.notFound();
+        }
+        metrics.recordOperation(AccountOperation.BALANCE, AccountOutcome.OK, startedAt);
+        return AccountResult.success(AccountMapper.toAmount(balance));
     }
 
-    public AccountResponseDto depositToAccount(AccountRequestDto accountRequest) {
-        String accountId = accountRequest.getDestination();
-        Optional<AccountEntity> accountGetQuery = accountRepository.getAccountById(accountId);
+    /**
+     * Returns the balance the account had right after ledger transaction {@code sequence}, without replaying the
+     * ledger.
+     *
+     * @throws IllegalArgumentException if there is no ledger, {@code sequence} hasn't been applied yet or the history
+     *                                  it needs has been dropped
+     */
+    public AccountResult<Float> getAccountBalanceAsOf(String accountId, long sequence) {
+        AccountLedger currentLedger = ledger;
+        if (currentLedger == null) {
+            throw new IllegalArgumentException("Transaction history is disabled");
+        }
+        if (sequence < AccountLedger.NO_TRANSACTION || sequence > currentLedger.lastSequence()) {
+            throw new IllegalArgumentException("No transaction " + sequence + " has been applied");
+        }
+        long startedAt = System.nanoTime();
+        long newest = accountRepository.getLastTransaction(accountId);
+        long balance = newest == AccountRepository.NO_ACCOUNT
+                ? AccountLedger.NO_BALANCE : currentLedger.balanceAt(accountId, newest, sequence);
+        if (balance == AccountLedger.NOT_RETAINED) {
+            throw new IllegalArgumentException("History before transaction " + sequence + " is no longer retained");
+        }
+        if (balance == AccountLedger.NO_BALANCE) {
+            metrics.recordOperation(AccountOperation.BALANCE, AccountOutcome.NOT_FOUND, startedAt);
+            return AccountResult.notFound();
+        }
+        metrics.recordOperation(AccountOperation.BALANCE, AccountOutcome.OK, startedAt);
+        return AccountResult.success(AccountMapper.toAmount(balance));
+    }
 
-        AccountEntity accountEntity = accountGetQuery
-                .map(account -> {
-                    account.setBalance(account.getBalance() + accountRequest.getAmount());
-                    return account;
-                })
-                .orElseGet(() -> AccountMapper.toEntity(accountRequest));
+    /**
+     * Same as {@link #getAccountBalanceAsOf(String, long)} as of the newest transaction recorded at or before
+     * {@code instant}.
+     */
+    public AccountResult<Float> getAccountBalanceAsOf(String accountId, Instant instant) {
+        AccountLedger currentLedger = ledger;
+        if (currentLedger == null) {
+            throw new IllegalArgumentException("Transaction history is disabled");
+        }
+        long sequence = currentLedger.sequenceAt(instant.toEpochMilli());
+        if (sequence == AccountLedger.NOT_RETAINED) {
+            throw new IllegalArgumentException("History at " + instant + " is no longer retained");
+        }
+        return getAccountBalanceAsOf(accountId, sequence);
+    }
 
-        accountRepository.putAccount(accountEntity);
-        return AccountMapper.toResponseDto(AccountMapper.toDto(accountEntity), accountRequest.getEventType());
+    public AccountResult<AccountResponseDto> depositToAccount(AccountRequestDto accountRequest) {
+        if (hasIdempotencyKey(accountRequest)) {
+            return idempotently(accountRequest, () -> deposit(accountRequest));
+        }
+        return deposit(accountRequest);
     }
 
-    public AccountResponseDto withdrawFromAccount(AccountRequestDto accountRequest) {
-        String accountId = accountRequest.getOrigin();
-        Optional<AccountEntity> accountGetQuery = accountRepository.getAccountById(accountId);
+    public AccountResult<AccountResponseDto> withdrawFromAccount(AccountRequestDto accountRequest) {
+        if (hasIdempotencyKey(accountRequest)) {
+            return idempotently(accountRequest, () -> withdraw(accountRequest));
+        }
+        return withdraw(accountRequest);
+    }
 
-        AccountEntity accountEntity = accountGetQuery
-                .map(account -> {
-                    if(account.getBalance() < accountRequest.getAmount()) {
-                        throw new AccountWithLowerBalanceException();
-                    }
-                    account.setBalance(account.getBalance() - accountRequest.getAmount());
-                    return account;
-                })
-                .orElseThrow(AccountNotFoundException::new);
+    public AccountResult<AccountResponseDto> transferBetweenAccount(AccountRequestDto accountRequest) {
+        if (hasIdempotencyKey(accountRequest)) {
+            return idempotently(accountRequest, () -> transfer(accountRequest));
+        }
+        return transfer(accountRequest);
+    }
 
-        accountRepository.putAccount(accountEntity);
-        return AccountMapper.toResponseDto(AccountMapper.toDto(accountEntity), accountRequest.getEventType());
+    /**
+     * Returns up to {@code limit} transactions of the account, newest first, starting at {@code cursor} or at the
+     * newest one when it is {@code null}.
+     *
+     * @throws IllegalArgumentException if {@code cursor} isn't a retained transaction of the account
+     */
+    public AccountResult<AccountTransactionPageDto> getAccountTransactions(String accountId, Long cursor, int limit) {
+        AccountLedger currentLedger = ledger;
+        long newest = accountRepository.getLastTransaction(accountId);
+        if (currentLedger == null || newest == AccountRepository.NO_ACCOUNT) {
+            return AccountResult.notFound();
+        }
+        if (cursor != null && !currentLedger.involves(cursor, accountId)) {
+            throw new IllegalArgumentException("Account " + accountId + " has no transaction " + cursor);
+        }
+        List<AccountTransactionDto> transactions = new ArrayList<>(Math.min(limit, 64));
+        long next = currentLedger.visitAccount(accountId, cursor == null ? newest : cursor, limit,
+                (sequence, timestamp, type, origin, destination, amount, originBalance, destinationBalance) ->
+                        transactions.add(AccountMapper.toTransactionDto(sequence, timestamp, type, origin,
+                                destination, amount, originBalance, destinationBalance)));
+        return AccountResult.success(new AccountTransactionPageDto(transactions,
+                next == AccountLedger.NO_TRANSACTION ? null : next));
     }
 
-    public AccountResponseDto transferBetweenAccount(AccountRequestDto accountRequest) {
-        String originAccountId = accountRequest.getOrigin();
-        String destAccountId = accountRequest.getDestination();
+    /**
+     * Hands every retained transaction to {@code consumer} in the order they were applied, one at a time.
+     */
+    public void exportTransactions(Consumer<AccountTransactionDto> consumer) {
+        AccountLedger currentLedger = ledger;
+        if (currentLedger == null) {
+            return;
+        }
+        currentLedger.visitAll((sequence, timestamp, type, origin, destination, amount, originBalance,
+                                destinationBalance) ->
+                consumer.accept(AccountMapper.toTransactionDto(sequence, timestamp, type, origin, destination, amount,
+                        originBalance, destinationBalance)));
+    }
 
-        Optional<AccountEntity> originAccountGetQuery = accountRepository.getAccountById(originAccountId);
-        Optional<AccountEntity> destAccountGetQuery = accountRepository.getAccountById(destAccountId);
+    /**
+     * Same as {@link #depositToAccount(AccountRequestDto)} for callers that work in minor units and don't need the
+     * response body. There is no idempotency key here.
+     *
+     * @return the new balance
+     */
+    public long depositToAccount(String accountId, long amount) {
+        long startedAt = System.nanoTime();
+        metrics.recordAccess(accountId);
+        long balance = accountRepository.createOrCreditAccount(accountId, amount);
+        metrics.recordOperation(AccountOperation.DEPOSIT, AccountOutcome.OK, startedAt);
+        return balance;
+    }
 
-        if(originAccountGetQuery.isPresent()) {
-            AccountEntity originAccountEntity = originAccountGetQuery.get();
+    /**
+     * See {@link AccountRepository#deferDurability}.
+     */
+    public void deferDurability() {
+        accountRepository.deferDurability();
+    }
+
+    public void awaitDeferredDurability() {
+        accountRepository.awaitDeferredDurability();
+    }
+
+    /**
+     * Same as {@link #withdrawFromAccount(AccountRequestDto)} in minor units.
+     *
+     * @return the new balance, {@link AccountRepository#NO_ACCOUNT} or {@link AccountRepository#INSUFFICIENT_FUNDS}
+     */
+    public long withdrawFromAccount(String accountId, long amount) {
+        long startedAt = System.nanoTime();
+        metrics.recordAccess(accountId);
+        long balance = accountRepository.debitAccount(accountId, amount);
+        if (balance == AccountRepository.NO_ACCOUNT) {
+            metrics.recordOperation(AccountOperation.WITHDRAW, AccountOutcome.NOT_FOUND, startedAt);
+        } else if (balance == AccountRepository.INSUFFICIENT_FUNDS) {
+            metrics.recordOperation(AccountOperation.WITHDRAW, AccountOutcome.INSUFFICIENT_FUNDS, startedAt);
+        } else {
+            metrics.recordOperation(AccountOperation.WITHDRAW, AccountOutcome.OK, startedAt);
+        }
+        return balance;
+    }
+
+    /**
+     * Same as {@link #transferBetweenAccount(AccountRequestDto)} in minor units.
+     */
+    public AccountResult<AccountTransferEntity> transferBetweenAccount(String originId, String destinationId,
+                                                                      long amount) {
+        long startedAt = System.nanoTime();
+        metrics.recordAccess(originId);
+        metrics.recordAccess(destinationId);
+        AccountResult<AccountTransferEntity> result = accountRepository.transferBetweenAccounts(originId,
+                destinationId, amount);
+        metrics.recordOperation(AccountOperation.TRANSFER, AccountOutcome.of(result), startedAt);
+        return result;
+    }
+
+    private AccountResult<AccountResponseDto> deposit(AccountRequestDto accountRequest) {
+        String accountId = accountRequest.getDestination();
+        long balance = depositToAccount(accountId, AccountMapper.toMinorUnits(accountRequest.getAmount()));
+        return AccountResult.success(AccountMapper.toResponseDto(AccountMapper.toDto(accountId, balance),
+                accountRequest.getEventType()));
+    }
 
-            if(originAccountEntity.getBalance() < accountRequest.getAmount()) {
-                throw new AccountWithLowerBalanceException();
+    private AccountResult<AccountResponseDto> withdraw(AccountRequestDto accountRequest) {
+        String accountId = accountRequest.getOrigin();
+        long balance = withdrawFromAccount(accountId, AccountMapper.toMinorUnits(accountRequest.getAmount()));
+        if (balance == AccountRepository.NO_ACCOUNT) {
+            return AccountResult.notFound();
+        }
+        if (balance == AccountRepository.INSUFFICIENT_FUNDS) {
+            return AccountResult.insufficientFunds();
+        }
+        return AccountResult.success(AccountMapper.toResponseDto(AccountMapper.toDto(accountId, balance),
+                accountRequest.getEventType()));
+    }
+
+    private AccountResult<AccountResponseDto> transfer(AccountRequestDto accountRequest) {
+        AccountResult<AccountTransferEntity> result = transferBetweenAccount(accountRequest.getOrigin(),
+                accountRequest.getDestination(), AccountMapper.toMinorUnits(accountRequest.getAmount()));
+        if (result instanceof AccountResult.Success<AccountTransferEntity> success) {
+            AccountTransferEntity transferEntity = success.value();
+            return AccountResult.success(AccountMapper.toResponseDto(transferEntity.getOriginAccount(),
+                    transferEntity.getDestinationAccount()));
+        }
+        return result instanceof AccountResult.NotFound ? AccountResult.notFound() : AccountResult.insufficientFunds();
+    }
+
+    private boolean hasIdempotencyKey(AccountRequestDto accountRequest) {
+        return accountRequest.getIdempotencyKey() != null && idempotencyCache != null;
+    }
+
+    /**
+     * Runs the operation once per idempotency key; retries get the recorded outcome, declines included, and never
+     * reach the repository.
+     */
+    private AccountResult<AccountResponseDto> idempotently(AccountRequestDto accountRequest,
+                                                           Supplier<AccountResult<AccountResponseDto>> operation) {
+        IdempotentEvent event = new IdempotentEvent(accountRequest.getEventType(), accountRequest.getOrigin(),
+                accountRequest.getDestination(), AccountMapper.toMinorUnits(accountRequest.getAmount()));
+        return idempotencyCache.execute(accountRequest.getIdempotencyKey(), event, operation,
+                AccountResult.idempotencyKeyReused());
+    }
+
+    /**
+     * What a retry must repeat for its key to count as the same request.
+     */
+    private record IdempotentEvent(AccountEventType type, String origin, String destination, long amount) {
+    }
+
+    /**
+     * Applies all the events or none of them, in order, so later events see the balances left by earlier ones.
+     * Every request must already have passed {@link AccountRequestDto#validEventRequest()}.
+     *
+     * @throws IllegalArgumentException if a request carries an idempotency key, which a batch can't honor
+     */
+    public List<AccountResponseDto> applyEventsAtomically(List<AccountRequestDto> accountRequests) {
+        AccountBatch batch = new AccountBatch(accountRequests.size());
+        for (AccountRequestDto accountRequest : accountRequests) {
+            if (accountRequest.getIdempotencyKey() != null) {
+                throw new IllegalArgumentException("Atomic batches don't take idempotency keys");
             }
-            originAccountEntity.setBalance(originAccountEntity.getBalance() - accountRequest.getAmount());
-            AccountEntity destAccountEntity = destAccountGetQuery
-                    .map(account -> {
-                        account.setBalance(account.getBalance() + accountRequest.getAmount());
-                        return account;
-                    })
-                    .orElseGet(() -> AccountMapper.toEntity(new AccountDto(destAccountId, accountRequest.getAmount())));
-
-            accountRepository.putAccount(originAccountEntity);
-            accountRepository.putAccount(destAccountEntity);
-            return AccountMapper.toResponseDto(originAccountEntity, destAccountEntity);
-        }else{
-            throw new AccountNotFoundException();
+            AccountEventType eventType = accountRequest.getEventType();
+            batch.add(eventType,
+                    eventType == AccountEventType.DEPOSIT ? null : accountRequest.getOrigin(),
+                    eventType == AccountEventType.WITHDRAW ? null : accountRequest.getDestination(),
+                    AccountMapper.toMinorUnits(accountRequest.getAmount()));
+        }
+        long startedAt = System.nanoTime();
+        if (!accountRepository.applyAtomically(batch)) {
+            metrics.recordOperation(AccountOperation.BATCH, AccountOutcome.of(batch.getFailure()), startedAt);
+            throw new AccountBatchFailedException(batch.getFailedIndex(), batch.getFailure());
+        }
+        metrics.recordOperation(AccountOperation.BATCH, AccountOutcome.OK, startedAt);
+        List<AccountResponseDto> responses = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            responses.add(AccountMapper.toResponseDto(batch, i));
         }
+        return responses;
     }
 }
@@ -0,0 +1,266 @@
+package com.ebanx.accounts;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing (linear probing) table from account key (see {@link AccountIds}) to a balance in minor units, kept
+ * in a single {@code long[]} so balances are never boxed, updates never allocate and no id string is retained or
+ * compared. Every slot holds the key, the balance and the sequence of the account's newest ledger transaction
+ * ({@code 0} when it has none) side by side, so a probe that finds the key has the balance in the same cache line.
+ * The slots are also grouped in pages, each stamped by the newest write to a key or balance in it, so a
+ * {@link #snapshot} copies only the pages written since the previous one. Callers are responsible for synchronization.
+ */
+public class AccountTable {
+    public static final int NOT_FOUND = -1;
+
+    private static final int MIN_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final int SLOT_WIDTH = 3;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SLOTS = 1 << PAGE_SHIFT;
+
+    private long[] slots;
+    private long[] pageStamps;
+    private long writes;
+    private int capacity;
+    private int size;
+    private int resizeThreshold;
+
+    public AccountTable(int expectedAccounts) {
+        allocate(capacityFor(expectedAccounts));
+    }
+
+    public static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public int find(long key) {
+        long[] slots = this.slots;
+        int mask = capacity - 1;
+        for (int slot = AccountIds.hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long candidate = slots[slot * SLOT_WIDTH];
+            if (candidate == key) {
+                return slot;
+            }
+            if (candidate == EMPTY) {
+                return NOT_FOUND;
+            }
+        }
+    }
+
+    public int findOrInsert(long key) {
+        int mask = capacity - 1;
+        int slot = AccountIds.hash(key) & mask;
+        for (long candidate = slots[slot * SLOT_WIDTH]; candidate != EMPTY; candidate = slots[slot * SLOT_WIDTH]) {
+            if (candidate == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= resizeThreshold) {
+            resize();
+            return findOrInsert(key);
+        }
+        slots[slot * SLOT_WIDTH] = key;
+        slots[slot * SLOT_WIDTH + 1] = 0L;
+        slots[slot * SLOT_WIDTH + 2] = 0L;
+        pageStamps[slot >>> PAGE_SHIFT] = ++writes;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Returns the balance of the key, or {@code absent} if there is no such account, without the caller holding the
+     * lock. See {@link #balanceIn}.
+     */
+    public long balanceOf(long key, long absent) {
+        return balanceIn(slots, key, absent);
+    }
+
+    /**
+     * Returns the balance of the key in slots taken from {@link #balanceOf}, or {@code absent}.
+     * The slots may be written concurrently, by an insert or a resize: the result is then meaningless and the caller
+     * must detect that, but the probe stays within the array and always ends.
+     */
+    public static long balanceIn(long[] slots, long key, long absent) {
+        int capacity = slots.length / SLOT_WIDTH;
+        int mask = capacity - 1;
+        int slot = AccountIds.hash(key) & mask;
+        for (int probes = 0; probes < capacity; probes++) {
+            long candidate = slots[slot * SLOT_WIDTH];
+            if (candidate == key) {
+                return slots[slot * SLOT_WIDTH + 1];
+            }
+            if (candidate == EMPTY) {
+                return absent;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return absent;
+    }
+
+    /**
+     * Copies the keys and balances of every account into the arrays, handing them to the visitor each time they fill
+     * up and once more at the end. Like {@link #balanceOf}, this may run without the lock: if the table is written
+     * meanwhile, what was visited is meaningless and the caller must detect that, but the walk always ends.
+     */
+    public void forEach(long[] keys, long[] balances, BalanceVisitor visitor) {
+        long[] slots = this.slots;
+        int count = 0;
+        for (int i = 0; i < slots.length; i += SLOT_WIDTH) {
+            long key = slots[i];
+            if (key != EMPTY) {
+                keys[count] = key;
+                balances[count++] = slots[i + 1];
+                if (count == keys.length) {
+                    visitor.visit(keys, balances, count);
+                    count = 0;
+                }
+            }
+        }
+        if (count > 0) {
+            visitor.visit(keys, balances, count);
+        }
+    }
+
+    /**
+     * Copies the slots, for lookups that never touch the table again, sharing with {@code previous} (if not null) every
+     * page of slots not written since it was taken. Like {@link #balanceOf}, this may run without the lock: if the
+     * table is written meanwhile, the copy is meaningless and the caller must detect that.
+     */
+    public Snapshot snapshot(Snapshot previous) {
+        long stamp = writes;
+        long[] slots = this.slots;
+        long[] pageStamps = this.pageStamps;
+        int capacity = slots.length / SLOT_WIDTH;
+        boolean sameLayout = previous != null && previous.capacity == capacity;
+        long[][] pages = new long[pageStamps.length][];
+        for (int page = 0; page < pages.length; page++) {
+            if (sameLayout && page < previous.pages.length && pageStamps[page] <= previous.stamp) {
+                pages[page] = previous.pages[page];
+            } else {
+                int from = Math.min(page * PAGE_SLOTS * SLOT_WIDTH, slots.length);
+                pages[page] = Arrays.copyOfRange(slots, from, Math.min(from + PAGE_SLOTS * SLOT_WIDTH, slots.length));
+            }
+        }
+        return new Snapshot(pages, capacity, stamp);
+    }
+
+    public long balanceAt(int slot) {
+        return slots[slot * SLOT_WIDTH + 1];
+    }
+
+    public void setBalanceAt(int slot, long balance) {
+        slots[slot * SLOT_WIDTH + 1] = balance;
+        pageStamps[slot >>> PAGE_SHIFT] = ++writes;
+    }
+
+    public long transactionAt(int slot) {
+        return slots[slot * SLOT_WIDTH + 2];
+    }
+
+    public void setTransactionAt(int slot, long sequence) {
+        slots[slot * SLOT_WIDTH + 2] = sequence;
+    }
+
+    /**
+     * Returns the key in the slot, or {@link AccountIds#NO_KEY} if the slot is free.
+     */
+    public long keyAt(int slot) {
+        long key = slots[slot * SLOT_WIDTH];
+        return key == EMPTY ? AccountIds.NO_KEY : key;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int slot = 0; slot < capacity; slot++) {
+            slots[slot * SLOT_WIDTH] = EMPTY;
+        }
+        Arrays.fill(pageStamps, ++writes);
+        size = 0;
+    }
+
+    private void resize() {
+        long[] oldSlots = slots;
+        int oldCapacity = capacity;
+        allocate(oldCapacity << 1);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldCapacity; i++) {
+            long key = oldSlots[i * SLOT_WIDTH];
+            if (key != EMPTY) {
+                int slot = AccountIds.hash(key) & mask;
+                while (slots[slot * SLOT_WIDTH] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                System.arraycopy(oldSlots, i * SLOT_WIDTH, slots, slot * SLOT_WIDTH, SLOT_WIDTH);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        slots = new long[capacity * SLOT_WIDTH];
+        for (int slot = 0; slot < capacity; slot++) {
+            slots[slot * SLOT_WIDTH] = EMPTY;
+        }
+        pageStamps = new long[(capacity + PAGE_SLOTS - 1) >>> PAGE_SHIFT];
+        Arrays.fill(pageStamps, ++writes);
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedAccounts) {
+        int capacity = (int) Math.min(1L << 29, (long) Math.ceil(Math.max(expectedAccounts, 1) / LOAD_FACTOR));
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    @FunctionalInterface
+    public interface BalanceVisitor {
+        void visit(long[] keys, long[] balances, int count);
+    }
+
+    /**
+     * The slots of a table as of one {@link #snapshot}, in pages that later snapshots may share. Never written once
+     * taken. The ledger transactions in it may be older than the balances, since they don't stamp their page.
+     */
+    public static final class Snapshot {
+        private final long[][] pages;
+        private final int capacity;
+        private final long stamp;
+
+        private Snapshot(long[][] pages, int capacity, long stamp) {
+            this.pages = pages;
+            this.capacity = capacity;
+            this.stamp = stamp;
+        }
+
+        /**
+         * Returns the balance of the key, or {@code absent} if there was no such account.
+         */
+        public long balanceOf(long key, long absent) {
+            int mask = capacity - 1;
+            int slot = AccountIds.hash(key) & mask;
+            for (int probes = 0; probes < capacity; probes++) {
+                long[] page = pages[slot >>> PAGE_SHIFT];
+                int offset = (slot & (PAGE_SLOTS - 1)) * SLOT_WIDTH;
+                long candidate = page[offset];
+                if (candidate == key) {
+                    return page[offset + 1];
+                }
+                if (candidate == EMPTY) {
+                    return absent;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return absent;
+        }
+    }
+}
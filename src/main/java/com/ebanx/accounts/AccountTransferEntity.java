@@ -0,0 +1,20 @@
+package com.ebanx.accounts;
+
+
+public class AccountTransferEntity {
+    private final AccountEntity originAccount;
+    private final AccountEntity destinationAccount;
+
+    public AccountTransferEntity(AccountEntity originAccount, AccountEntity destinationAccount) {
+        this.originAccount = originAccount;
+        this.destinationAccount = destinationAccount;
+    }
+
+    public AccountEntity getOriginAccount() {
+        return originAccount;
+    }
+
+    public AccountEntity getDestinationAccount() {
+        return destinationAccount;
+    }
+}
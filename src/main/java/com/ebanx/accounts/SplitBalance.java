@@ -0,0 +1,84 @@
+package com.ebanx.accounts;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Credits to a hot account not yet folded into its balance in the {@link AccountTable}, spread over cells in the
+ * spirit of {@code LongAdder} so concurrent deposits rarely touch the same cache line. Each cell is a credited amount
+ * and a count of the deposits that credited it, padded to a cache line of its own. A thread keeps its cell until a
+ * compare-and-set on it fails, then moves to another.
+ * <p>
+ * The account's balance is the table balance plus {@link #sum()}. Only {@link #drain()} takes amounts out of the
+ * cells, and the repository calls it under the segment lock. {@link #sum()} reads the cells one after another, so
+ * while deposits land it counts any subset of them, not necessarily the credits as of one moment. A retired instance
+ * still gets the credits of deposits that looked it up just before it was dropped, so they check {@link #isRetired()}
+ * after crediting and fold it themselves.
+ */
+final class SplitBalance {
+    private static final int STRIDE = 8;
+    private static final int COUNT = 1;
+    private static final int MAX_CELLS = 64;
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(
+            () -> new int[] {ThreadLocalRandom.current().nextInt()});
+
+    private final AtomicLongArray cells;
+    private final int mask;
+    private volatile boolean retired;
+
+    SplitBalance() {
+        int count = Math.min(MAX_CELLS, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+        this.cells = new AtomicLongArray(count * STRIDE);
+        this.mask = count - 1;
+    }
+
+    void add(long amount) {
+        int[] probe = PROBE.get();
+        int index = (probe[0] & mask) * STRIDE;
+        long value = cells.get(index);
+        if (!cells.compareAndSet(index, value, value + amount)) {
+            probe[0] = ThreadLocalRandom.current().nextInt();
+            index = (probe[0] & mask) * STRIDE;
+            cells.getAndAdd(index, amount);
+        }
+        cells.getAndIncrement(index + COUNT);
+    }
+
+    long sum() {
+        long sum = 0L;
+        for (int index = 0; index < cells.length(); index += STRIDE) {
+            sum += cells.get(index);
+        }
+        return sum;
+    }
+
+    /**
+     * Takes every credited amount out of the cells and returns their total.
+     */
+    long drain() {
+        long sum = 0L;
+        for (int index = 0; index < cells.length(); index += STRIDE) {
+            sum += cells.getAndSet(index, 0L);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the number of deposits since the previous call.
+     */
+    long drainDeposits() {
+        long deposits = 0L;
+        for (int index = COUNT; index < cells.length(); index += STRIDE) {
+            deposits += cells.getAndSet(index, 0L);
+        }
+        return deposits;
+    }
+
+    boolean isRetired() {
+        return retired;
+    }
+
+    void retire() {
+        retired = true;
+    }
+}
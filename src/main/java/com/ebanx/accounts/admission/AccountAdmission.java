@@ -0,0 +1,15 @@
+package com.ebanx.accounts.admission;
+
+/**
+ * What {@code AccountController} checks before doing any work for a request: a concurrency limit for balance reads,
+ * another for events, and an optional cap on the events per account.
+ */
+public record AccountAdmission(GradientLimit reads, GradientLimit writes, AccountRateLimiter accountRate) {
+
+    /**
+     * Whether another event may touch the account now. Always true without a rate cap or an account.
+     */
+    public boolean allowAccount(String accountId) {
+        return accountRate == null || accountId == null || accountRate.tryAcquire(accountId);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ebanx.accounts.admission;
+
+import com.ebanx.accounts.AccountController;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.admission", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AccountAdmissionProperties.class)
+public class AccountAdmissionConfiguration {
+
+    @Bean
+    public AccountAdmission accountAdmission(ObjectProvider<AccountController> accountController,
+                                             AccountAdmissionProperties properties, MeterRegistry registry) {
+        AccountController controller = accountController.getIfAvailable();
+        if (controller == null) {
+            throw new IllegalStateException("accounts.admission.enabled needs the servlet AccountController: it "
+                    + "can't be combined with accounts.pipeline.enabled, accounts.cluster.enabled or WebFlux");
+        }
+        AccountAdmission admission = new AccountAdmission(limit(properties, properties.getReadLimit()),
+                limit(properties, properties.getWriteLimit()),
+                properties.getAccountRate() > 0
+                        ? new AccountRateLimiter(properties.getAccountRate(), properties.getAccountBurst()) : null);
+        bind(registry, "read", admission.reads());
+        bind(registry, "write", admission.writes());
+        if (admission.accountRate() != null) {
+            FunctionCounter.builder("accounts.admission.rejected", admission.accountRate(),
+                            AccountRateLimiter::getRejected)
+                    .description("Requests rejected before doing any work")
+                    .tag("budget", "write")
+                    .tag("reason", "account_rate")
+                    .register(registry);
+        }
+        controller.setAdmission(admission);
+        return admission;
+    }
+
+    private static GradientLimit limit(AccountAdmissionProperties properties, int initialLimit) {
+        return new GradientLimit(initialLimit, properties.getMinLimit(), properties.getMaxLimit(),
+                properties.getTolerance(), properties.getWindow());
+    }
+
+    private static void bind(MeterRegistry registry, String budget, GradientLimit limit) {
+        Gauge.builder("accounts.admission.limit", limit, GradientLimit::getLimit)
+                .description("Requests allowed in flight at once")
+                .tag("budget", budget)
+                .register(registry);
+        Gauge.builder("accounts.admission.inflight", limit, GradientLimit::getInFlight)
+                .description("Requests in flight")
+                .tag("budget", budget)
+                .register(registry);
+        Gauge.builder("accounts.admission.rtt", limit, GradientLimit::getShortRttMillis)
+                .description("Average latency of admitted requests in the last window, in milliseconds")
+                .tag("budget", budget)
+                .register(registry);
+        Gauge.builder("accounts.admission.rtt.baseline", limit, GradientLimit::getBaselineRttMillis)
+                .description("Lowest average latency of admitted requests in a window, in milliseconds")
+                .tag("budget", budget)
+                .register(registry);
+        FunctionCounter.builder("accounts.admission.rejected", limit, GradientLimit::getRejected)
+                .description("Requests rejected before doing any work")
+                .tag("budget", budget)
+                .tag("reason", "concurrency")
+                .register(registry);
+    }
+}
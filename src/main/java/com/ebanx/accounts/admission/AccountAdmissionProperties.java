@@ -0,0 +1,90 @@
+package com.ebanx.accounts.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "accounts.admission")
+public class AccountAdmissionProperties {
+    private boolean enabled;
+    private int readLimit = 100;
+    private int writeLimit = 50;
+    private int minLimit = 4;
+    private int maxLimit = 1000;
+    private double tolerance = 1.5;
+    private Duration window = Duration.ofMillis(100);
+    private double accountRate;
+    private int accountBurst = 20;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getReadLimit() {
+        return readLimit;
+    }
+
+    public void setReadLimit(int readLimit) {
+        this.readLimit = readLimit;
+    }
+
+    public int getWriteLimit() {
+        return writeLimit;
+    }
+
+    public void setWriteLimit(int writeLimit) {
+        this.writeLimit = writeLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public double getAccountRate() {
+        return accountRate;
+    }
+
+    public void setAccountRate(double accountRate) {
+        this.accountRate = accountRate;
+    }
+
+    public int getAccountBurst() {
+        return accountBurst;
+    }
+
+    public void setAccountBurst(int accountBurst) {
+        this.accountBurst = accountBurst;
+    }
+}
@@ -0,0 +1,51 @@
+package com.ebanx.accounts.admission;
+
+import com.ebanx.accounts.AccountTable;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the rate of requests per account with the generic cell rate algorithm: each account has the time at which it
+ * would next be allowed a request if it had no burst left, and a request is let through while that time is no more
+ * than {@code burst - 1} intervals ahead. Accounts are hashed into a fixed table of cells instead of being tracked one
+ * by one, so memory doesn't grow with the ids seen and an unknown id costs nothing to track; accounts that share a
+ * cell share its rate.
+ */
+public class AccountRateLimiter {
+    private static final int CELLS = 1 << 16;
+
+    private final AtomicLongArray nextAllowed = new AtomicLongArray(CELLS);
+    private final long origin = System.nanoTime();
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongAdder rejected = new LongAdder();
+
+    public AccountRateLimiter(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("The rate must be positive and the burst at least 1");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000 / ratePerSecond));
+        this.burstNanos = intervalNanos * (burst - 1);
+    }
+
+    public boolean tryAcquire(String accountId) {
+        int cell = AccountTable.spread(accountId.hashCode()) & (CELLS - 1);
+        long now = System.nanoTime() - origin;
+        for (;;) {
+            long next = nextAllowed.get(cell);
+            long start = Math.max(next, now);
+            if (start - now > burstNanos) {
+                rejected.increment();
+                return false;
+            }
+            if (nextAllowed.compareAndSet(cell, next, start + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
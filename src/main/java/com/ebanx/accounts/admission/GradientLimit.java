@@ -0,0 +1,158 @@
+package com.ebanx.accounts.admission;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that adapts to the latency of the requests it admits. Once per window the average latency of the
+ * window (the short RTT) is compared with the lowest seen so far (the baseline RTT): while the short RTT stays within
+ * {@code tolerance} times the baseline the limit grows with its square root, and as requests start to queue the limit
+ * shrinks in proportion to how far the short RTT is past that, by up to a tenth per window. Windows in which fewer than
+ * half of the limit was used don't change it, since they say nothing about how much concurrency the service can take.
+ * <p>
+ * A baseline that followed the short RTT up would let the queue grow with it under a sustained overload. Instead,
+ * every {@value #PROBE_WINDOWS} busy windows, and on the first one, the limit drops to its minimum for one window and
+ * the latency measured then, with little or no queue, becomes the baseline. That is also how the baseline rises when
+ * the service itself gets slower; until the next probe the limit errs on the low side.
+ * <p>
+ * Acquiring is a compare-and-set on the in-flight count and releasing is a decrement plus two adds; the window update
+ * runs on the one releasing thread that moves the window forward.
+ */
+public class GradientLimit {
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final int MIN_SAMPLES = 10;
+    private static final int PROBE_WINDOWS = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong windowEnd;
+    private final LongAdder rttNanos = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    private volatile double shortRtt;
+    private volatile double baselineRtt;
+    private int busyWindows;
+    private double probedLimit;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, Duration window) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("The limits must satisfy 1 <= min <= max");
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("The tolerance can't be lower than 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowNanos = window.toNanos();
+        this.windowEnd = new AtomicLong(System.nanoTime() + windowNanos);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Takes a slot if fewer requests than the limit are in flight. Every successful call must be followed by exactly
+     * one {@link #release} or {@link #releaseUnmeasured}.
+     */
+    public boolean tryAcquire() {
+        int limit = (int) this.limit;
+        for (int current = inFlight.get(); ; current = inFlight.get()) {
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                if (current + 1 > peakInFlight.get()) {
+                    peakInFlight.accumulateAndGet(current + 1, Math::max);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees the slot of a request that started at {@code startedAt} ({@link System#nanoTime}) and counts its latency.
+     */
+    public void release(long startedAt) {
+        long now = System.nanoTime();
+        inFlight.decrementAndGet();
+        rttNanos.add(now - startedAt);
+        samples.increment();
+        long end = windowEnd.get();
+        if (now - end >= 0 && windowEnd.compareAndSet(end, now + windowNanos)) {
+            update();
+        }
+    }
+
+    /**
+     * Frees the slot of a request whose latency says nothing about the service, such as one that failed early.
+     */
+    public void releaseUnmeasured() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Average latency of the last window that had enough requests, in milliseconds.
+     */
+    public double getShortRttMillis() {
+        return shortRtt / 1_000_000;
+    }
+
+    public double getBaselineRttMillis() {
+        return baselineRtt / 1_000_000;
+    }
+
+    /**
+     * A window with too few requests is carried into the next one rather than judged on its own.
+     */
+    private void update() {
+        if (samples.sum() < MIN_SAMPLES) {
+            return;
+        }
+        long count = samples.sumThenReset();
+        double shortRtt = (double) rttNanos.sumThenReset() / count;
+        int peak = peakInFlight.getAndSet(inFlight.get());
+        this.shortRtt = shortRtt;
+        if (probedLimit > 0) {
+            baselineRtt = shortRtt;
+            limit = probedLimit;
+            probedLimit = 0;
+            return;
+        }
+        if (baselineRtt == 0 || shortRtt < baselineRtt) {
+            baselineRtt = shortRtt;
+        }
+        double limit = this.limit;
+        if (peak < limit / 2) {
+            return;
+        }
+        if (busyWindows++ % PROBE_WINDOWS == 0) {
+            probedLimit = limit;
+            this.limit = minLimit;
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * baselineRtt / shortRtt));
+        double next = limit * gradient + Math.sqrt(limit);
+        next = limit * (1 - SMOOTHING) + next * SMOOTHING;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
@@ -0,0 +1,146 @@
+package com.ebanx.accounts.aggregates;
+
+import com.ebanx.accounts.AccountMapper;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.dtos.AccountDto;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Figures over every account of an {@link AccountRepository}. The summary reads the totals the repository keeps up to
+ * date; the top balances and the histogram scan it in parallel on a pool of their own, so they never block writers
+ * for longer than one segment takes to read.
+ */
+public class AccountAggregates implements Closeable {
+    private static final int LINEAR_BUCKET_SEARCH = 16;
+
+    private final AccountRepository accountRepository;
+    private final ForkJoinPool pool;
+
+    public AccountAggregates(AccountRepository accountRepository, int parallelism) {
+        this.accountRepository = accountRepository;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public AccountSummary summary() {
+        return new AccountSummary(accountRepository.getSize(),
+                AccountMapper.toExactAmount(accountRepository.getTotalBalance()));
+    }
+
+    /**
+     * Returns up to {@code limit} accounts with the largest balances, largest first. Every segment that has been
+     * combined raises a floor shared by the whole scan, so most accounts of the later segments are turned away with a
+     * single comparison; the floor only ever comes from combined results, never from a visit that may be dropped.
+     */
+    public List<AccountDto> top(int limit) {
+        AtomicLong floor = new AtomicLong(Long.MIN_VALUE);
+        TopBalances top = accountRepository.scan(new AccountRepository.AccountScan<>() {
+            @Override
+            public TopBalances newResult() {
+                return new TopBalances(limit);
+            }
+
+            @Override
+            public void visit(TopBalances result, long[] keys, long[] balances, int count) {
+                long below = floor.get();
+                for (int i = 0; i < count; i++) {
+                    if (balances[i] >= below) {
+                        result.offer(keys[i], balances[i]);
+                    }
+                }
+            }
+
+            @Override
+            public TopBalances combine(TopBalances first, TopBalances second) {
+                TopBalances combined = TopBalances.combine(first, second);
+                floor.accumulateAndGet(combined.floor(), Math::max);
+                return combined;
+            }
+        }, pool);
+        long[] keys = new long[top.size()];
+        long[] balances = new long[top.size()];
+        top.drainInto(keys, balances);
+        List<AccountDto> accounts = new ArrayList<>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            // null for an account removed by a reset since the scan read it
+            String id = accountRepository.getAccountIds().idOf(keys[i]);
+            if (id != null) {
+                accounts.add(AccountMapper.toDto(id, balances[i]));
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Counts and sums the balances in the buckets the bounds (in minor units, strictly increasing) delimit: below the
+     * first bound, between each bound and the next, and from the last bound up.
+     *
+     * @throws IllegalArgumentException if the bounds aren't strictly increasing
+     */
+    public List<BalanceBucket> histogram(long[] bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Bucket bounds must be strictly increasing");
+            }
+        }
+        int buckets = bounds.length + 1;
+        long[] totals = accountRepository.scan(new AccountRepository.AccountScan<>() {
+            @Override
+            public long[] newResult() {
+                return new long[2 * buckets];
+            }
+
+            @Override
+            public void visit(long[] result, long[] keys, long[] balances, int count) {
+                for (int i = 0; i < count; i++) {
+                    long balance = balances[i];
+                    int bucket = bucketOf(bounds, balance);
+                    result[2 * bucket]++;
+                    result[2 * bucket + 1] += balance;
+                }
+            }
+
+            @Override
+            public long[] combine(long[] first, long[] second) {
+                for (int i = 0; i < first.length; i++) {
+                    first[i] += second[i];
+                }
+                return first;
+            }
+        }, pool);
+        List<BalanceBucket> histogram = new ArrayList<>(buckets);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            histogram.add(new BalanceBucket(
+                    bucket == 0 ? null : AccountMapper.toExactAmount(bounds[bucket - 1]),
+                    bucket == bounds.length ? null : AccountMapper.toExactAmount(bounds[bucket]),
+                    totals[2 * bucket], AccountMapper.toExactAmount(totals[2 * bucket + 1])));
+        }
+        return histogram;
+    }
+
+    /**
+     * Counts the bounds the balance reaches. Random balances make a binary search mispredict a branch per level, so
+     * the few bounds a histogram usually has are counted straight through instead.
+     */
+    private static int bucketOf(long[] bounds, long balance) {
+        if (bounds.length > LINEAR_BUCKET_SEARCH) {
+            int found = Arrays.binarySearch(bounds, balance);
+            return found >= 0 ? found + 1 : -found - 1;
+        }
+        int bucket = 0;
+        for (long bound : bounds) {
+            bucket += balance >= bound ? 1 : 0;
+        }
+        return bucket;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
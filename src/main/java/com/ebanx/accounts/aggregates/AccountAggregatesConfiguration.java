@@ -0,0 +1,28 @@
+package com.ebanx.accounts.aggregates;
+
+import com.ebanx.accounts.AccountRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.aggregates", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AccountAggregatesProperties.class)
+public class AccountAggregatesConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public AccountAggregates accountAggregates(AccountRepository accountRepository,
+                                               AccountAggregatesProperties properties, Environment environment) {
+        for (String mode : new String[] {"pipeline", "cluster"}) {
+            if (environment.getProperty("accounts." + mode + ".enabled", Boolean.class, false)) {
+                throw new IllegalStateException("accounts.aggregates.enabled can't be combined with accounts." + mode
+                        + ".enabled: aggregates are computed over the shared repository");
+            }
+        }
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        return new AccountAggregates(accountRepository, parallelism);
+    }
+}
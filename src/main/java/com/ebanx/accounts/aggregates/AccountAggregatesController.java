@@ -0,0 +1,62 @@
+package com.ebanx.accounts.aggregates;
+
+import com.ebanx.accounts.AccountMapper;
+import com.ebanx.accounts.dtos.AccountDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "accounts.aggregates", name = "enabled", havingValue = "true")
+public class AccountAggregatesController {
+    private static final int MAX_TOP_ACCOUNTS = 1000;
+    private static final int MAX_BUCKET_BOUNDS = 1000;
+
+    private final AccountAggregates accountAggregates;
+
+    public AccountAggregatesController(AccountAggregates accountAggregates) {
+        this.accountAggregates = accountAggregates;
+    }
+
+    @RequestMapping(value="aggregates", method = RequestMethod.GET)
+    public ResponseEntity<AccountSummary> getSummary() {
+        return new ResponseEntity<>(accountAggregates.summary(), HttpStatus.OK);
+    }
+
+    @RequestMapping(value="aggregates/top", method = RequestMethod.GET)
+    public ResponseEntity<List<AccountDto>> getTopAccounts(@RequestParam(value = "limit", defaultValue = "10")
+                                                           int limit) {
+        if (limit < 1 || limit > MAX_TOP_ACCOUNTS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(accountAggregates.top(limit), HttpStatus.OK);
+    }
+
+    /**
+     * {@code bounds} takes the amounts between buckets, comma-separated and increasing.
+     */
+    @RequestMapping(value="aggregates/histogram", method = RequestMethod.GET)
+    public ResponseEntity<List<BalanceBucket>> getHistogram(@RequestParam("bounds") List<BigDecimal> bounds) {
+        if (bounds.isEmpty() || bounds.size() > MAX_BUCKET_BOUNDS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            long[] minorUnits = new long[bounds.size()];
+            for (int i = 0; i < minorUnits.length; i++) {
+                minorUnits[i] = AccountMapper.toMinorUnits(bounds.get(i));
+            }
+            return new ResponseEntity<>(accountAggregates.histogram(minorUnits), HttpStatus.OK);
+        } catch (ArithmeticException | IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ebanx.accounts.aggregates;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "accounts.aggregates")
+public class AccountAggregatesProperties {
+    private boolean enabled;
+    /**
+     * Fork-join threads a scan runs on; the number of processors when not positive.
+     */
+    private int parallelism;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+}
@@ -0,0 +1,12 @@
+package com.ebanx.accounts.aggregates;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * How many accounts there are and the sum of their balances.
+ */
+public record AccountSummary(long accounts,
+                             @JsonProperty("total_balance") BigDecimal totalBalance) {
+}
@@ -0,0 +1,16 @@
+package com.ebanx.accounts.aggregates;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * The accounts with a balance of at least {@code from} and below {@code to}; the first bucket has no {@code from} and
+ * the last no {@code to}.
+ */
+public record BalanceBucket(@JsonInclude(JsonInclude.Include.NON_NULL) BigDecimal from,
+                            @JsonInclude(JsonInclude.Include.NON_NULL) BigDecimal to,
+                            long accounts,
+                            @JsonProperty("total_balance") BigDecimal totalBalance) {
+}
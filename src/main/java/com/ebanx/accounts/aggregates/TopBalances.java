@@ -0,0 +1,97 @@
+package com.ebanx.accounts.aggregates;
+
+/**
+ * The accounts with the largest balances seen so far, up to a fixed number, kept in a min-heap of parallel primitive
+ * arrays so offering an account that doesn't make it is one comparison. Equal balances rank the smaller key first.
+ */
+final class TopBalances {
+    private final long[] keys;
+    private final long[] balances;
+    private int size;
+
+    TopBalances(int capacity) {
+        this.keys = new long[capacity];
+        this.balances = new long[capacity];
+    }
+
+    void offer(long key, long balance) {
+        if (size < keys.length) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!lower(balance, key, balances[parent], keys[parent])) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                balances[i] = balances[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            balances[i] = balance;
+        } else if (size > 0 && lower(balances[0], keys[0], balance, key)) {
+            siftDown(key, balance);
+        }
+    }
+
+    /**
+     * Returns whichever of the two holds the top of both, having offered it the other's accounts.
+     */
+    static TopBalances combine(TopBalances first, TopBalances second) {
+        TopBalances into = first.size >= second.size ? first : second;
+        TopBalances from = into == first ? second : first;
+        for (int i = 0; i < from.size; i++) {
+            into.offer(from.keys[i], from.balances[i]);
+        }
+        return into;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the smallest balance held once the heap is full: no balance below it can make the top any more.
+     */
+    long floor() {
+        return size == keys.length && size > 0 ? balances[0] : Long.MIN_VALUE;
+    }
+
+    /**
+     * Empties the heap into the arrays, largest balance first.
+     */
+    void drainInto(long[] keys, long[] balances) {
+        for (int i = size - 1; i >= 0; i--) {
+            keys[i] = this.keys[0];
+            balances[i] = this.balances[0];
+            size--;
+            if (size > 0) {
+                siftDown(this.keys[size], this.balances[size]);
+            }
+        }
+    }
+
+    private void siftDown(long key, long balance) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && lower(balances[child + 1], keys[child + 1], balances[child], keys[child])) {
+                child++;
+            }
+            if (!lower(balances[child], keys[child], balance, key)) {
+                break;
+            }
+            keys[i] = keys[child];
+            balances[i] = balances[child];
+            i = child;
+        }
+        keys[i] = key;
+        balances[i] = balance;
+    }
+
+    private static boolean lower(long balance, long key, long otherBalance, long otherKey) {
+        return balance < otherBalance || (balance == otherBalance && key > otherKey);
+    }
+}
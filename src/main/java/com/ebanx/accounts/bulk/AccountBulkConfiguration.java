@@ -0,0 +1,37 @@
+package com.ebanx.accounts.bulk;
+
+import com.ebanx.accounts.AccountRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.bulk", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AccountBulkProperties.class)
+public class AccountBulkConfiguration {
+
+    @Bean
+    public AccountBulkLoader accountBulkLoader(AccountRepository accountRepository, AccountBulkProperties properties,
+                                               Environment environment) {
+        for (String mode : new String[] {"pipeline", "cluster"}) {
+            if (environment.getProperty("accounts." + mode + ".enabled", Boolean.class, false)) {
+                throw new IllegalStateException("accounts.bulk.enabled can't be combined with accounts." + mode
+                        + ".enabled: bulk loads fill the shared repository");
+            }
+        }
+        if (environment.getProperty("accounts.ledger.enabled", Boolean.class, true)) {
+            throw new IllegalStateException("accounts.bulk.enabled needs accounts.ledger.enabled=false: loaded "
+                    + "balances aren't transactions, so the ledger history would no longer match them");
+        }
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        return new AccountBulkLoader(accountRepository, parallelism, properties.getChunkSize().toBytes());
+    }
+
+    @Bean
+    public AccountBulkExporter accountBulkExporter(AccountRepository accountRepository) {
+        return new AccountBulkExporter(accountRepository);
+    }
+}
@@ -0,0 +1,124 @@
+package com.ebanx.accounts.bulk;
+
+import com.ebanx.accounts.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "accounts.bulk", name = "enabled", havingValue = "true")
+public class AccountBulkController {
+    private static final Logger log = LoggerFactory.getLogger(AccountBulkController.class);
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private final AccountRepository accountRepository;
+    private final AccountBulkLoader accountBulkLoader;
+    private final AccountBulkExporter accountBulkExporter;
+    private final AccountBulkProperties properties;
+
+    public AccountBulkController(AccountRepository accountRepository, AccountBulkLoader accountBulkLoader,
+                                 AccountBulkExporter accountBulkExporter, AccountBulkProperties properties) {
+        this.accountRepository = accountRepository;
+        this.accountBulkLoader = accountBulkLoader;
+        this.accountBulkExporter = accountBulkExporter;
+        this.properties = properties;
+    }
+
+    /**
+     * Loads a file of {@code accounts.bulk.directory}, answering once it is loaded; progress goes to the log
+     * meanwhile. 403 while no directory is set, 400 for a name that could lead out of the directory, checked before
+     * the file system is touched, and for a malformed file, with the accounts parsed before the error left loaded.
+     */
+    @RequestMapping(value="bulk/import", method = RequestMethod.POST)
+    public ResponseEntity<BulkLoadProgress> importAccounts(@RequestParam("file") String file,
+                                                           @RequestParam(value = "format", defaultValue = "csv")
+                                                           String format) throws IOException {
+        if (accountRepository.isReadOnly()) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (properties.getDirectory() == null) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        try {
+            Path path = resolve(file);
+            if (path == null) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            BulkLoadProgress result = accountBulkLoader.load(path, parseFormat(format),
+                    properties.getProgressInterval(), progress -> log.info("Bulk load of {}: {} accounts, {}/{} bytes",
+                            file, progress.accounts(), progress.bytesRead(), progress.totalBytes()));
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (NoSuchFileException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (IllegalArgumentException e) {
+            log.warn("Bulk load of {} failed: {}", file, e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Streams every account, written as the repository is walked.
+     */
+    @RequestMapping(value="bulk/export", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> exportAccounts(@RequestParam(value = "format", defaultValue = "csv")
+                                                                String format) {
+        BulkFormat bulkFormat;
+        try {
+            bulkFormat = parseFormat(format);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        StreamingResponseBody body = outputStream ->
+                accountBulkExporter.export(Channels.newChannel(outputStream), bulkFormat);
+        return ResponseEntity.ok()
+                .contentType(bulkFormat == BulkFormat.CSV ? CSV : MediaType.APPLICATION_OCTET_STREAM)
+                .body(body);
+    }
+
+    /**
+     * Resolves a file name against the directory, or returns null for an empty or absolute name, a name with a
+     * {@code ..} segment, or one a link leads out of the directory.
+     *
+     * @throws NoSuchFileException if the file doesn't exist
+     */
+    private Path resolve(String file) throws IOException {
+        Path name;
+        try {
+            name = Path.of(file);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (file.isEmpty() || name.isAbsolute() || name.getRoot() != null) {
+            return null;
+        }
+        for (Path segment : name) {
+            if (segment.toString().equals("..")) {
+                return null;
+            }
+        }
+        Path directory = Path.of(properties.getDirectory()).toRealPath();
+        Path path = directory.resolve(name).toRealPath();
+        return path.startsWith(directory) ? path : null;
+    }
+
+    private static BulkFormat parseFormat(String format) {
+        return BulkFormat.valueOf(format.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,237 @@
+package com.ebanx.accounts.bulk;
+
+import com.ebanx.accounts.AccountRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes every account of an {@link AccountRepository} in a {@link BulkFormat} as it walks the repository with
+ * {@link AccountRepository#forEachAccount}, holding no more than one buffer of output. The accounts of a segment are
+ * written as of one moment; changes to other segments made during the export may or may not be in it.
+ */
+public class AccountBulkExporter {
+    private static final int DEFAULT_BLOCK_BYTES = 1 << 20;
+
+    private final AccountRepository accountRepository;
+    private final int blockBytes;
+
+    public AccountBulkExporter(AccountRepository accountRepository) {
+        this(accountRepository, DEFAULT_BLOCK_BYTES);
+    }
+
+    AccountBulkExporter(AccountRepository accountRepository, int blockBytes) {
+        this.accountRepository = accountRepository;
+        this.blockBytes = blockBytes;
+    }
+
+    /**
+     * Exports into the file, which only appears once complete, and returns the number of accounts.
+     */
+    public long export(Path file, BulkFormat format) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long accounts;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            accounts = export(channel, format);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return accounts;
+    }
+
+    /**
+     * Exports into the channel and returns the number of accounts.
+     *
+     * @throws IllegalArgumentException if an id can't be written in the format
+     */
+    public long export(WritableByteChannel channel, BulkFormat format) throws IOException {
+        Writer writer = format == BulkFormat.CSV ? new CsvWriter(channel) : new BinaryWriter(channel);
+        try {
+            accountRepository.forEachAccount(writer::write);
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return writer.accounts;
+    }
+
+    private abstract class Writer {
+        final WritableByteChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocate(blockBytes);
+        long accounts;
+
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        abstract void write(String id, long balance);
+
+        abstract void finish();
+
+        void drain() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+    }
+
+    private final class CsvWriter extends Writer {
+        private static final int MAX_BALANCE_CHARS = 24;
+
+        private CsvWriter(WritableByteChannel channel) {
+            super(channel);
+            putAscii(BulkFormat.CSV_HEADER);
+            buffer.put((byte) '\n');
+        }
+
+        @Override
+        void write(String id, long balance) {
+            byte[] encoded = null;
+            boolean quoted = false;
+            for (int i = 0; i < id.length(); i++) {
+                char c = id.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    throw new IllegalArgumentException("Account ids with line breaks can't be exported as CSV");
+                }
+                quoted |= c == ',' || c == '"';
+                if (c >= 0x80 && encoded == null) {
+                    encoded = id.getBytes(StandardCharsets.UTF_8);
+                }
+            }
+            int idBytes = encoded == null ? id.length() : encoded.length;
+            int needed = (quoted ? 2 * idBytes + 2 : idBytes) + MAX_BALANCE_CHARS;
+            if (buffer.remaining() < needed) {
+                drain();
+            }
+            if (buffer.remaining() < needed) {
+                throw new IllegalArgumentException("Account id too long to export");
+            }
+            if (quoted) {
+                buffer.put((byte) '"');
+            }
+            for (int i = 0; i < idBytes; i++) {
+                byte b = encoded == null ? (byte) id.charAt(i) : encoded[i];
+                if (b == '"') {
+                    buffer.put(b);
+                }
+                buffer.put(b);
+            }
+            if (quoted) {
+                buffer.put((byte) '"');
+            }
+            buffer.put((byte) ',');
+            putBalance(balance);
+            buffer.put((byte) '\n');
+            accounts++;
+        }
+
+        @Override
+        void finish() {
+            drain();
+        }
+
+        private void putBalance(long balance) {
+            if (balance < 0) {
+                buffer.put((byte) '-');
+            }
+            long units = Math.abs(balance / 100);
+            int cents = (int) Math.abs(balance % 100);
+            putDigits(units);
+            if (cents != 0) {
+                buffer.put((byte) '.');
+                buffer.put((byte) ('0' + cents / 10));
+                if (cents % 10 != 0) {
+                    buffer.put((byte) ('0' + cents % 10));
+                }
+            }
+        }
+
+        private void putDigits(long value) {
+            if (value >= 10) {
+                putDigits(value / 10);
+            }
+            buffer.put((byte) ('0' + value % 10));
+        }
+
+        private void putAscii(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                buffer.put((byte) text.charAt(i));
+            }
+        }
+    }
+
+    private final class BinaryWriter extends Writer {
+        private int blockStart;
+        private int blockRecords;
+
+        private BinaryWriter(WritableByteChannel channel) {
+            super(channel);
+            buffer.putLong(BulkFormat.MAGIC);
+            startBlock();
+        }
+
+        @Override
+        void write(String id, long balance) {
+            byte[] encoded = id.getBytes(StandardCharsets.UTF_8);
+            int needed = Short.BYTES + encoded.length + Long.BYTES;
+            if (encoded.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Account id too long to export");
+            }
+            if (buffer.remaining() < needed) {
+                endBlock();
+                drain();
+                startBlock();
+                if (buffer.remaining() < needed) {
+                    throw new IllegalArgumentException("Account id too long to export");
+                }
+            }
+            buffer.putShort((short) encoded.length);
+            buffer.put(encoded);
+            buffer.putLong(balance);
+            blockRecords++;
+            accounts++;
+        }
+
+        @Override
+        void finish() {
+            endBlock();
+            if (buffer.remaining() < BulkFormat.TRAILER_BYTES) {
+                drain();
+            }
+            buffer.putInt(0).putInt(0).putLong(accounts).putLong(BulkFormat.MAGIC);
+            drain();
+        }
+
+        private void startBlock() {
+            blockStart = buffer.position();
+            blockRecords = 0;
+            buffer.position(blockStart + BulkFormat.BLOCK_HEADER_BYTES);
+        }
+
+        /**
+         * Writes the header of the current block, or drops the block if it is empty: a zero length marks the trailer.
+         */
+        private void endBlock() {
+            if (blockRecords == 0) {
+                buffer.position(blockStart);
+                return;
+            }
+            buffer.putInt(blockStart, buffer.position() - blockStart - BulkFormat.BLOCK_HEADER_BYTES);
+            buffer.putInt(blockStart + Integer.BYTES, blockRecords);
+        }
+    }
+}
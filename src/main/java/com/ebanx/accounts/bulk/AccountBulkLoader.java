@@ -0,0 +1,417 @@
+package com.ebanx.accounts.bulk;
+
+import com.ebanx.accounts.AccountIds;
+import com.ebanx.accounts.AccountRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Loads a {@link BulkFormat} file of balances into an {@link AccountRepository} in parallel. The file is cut into
+ * chunks of about {@code chunkSize} bytes, on line or block boundaries, and a fork-join task memory-maps each chunk and
+ * parses it straight into batches of keys and balances for {@link AccountRepository#putBalances}. Nothing is allocated
+ * per record except for ids that aren't numeric.
+ * <p>
+ * Accounts already in the repository are overwritten. A load isn't atomic: when a record turns out malformed, the
+ * chunks parsed meanwhile stay loaded. An id present more than once ends with any one of its balances.
+ */
+public class AccountBulkLoader {
+    private static final int BATCH_SIZE = 4096;
+    private static final int MAX_LINE_BYTES = 1 << 16;
+
+    private final AccountRepository accountRepository;
+    private final int parallelism;
+    private final long chunkSize;
+
+    public AccountBulkLoader(AccountRepository accountRepository, int parallelism, long chunkSize) {
+        this.accountRepository = accountRepository;
+        this.parallelism = parallelism;
+        this.chunkSize = Math.max(1L, chunkSize);
+    }
+
+    /**
+     * Loads the file, reporting progress every {@code progressInterval} while it runs, and returns the final figures.
+     *
+     * @throws IllegalArgumentException if a record is malformed
+     */
+    public BulkLoadProgress load(Path file, BulkFormat format, Duration progressInterval,
+                                 Consumer<BulkLoadProgress> progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Load load = new Load(channel, size, format);
+            List<long[]> chunks = format == BulkFormat.CSV ? csvChunks(size) : binaryChunks(load);
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "account-bulk-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = Math.max(1L, progressInterval.toMillis());
+            reporter.scheduleAtFixedRate(() -> progress.accept(load.progress()), millis, millis,
+                    TimeUnit.MILLISECONDS);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new ChunkTask(load, chunks, 0, chunks.size()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdownNow();
+                reporter.shutdownNow();
+            }
+            if (format == BulkFormat.BINARY && load.accounts.sum() != load.expectedAccounts) {
+                throw new IllegalArgumentException("The file holds " + load.accounts.sum()
+                        + " accounts but its trailer counts " + load.expectedAccounts);
+            }
+            BulkLoadProgress result = load.progress();
+            progress.accept(result);
+            return result;
+        }
+    }
+
+    /**
+     * Nominal chunk ranges: a chunk parses the lines that start within it.
+     */
+    private List<long[]> csvChunks(long size) {
+        List<long[]> chunks = new ArrayList<>();
+        for (long start = 0; start < size; start += chunkSize) {
+            chunks.add(new long[] {start, Math.min(size, start + chunkSize)});
+        }
+        return chunks;
+    }
+
+    /**
+     * Walks the block headers, reading the trailer's account count on the way, and groups whole blocks into chunks.
+     */
+    private List<long[]> binaryChunks(Load load) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BulkFormat.TRAILER_BYTES);
+        readFully(load.channel, header.limit(Long.BYTES), 0L);
+        if (header.getLong(0) != BulkFormat.MAGIC) {
+            throw new IllegalArgumentException("Not a binary bulk file");
+        }
+        List<long[]> chunks = new ArrayList<>();
+        long chunkStart = Long.BYTES;
+        long position = Long.BYTES;
+        while (true) {
+            if (position + BulkFormat.BLOCK_HEADER_BYTES > load.size) {
+                throw new IllegalArgumentException("The file ends before its trailer");
+            }
+            readFully(load.channel, header.clear().limit(BulkFormat.BLOCK_HEADER_BYTES), position);
+            int length = header.getInt(0);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || position + BulkFormat.BLOCK_HEADER_BYTES + length > load.size) {
+                throw malformed(position);
+            }
+            position += BulkFormat.BLOCK_HEADER_BYTES + length;
+            if (position - chunkStart >= chunkSize) {
+                chunks.add(new long[] {chunkStart, position});
+                chunkStart = position;
+            }
+        }
+        if (position > chunkStart) {
+            chunks.add(new long[] {chunkStart, position});
+        }
+        if (position + BulkFormat.TRAILER_BYTES != load.size) {
+            throw malformed(position);
+        }
+        readFully(load.channel, header.clear(), position);
+        if (header.getLong(BulkFormat.BLOCK_HEADER_BYTES + Long.BYTES) != BulkFormat.MAGIC) {
+            throw malformed(position);
+        }
+        load.expectedAccounts = header.getLong(BulkFormat.BLOCK_HEADER_BYTES);
+        return chunks;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalArgumentException("The file ends before its trailer");
+            }
+        }
+    }
+
+    private static IllegalArgumentException malformed(long offset) {
+        return new IllegalArgumentException("Malformed record at byte " + offset);
+    }
+
+    private final class Load {
+        private final FileChannel channel;
+        private final long size;
+        private final BulkFormat format;
+        private final long startedAt = System.nanoTime();
+        private final LongAdder accounts = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private long expectedAccounts;
+
+        private Load(FileChannel channel, long size, BulkFormat format) {
+            this.channel = channel;
+            this.size = size;
+            this.format = format;
+        }
+
+        private BulkLoadProgress progress() {
+            return new BulkLoadProgress(accounts.sum(), bytesRead.sum(), size,
+                    (System.nanoTime() - startedAt) / 1_000_000L);
+        }
+    }
+
+    private final class ChunkTask extends RecursiveAction {
+        private final Load load;
+        private final List<long[]> chunks;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(Load load, List<long[]> chunks, int from, int to) {
+            this.load = load;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(load, chunks, from, middle), new ChunkTask(load, chunks, middle, to));
+                return;
+            }
+            if (from == to) {
+                return;
+            }
+            long[] chunk = chunks.get(from);
+            try {
+                new ChunkParser(load, chunk[0], chunk[1]).parse();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            load.bytesRead.add(chunk[1] - chunk[0]);
+        }
+    }
+
+    private final class ChunkParser {
+        private final Load load;
+        private final long start;
+        private final long end;
+        private final long[] keys = new long[BATCH_SIZE];
+        private final long[] balances = new long[BATCH_SIZE];
+        private final AccountIds accountIds = accountRepository.getAccountIds();
+        private int count;
+
+        private ChunkParser(Load load, long start, long end) {
+            this.load = load;
+            this.start = start;
+            this.end = end;
+        }
+
+        private void parse() throws IOException {
+            if (load.format == BulkFormat.CSV) {
+                parseLines();
+            } else {
+                parseBlocks();
+            }
+            flush();
+        }
+
+        /**
+         * Maps from the byte before the chunk, to tell whether a line starts right at it, to a line's length past it,
+         * to finish the line that starts last.
+         */
+        private void parseLines() throws IOException {
+            long mapStart = Math.max(0L, start - 1);
+            long mapEnd = Math.min(load.size, end + MAX_LINE_BYTES);
+            MappedByteBuffer buffer = load.channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+            boolean lastMapping = mapEnd == load.size;
+            int lineStartLimit = (int) (end - mapStart);
+            int position = 0;
+            if (start > 0) {
+                int newline = indexOfNewline(buffer, 0);
+                if (newline < 0) {
+                    if (!lastMapping) {
+                        throw new IllegalArgumentException("Line longer than " + MAX_LINE_BYTES + " bytes");
+                    }
+                    return;
+                }
+                position = newline + 1;
+            }
+            boolean first = start == 0;
+            while (position < lineStartLimit) {
+                int lineEnd = indexOfNewline(buffer, position);
+                if (lineEnd < 0) {
+                    if (!lastMapping) {
+                        throw new IllegalArgumentException("Line at byte " + (mapStart + position) + " longer than "
+                                + MAX_LINE_BYTES + " bytes");
+                    }
+                    lineEnd = buffer.limit();
+                }
+                int contentEnd = lineEnd > position && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                if (contentEnd > position && !(first && isHeader(buffer, position, contentEnd))) {
+                    parseLine(buffer, position, contentEnd, mapStart);
+                }
+                first = false;
+                position = lineEnd + 1;
+            }
+        }
+
+        private void parseLine(ByteBuffer buffer, int from, int to, long mapStart) {
+            long key;
+            int comma;
+            if (buffer.get(from) == '"') {
+                ByteArrayOutputStream id = new ByteArrayOutputStream();
+                int i = from + 1;
+                while (true) {
+                    if (i >= to) {
+                        throw malformed(mapStart + from);
+                    }
+                    byte b = buffer.get(i++);
+                    if (b == '"') {
+                        if (i < to && buffer.get(i) == '"') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    id.write(b);
+                }
+                if (i >= to || buffer.get(i) != ',' || id.size() == 0) {
+                    throw malformed(mapStart + from);
+                }
+                comma = i;
+                key = accountIds.keyOf(id.toString(StandardCharsets.UTF_8));
+            } else {
+                comma = from;
+                while (comma < to && buffer.get(comma) != ',') {
+                    comma++;
+                }
+                if (comma == from || comma == to) {
+                    throw malformed(mapStart + from);
+                }
+                key = accountIds.keyOf(buffer, from, comma);
+            }
+            long balance = parseBalance(buffer, comma + 1, to);
+            if (balance == Long.MIN_VALUE) {
+                throw malformed(mapStart + from);
+            }
+            add(key, balance);
+        }
+
+        private void parseBlocks() throws IOException {
+            MappedByteBuffer buffer = load.channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            while (buffer.hasRemaining()) {
+                int blockStart = buffer.position();
+                int length = buffer.getInt();
+                int records = buffer.getInt();
+                int blockEnd = buffer.position() + length;
+                for (int i = 0; i < records; i++) {
+                    if (buffer.position() + Short.BYTES > blockEnd) {
+                        throw malformed(start + buffer.position());
+                    }
+                    int idLength = buffer.getShort();
+                    int idStart = buffer.position();
+                    if (idLength <= 0 || idStart + idLength + Long.BYTES > blockEnd) {
+                        throw malformed(start + idStart);
+                    }
+                    long balance = buffer.getLong(idStart + idLength);
+                    if (balance < 0) {
+                        throw malformed(start + idStart + idLength);
+                    }
+                    add(accountIds.keyOf(buffer, idStart, idStart + idLength), balance);
+                    buffer.position(idStart + idLength + Long.BYTES);
+                }
+                if (buffer.position() != blockEnd) {
+                    throw malformed(start + blockStart);
+                }
+            }
+        }
+
+        private void add(long key, long balance) {
+            keys[count] = key;
+            balances[count++] = balance;
+            if (count == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (count > 0) {
+                accountRepository.putBalances(keys, balances, count);
+                load.accounts.add(count);
+                count = 0;
+            }
+        }
+    }
+
+    private static int indexOfNewline(ByteBuffer buffer, int from) {
+        for (int i = from; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isHeader(ByteBuffer buffer, int from, int to) {
+        if (to - from != BulkFormat.CSV_HEADER.length()) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) != BulkFormat.CSV_HEADER.charAt(i - from)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a balance in units with up to two decimals into minor units, or returns {@link Long#MIN_VALUE}. No write
+     * leaves an account below zero, so neither does a load: a sign makes the balance malformed.
+     */
+    static long parseBalance(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        long units = 0;
+        try {
+            for (; i < to; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                units = Math.addExact(Math.multiplyExact(units, 10L), digit);
+            }
+            if (i == from) {
+                return Long.MIN_VALUE;
+            }
+            long cents = 0;
+            if (i < to) {
+                if (buffer.get(i++) != '.' || i == to || to - i > 2) {
+                    return Long.MIN_VALUE;
+                }
+                for (int fraction = i; fraction < i + 2; fraction++) {
+                    int digit = fraction < to ? buffer.get(fraction) - '0' : 0;
+                    if (digit < 0 || digit > 9) {
+                        return Long.MIN_VALUE;
+                    }
+                    cents = cents * 10 + digit;
+                }
+            }
+            return Math.addExact(Math.multiplyExact(units, 100L), cents);
+        } catch (ArithmeticException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+}
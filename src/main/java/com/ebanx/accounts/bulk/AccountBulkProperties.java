@@ -0,0 +1,61 @@
+package com.ebanx.accounts.bulk;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "accounts.bulk")
+public class AccountBulkProperties {
+    private boolean enabled = false;
+    /**
+     * Fork-join threads parsing a load; the number of processors when not positive.
+     */
+    private int parallelism = 0;
+    private DataSize chunkSize = DataSize.ofMegabytes(16);
+    private Duration progressInterval = Duration.ofSeconds(5);
+    /**
+     * Directory imported files are named relative to; imports are refused while it is unset.
+     */
+    private String directory;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public DataSize getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(DataSize chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Duration getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(Duration progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ebanx.accounts.bulk;
+
+/**
+ * Layouts of a bulk file of account balances.
+ * <p>
+ * {@link #CSV}: one {@code id,balance} line per account, the balance in units with up to two decimals
+ * ({@code 1250.5}), after an optional {@code account_id,balance} header. An id holding a comma or a quote is quoted,
+ * with its quotes doubled; ids can't hold line breaks. Lines may end in {@code \r\n}.
+ * <p>
+ * {@link #BINARY}: {@code [long magic]}, then blocks of {@code [int length][int count]} followed by {@code count}
+ * records of {@code [short id length][UTF-8 id][long balance in minor units]} taking {@code length} bytes, and a
+ * {@code [int 0][int 0][long account count][long magic]} trailer. Blocks let a reader find record boundaries without
+ * parsing what comes before them.
+ */
+public enum BulkFormat {
+    CSV,
+    BINARY;
+
+    static final String CSV_HEADER = "account_id,balance";
+    static final long MAGIC = 0x4542414E58424C4BL;
+    static final int BLOCK_HEADER_BYTES = 2 * Integer.BYTES;
+    static final int TRAILER_BYTES = BLOCK_HEADER_BYTES + 2 * Long.BYTES;
+}
@@ -0,0 +1,12 @@
+package com.ebanx.accounts.bulk;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * How far a bulk load got: accounts stored and bytes of the file parsed so far, out of {@code totalBytes}.
+ */
+public record BulkLoadProgress(long accounts,
+                               @JsonProperty("bytes_read") long bytesRead,
+                               @JsonProperty("total_bytes") long totalBytes,
+                               @JsonProperty("elapsed_millis") long elapsedMillis) {
+}
@@ -0,0 +1,41 @@
+package com.ebanx.accounts.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.cluster", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AccountClusterProperties.class)
+public class AccountClusterConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public ClusterNode clusterNode(AccountClusterProperties properties, Environment environment) throws IOException {
+        for (String mode : new String[] {"pipeline", "journal", "ingest"}) {
+            if (environment.getProperty("accounts." + mode + ".enabled", Boolean.class, false)) {
+                throw new IllegalStateException("accounts.cluster.enabled can't be combined with accounts." + mode
+                        + ".enabled: cluster nodes keep their partitions in repositories of their own");
+            }
+        }
+        ClusterNode node = new ClusterNode(properties.getNodeId(),
+                new InetSocketAddress(properties.getAddress(), properties.getPort()), properties.getPrepareTimeout());
+        try {
+            if (properties.getSeed().isBlank()) {
+                node.bootstrap();
+            } else {
+                int separator = properties.getSeed().lastIndexOf(':');
+                node.joinThrough(new InetSocketAddress(properties.getSeed().substring(0, separator),
+                        Integer.parseInt(properties.getSeed().substring(separator + 1))));
+            }
+        } catch (RuntimeException e) {
+            node.close();
+            throw e;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ebanx.accounts.cluster;
+
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.dtos.AccountResponseDto;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Serves the {@code AccountController} API in cluster mode. Any node answers for any account; a request that needs a
+ * node that can't be reached gets 503.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "accounts.cluster", name = "enabled", havingValue = "true")
+public class AccountClusterController {
+    private final ClusteredAccountService accountService;
+
+    public AccountClusterController(ClusteredAccountService accountService) {
+        this.accountService = accountService;
+    }
+
+    @RequestMapping(value="balance", method = RequestMethod.GET)
+    public ResponseEntity<Float> getAccountBalance(@RequestParam("account_id") String accountId){
+        AccountResult<Float> result = accountService.getAccountBalance(accountId);
+        if (result instanceof AccountResult.Success<Float> success) {
+            return new ResponseEntity<>(success.value(), HttpStatus.OK);
+        }
+        return new ResponseEntity<>(0.0f, HttpStatus.NOT_FOUND);
+    }
+
+    @RequestMapping(value="event", method = RequestMethod.POST)
+    public ResponseEntity<?> handleAccountEvent(@Valid @RequestBody AccountRequestDto accountRequestDto){
+        if(accountRequestDto.validDepositRequest()) {
+            return toResponse(accountService.depositToAccount(accountRequestDto));
+        }
+        if(accountRequestDto.validWithdrawRequest()) {
+            return toResponse(accountService.withdrawFromAccount(accountRequestDto));
+        }
+        if(accountRequestDto.validTransferRequest()) {
+            return toResponse(accountService.transferBetweenAccount(accountRequestDto));
+        }
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    @RequestMapping(value="reset", method = RequestMethod.POST)
+    public ResponseEntity<?> resetDatabase(){
+        accountService.resetDatabase();
+        return new ResponseEntity<>("OK", HttpStatus.OK);
+    }
+
+    @ExceptionHandler(ClusterUnavailableException.class)
+    public ResponseEntity<Void> clusterUnavailable() {
+        return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private static ResponseEntity<?> toResponse(AccountResult<AccountResponseDto> result) {
+        if (result instanceof AccountResult.Success<AccountResponseDto> success) {
+            return new ResponseEntity<>(success.value(), HttpStatus.CREATED);
+        }
+        if (result instanceof AccountResult.NotFound) {
+            return new ResponseEntity<>(0.0f, HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ebanx.accounts.cluster;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "accounts.cluster")
+public class AccountClusterProperties {
+    private boolean enabled = false;
+    private String nodeId = "node-1";
+    private String address = "127.0.0.1";
+    private int port = 7101;
+    /**
+     * {@code host:port} of the cluster port of a member to join through; empty to start a new cluster.
+     */
+    private String seed = "";
+    private Duration prepareTimeout = Duration.ofSeconds(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getSeed() {
+        return seed;
+    }
+
+    public void setSeed(String seed) {
+        this.seed = seed;
+    }
+
+    public Duration getPrepareTimeout() {
+        return prepareTimeout;
+    }
+
+    public void setPrepareTimeout(Duration prepareTimeout) {
+        this.prepareTimeout = prepareTimeout;
+    }
+}
@@ -0,0 +1,7 @@
+package com.ebanx.accounts.cluster;
+
+/**
+ * A node of the cluster and the address its {@link ClusterServer} listens on.
+ */
+public record ClusterMember(String id, String host, int port) {
+}
@@ -0,0 +1,558 @@
+package com.ebanx.accounts.cluster;
+
+import com.ebanx.accounts.AccountEntity;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.AccountTransferEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * One node of a partitioned deployment. It stores the partitions the {@link ClusterView} gives it, each in an
+ * {@link AccountRepository} of its own, serves them to the other nodes through its {@link ClusterServer}, and routes
+ * the requests it receives to the owners of the accounts involved.
+ * <p>
+ * A transfer between partitions of different nodes runs a two-phase commit coordinated by the node that received it:
+ * the origin's owner debits the amount at prepare, the destination's owner only records the credit, and the credit is
+ * applied on commit. The coordinator decides by recording the outcome before sending any commit, and a participant
+ * that hears nothing within the prepare timeout asks it, which aborts the transaction if it wasn't decided yet.
+ * Decisions and prepared changes are kept in memory only.
+ * <p>
+ * Whether a node owns a partition is decided by its own storage, not by its view: a request for a partition it
+ * doesn't hold fails with {@link PartitionMovedException}, and the caller fetches that node's view and tries again.
+ * A partition being handed over is locked until the new owner holds its accounts.
+ */
+public class ClusterNode implements ClusterPeer, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ClusterNode.class);
+
+    private static final int PARTITION_SEGMENTS = 16;
+    private static final int ROUTING_ATTEMPTS = 8;
+    private static final int COMMIT_ATTEMPTS = 5;
+
+    private final ClusterServer server;
+    private final ClusterMember self;
+    private final AtomicReferenceArray<AccountRepository> partitions =
+            new AtomicReferenceArray<>(ClusterView.PARTITIONS);
+    private final ReentrantReadWriteLock[] partitionLocks = new ReentrantReadWriteLock[ClusterView.PARTITIONS];
+    private final Map<String, RemotePeer> peers = new ConcurrentHashMap<>();
+    private final Map<Long, PreparedChange> prepared = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> decisions = new ConcurrentHashMap<>();
+    private final long prepareTimeoutNanos;
+    private final ScheduledExecutorService resolver;
+    private volatile ClusterView view = ClusterView.EMPTY;
+
+    public ClusterNode(String id, InetSocketAddress address, Duration prepareTimeout) throws IOException {
+        for (int i = 0; i < partitionLocks.length; i++) {
+            partitionLocks[i] = new ReentrantReadWriteLock();
+        }
+        this.server = new ClusterServer(this, address);
+        this.self = new ClusterMember(id, address.getHostString(), server.getPort());
+        this.prepareTimeoutNanos = prepareTimeout.toNanos();
+        this.resolver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-cluster-resolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1L, prepareTimeout.toMillis() / 2);
+        resolver.scheduleWithFixedDelay(this::resolveExpired, millis, millis, TimeUnit.MILLISECONDS);
+        server.start();
+    }
+
+    public ClusterMember getMember() {
+        return self;
+    }
+
+    /**
+     * Starts a new cluster with this node as its only member, owning every partition.
+     */
+    public void bootstrap() {
+        for (int partition = 0; partition < ClusterView.PARTITIONS; partition++) {
+            partitions.set(partition, newPartition(0));
+        }
+        installView(new ClusterView(1L, List.of(self)));
+    }
+
+    /**
+     * Joins the cluster {@code seed} belongs to and takes over the partitions the new view gives this node.
+     */
+    public void joinThrough(InetSocketAddress seed) {
+        try (RemotePeer seedPeer = new RemotePeer(new ClusterMember("seed", seed.getHostString(), seed.getPort()))) {
+            installView(seedPeer.join(self));
+        }
+    }
+
+    /**
+     * Returns the number of partitions this node currently stores.
+     */
+    public int getOwnedPartitions() {
+        int owned = 0;
+        for (int partition = 0; partition < ClusterView.PARTITIONS; partition++) {
+            if (partitions.get(partition) != null) {
+                owned++;
+            }
+        }
+        return owned;
+    }
+
+    public long getBalance(String accountId) {
+        return route(accountId, peer -> peer.balance(accountId));
+    }
+
+    public long depositToAccount(String accountId, long amount) {
+        return route(accountId, peer -> peer.deposit(accountId, amount));
+    }
+
+    public long withdrawFromAccount(String accountId, long amount) {
+        return route(accountId, peer -> peer.withdraw(accountId, amount));
+    }
+
+    public AccountResult<AccountTransferEntity> transferBetweenAccounts(String originId, String destinationId,
+                                                                        long amount) {
+        int originPartition = ClusterView.partitionOf(originId);
+        int destinationPartition = ClusterView.partitionOf(destinationId);
+        for (int attempt = 1; ; attempt++) {
+            ClusterView current = requireView();
+            ClusterMember originOwner = current.ownerOf(originPartition);
+            ClusterMember destinationOwner = current.ownerOf(destinationPartition);
+            try {
+                if (originOwner.equals(destinationOwner)) {
+                    return peer(originOwner).transfer(originId, destinationId, amount);
+                }
+                return transferBetweenNodes(originId, originOwner, destinationId, destinationOwner, amount);
+            } catch (PartitionMovedException e) {
+                refreshViewOrGiveUp(attempt, e, originOwner, destinationOwner);
+            }
+        }
+    }
+
+    /**
+     * Empties every partition of every member.
+     */
+    public void resetDatabase() {
+        for (ClusterMember member : requireView().getMembers()) {
+            peer(member).reset();
+        }
+    }
+
+    @Override
+    public long balance(String accountId) {
+        return onPartition(accountId, repository -> repository.getBalance(accountId));
+    }
+
+    @Override
+    public long deposit(String accountId, long amount) {
+        return onPartition(accountId, repository -> repository.createOrCreditAccount(accountId, amount));
+    }
+
+    @Override
+    public long withdraw(String accountId, long amount) {
+        return onPartition(accountId, repository -> repository.debitAccount(accountId, amount));
+    }
+
+    /**
+     * Within one partition the repository applies the transfer atomically. Across two partitions of this node the
+     * origin is debited and then the destination credited, both under their partition locks, so neither can move in
+     * between and the credit can't fail once the debit succeeded.
+     */
+    @Override
+    public AccountResult<AccountTransferEntity> transfer(String originId, String destinationId, long amount) {
+        int originPartition = ClusterView.partitionOf(originId);
+        int destinationPartition = ClusterView.partitionOf(destinationId);
+        ReentrantReadWriteLock.ReadLock originLock = partitionLocks[originPartition].readLock();
+        ReentrantReadWriteLock.ReadLock destinationLock = partitionLocks[destinationPartition].readLock();
+        originLock.lock();
+        destinationLock.lock();
+        try {
+            AccountRepository origin = owned(originPartition);
+            AccountRepository destination = owned(destinationPartition);
+            if (origin == destination) {
+                return origin.transferBetweenAccounts(originId, destinationId, amount);
+            }
+            long originBalance = origin.debitAccount(originId, amount);
+            if (originBalance == AccountRepository.NO_ACCOUNT) {
+                return AccountResult.notFound();
+            }
+            if (originBalance == AccountRepository.INSUFFICIENT_FUNDS) {
+                return AccountResult.insufficientFunds();
+            }
+            long destinationBalance = destination.createOrCreditAccount(destinationId, amount);
+            return AccountResult.success(new AccountTransferEntity(new AccountEntity(originId, originBalance),
+                    new AccountEntity(destinationId, destinationBalance)));
+        } finally {
+            destinationLock.unlock();
+            originLock.unlock();
+        }
+    }
+
+    @Override
+    public long prepareDebit(long transaction, String coordinatorId, String accountId, long amount) {
+        int partition = ClusterView.partitionOf(accountId);
+        ReentrantReadWriteLock.ReadLock lock = partitionLocks[partition].readLock();
+        lock.lock();
+        try {
+            long balance = owned(partition).debitAccount(accountId, amount);
+            if (balance >= 0) {
+                prepared.put(transaction, new PreparedChange(coordinatorId, accountId, amount, true));
+            }
+            return balance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void prepareCredit(long transaction, String coordinatorId, String accountId, long amount) {
+        int partition = ClusterView.partitionOf(accountId);
+        ReentrantReadWriteLock.ReadLock lock = partitionLocks[partition].readLock();
+        lock.lock();
+        try {
+            owned(partition);
+            prepared.put(transaction, new PreparedChange(coordinatorId, accountId, amount, false));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long commit(long transaction) {
+        PreparedChange change = prepared.remove(transaction);
+        return change == null || change.debit ? AccountRepository.NO_ACCOUNT : credit(change.accountId, change.amount);
+    }
+
+    @Override
+    public void abort(long transaction) {
+        PreparedChange change = prepared.remove(transaction);
+        if (change != null && change.debit) {
+            credit(change.accountId, change.amount);
+        }
+    }
+
+    @Override
+    public boolean resolve(long transaction) {
+        Boolean decision = decisions.putIfAbsent(transaction, Boolean.FALSE);
+        return decision != null && decision;
+    }
+
+    @Override
+    public void reset() {
+        for (int partition = 0; partition < ClusterView.PARTITIONS; partition++) {
+            AccountRepository repository = partitions.get(partition);
+            if (repository != null) {
+                repository.emptyDatabase();
+            }
+        }
+        prepared.clear();
+    }
+
+    @Override
+    public ClusterView view() {
+        return view;
+    }
+
+    @Override
+    public synchronized ClusterView join(ClusterMember member) {
+        ClusterView current = requireView();
+        ClusterView next = current.with(member);
+        Map<ClusterMember, List<Integer>> moves = new LinkedHashMap<>();
+        for (int partition = 0; partition < ClusterView.PARTITIONS; partition++) {
+            ClusterMember owner = current.ownerOf(partition);
+            if (!owner.equals(next.ownerOf(partition))) {
+                moves.computeIfAbsent(owner, key -> new ArrayList<>()).add(partition);
+            }
+        }
+        for (Map.Entry<ClusterMember, List<Integer>> move : moves.entrySet()) {
+            peer(move.getKey()).movePartitions(next,
+                    move.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        installView(next);
+        for (ClusterMember other : next.getMembers()) {
+            if (!other.id().equals(self.id())) {
+                try {
+                    peer(other).installView(next);
+                } catch (ClusterUnavailableException e) {
+                    log.warn("Couldn't install view {} on {}, it will catch up when redirected", next.getVersion(),
+                            other.id(), e);
+                }
+            }
+        }
+        log.info("{} joined the cluster, {} partitions moved, view {}", member.id(),
+                moves.values().stream().mapToInt(List::size).sum(), next.getVersion());
+        return next;
+    }
+
+    @Override
+    public synchronized void installView(ClusterView next) {
+        if (next.getVersion() > view.getVersion()) {
+            view = next;
+        }
+    }
+
+    /**
+     * A partition stays locked while its accounts are sent, so no change to it is lost, and is only dropped here once
+     * the new owner holds them. Changes prepared on it that complete later are forwarded to the new owner.
+     */
+    @Override
+    public void movePartitions(ClusterView next, int[] moved) {
+        installView(next);
+        for (int partition : moved) {
+            ReentrantReadWriteLock.WriteLock lock = partitionLocks[partition].writeLock();
+            lock.lock();
+            try {
+                AccountRepository repository = partitions.get(partition);
+                if (repository == null) {
+                    continue;
+                }
+                List<String> accountIds = new ArrayList<>();
+                List<Long> balances = new ArrayList<>();
+                repository.forEachAccount((accountId, balance) -> {
+                    accountIds.add(accountId);
+                    balances.add(balance);
+                });
+                peer(next.ownerOf(partition)).acceptPartition(partition, accountIds.toArray(new String[0]),
+                        balances.stream().mapToLong(Long::longValue).toArray());
+                partitions.set(partition, null);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void acceptPartition(int partition, String[] accountIds, long[] balances) {
+        AccountRepository repository = newPartition(accountIds.length);
+        for (int i = 0; i < accountIds.length; i++) {
+            repository.putBalance(accountIds[i], balances[i]);
+        }
+        ReentrantReadWriteLock.WriteLock lock = partitionLocks[partition].writeLock();
+        lock.lock();
+        try {
+            partitions.set(partition, repository);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        resolver.shutdownNow();
+        server.close();
+        peers.values().forEach(RemotePeer::close);
+    }
+
+    private AccountResult<AccountTransferEntity> transferBetweenNodes(String originId, ClusterMember originOwner,
+                                                                      String destinationId,
+                                                                      ClusterMember destinationOwner, long amount) {
+        long transaction = ThreadLocalRandom.current().nextLong();
+        ClusterPeer origin = peer(originOwner);
+        ClusterPeer destination = peer(destinationOwner);
+        long originBalance = origin.prepareDebit(transaction, self.id(), originId, amount);
+        if (originBalance == AccountRepository.NO_ACCOUNT) {
+            return AccountResult.notFound();
+        }
+        if (originBalance == AccountRepository.INSUFFICIENT_FUNDS) {
+            return AccountResult.insufficientFunds();
+        }
+        try {
+            destination.prepareCredit(transaction, self.id(), destinationId, amount);
+        } catch (RuntimeException e) {
+            abortQuietly(origin, transaction);
+            throw e;
+        }
+        if (decisions.putIfAbsent(transaction, Boolean.TRUE) != null) {
+            decisions.remove(transaction);
+            abortQuietly(destination, transaction);
+            abortQuietly(origin, transaction);
+            throw new ClusterUnavailableException("Transfer " + transaction + " timed out before it committed");
+        }
+        long destinationBalance = commitWithRetries(destination, transaction);
+        commitWithRetries(origin, transaction);
+        decisions.remove(transaction);
+        if (destinationBalance == AccountRepository.NO_ACCOUNT) {
+            destinationBalance = getBalance(destinationId);
+        }
+        return AccountResult.success(new AccountTransferEntity(new AccountEntity(originId, originBalance),
+                new AccountEntity(destinationId, destinationBalance)));
+    }
+
+    /**
+     * Delivers a commit that has already been decided. If the participant stays unreachable, the decision is kept for
+     * it to resolve later and the request fails, although the transfer will complete.
+     */
+    private long commitWithRetries(ClusterPeer participant, long transaction) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return participant.commit(transaction);
+            } catch (ClusterUnavailableException e) {
+                if (attempt == COMMIT_ATTEMPTS) {
+                    throw new ClusterUnavailableException("Transfer " + transaction
+                            + " committed but a participant hasn't acknowledged it yet", e);
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    private static void abortQuietly(ClusterPeer participant, long transaction) {
+        try {
+            participant.abort(transaction);
+        } catch (RuntimeException e) {
+            log.warn("Couldn't abort transfer {}, the participant will resolve it", transaction, e);
+        }
+    }
+
+    /**
+     * Asks the coordinators of the changes prepared here for longer than the timeout how they ended.
+     */
+    private void resolveExpired() {
+        long now = System.nanoTime();
+        for (Map.Entry<Long, PreparedChange> entry : prepared.entrySet()) {
+            PreparedChange change = entry.getValue();
+            if (now - change.preparedAt < prepareTimeoutNanos) {
+                continue;
+            }
+            try {
+                ClusterMember coordinator = memberById(change.coordinatorId);
+                if (coordinator == null) {
+                    log.warn("Coordinator {} of transfer {} is unknown, keeping it prepared", change.coordinatorId,
+                            entry.getKey());
+                } else if (peer(coordinator).resolve(entry.getKey())) {
+                    commit(entry.getKey());
+                } else {
+                    abort(entry.getKey());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Couldn't resolve transfer {} with {}, keeping it prepared", entry.getKey(),
+                        change.coordinatorId, e);
+            }
+        }
+    }
+
+    /**
+     * Applies a credit decided by a commit or an abort, on the account's current owner if its partition has moved.
+     */
+    private long credit(String accountId, long amount) {
+        try {
+            return deposit(accountId, amount);
+        } catch (PartitionMovedException e) {
+            return depositToAccount(accountId, amount);
+        }
+    }
+
+    private long route(String accountId, ToLongFunction<ClusterPeer> operation) {
+        int partition = ClusterView.partitionOf(accountId);
+        for (int attempt = 1; ; attempt++) {
+            ClusterMember owner = requireView().ownerOf(partition);
+            try {
+                return operation.applyAsLong(peer(owner));
+            } catch (PartitionMovedException e) {
+                refreshViewOrGiveUp(attempt, e, owner, owner);
+            }
+        }
+    }
+
+    /**
+     * Takes the view of the nodes that turned the request away, which know at least as much about the partition as
+     * this one, and waits a little for a handover in progress to finish.
+     */
+    private void refreshViewOrGiveUp(int attempt, PartitionMovedException failure, ClusterMember... owners) {
+        if (attempt == ROUTING_ATTEMPTS) {
+            throw new ClusterUnavailableException("No reachable node owns the partition", failure);
+        }
+        for (ClusterMember owner : owners) {
+            try {
+                installView(peer(owner).view());
+            } catch (ClusterUnavailableException e) {
+                log.debug("Couldn't refresh the view from {}", owner.id(), e);
+            }
+        }
+        backOff(attempt);
+    }
+
+    private long onPartition(String accountId, ToLongFunction<AccountRepository> operation) {
+        int partition = ClusterView.partitionOf(accountId);
+        ReentrantReadWriteLock.ReadLock lock = partitionLocks[partition].readLock();
+        lock.lock();
+        try {
+            return operation.applyAsLong(owned(partition));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private AccountRepository owned(int partition) {
+        AccountRepository repository = partitions.get(partition);
+        if (repository == null) {
+            throw new PartitionMovedException(partition);
+        }
+        return repository;
+    }
+
+    private ClusterView requireView() {
+        ClusterView current = view;
+        if (current.isEmpty()) {
+            throw new ClusterUnavailableException("Node " + self.id() + " hasn't joined a cluster");
+        }
+        return current;
+    }
+
+    private ClusterMember memberById(String id) {
+        for (ClusterMember member : view.getMembers()) {
+            if (member.id().equals(id)) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    private ClusterPeer peer(ClusterMember member) {
+        if (member.id().equals(self.id())) {
+            return this;
+        }
+        return peers.computeIfAbsent(member.id(), id -> new RemotePeer(member));
+    }
+
+    private static AccountRepository newPartition(int expectedAccounts) {
+        return new AccountRepository(PARTITION_SEGMENTS, expectedAccounts);
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(Math.min(100L, 1L << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClusterUnavailableException("Interrupted while waiting for the cluster", e);
+        }
+    }
+
+    private static final class PreparedChange {
+        private final String coordinatorId;
+        private final String accountId;
+        private final long amount;
+        private final boolean debit;
+        private final long preparedAt = System.nanoTime();
+
+        private PreparedChange(String coordinatorId, String accountId, long amount, boolean debit) {
+            this.coordinatorId = coordinatorId;
+            this.accountId = accountId;
+            this.amount = amount;
+            this.debit = debit;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.ebanx.accounts.cluster;
+
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.AccountTransferEntity;
+
+/**
+ * What a node does on behalf of the others, implemented by the local {@link ClusterNode} and, over the wire, by
+ * {@link RemotePeer}. Account operations only touch partitions the node owns and throw
+ * {@link PartitionMovedException} otherwise; balances and amounts are in minor units, with the declines of
+ * {@code AccountRepository} as negative sentinels.
+ */
+public interface ClusterPeer {
+
+    long balance(String accountId);
+
+    long deposit(String accountId, long amount);
+
+    long withdraw(String accountId, long amount);
+
+    /**
+     * Transfers between two accounts whose partitions are both owned by this node.
+     */
+    AccountResult<AccountTransferEntity> transfer(String originId, String destinationId, long amount);
+
+    /**
+     * First phase of a transfer between nodes on the origin's side: debits the account right away, so the amount
+     * can't be spent twice, and remembers the debit until {@link #commit} or {@link #abort}.
+     *
+     * @return the origin balance after the debit, or a decline
+     */
+    long prepareDebit(long transaction, String coordinatorId, String accountId, long amount);
+
+    /**
+     * First phase on the destination's side: checks the partition is owned here and remembers the credit, which is
+     * only applied on {@link #commit}.
+     */
+    void prepareCredit(long transaction, String coordinatorId, String accountId, long amount);
+
+    /**
+     * Completes a prepared change. Committing or aborting a transaction that isn't prepared here does nothing.
+     *
+     * @return the balance a committed credit left, or {@code AccountRepository.NO_ACCOUNT} for anything else
+     */
+    long commit(long transaction);
+
+    void abort(long transaction);
+
+    /**
+     * Asked of the coordinator by a participant whose prepared change has waited too long. Returns whether the
+     * transaction committed, deciding to abort it if it wasn't decided yet.
+     */
+    boolean resolve(long transaction);
+
+    /**
+     * Empties the partitions owned by this node.
+     */
+    void reset();
+
+    ClusterView view();
+
+    /**
+     * Adds a member to the cluster: moves the partitions the new view gives it from their current owners, then
+     * installs the view on every member. Joins must all go through the same node.
+     */
+    ClusterView join(ClusterMember member);
+
+    void installView(ClusterView view);
+
+    /**
+     * Hands each partition to its owner in {@code view}, after which this node stops applying changes to it.
+     */
+    void movePartitions(ClusterView view, int[] partitions);
+
+    void acceptPartition(int partition, String[] accountIds, long[] balances);
+}
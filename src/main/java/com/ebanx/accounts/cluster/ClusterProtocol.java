@@ -0,0 +1,66 @@
+package com.ebanx.accounts.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Requests between nodes, one {@link ClusterPeer} call each: the operation byte followed by the call's arguments,
+ * written with {@link DataOutputStream} (ids as modified UTF-8). The reply is a status byte, then the call's result
+ * if it is {@code OK}, or a message if it is {@code FAILED}. A connection carries one request at a time.
+ */
+final class ClusterProtocol {
+    static final byte BALANCE = 1;
+    static final byte DEPOSIT = 2;
+    static final byte WITHDRAW = 3;
+    static final byte TRANSFER = 4;
+    static final byte PREPARE_DEBIT = 5;
+    static final byte PREPARE_CREDIT = 6;
+    static final byte COMMIT = 7;
+    static final byte ABORT = 8;
+    static final byte RESOLVE = 9;
+    static final byte RESET = 10;
+    static final byte VIEW = 11;
+    static final byte JOIN = 12;
+    static final byte INSTALL_VIEW = 13;
+    static final byte MOVE_PARTITIONS = 14;
+    static final byte ACCEPT_PARTITION = 15;
+
+    static final byte OK = 0;
+    static final byte MOVED = 1;
+    static final byte FAILED = 2;
+
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    private ClusterProtocol() {}
+
+    static void writeMember(DataOutputStream out, ClusterMember member) throws IOException {
+        out.writeUTF(member.id());
+        out.writeUTF(member.host());
+        out.writeInt(member.port());
+    }
+
+    static ClusterMember readMember(DataInputStream in) throws IOException {
+        return new ClusterMember(in.readUTF(), in.readUTF(), in.readInt());
+    }
+
+    static void writeView(DataOutputStream out, ClusterView view) throws IOException {
+        out.writeLong(view.getVersion());
+        out.writeInt(view.getMembers().size());
+        for (ClusterMember member : view.getMembers()) {
+            writeMember(out, member);
+        }
+    }
+
+    static ClusterView readView(DataInputStream in) throws IOException {
+        long version = in.readLong();
+        int size = in.readInt();
+        List<ClusterMember> members = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            members.add(readMember(in));
+        }
+        return size == 0 ? ClusterView.EMPTY : new ClusterView(version, members);
+    }
+}
@@ -0,0 +1,283 @@
+package com.ebanx.accounts.cluster;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.AccountTransferEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ebanx.accounts.cluster.ClusterProtocol.*;
+
+/**
+ * Serves {@link ClusterProtocol} requests from the other nodes on behalf of a {@link ClusterNode}, one thread per
+ * connection. Callers pool their connections, so the number of threads follows the number of concurrent requests
+ * between nodes rather than the number of requests.
+ */
+public class ClusterServer implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ClusterServer.class);
+    private static final Result NOTHING = out -> { };
+
+    private final ClusterNode node;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    public ClusterServer(ClusterNode node, InetSocketAddress address) throws IOException {
+        this.node = node;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        AtomicInteger threads = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "account-cluster-rpc-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.acceptor = new Thread(this::accept, "account-cluster-acceptor");
+        acceptor.setDaemon(true);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections, once the node is ready to serve them.
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the cluster port", e);
+        }
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Failed to accept a cluster connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+                    BUFFER_SIZE));
+            while (true) {
+                dispatch(in.readByte(), in, out);
+                out.flush();
+            }
+        } catch (EOFException | SocketException e) {
+            log.debug("Cluster connection closed", e);
+        } catch (IOException e) {
+            log.warn("Cluster connection failed", e);
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Reads the arguments of the request first, so the connection is ready for the next one whatever the call does.
+     */
+    private void dispatch(byte operation, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (operation) {
+            case BALANCE -> {
+                String accountId = in.readUTF();
+                reply(out, () -> writeLong(node.balance(accountId)));
+            }
+            case DEPOSIT -> {
+                String accountId = in.readUTF();
+                long amount = in.readLong();
+                reply(out, () -> writeLong(node.deposit(accountId, amount)));
+            }
+            case WITHDRAW -> {
+                String accountId = in.readUTF();
+                long amount = in.readLong();
+                reply(out, () -> writeLong(node.withdraw(accountId, amount)));
+            }
+            case TRANSFER -> {
+                String originId = in.readUTF();
+                String destinationId = in.readUTF();
+                long amount = in.readLong();
+                reply(out, () -> writeTransfer(node.transfer(originId, destinationId, amount)));
+            }
+            case PREPARE_DEBIT -> {
+                long transaction = in.readLong();
+                String coordinatorId = in.readUTF();
+                String accountId = in.readUTF();
+                long amount = in.readLong();
+                reply(out, () -> writeLong(node.prepareDebit(transaction, coordinatorId, accountId, amount)));
+            }
+            case PREPARE_CREDIT -> {
+                long transaction = in.readLong();
+                String coordinatorId = in.readUTF();
+                String accountId = in.readUTF();
+                long amount = in.readLong();
+                reply(out, () -> {
+                    node.prepareCredit(transaction, coordinatorId, accountId, amount);
+                    return NOTHING;
+                });
+            }
+            case COMMIT -> {
+                long transaction = in.readLong();
+                reply(out, () -> writeLong(node.commit(transaction)));
+            }
+            case ABORT -> {
+                long transaction = in.readLong();
+                reply(out, () -> {
+                    node.abort(transaction);
+                    return NOTHING;
+                });
+            }
+            case RESOLVE -> {
+                long transaction = in.readLong();
+                reply(out, () -> {
+                    boolean committed = node.resolve(transaction);
+                    return stream -> stream.writeBoolean(committed);
+                });
+            }
+            case RESET -> reply(out, () -> {
+                node.reset();
+                return NOTHING;
+            });
+            case VIEW -> reply(out, () -> {
+                ClusterView view = node.view();
+                return stream -> writeView(stream, view);
+            });
+            case JOIN -> {
+                ClusterMember member = readMember(in);
+                reply(out, () -> {
+                    ClusterView view = node.join(member);
+                    return stream -> writeView(stream, view);
+                });
+            }
+            case INSTALL_VIEW -> {
+                ClusterView view = readView(in);
+                reply(out, () -> {
+                    node.installView(view);
+                    return NOTHING;
+                });
+            }
+            case MOVE_PARTITIONS -> {
+                ClusterView view = readView(in);
+                int[] partitions = new int[in.readInt()];
+                for (int i = 0; i < partitions.length; i++) {
+                    partitions[i] = in.readInt();
+                }
+                reply(out, () -> {
+                    node.movePartitions(view, partitions);
+                    return NOTHING;
+                });
+            }
+            case ACCEPT_PARTITION -> {
+                int partition = in.readInt();
+                int size = in.readInt();
+                String[] accountIds = new String[size];
+                long[] balances = new long[size];
+                for (int i = 0; i < size; i++) {
+                    accountIds[i] = in.readUTF();
+                    balances[i] = in.readLong();
+                }
+                reply(out, () -> {
+                    node.acceptPartition(partition, accountIds, balances);
+                    return NOTHING;
+                });
+            }
+            default -> throw new IOException("Unknown cluster operation " + operation);
+        }
+    }
+
+    private static void reply(DataOutputStream out, Call call) throws IOException {
+        Result result;
+        try {
+            result = call.run();
+        } catch (PartitionMovedException e) {
+            out.writeByte(MOVED);
+            out.writeInt(e.getPartition());
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Cluster request failed", e);
+            out.writeByte(FAILED);
+            out.writeUTF(String.valueOf(e.getMessage()));
+            return;
+        }
+        out.writeByte(OK);
+        result.write(out);
+    }
+
+    private static Result writeLong(long value) {
+        return out -> out.writeLong(value);
+    }
+
+    private static Result writeTransfer(AccountResult<AccountTransferEntity> transfer) {
+        if (transfer instanceof AccountResult.Success<AccountTransferEntity> success) {
+            long originBalance = success.value().getOriginAccount().getBalance();
+            long destinationBalance = success.value().getDestinationAccount().getBalance();
+            return out -> {
+                out.writeLong(originBalance);
+                out.writeLong(destinationBalance);
+            };
+        }
+        long decline = transfer instanceof AccountResult.NotFound
+                ? AccountRepository.NO_ACCOUNT : AccountRepository.INSUFFICIENT_FUNDS;
+        return out -> {
+            out.writeLong(decline);
+            out.writeLong(AccountRepository.NO_ACCOUNT);
+        };
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Closing anyway.
+        }
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        Result run();
+    }
+
+    @FunctionalInterface
+    private interface Result {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ebanx.accounts.cluster;
+
+/**
+ * Thrown when a request can't be completed because a node it needs can't be reached or a partition it touches has no
+ * reachable owner. The request may or may not have been applied.
+ */
+public class ClusterUnavailableException extends RuntimeException {
+    public ClusterUnavailableException(String message) {
+        super(message);
+    }
+
+    public ClusterUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
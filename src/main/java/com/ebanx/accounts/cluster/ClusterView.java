@@ -0,0 +1,91 @@
+package com.ebanx.accounts.cluster;
+
+import com.ebanx.accounts.AccountTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable membership of the cluster and the owner of every partition. Accounts are hashed into a fixed number of
+ * partitions, and partitions are placed on a consistent-hash ring where every member holds {@code VIRTUAL_NODES}
+ * points: a partition belongs to the member of the first point at or after its own. Adding a member therefore only
+ * moves the partitions that land on the new member's points, about {@code 1/N} of them, and never moves a partition
+ * between two members that were already there.
+ */
+public final class ClusterView {
+    public static final int PARTITIONS = 256;
+    public static final ClusterView EMPTY = new ClusterView(0L, List.of());
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private final long version;
+    private final List<ClusterMember> members;
+    private final ClusterMember[] owners = new ClusterMember[PARTITIONS];
+
+    public ClusterView(long version, List<ClusterMember> members) {
+        this.version = version;
+        this.members = List.copyOf(members);
+        if (members.isEmpty()) {
+            return;
+        }
+        long[] points = new long[members.size() * VIRTUAL_NODES];
+        for (int member = 0; member < members.size(); member++) {
+            long memberHash = (long) members.get(member).id().hashCode() << 32;
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                // The low bits keep the member index, so ties between points still sort deterministically.
+                points[member * VIRTUAL_NODES + i] = (mix(memberHash | i) & ~0xFFFFL) | member;
+            }
+        }
+        Arrays.sort(points);
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            long point = mix(partition * 0x9E3779B97F4A7C15L);
+            int index = Arrays.binarySearch(points, point);
+            index = index >= 0 ? index : -index - 1;
+            owners[partition] = members.get((int) (points[index == points.length ? 0 : index] & 0xFFFFL));
+        }
+    }
+
+    public static int partitionOf(String accountId) {
+        return AccountTable.spread(accountId.hashCode()) & (PARTITIONS - 1);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<ClusterMember> getMembers() {
+        return members;
+    }
+
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    public ClusterMember ownerOf(int partition) {
+        return owners[partition];
+    }
+
+    public ClusterMember ownerOf(String accountId) {
+        return owners[partitionOf(accountId)];
+    }
+
+    /**
+     * Returns the next view, with the member added or, if a member with its id is already there, replaced.
+     */
+    public ClusterView with(ClusterMember member) {
+        List<ClusterMember> next = new ArrayList<>(members);
+        next.removeIf(existing -> existing.id().equals(member.id()));
+        next.add(member);
+        return new ClusterView(version + 1, next);
+    }
+
+    /**
+     * Finalizer of SplitMix64, so neighbouring inputs land far apart on the ring.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
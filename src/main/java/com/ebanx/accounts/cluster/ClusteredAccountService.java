@@ -0,0 +1,64 @@
+package com.ebanx.accounts.cluster;
+
+import com.ebanx.accounts.AccountMapper;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.AccountTransferEntity;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.dtos.AccountResponseDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Counterpart of {@code AccountService} for cluster mode, running every operation through the local
+ * {@link ClusterNode}. Idempotency keys are ignored and nothing is recorded in a ledger.
+ */
+@Service
+@ConditionalOnProperty(prefix = "accounts.cluster", name = "enabled", havingValue = "true")
+public class ClusteredAccountService {
+    private final ClusterNode node;
+
+    public ClusteredAccountService(ClusterNode node) {
+        this.node = node;
+    }
+
+    public void resetDatabase() {
+        node.resetDatabase();
+    }
+
+    public AccountResult<Float> getAccountBalance(String accountId) {
+        long balance = node.getBalance(accountId);
+        return balance == AccountRepository.NO_ACCOUNT
+                ? AccountResult.notFound() : AccountResult.success(AccountMapper.toAmount(balance));
+    }
+
+    public AccountResult<AccountResponseDto> depositToAccount(AccountRequestDto accountRequest) {
+        String accountId = accountRequest.getDestination();
+        long balance = node.depositToAccount(accountId, AccountMapper.toMinorUnits(accountRequest.getAmount()));
+        return AccountResult.success(AccountMapper.toResponseDto(AccountMapper.toDto(accountId, balance),
+                accountRequest.getEventType()));
+    }
+
+    public AccountResult<AccountResponseDto> withdrawFromAccount(AccountRequestDto accountRequest) {
+        String accountId = accountRequest.getOrigin();
+        long balance = node.withdrawFromAccount(accountId, AccountMapper.toMinorUnits(accountRequest.getAmount()));
+        if (balance == AccountRepository.NO_ACCOUNT) {
+            return AccountResult.notFound();
+        }
+        if (balance == AccountRepository.INSUFFICIENT_FUNDS) {
+            return AccountResult.insufficientFunds();
+        }
+        return AccountResult.success(AccountMapper.toResponseDto(AccountMapper.toDto(accountId, balance),
+                accountRequest.getEventType()));
+    }
+
+    public AccountResult<AccountResponseDto> transferBetweenAccount(AccountRequestDto accountRequest) {
+        AccountResult<AccountTransferEntity> result = node.transferBetweenAccounts(accountRequest.getOrigin(),
+                accountRequest.getDestination(), AccountMapper.toMinorUnits(accountRequest.getAmount()));
+        if (result instanceof AccountResult.Success<AccountTransferEntity> success) {
+            return AccountResult.success(AccountMapper.toResponseDto(success.value().getOriginAccount(),
+                    success.value().getDestinationAccount()));
+        }
+        return result instanceof AccountResult.NotFound ? AccountResult.notFound() : AccountResult.insufficientFunds();
+    }
+}
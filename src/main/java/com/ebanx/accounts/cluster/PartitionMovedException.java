@@ -0,0 +1,18 @@
+package com.ebanx.accounts.cluster;
+
+/**
+ * Thrown by a node asked to apply a change to a partition it doesn't own, either because the caller's
+ * {@link ClusterView} is out of date or because the partition is being handed to a new owner.
+ */
+public class PartitionMovedException extends RuntimeException {
+    private final int partition;
+
+    public PartitionMovedException(int partition) {
+        super("Partition " + partition + " isn't owned by this node", null, false, false);
+        this.partition = partition;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+}
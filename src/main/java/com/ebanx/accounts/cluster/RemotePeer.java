@@ -0,0 +1,247 @@
+package com.ebanx.accounts.cluster;
+
+import com.ebanx.accounts.AccountEntity;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.AccountTransferEntity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.ebanx.accounts.cluster.ClusterProtocol.*;
+
+/**
+ * {@link ClusterPeer} calls sent to another node. Every call borrows a connection from a pool that grows with the
+ * number of concurrent callers, so callers never queue behind each other's round trips. A connection that fails is
+ * dropped and the call throws {@link ClusterUnavailableException}.
+ */
+public class RemotePeer implements ClusterPeer, Closeable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final int READ_TIMEOUT_MILLIS = 10_000;
+
+    private final ClusterMember member;
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    public RemotePeer(ClusterMember member) {
+        this.member = member;
+    }
+
+    public ClusterMember getMember() {
+        return member;
+    }
+
+    @Override
+    public long balance(String accountId) {
+        return call(BALANCE, out -> out.writeUTF(accountId), DataInputStream::readLong);
+    }
+
+    @Override
+    public long deposit(String accountId, long amount) {
+        return call(DEPOSIT, out -> {
+            out.writeUTF(accountId);
+            out.writeLong(amount);
+        }, DataInputStream::readLong);
+    }
+
+    @Override
+    public long withdraw(String accountId, long amount) {
+        return call(WITHDRAW, out -> {
+            out.writeUTF(accountId);
+            out.writeLong(amount);
+        }, DataInputStream::readLong);
+    }
+
+    @Override
+    public AccountResult<AccountTransferEntity> transfer(String originId, String destinationId, long amount) {
+        return call(TRANSFER, out -> {
+            out.writeUTF(originId);
+            out.writeUTF(destinationId);
+            out.writeLong(amount);
+        }, in -> {
+            long originBalance = in.readLong();
+            long destinationBalance = in.readLong();
+            if (originBalance == AccountRepository.NO_ACCOUNT) {
+                return AccountResult.notFound();
+            }
+            if (originBalance == AccountRepository.INSUFFICIENT_FUNDS) {
+                return AccountResult.insufficientFunds();
+            }
+            return AccountResult.success(new AccountTransferEntity(new AccountEntity(originId, originBalance),
+                    new AccountEntity(destinationId, destinationBalance)));
+        });
+    }
+
+    @Override
+    public long prepareDebit(long transaction, String coordinatorId, String accountId, long amount) {
+        return call(PREPARE_DEBIT, out -> {
+            out.writeLong(transaction);
+            out.writeUTF(coordinatorId);
+            out.writeUTF(accountId);
+            out.writeLong(amount);
+        }, DataInputStream::readLong);
+    }
+
+    @Override
+    public void prepareCredit(long transaction, String coordinatorId, String accountId, long amount) {
+        call(PREPARE_CREDIT, out -> {
+            out.writeLong(transaction);
+            out.writeUTF(coordinatorId);
+            out.writeUTF(accountId);
+            out.writeLong(amount);
+        }, in -> null);
+    }
+
+    @Override
+    public long commit(long transaction) {
+        return call(COMMIT, out -> out.writeLong(transaction), DataInputStream::readLong);
+    }
+
+    @Override
+    public void abort(long transaction) {
+        call(ABORT, out -> out.writeLong(transaction), in -> null);
+    }
+
+    @Override
+    public boolean resolve(long transaction) {
+        return call(RESOLVE, out -> out.writeLong(transaction), DataInputStream::readBoolean);
+    }
+
+    @Override
+    public void reset() {
+        call(RESET, out -> { }, in -> null);
+    }
+
+    @Override
+    public ClusterView view() {
+        return call(VIEW, out -> { }, ClusterProtocol::readView);
+    }
+
+    @Override
+    public ClusterView join(ClusterMember newMember) {
+        return call(JOIN, out -> writeMember(out, newMember), ClusterProtocol::readView);
+    }
+
+    @Override
+    public void installView(ClusterView view) {
+        call(INSTALL_VIEW, out -> writeView(out, view), in -> null);
+    }
+
+    @Override
+    public void movePartitions(ClusterView view, int[] partitions) {
+        call(MOVE_PARTITIONS, out -> {
+            writeView(out, view);
+            out.writeInt(partitions.length);
+            for (int partition : partitions) {
+                out.writeInt(partition);
+            }
+        }, in -> null);
+    }
+
+    @Override
+    public void acceptPartition(int partition, String[] accountIds, long[] balances) {
+        call(ACCEPT_PARTITION, out -> {
+            out.writeInt(partition);
+            out.writeInt(accountIds.length);
+            for (int i = 0; i < accountIds.length; i++) {
+                out.writeUTF(accountIds[i]);
+                out.writeLong(balances[i]);
+            }
+        }, in -> null);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Connection connection = idle.poll(); connection != null; connection = idle.poll()) {
+            connection.close();
+        }
+    }
+
+    private <T> T call(byte operation, Request request, Reply<T> reply) {
+        Connection connection = borrow();
+        try {
+            connection.out.writeByte(operation);
+            request.write(connection.out);
+            connection.out.flush();
+            byte status = connection.in.readByte();
+            if (status == MOVED) {
+                int partition = connection.in.readInt();
+                release(connection);
+                throw new PartitionMovedException(partition);
+            }
+            if (status == FAILED) {
+                String message = connection.in.readUTF();
+                release(connection);
+                throw new ClusterUnavailableException("Node " + member.id() + " failed: " + message);
+            }
+            T result = reply.read(connection.in);
+            release(connection);
+            return result;
+        } catch (IOException e) {
+            connection.close();
+            throw new ClusterUnavailableException("Node " + member.id() + " can't be reached", e);
+        }
+    }
+
+    private Connection borrow() {
+        Connection connection = idle.poll();
+        if (connection != null) {
+            return connection;
+        }
+        try {
+            Socket socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            socket.connect(new InetSocketAddress(member.host(), member.port()), CONNECT_TIMEOUT_MILLIS);
+            return new Connection(socket);
+        } catch (IOException e) {
+            throw new ClusterUnavailableException("Node " + member.id() + " can't be reached", e);
+        }
+    }
+
+    private void release(Connection connection) {
+        idle.offer(connection);
+        if (closed) {
+            close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Reply<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // The connection is dropped either way.
+            }
+        }
+    }
+}
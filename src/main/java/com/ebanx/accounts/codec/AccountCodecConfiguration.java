@@ -0,0 +1,22 @@
+package com.ebanx.accounts.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring Boot puts converter beans ahead of its default ones, so this one is tried before Jackson's. Jackson still
+ * gets the input the codec doesn't handle, with the application's {@link ObjectMapper}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "accounts.codec", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AccountCodecConfiguration {
+
+    @Bean
+    public AccountJsonHttpMessageConverter accountJsonHttpMessageConverter(ObjectMapper objectMapper) {
+        return new AccountJsonHttpMessageConverter(new AccountJsonCodec(objectMapper));
+    }
+}
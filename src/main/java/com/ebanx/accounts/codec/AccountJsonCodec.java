@@ -0,0 +1,386 @@
+package com.ebanx.accounts.codec;
+
+import com.ebanx.accounts.dtos.AccountDto;
+import com.ebanx.accounts.dtos.AccountEventType;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.dtos.AccountResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads {@code /event} requests and writes their responses and balances directly from and into byte buffers, without
+ * reflection. Only the shapes clients and this service actually use are handled here; anything else (escapes,
+ * non-ASCII text, unknown fields, exponents, values Jackson would coerce, malformed input) is handed to Jackson, so
+ * what is accepted, the errors and the bytes written are the same as with Jackson alone.
+ */
+public class AccountJsonCodec {
+    static final int NOT_ENCODED = -1;
+    private static final int BUFFER_SIZE = 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIXED_RESPONSE_LENGTH = 128;
+    private static final int MAX_DECIMAL_DIGITS = 18;
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private static final int UNKNOWN_FIELD = 0;
+    private static final int TYPE_FIELD = 1;
+    private static final int AMOUNT_FIELD = 2;
+    private static final int ORIGIN_FIELD = 3;
+    private static final int DESTINATION_FIELD = 4;
+    private static final int IDEMPOTENCY_KEY_FIELD = 5;
+    private static final byte[][] FIELD_NAMES = {
+            ascii("type"), ascii("amount"), ascii("origin"), ascii("destination"), ascii("idempotency_key")
+    };
+    private static final AccountEventType[] EVENT_TYPES = {
+            AccountEventType.DEPOSIT, AccountEventType.WITHDRAW, AccountEventType.TRANSFER
+    };
+    private static final byte[][] EVENT_TYPE_NAMES = {ascii("deposit"), ascii("withdraw"), ascii("transfer")};
+    private static final byte[] NULL = ascii("null");
+
+    private static final byte[] DESTINATION_PREFIX = ascii("\"destination\":");
+    private static final byte[] ORIGIN_PREFIX = ascii("\"origin\":");
+    private static final byte[] ID_PREFIX = ascii("{\"id\":\"");
+    private static final byte[] BALANCE_PREFIX = ascii("\",\"balance\":");
+
+    private final ObjectReader requestReader;
+    private final ObjectWriter responseWriter;
+    private final ObjectWriter balanceWriter;
+
+    public AccountJsonCodec(ObjectMapper objectMapper) {
+        this.requestReader = objectMapper.readerFor(AccountRequestDto.class);
+        this.responseWriter = objectMapper.writerFor(AccountResponseDto.class);
+        this.balanceWriter = objectMapper.writerFor(Float.class);
+    }
+
+    /**
+     * Reads the whole body into this thread's buffer and parses it there.
+     */
+    public AccountRequestDto readRequest(InputStream body) throws IOException {
+        byte[] buffer = BUFFERS.get();
+        int length = 0;
+        int read;
+        while ((read = body.read(buffer, length, buffer.length - length)) >= 0) {
+            length += read;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length << 1);
+            }
+        }
+        if (buffer.length <= MAX_RETAINED_BUFFER_SIZE) {
+            BUFFERS.set(buffer);
+        }
+        return readRequest(buffer, 0, length);
+    }
+
+    public AccountRequestDto readRequest(byte[] json, int offset, int length) throws IOException {
+        AccountRequestDto request = parseRequest(json, offset, offset + length);
+        return request != null ? request : requestReader.readValue(json, offset, length);
+    }
+
+    public void writeResponse(AccountResponseDto response, OutputStream out) throws IOException {
+        byte[] buffer = buffer(MAX_FIXED_RESPONSE_LENGTH + idLength(response.getDestination())
+                + idLength(response.getOrigin()));
+        int length = encodeResponse(response, buffer);
+        if (length == NOT_ENCODED) {
+            out.write(responseWriter.writeValueAsBytes(response));
+        } else {
+            out.write(buffer, 0, length);
+        }
+    }
+
+    public void writeBalance(float balance, OutputStream out) throws IOException {
+        if (!Float.isFinite(balance)) {
+            out.write(balanceWriter.writeValueAsBytes(balance));
+            return;
+        }
+        byte[] buffer = BUFFERS.get();
+        out.write(buffer, 0, putFloat(buffer, 0, balance));
+    }
+
+    /**
+     * Parses the flat object the API documents, or returns null for anything that has to go through Jackson.
+     */
+    static AccountRequestDto parseRequest(byte[] json, int start, int end) {
+        AccountEventType eventType = null;
+        BigDecimal amount = null;
+        String origin = null;
+        String destination = null;
+        String idempotencyKey = null;
+
+        int i = skipWhitespace(json, start, end);
+        if (i == end || json[i] != '{') {
+            return null;
+        }
+        i = skipWhitespace(json, i + 1, end);
+        if (i < end && json[i] == '}') {
+            return skipWhitespace(json, i + 1, end) == end ? new AccountRequestDto(null, null, null, null, null) : null;
+        }
+        while (true) {
+            if (i == end || json[i] != '"') {
+                return null;
+            }
+            int nameEnd = endOfString(json, i + 1, end);
+            if (nameEnd < 0) {
+                return null;
+            }
+            int field = fieldOf(json, i + 1, nameEnd);
+            i = skipWhitespace(json, nameEnd + 1, end);
+            if (i == end || json[i] != ':') {
+                return null;
+            }
+            i = skipWhitespace(json, i + 1, end);
+            if (field == UNKNOWN_FIELD || i == end) {
+                return null;
+            }
+
+            if (matches(json, i, end, NULL)) {
+                i += NULL.length;
+                switch (field) {
+                    case TYPE_FIELD -> eventType = null;
+                    case AMOUNT_FIELD -> amount = null;
+                    case ORIGIN_FIELD -> origin = null;
+                    case DESTINATION_FIELD -> destination = null;
+                    case IDEMPOTENCY_KEY_FIELD -> idempotencyKey = null;
+                }
+            } else if (field == AMOUNT_FIELD) {
+                int numberEnd = endOfNumber(json, i, end);
+                if (numberEnd < 0) {
+                    return null;
+                }
+                amount = toDecimal(json, i, numberEnd);
+                i = numberEnd;
+            } else {
+                if (json[i] != '"') {
+                    return null;
+                }
+                int valueEnd = endOfString(json, i + 1, end);
+                if (valueEnd < 0) {
+                    return null;
+                }
+                if (field == TYPE_FIELD) {
+                    eventType = eventTypeOf(json, i + 1, valueEnd);
+                    if (eventType == null) {
+                        return null;
+                    }
+                } else {
+                    String value = new String(json, i + 1, valueEnd - i - 1, StandardCharsets.ISO_8859_1);
+                    switch (field) {
+                        case ORIGIN_FIELD -> origin = value;
+                        case DESTINATION_FIELD -> destination = value;
+                        case IDEMPOTENCY_KEY_FIELD -> idempotencyKey = value;
+                    }
+                }
+                i = valueEnd + 1;
+            }
+
+            i = skipWhitespace(json, i, end);
+            if (i == end) {
+                return null;
+            }
+            if (json[i] == '}') {
+                return skipWhitespace(json, i + 1, end) == end
+                        ? new AccountRequestDto(eventType, amount, origin, destination, idempotencyKey) : null;
+            }
+            if (json[i] != ',') {
+                return null;
+            }
+            i = skipWhitespace(json, i + 1, end);
+        }
+    }
+
+    /**
+     * Writes the response the way Jackson lays it out, destination first, or returns {@link #NOT_ENCODED} when an
+     * id needs escaping or isn't ASCII. The buffer must hold {@code MAX_FIXED_RESPONSE_LENGTH} plus both ids.
+     */
+    static int encodeResponse(AccountResponseDto response, byte[] buffer) {
+        int i = 0;
+        buffer[i++] = '{';
+        if (response.getDestination() != null) {
+            i = put(buffer, i, DESTINATION_PREFIX);
+            i = putAccount(buffer, i, response.getDestination());
+            if (i == NOT_ENCODED) {
+                return NOT_ENCODED;
+            }
+        }
+        if (response.getOrigin() != null) {
+            if (i > 1) {
+                buffer[i++] = ',';
+            }
+            i = put(buffer, i, ORIGIN_PREFIX);
+            i = putAccount(buffer, i, response.getOrigin());
+            if (i == NOT_ENCODED) {
+                return NOT_ENCODED;
+            }
+        }
+        buffer[i++] = '}';
+        return i;
+    }
+
+    private static int putAccount(byte[] buffer, int i, AccountDto account) {
+        if (account.getId() == null || !Float.isFinite(account.getBalance())) {
+            return NOT_ENCODED;
+        }
+        i = put(buffer, i, ID_PREFIX);
+        String id = account.getId();
+        for (int c = 0; c < id.length(); c++) {
+            char ch = id.charAt(c);
+            if (ch < 0x20 || ch >= 0x80 || ch == '"' || ch == '\\') {
+                return NOT_ENCODED;
+            }
+            buffer[i++] = (byte) ch;
+        }
+        i = put(buffer, i, BALANCE_PREFIX);
+        i = putFloat(buffer, i, account.getBalance());
+        buffer[i++] = '}';
+        return i;
+    }
+
+    /**
+     * Jackson writes floats with {@link Float#toString}, which is always ASCII and at most 15 characters long.
+     */
+    private static int putFloat(byte[] buffer, int i, float value) {
+        String text = Float.toString(value);
+        for (int c = 0; c < text.length(); c++) {
+            buffer[i++] = (byte) text.charAt(c);
+        }
+        return i;
+    }
+
+    private static int put(byte[] buffer, int i, byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, i, bytes.length);
+        return i + bytes.length;
+    }
+
+    private static int idLength(AccountDto account) {
+        return account == null || account.getId() == null ? 0 : account.getId().length();
+    }
+
+    private static byte[] buffer(int size) {
+        byte[] buffer = BUFFERS.get();
+        if (buffer.length >= size) {
+            return buffer;
+        }
+        buffer = new byte[Math.max(size, buffer.length << 1)];
+        if (buffer.length <= MAX_RETAINED_BUFFER_SIZE) {
+            BUFFERS.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static int skipWhitespace(byte[] json, int i, int end) {
+        while (i < end && (json[i] == ' ' || json[i] == '\n' || json[i] == '\r' || json[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index of the closing quote, or -1 if the string is unterminated or holds an escape, a control
+     * character or a non-ASCII byte (bytes are signed, so those are negative).
+     */
+    private static int endOfString(byte[] json, int i, int end) {
+        for (; i < end; i++) {
+            byte b = json[i];
+            if (b == '"') {
+                return i;
+            }
+            if (b == '\\' || b < 0x20) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Accepts a JSON number without exponent that fits a long once the decimal point is dropped.
+     */
+    private static int endOfNumber(byte[] json, int i, int end) {
+        if (i < end && json[i] == '-') {
+            i++;
+        }
+        int integerStart = i;
+        while (i < end && isDigit(json[i])) {
+            i++;
+        }
+        int digits = i - integerStart;
+        if (digits == 0 || (digits > 1 && json[integerStart] == '0')) {
+            return -1;
+        }
+        if (i < end && json[i] == '.') {
+            int fractionStart = ++i;
+            while (i < end && isDigit(json[i])) {
+                i++;
+            }
+            if (i == fractionStart) {
+                return -1;
+            }
+            digits += i - fractionStart;
+        }
+        if (digits > MAX_DECIMAL_DIGITS || (i < end && (json[i] == 'e' || json[i] == 'E'))) {
+            return -1;
+        }
+        return i;
+    }
+
+    /**
+     * Builds the same value and scale Jackson gets from {@code new BigDecimal(text)}.
+     */
+    private static BigDecimal toDecimal(byte[] json, int start, int end) {
+        boolean negative = json[start] == '-';
+        long unscaled = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            if (json[i] == '.') {
+                fraction = true;
+                continue;
+            }
+            unscaled = unscaled * 10 + (json[i] - '0');
+            if (fraction) {
+                scale++;
+            }
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int fieldOf(byte[] json, int start, int end) {
+        for (int field = 0; field < FIELD_NAMES.length; field++) {
+            if (equals(json, start, end, FIELD_NAMES[field])) {
+                return field + 1;
+            }
+        }
+        return UNKNOWN_FIELD;
+    }
+
+    private static AccountEventType eventTypeOf(byte[] json, int start, int end) {
+        for (int type = 0; type < EVENT_TYPES.length; type++) {
+            if (equals(json, start, end, EVENT_TYPE_NAMES[type])) {
+                return EVENT_TYPES[type];
+            }
+        }
+        return null;
+    }
+
+    private static boolean equals(byte[] json, int start, int end, byte[] expected) {
+        return end - start == expected.length && Arrays.equals(json, start, end, expected, 0, expected.length);
+    }
+
+    private static boolean matches(byte[] json, int start, int end, byte[] expected) {
+        return end - start >= expected.length
+                && Arrays.equals(json, start, start + expected.length, expected, 0, expected.length);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
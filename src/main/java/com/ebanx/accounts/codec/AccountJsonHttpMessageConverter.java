@@ -0,0 +1,59 @@
+package com.ebanx.accounts.codec;
+
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.dtos.AccountResponseDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Serves the {@code /event} bodies and the balances with {@link AccountJsonCodec}, ahead of Spring's Jackson
+ * converter. Every other type, including the batch endpoints' lists, is left to Jackson.
+ */
+public class AccountJsonHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+    private final AccountJsonCodec codec;
+
+    public AccountJsonHttpMessageConverter(AccountJsonCodec codec) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.codec = codec;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == AccountRequestDto.class || clazz == AccountResponseDto.class || clazz == Float.class;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return clazz == AccountRequestDto.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return (clazz == AccountResponseDto.class || clazz == Float.class) && canWrite(mediaType);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return codec.readRequest(inputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getOriginalMessage(), e,
+                    inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        if (value instanceof AccountResponseDto response) {
+            codec.writeResponse(response, outputMessage.getBody());
+        } else {
+            codec.writeBalance((Float) value, outputMessage.getBody());
+        }
+    }
+}
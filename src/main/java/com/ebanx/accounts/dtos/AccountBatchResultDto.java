@@ -0,0 +1,24 @@
+package com.ebanx.accounts.dtos;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+public class AccountBatchResultDto {
+    private int status;
+    @JsonUnwrapped
+    private AccountResponseDto result;
+
+    public AccountBatchResultDto() {}
+
+    public AccountBatchResultDto(int status, AccountResponseDto result) {
+        this.status = status;
+        this.result = result;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public AccountResponseDto getResult() {
+        return result;
+    }
+}
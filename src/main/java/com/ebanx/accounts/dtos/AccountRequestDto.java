@@ -4,30 +4,46 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 
+import java.math.BigDecimal;
+
 public class AccountRequestDto {
+    private static final BigDecimal MIN_AMOUNT = new BigDecimal("0.01");
+
     @NotNull
     @JsonProperty("type")
     private AccountEventType eventType;
     @NotNull
     @DecimalMin("0.01")
-    private Float amount;
+    private BigDecimal amount;
 
     private String destination;
 
     private String origin;
 
+    @JsonProperty("idempotency_key")
+    private String idempotencyKey;
+
     public AccountRequestDto() {}
 
     public AccountRequestDto(AccountEventType eventType, Float amount, String origin, String destination) {
         this.eventType = eventType;
+        this.amount = toDecimal(amount);
+        this.destination = destination;
+        this.origin = origin;
+    }
+
+    public AccountRequestDto(AccountEventType eventType, BigDecimal amount, String origin, String destination,
+                             String idempotencyKey) {
+        this.eventType = eventType;
         this.amount = amount;
         this.destination = destination;
         this.origin = origin;
+        this.idempotencyKey = idempotencyKey;
     }
 
     public AccountRequestDto(AccountEventType type, Float amount, String accountId) {
         this.eventType = type;
-        this.amount = amount;
+        this.amount = toDecimal(amount);
 
         if(this.eventType == AccountEventType.DEPOSIT) {
             this.destination = accountId;
@@ -44,7 +60,7 @@ public class AccountRequestDto {
         return eventType;
     }
 
-    public float getAmount() {
+    public BigDecimal getAmount() {
         return amount;
     }
 
@@ -56,6 +72,14 @@ public class AccountRequestDto {
         return origin;
     }
 
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
     public boolean validDepositRequest() {
         return eventType.equals(AccountEventType.DEPOSIT) && destination!= null && !destination.isEmpty();
     }
@@ -68,4 +92,16 @@ public class AccountRequestDto {
         return eventType.equals(AccountEventType.TRANSFER) && origin!= null && !origin.isEmpty() && destination!= null
                 && !destination.isEmpty();
     }
+
+    /**
+     * Checks the same constraints {@code @Valid} enforces on {@code /event}, for events that are bound without it.
+     */
+    public boolean validEventRequest() {
+        return eventType != null && amount != null && amount.compareTo(MIN_AMOUNT) >= 0
+                && (validDepositRequest() || validWithdrawRequest() || validTransferRequest());
+    }
+
+    private static BigDecimal toDecimal(Float amount) {
+        return amount == null ? null : new BigDecimal(amount.toString());
+    }
 }
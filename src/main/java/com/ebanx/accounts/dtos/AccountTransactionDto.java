@@ -0,0 +1,51 @@
+package com.ebanx.accounts.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A transaction applied to an account, with the balances it left behind.
+ */
+public class AccountTransactionDto {
+    private long sequence;
+    private long timestamp;
+    private AccountEventType type;
+    private float amount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private AccountDto origin;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private AccountDto destination;
+
+    public AccountTransactionDto(long sequence, long timestamp, AccountEventType type, float amount,
+                                 AccountDto origin, AccountDto destination) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.amount = amount;
+        this.origin = origin;
+        this.destination = destination;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public AccountEventType getType() {
+        return type;
+    }
+
+    public float getAmount() {
+        return amount;
+    }
+
+    public AccountDto getOrigin() {
+        return origin;
+    }
+
+    public AccountDto getDestination() {
+        return destination;
+    }
+}
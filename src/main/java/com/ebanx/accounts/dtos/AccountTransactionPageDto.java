@@ -0,0 +1,27 @@
+package com.ebanx.accounts.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+public class AccountTransactionPageDto {
+    private List<AccountTransactionDto> transactions;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long next;
+
+    public AccountTransactionPageDto(List<AccountTransactionDto> transactions, Long next) {
+        this.transactions = transactions;
+        this.next = next;
+    }
+
+    public List<AccountTransactionDto> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Cursor of the following page, absent on the last one.
+     */
+    public Long getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,14 @@
+package com.ebanx.accounts.exceptions;
+
+public class AccountBatchFailedException extends RuntimeException {
+    private final int index;
+
+    public AccountBatchFailedException(int index, RuntimeException cause) {
+        super(cause);
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
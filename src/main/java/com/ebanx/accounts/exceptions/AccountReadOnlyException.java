@@ -0,0 +1,4 @@
+package com.ebanx.accounts.exceptions;
+
+public class AccountReadOnlyException extends RuntimeException {
+}
@@ -0,0 +1,21 @@
+package com.ebanx.accounts.idempotency;
+
+import com.ebanx.accounts.AccountService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.idempotency", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(AccountIdempotencyProperties.class)
+public class AccountIdempotencyConfiguration {
+
+    @Bean
+    public IdempotencyCache idempotencyCache(AccountService accountService, AccountIdempotencyProperties properties) {
+        IdempotencyCache idempotencyCache = new IdempotencyCache(properties.getSegments(), properties.getMaxKeys(),
+                properties.getTtl().toNanos());
+        accountService.setIdempotencyCache(idempotencyCache);
+        return idempotencyCache;
+    }
+}
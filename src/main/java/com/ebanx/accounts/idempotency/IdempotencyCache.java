@@ -0,0 +1,165 @@
+package com.ebanx.accounts.idempotency;
+
+import com.ebanx.accounts.AccountTable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of each idempotency key for {@code ttl} and at most {@code maxKeys} keys. Keys are split
+ * across lock-striped segments, each an insertion-ordered map, so the oldest key of a segment is always at its head:
+ * expired keys are dropped from the head as new ones arrive, and a full segment evicts its oldest key. Every entry
+ * holds the request it was claimed for, so a key reused for another request is told apart by {@code equals} rather
+ * than by a hash that could collide. Operations on keys in different segments never contend.
+ * <p>
+ * A key is claimed before its operation runs. A concurrent retry of the same key waits for that first attempt and
+ * returns its outcome rather than applying the operation twice, or claims the key itself if that attempt throws. A
+ * claim is neither evicted nor expired while its operation runs, so a segment may briefly hold more than its share of
+ * keys.
+ */
+public class IdempotencyCache {
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final long ttlNanos;
+
+    public IdempotencyCache(int segmentCount, int maxKeys, long ttlNanos) {
+        int count = Integer.highestOneBit(Math.max(2, segmentCount) - 1) << 1;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(Math.max(1, maxKeys / count));
+        }
+        this.segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(count);
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * Returns the outcome recorded for {@code key}, or runs {@code operation} and records its outcome. A key already
+     * used for a request that isn't {@link Object#equals equal} to {@code request} returns {@code reused} without
+     * running anything. An operation that throws records nothing, so the key can be retried.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Object request, Supplier<T> operation, T reused) {
+        Segment segment = segments[AccountTable.spread(key.hashCode()) >>> segmentShift];
+        Entry claimed = null;
+        while (claimed == null) {
+            long now = System.nanoTime();
+            Entry entry;
+            segment.lock();
+            try {
+                segment.expire(now - ttlNanos);
+                entry = segment.entries.get(key);
+                if (entry == null) {
+                    claimed = new Entry(now, request);
+                    segment.entries.put(key, claimed);
+                }
+            } finally {
+                segment.unlock();
+            }
+            if (claimed == null) {
+                if (!entry.request.equals(request)) {
+                    return reused;
+                }
+                try {
+                    return (T) entry.outcome.join();
+                } catch (CompletionException e) {
+                    // the first attempt threw and released the key, so this one claims it again
+                }
+            }
+        }
+        try {
+            T outcome = operation.get();
+            claimed.outcome.complete(outcome);
+            return outcome;
+        } catch (RuntimeException e) {
+            segment.lock();
+            try {
+                segment.entries.remove(key, claimed);
+            } finally {
+                segment.unlock();
+            }
+            claimed.outcome.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets every key. Operations still running complete normally but record nothing.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.lock();
+            try {
+                segment.entries.clear();
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.unlock();
+            }
+        }
+        return size;
+    }
+
+    private static final class Entry {
+        private final long createdAt;
+        private final Object request;
+        private final CompletableFuture<Object> outcome = new CompletableFuture<>();
+
+        private Entry(long createdAt, Object request) {
+            this.createdAt = createdAt;
+            this.request = request;
+        }
+    }
+
+    private static final class Segment extends ReentrantLock {
+        private final LinkedHashMap<String, Entry> entries;
+
+        private Segment(int maxKeys) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    if (size() > maxKeys) {
+                        Iterator<Entry> iterator = values().iterator();
+                        while (iterator.hasNext()) {
+                            if (iterator.next().outcome.isDone()) {
+                                iterator.remove();
+                                break;
+                            }
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Drops the expired keys at the head of the segment, skipping those whose operation is still running.
+         */
+        private void expire(long createdBefore) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.createdAt - createdBefore >= 0) {
+                    return;
+                }
+                if (entry.outcome.isDone()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
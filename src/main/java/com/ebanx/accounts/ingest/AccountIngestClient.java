@@ -0,0 +1,119 @@
+package com.ebanx.accounts.ingest;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.ebanx.accounts.ingest.IngestProtocol.*;
+
+/**
+ * Blocking producer for {@link AccountIngestServer}. Events are buffered and sent when the buffer fills or on
+ * {@link #flush()}, so any number can be in flight; {@link #awaitAcks} reads their acks back in order. Acks that
+ * aren't read eventually stop the server from reading this connection, so keep the number of pending events to what
+ * the socket buffers hold, a few thousand, before awaiting them. Not thread-safe.
+ */
+public class AccountIngestClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<String, Integer> handles = new HashMap<>();
+    private int pendingAcks;
+
+    public interface AckListener {
+        void onAck(byte status, long originBalance, long destinationBalance);
+    }
+
+    public AccountIngestClient(InetSocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        in.flip();
+    }
+
+    public void deposit(String destination, long amount) throws IOException {
+        send(DEPOSIT, -1, handle(destination), amount);
+    }
+
+    public void withdraw(String origin, long amount) throws IOException {
+        send(WITHDRAW, handle(origin), -1, amount);
+    }
+
+    public void transfer(String origin, String destination, long amount) throws IOException {
+        send(TRANSFER, handle(origin), handle(destination), amount);
+    }
+
+    public int getPendingAcks() {
+        return pendingAcks;
+    }
+
+    public void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Sends what is buffered and hands the next {@code count} acks to the listener.
+     */
+    public void awaitAcks(int count, AckListener listener) throws IOException {
+        if (count > pendingAcks) {
+            throw new IllegalArgumentException("Only " + pendingAcks + " events are waiting for an ack");
+        }
+        flush();
+        for (int i = 0; i < count; i++) {
+            while (in.remaining() < LENGTH_BYTES + ACK_BYTES) {
+                in.compact();
+                int read = channel.read(in);
+                in.flip();
+                if (read < 0) {
+                    throw new EOFException("Ingest server closed the connection with " + pendingAcks
+                            + " events unacknowledged");
+                }
+            }
+            in.getInt();
+            pendingAcks--;
+            listener.onAck(in.get(), in.getLong(), in.getLong());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int handle(String accountId) throws IOException {
+        Integer handle = handles.get(accountId);
+        if (handle != null) {
+            return handle;
+        }
+        byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+        if (id.length == 0 || id.length > MAX_ACCOUNT_ID_BYTES) {
+            throw new IllegalArgumentException("Account ids must take 1 to " + MAX_ACCOUNT_ID_BYTES + " bytes");
+        }
+        int newHandle = handles.size();
+        reserve(LENGTH_BYTES + DEFINE_HEADER_BYTES + id.length);
+        out.putInt(DEFINE_HEADER_BYTES + id.length).put(DEFINE).putInt(newHandle).put(id);
+        handles.put(accountId, newHandle);
+        return newHandle;
+    }
+
+    private void send(byte type, int originHandle, int destinationHandle, long amount) throws IOException {
+        reserve(LENGTH_BYTES + EVENT_BYTES);
+        out.putInt(EVENT_BYTES).put(type).putInt(originHandle).putInt(destinationHandle).putLong(amount);
+        pendingAcks++;
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (out.remaining() < bytes) {
+            flush();
+        }
+    }
+}
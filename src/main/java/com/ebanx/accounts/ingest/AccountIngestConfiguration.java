@@ -0,0 +1,29 @@
+package com.ebanx.accounts.ingest;
+
+import com.ebanx.accounts.AccountService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.ingest", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AccountIngestProperties.class)
+public class AccountIngestConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public AccountIngestServer accountIngestServer(AccountService accountService, AccountIngestProperties properties,
+                                                   Environment environment) throws IOException {
+        if (environment.getProperty("accounts.pipeline.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("accounts.ingest.enabled can't be combined with accounts.pipeline.enabled:"
+                    + " ingested events are applied through AccountService, which the pipeline doesn't serve");
+        }
+        return new AccountIngestServer(accountService,
+                new InetSocketAddress(properties.getAddress(), properties.getPort()), properties.getWorkers(),
+                properties.getMaxAccountHandles());
+    }
+}
@@ -0,0 +1,52 @@
+package com.ebanx.accounts.ingest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "accounts.ingest")
+public class AccountIngestProperties {
+    private boolean enabled = false;
+    private String address = "127.0.0.1";
+    private int port = 7070;
+    private int workers = 1;
+    private int maxAccountHandles = 1 << 20;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getMaxAccountHandles() {
+        return maxAccountHandles;
+    }
+
+    public void setMaxAccountHandles(int maxAccountHandles) {
+        this.maxAccountHandles = maxAccountHandles;
+    }
+}
@@ -0,0 +1,184 @@
+package com.ebanx.accounts.ingest;
+
+import com.ebanx.accounts.AccountService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Accepts producer connections speaking {@link IngestProtocol} and spreads them over a fixed set of worker threads,
+ * each running a selector. A connection stays on its worker, so its events are applied in the order they were sent
+ * and the worker's time goes to applying events rather than to handing them between threads. A connection whose
+ * events fail, for instance because the journal is unavailable, is closed on its own; a worker whose selector fails
+ * takes no new connections.
+ */
+public class AccountIngestServer implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(AccountIngestServer.class);
+
+    private final ServerSocketChannel serverChannel;
+    private final Worker[] workers;
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    public AccountIngestServer(AccountService accountService, InetSocketAddress address, int workerCount,
+                               int maxAccountHandles) throws IOException {
+        this.serverChannel = ServerSocketChannel.open().bind(address);
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(accountService, maxAccountHandles);
+            Thread thread = new Thread(workers[i], "account-ingest-worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        this.acceptor = new Thread(this::accept, "account-ingest-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverChannel.close();
+        for (Worker worker : workers) {
+            worker.selector.wakeup();
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (!closed) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Worker worker = null;
+                for (int tried = 0; tried < workers.length && worker == null; tried++) {
+                    if (!workers[next].stopped) {
+                        worker = workers[next];
+                    }
+                    next = (next + 1) % workers.length;
+                }
+                if (worker == null) {
+                    log.error("Refusing an ingest connection, every worker has stopped");
+                    channel.close();
+                } else {
+                    worker.register(channel);
+                }
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Failed to accept an ingest connection", e);
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final AccountService accountService;
+        private final int maxAccountHandles;
+        private final Selector selector;
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private volatile boolean stopped;
+
+        Worker(AccountService accountService, int maxAccountHandles) throws IOException {
+            this.accountService = accountService;
+            this.maxAccountHandles = maxAccountHandles;
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+            if (stopped) {
+                closeAccepted();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    registerAccepted();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        serve(key);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Ingest worker stopped", e);
+            } finally {
+                stopped = true;
+                closeAccepted();
+                for (SelectionKey key : selector.keys()) {
+                    ((IngestConnection) key.attachment()).close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // the worker is gone either way
+                }
+            }
+        }
+
+        private void registerAccepted() {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                try {
+                    channel.configureBlocking(false);
+                    channel.register(selector, SelectionKey.OP_READ,
+                            new IngestConnection(channel, accountService, maxAccountHandles));
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to register an ingest connection", e);
+                    close(channel);
+                }
+            }
+        }
+
+        private void closeAccepted() {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                close(channel);
+            }
+        }
+
+        private void serve(SelectionKey key) {
+            IngestConnection connection = (IngestConnection) key.attachment();
+            try {
+                if (!connection.handle(key)) {
+                    connection.close();
+                }
+            } catch (IOException e) {
+                log.debug("Closing ingest connection", e);
+                connection.close();
+            } catch (RuntimeException e) {
+                log.warn("Closing ingest connection after a failed event", e);
+                connection.close();
+            }
+        }
+
+        private static void close(SocketChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+}
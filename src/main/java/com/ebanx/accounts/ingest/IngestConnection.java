@@ -0,0 +1,181 @@
+package com.ebanx.accounts.ingest;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.AccountService;
+import com.ebanx.accounts.AccountTransferEntity;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.ebanx.accounts.ingest.IngestProtocol.*;
+
+/**
+ * One producer connection, only ever touched by the worker that owns its selector. Frames are applied as soon as
+ * they are complete; when acks can't be written the connection stops reading until they are, so a producer that
+ * doesn't read its acks is throttled by TCP. The frames of one read are applied without waiting for the journal, and
+ * their acks are written once all of them are durable, so a worker waits for the journal once per read rather than
+ * once per event.
+ */
+class IngestConnection {
+    private static final int INITIAL_HANDLES = 64;
+
+    private final SocketChannel channel;
+    private final AccountService accountService;
+    private final int maxAccountHandles;
+    private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private String[] accounts = new String[INITIAL_HANDLES];
+
+    IngestConnection(SocketChannel channel, AccountService accountService, int maxAccountHandles) {
+        this.channel = channel;
+        this.accountService = accountService;
+        this.maxAccountHandles = maxAccountHandles;
+    }
+
+    /**
+     * Reads what is available, applies every complete frame and writes the acks, switching the key to
+     * {@code OP_WRITE} while acks are pending.
+     *
+     * @return false once the producer has closed its side
+     */
+    boolean handle(SelectionKey key) throws IOException {
+        if (key.isReadable() && channel.read(in) < 0) {
+            return false;
+        }
+        while (true) {
+            boolean outputFull;
+            accountService.deferDurability();
+            try {
+                outputFull = applyFrames();
+            } finally {
+                accountService.awaitDeferredDurability();
+            }
+            out.flip();
+            channel.write(out);
+            boolean flushed = !out.hasRemaining();
+            out.compact();
+            if (!flushed) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return true;
+            }
+            if (!outputFull) {
+                key.interestOps(SelectionKey.OP_READ);
+                return true;
+            }
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    /**
+     * @return true if it stopped because there was no room left for another ack
+     */
+    private boolean applyFrames() throws ProtocolException {
+        in.flip();
+        try {
+            while (in.remaining() >= LENGTH_BYTES) {
+                int length = in.getInt(in.position());
+                if (length < 1 || length > MAX_FRAME_BYTES - LENGTH_BYTES) {
+                    throw new ProtocolException("Invalid frame length " + length);
+                }
+                if (in.remaining() < LENGTH_BYTES + length) {
+                    return false;
+                }
+                if (out.remaining() < LENGTH_BYTES + ACK_BYTES) {
+                    return true;
+                }
+                in.position(in.position() + LENGTH_BYTES);
+                byte type = in.get();
+                if (type == DEFINE) {
+                    define(length - 1);
+                } else if (length == EVENT_BYTES) {
+                    apply(type, in.getInt(), in.getInt(), in.getLong());
+                } else {
+                    throw new ProtocolException("Invalid frame type " + type + " of length " + length);
+                }
+            }
+            return false;
+        } finally {
+            in.compact();
+        }
+    }
+
+    private void define(int length) throws ProtocolException {
+        int handle = in.getInt();
+        int idLength = length - Integer.BYTES;
+        if (handle < 0 || handle >= maxAccountHandles || idLength < 1) {
+            throw new ProtocolException("Invalid account handle " + handle);
+        }
+        if (handle >= accounts.length) {
+            accounts = Arrays.copyOf(accounts, Math.min(maxAccountHandles,
+                    Math.max(handle + 1, accounts.length << 1)));
+        }
+        accounts[handle] = new String(in.array(), in.arrayOffset() + in.position(), idLength,
+                StandardCharsets.UTF_8);
+        in.position(in.position() + idLength);
+    }
+
+    private void apply(byte type, int originHandle, int destinationHandle, long amount) throws ProtocolException {
+        String origin = account(originHandle);
+        String destination = account(destinationHandle);
+        switch (type) {
+            case DEPOSIT -> {
+                if (destination == null || amount < 1) {
+                    ack(INVALID, NO_BALANCE, NO_BALANCE);
+                } else {
+                    ack(APPLIED, NO_BALANCE, accountService.depositToAccount(destination, amount));
+                }
+            }
+            case WITHDRAW -> {
+                if (origin == null || amount < 1) {
+                    ack(INVALID, NO_BALANCE, NO_BALANCE);
+                    return;
+                }
+                long balance = accountService.withdrawFromAccount(origin, amount);
+                if (balance == AccountRepository.NO_ACCOUNT) {
+                    ack(NOT_FOUND, NO_BALANCE, NO_BALANCE);
+                } else if (balance == AccountRepository.INSUFFICIENT_FUNDS) {
+                    ack(INSUFFICIENT_FUNDS, NO_BALANCE, NO_BALANCE);
+                } else {
+                    ack(APPLIED, balance, NO_BALANCE);
+                }
+            }
+            case TRANSFER -> {
+                if (origin == null || destination == null || amount < 1) {
+                    ack(INVALID, NO_BALANCE, NO_BALANCE);
+                    return;
+                }
+                AccountResult<AccountTransferEntity> result =
+                        accountService.transferBetweenAccount(origin, destination, amount);
+                if (result instanceof AccountResult.Success<AccountTransferEntity> success) {
+                    ack(APPLIED, success.value().getOriginAccount().getBalance(),
+                            success.value().getDestinationAccount().getBalance());
+                } else {
+                    ack(result instanceof AccountResult.NotFound ? NOT_FOUND : INSUFFICIENT_FUNDS,
+                            NO_BALANCE, NO_BALANCE);
+                }
+            }
+            default -> throw new ProtocolException("Invalid frame type " + type);
+        }
+    }
+
+    private String account(int handle) {
+        return handle >= 0 && handle < accounts.length ? accounts[handle] : null;
+    }
+
+    private void ack(byte status, long originBalance, long destinationBalance) {
+        out.putInt(ACK_BYTES).put(status).putLong(originBalance).putLong(destinationBalance);
+    }
+}
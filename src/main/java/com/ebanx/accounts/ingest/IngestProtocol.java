@@ -0,0 +1,42 @@
+package com.ebanx.accounts.ingest;
+
+/**
+ * Frames exchanged with {@link AccountIngestServer}, all big-endian and prefixed with the length of what follows as an
+ * {@code int}:
+ * <ul>
+ *     <li>{@code DEFINE}: type, {@code int} handle, UTF-8 account id. Binds the handle to the account id for the rest
+ *     of the connection; it isn't acknowledged.</li>
+ *     <li>{@code DEPOSIT}, {@code WITHDRAW}, {@code TRANSFER}: type, {@code int} origin handle, {@code int}
+ *     destination handle, {@code long} amount in minor units. The handle an event doesn't use is ignored.</li>
+ *     <li>ack: status, {@code long} origin balance, {@code long} destination balance, in minor units and
+ *     {@link #NO_BALANCE} when the event didn't change that side. Events are acknowledged in the order they were
+ *     sent.</li>
+ * </ul>
+ * A frame that breaks this layout closes the connection.
+ */
+public final class IngestProtocol {
+    public static final byte DEFINE = 0;
+    public static final byte DEPOSIT = 1;
+    public static final byte WITHDRAW = 2;
+    public static final byte TRANSFER = 3;
+
+    public static final byte APPLIED = 0;
+    public static final byte NOT_FOUND = 1;
+    public static final byte INSUFFICIENT_FUNDS = 2;
+    /**
+     * An undefined handle or an amount below one minor unit, as {@code /event} answers 400 for.
+     */
+    public static final byte INVALID = 3;
+
+    public static final long NO_BALANCE = -1L;
+    public static final int MAX_ACCOUNT_ID_BYTES = 1024;
+
+    static final int LENGTH_BYTES = Integer.BYTES;
+    static final int EVENT_BYTES = 1 + 2 * Integer.BYTES + Long.BYTES;
+    static final int ACK_BYTES = 1 + 2 * Long.BYTES;
+    static final int DEFINE_HEADER_BYTES = 1 + Integer.BYTES;
+    static final int MAX_FRAME_BYTES = LENGTH_BYTES + DEFINE_HEADER_BYTES + MAX_ACCOUNT_ID_BYTES;
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private IngestProtocol() {}
+}
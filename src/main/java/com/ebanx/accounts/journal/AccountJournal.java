@@ -0,0 +1,36 @@
+package com.ebanx.accounts.journal;
+
+/**
+ * Ordered sink for every state change applied by {@code AccountRepository}. {@link #append} is called while the
+ * repository still holds the locks of the accounts involved, so the records of any single account are seen in the
+ * order they were applied; records carry the resulting balances, which makes replaying them idempotent.
+ * {@link #awaitDurable} is called after the locks are released.
+ */
+public interface AccountJournal {
+    AccountJournal NONE = new AccountJournal() {
+        @Override
+        public long append(JournalRecordType type, String origin, String destination, long amount,
+                           long originBalance, long destinationBalance) {
+            return 0L;
+        }
+
+        @Override
+        public void awaitDurable(long ticket) {
+        }
+    };
+
+    long append(JournalRecordType type, String origin, String destination, long amount, long originBalance,
+                long destinationBalance);
+
+    /**
+     * Starts a group of {@code records} appends, made by the calling thread before {@link #endBatch}, that must be
+     * recovered all together or not at all.
+     */
+    default void beginBatch(int records) {
+    }
+
+    default void endBatch() {
+    }
+
+    void awaitDurable(long ticket);
+}
@@ -0,0 +1,34 @@
+package com.ebanx.accounts.journal;
+
+import com.ebanx.accounts.AccountRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.journal", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AccountJournalProperties.class)
+public class AccountJournalConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public WriteAheadLog writeAheadLog(AccountRepository accountRepository, AccountJournalProperties properties)
+            throws IOException {
+        Path directory = Path.of(properties.getDirectory());
+        long firstSegment = new JournalRecovery(directory).recover(accountRepository);
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, firstSegment, properties.getFsyncPolicy(),
+                properties.getGroupCommitWindow(), properties.getSegmentSize().toBytes());
+        accountRepository.setJournal(writeAheadLog);
+        return writeAheadLog;
+    }
+
+    @Bean(destroyMethod = "close")
+    public JournalSnapshotter journalSnapshotter(WriteAheadLog writeAheadLog, AccountRepository accountRepository,
+                                                 AccountJournalProperties properties) {
+        return new JournalSnapshotter(Path.of(properties.getDirectory()), writeAheadLog, accountRepository,
+                properties.getSnapshotInterval());
+    }
+}
@@ -0,0 +1,157 @@
+package com.ebanx.accounts.journal;
+
+import com.ebanx.accounts.AccountRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Snapshot files: {@code [long magic]} followed by {@code [byte 1][id][long balance]} per account and a
+ * {@code [byte 0][long account count][long magic]} trailer. A snapshot is named after the first log segment that
+ * must be replayed on top of it and is only renamed into place once fully written and fsynced.
+ */
+public final class AccountSnapshots {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final long MAGIC = 0x4542414E58534E50L;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final byte ENTRY = 1;
+    private static final byte END = 0;
+    private static final long MAP_WINDOW_BYTES = 1L << 30;
+    private static final int MAX_ENTRY_BYTES = 1 + JournalRecordCodec.MAX_ID_BYTES + Long.BYTES;
+
+    private AccountSnapshots() {}
+
+    public static Path snapshotPath(Path directory, long firstSegment) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, firstSegment, SNAPSHOT_SUFFIX));
+    }
+
+    /**
+     * Lists snapshot indexes, newest first.
+     */
+    public static List<Long> listSnapshots(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+                    .map(name -> Long.parseLong(name, SNAPSHOT_PREFIX.length(),
+                            name.length() - SNAPSHOT_SUFFIX.length(), 10))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        }
+    }
+
+    /**
+     * Writes every account to a snapshot for {@code firstSegment}. The repository keeps serving writes meanwhile;
+     * any change the snapshot misses or half-captures is in a segment at or after {@code firstSegment}, and replaying
+     * those records restores it because they carry absolute balances.
+     */
+    public static void write(Path directory, long firstSegment, AccountRepository accountRepository)
+            throws IOException {
+        Path target = snapshotPath(directory, firstSegment);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+            buffer.putLong(MAGIC);
+            long[] count = new long[1];
+            accountRepository.forEachAccount((id, balance) -> {
+                if (buffer.remaining() < 1 + JournalRecordCodec.idSize(id) + Long.BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.put(ENTRY);
+                JournalRecordCodec.putId(buffer, id);
+                buffer.putLong(balance);
+                count[0]++;
+            });
+            if (buffer.remaining() < 1 + 2 * Long.BYTES) {
+                drain(channel, buffer);
+            }
+            buffer.put(END).putLong(count[0]).putLong(MAGIC);
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        WriteAheadLog.syncDirectory(directory);
+    }
+
+    /**
+     * Loads a snapshot into the repository, returning {@code false} if the file is incomplete or corrupt.
+     */
+    public static boolean read(Path snapshot, AccountRepository accountRepository) throws IOException {
+        return read(snapshot, accountRepository, MAP_WINDOW_BYTES);
+    }
+
+    /**
+     * Maps the snapshot {@code windowBytes} at a time, since a single mapping can't exceed 2 GB; a window moves on
+     * before an entry could straddle its end.
+     */
+    static boolean read(Path snapshot, AccountRepository accountRepository, long windowBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            MappedByteBuffer buffer = map(channel, windowStart, windowBytes);
+            if (buffer.remaining() < Long.BYTES || buffer.getLong() != MAGIC) {
+                return false;
+            }
+            JournalRecordCodec codec = new JournalRecordCodec();
+            long count = 0;
+            while (windowStart + buffer.position() < size) {
+                if (buffer.remaining() < MAX_ENTRY_BYTES && windowStart + buffer.limit() < size) {
+                    windowStart += buffer.position();
+                    buffer = map(channel, windowStart, windowBytes);
+                }
+                byte marker = buffer.get();
+                if (marker == END) {
+                    return buffer.remaining() >= 2 * Long.BYTES && buffer.getLong() == count
+                            && buffer.getLong() == MAGIC;
+                }
+                if (marker != ENTRY) {
+                    return false;
+                }
+                String id = codec.getId(buffer);
+                accountRepository.putBalance(id, buffer.getLong());
+                count++;
+            }
+            return false;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long start, long windowBytes) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowBytes, channel.size() - start));
+    }
+
+    public static void deleteSnapshotsBefore(Path directory, long firstSegment) throws IOException {
+        for (long snapshot : listSnapshots(directory)) {
+            if (snapshot < firstSegment) {
+                Files.deleteIfExists(snapshotPath(directory, snapshot));
+            }
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,7 @@
+package com.ebanx.accounts.journal;
+
+public enum FsyncPolicy {
+    PER_EVENT,
+    GROUP_COMMIT,
+    ASYNC
+}
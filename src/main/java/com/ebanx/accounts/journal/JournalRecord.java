@@ -0,0 +1,44 @@
+package com.ebanx.accounts.journal;
+
+public class JournalRecord {
+    private JournalRecordType type;
+    private String origin;
+    private String destination;
+    private long amount;
+    private long originBalance;
+    private long destinationBalance;
+
+    void set(JournalRecordType type, String origin, String destination, long amount, long originBalance,
+             long destinationBalance) {
+        this.type = type;
+        this.origin = origin;
+        this.destination = destination;
+        this.amount = amount;
+        this.originBalance = originBalance;
+        this.destinationBalance = destinationBalance;
+    }
+
+    public JournalRecordType getType() {
+        return type;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getOriginBalance() {
+        return originBalance;
+    }
+
+    public long getDestinationBalance() {
+        return destinationBalance;
+    }
+}
@@ -0,0 +1,140 @@
+package com.ebanx.accounts.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Binary layout of a journal record: {@code [int payload length][int CRC32 of payload][payload]}, where the payload
+ * is {@code [byte type][long amount][long origin balance][long destination balance][id origin][id destination]}.
+ * Ids are a {@code short} header followed by ASCII bytes ({@code header >= 0}), UTF-16 chars
+ * ({@code -(header + 2)} chars) or nothing for a missing id ({@code -1}).
+ */
+public final class JournalRecordCodec {
+    public static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private static final int FIXED_PAYLOAD_BYTES = 1 + 3 * Long.BYTES;
+    private static final short NULL_ID = -1;
+    private static final int MAX_ID_LENGTH = Short.MAX_VALUE - 2;
+    static final int MAX_ID_BYTES = Short.BYTES + 2 * MAX_ID_LENGTH;
+
+    private final CRC32 crc = new CRC32();
+    private byte[] scratch = new byte[64];
+
+    public static int encodedSize(String origin, String destination) {
+        return HEADER_BYTES + FIXED_PAYLOAD_BYTES + idSize(origin) + idSize(destination);
+    }
+
+    /**
+     * Encodes a record at the position of a heap buffer with at least {@link #encodedSize} bytes remaining.
+     */
+    public void encode(ByteBuffer buffer, JournalRecordType type, String origin, String destination, long amount,
+                       long originBalance, long destinationBalance) {
+        int start = buffer.position();
+        int payloadStart = start + HEADER_BYTES;
+        buffer.position(payloadStart);
+        buffer.put(type.code());
+        buffer.putLong(amount);
+        buffer.putLong(originBalance);
+        buffer.putLong(destinationBalance);
+        putId(buffer, origin);
+        putId(buffer, destination);
+        int payloadLength = buffer.position() - payloadStart;
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + payloadStart, payloadLength);
+        buffer.putInt(start, payloadLength);
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    /**
+     * Decodes the record at the buffer's position into {@code record}, advancing past it. Returns {@code false},
+     * leaving the position untouched, when the remaining bytes don't hold a complete record with a valid checksum,
+     * which is how a torn or preallocated tail is detected.
+     */
+    public boolean decode(ByteBuffer buffer, JournalRecord record) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_BYTES) {
+            return false;
+        }
+        int payloadLength = buffer.getInt(start);
+        int checksum = buffer.getInt(start + Integer.BYTES);
+        if (payloadLength < FIXED_PAYLOAD_BYTES || payloadLength > buffer.remaining() - HEADER_BYTES) {
+            return false;
+        }
+        int payloadStart = start + HEADER_BYTES;
+        int limit = buffer.limit();
+        crc.reset();
+        buffer.limit(payloadStart + payloadLength).position(payloadStart);
+        crc.update(buffer);
+        buffer.limit(limit).position(payloadStart);
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return false;
+        }
+        JournalRecordType type = JournalRecordType.fromCode(buffer.get());
+        long amount = buffer.getLong();
+        long originBalance = buffer.getLong();
+        long destinationBalance = buffer.getLong();
+        String origin = getId(buffer);
+        String destination = getId(buffer);
+        record.set(type, origin, destination, amount, originBalance, destinationBalance);
+        return true;
+    }
+
+    public static void putId(ByteBuffer buffer, String id) {
+        if (id == null) {
+            buffer.putShort(NULL_ID);
+            return;
+        }
+        int length = id.length();
+        if (isAscii(id)) {
+            buffer.putShort((short) length);
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) id.charAt(i));
+            }
+        } else {
+            buffer.putShort((short) -(length + 2));
+            for (int i = 0; i < length; i++) {
+                buffer.putChar(id.charAt(i));
+            }
+        }
+    }
+
+    public String getId(ByteBuffer buffer) {
+        short header = buffer.getShort();
+        if (header == NULL_ID) {
+            return null;
+        }
+        if (header >= 0) {
+            if (scratch.length < header) {
+                scratch = new byte[Math.max(header, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, header);
+            return new String(scratch, 0, header, StandardCharsets.ISO_8859_1);
+        }
+        char[] chars = new char[-(header + 2)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = buffer.getChar();
+        }
+        return new String(chars);
+    }
+
+    public static int idSize(String id) {
+        if (id == null) {
+            return Short.BYTES;
+        }
+        if (id.length() > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("Account id longer than " + MAX_ID_LENGTH + " characters");
+        }
+        return Short.BYTES + (isAscii(id) ? id.length() : 2 * id.length());
+    }
+
+    private static boolean isAscii(String id) {
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
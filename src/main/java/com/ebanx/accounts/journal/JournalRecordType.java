@@ -0,0 +1,26 @@
+package com.ebanx.accounts.journal;
+
+public enum JournalRecordType {
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER,
+    BALANCE,
+    RESET,
+    /**
+     * Header of an all-or-nothing group; {@code amount} holds the number of records that follow it.
+     */
+    BATCH;
+
+    private static final JournalRecordType[] VALUES = values();
+
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    public static JournalRecordType fromCode(byte code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalArgumentException("Unknown journal record type " + code);
+        }
+        return VALUES[code];
+    }
+}
@@ -0,0 +1,129 @@
+package com.ebanx.accounts.journal;
+
+import com.ebanx.accounts.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds an {@link AccountRepository} from the newest valid snapshot followed by every log segment written since
+ * it was cut. Segments are memory-mapped and read sequentially; a record that fails its checksum ends its segment,
+ * since it can only be the torn, never-acknowledged tail of a crashed flush. Recovery fails rather than start from
+ * part of the history: when the segments following the snapshot it falls back to are missing, or when they don't
+ * reach the newest snapshot, which was unreadable.
+ */
+public class JournalRecovery {
+    private static final Logger log = LoggerFactory.getLogger(JournalRecovery.class);
+
+    private final Path directory;
+
+    public JournalRecovery(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Restores the repository, which must not have a journal attached yet, and returns the index of the segment the
+     * write-ahead log should continue with.
+     */
+    public long recover(AccountRepository accountRepository) throws IOException {
+        long startedAt = System.nanoTime();
+        long firstSegment = 0;
+        long unreadSnapshot = -1;
+        for (long snapshot : AccountSnapshots.listSnapshots(directory)) {
+            if (AccountSnapshots.read(AccountSnapshots.snapshotPath(directory, snapshot), accountRepository)) {
+                firstSegment = snapshot;
+                break;
+            }
+            log.warn("Ignoring incomplete account snapshot {}", snapshot);
+            unreadSnapshot = Math.max(unreadSnapshot, snapshot);
+            accountRepository.emptyDatabase();
+        }
+
+        long records = 0;
+        long nextSegment = firstSegment;
+        List<Long> segments = WriteAheadLog.listSegments(directory);
+        for (long segment : segments) {
+            if (segment >= firstSegment) {
+                if (segment != nextSegment) {
+                    throw new IOException(String.format("Cannot recover %s: log segments %d to %d are missing",
+                            directory, nextSegment, segment - 1));
+                }
+                records += replaySegment(WriteAheadLog.segmentPath(directory, segment), accountRepository);
+                nextSegment = segment + 1;
+            }
+        }
+        if (nextSegment <= unreadSnapshot) {
+            throw new IOException(String.format("Cannot recover %s: snapshot %d is unreadable and log segments %d "
+                    + "to %d are missing", directory, unreadSnapshot, nextSegment, unreadSnapshot));
+        }
+
+        log.info("Recovered {} accounts from {} (snapshot {} and {} log records) in {} ms", accountRepository.getSize(),
+                directory, firstSegment, records, (System.nanoTime() - startedAt) / 1_000_000);
+        return nextSegment;
+    }
+
+    public static void apply(JournalRecord record, AccountRepository accountRepository) {
+        if (record.getType() == JournalRecordType.RESET) {
+            accountRepository.emptyDatabase();
+            return;
+        }
+        if (record.getOrigin() != null) {
+            accountRepository.putBalance(record.getOrigin(), record.getOriginBalance());
+        }
+        if (record.getDestination() != null) {
+            accountRepository.putBalance(record.getDestination(), record.getDestinationBalance());
+        }
+    }
+
+    /**
+     * Decodes every record of a batch, or returns {@code null} if the log ends before the batch does.
+     */
+    private static List<JournalRecord> decodeBatch(JournalRecordCodec codec, ByteBuffer buffer, int size) {
+        List<JournalRecord> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            JournalRecord record = new JournalRecord();
+            if (!codec.decode(buffer, record)) {
+                return null;
+            }
+            batch.add(record);
+        }
+        return batch;
+    }
+
+    private static long replaySegment(Path segment, AccountRepository accountRepository) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            JournalRecordCodec codec = new JournalRecordCodec();
+            JournalRecord record = new JournalRecord();
+            long records = 0;
+            int recordStart = buffer.position();
+            while (codec.decode(buffer, record)) {
+                if (record.getType() == JournalRecordType.BATCH) {
+                    List<JournalRecord> batch = decodeBatch(codec, buffer, (int) record.getAmount());
+                    if (batch == null) {
+                        buffer.position(recordStart);
+                        break;
+                    }
+                    batch.forEach(batchRecord -> apply(batchRecord, accountRepository));
+                    records += batch.size();
+                } else {
+                    apply(record, accountRepository);
+                    records++;
+                }
+                recordStart = buffer.position();
+            }
+            if (buffer.hasRemaining()) {
+                log.warn("Discarding {} bytes of torn log tail in {}", buffer.remaining(), segment);
+            }
+            return records;
+        }
+    }
+}
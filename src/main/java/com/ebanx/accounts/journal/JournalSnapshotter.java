@@ -0,0 +1,68 @@
+package com.ebanx.accounts.journal;
+
+import com.ebanx.accounts.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class JournalSnapshotter implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(JournalSnapshotter.class);
+
+    private final Path directory;
+    private final WriteAheadLog writeAheadLog;
+    private final AccountRepository accountRepository;
+    private final ScheduledExecutorService scheduler;
+
+    public JournalSnapshotter(Path directory, WriteAheadLog writeAheadLog, AccountRepository accountRepository,
+                              Duration interval) {
+        this.directory = directory;
+        this.writeAheadLog = writeAheadLog;
+        this.accountRepository = accountRepository;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-journal-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cuts a new log segment, snapshots the repository and truncates what the previous snapshot supersedes. The
+     * previous snapshot and the segments since it are kept, so recovery can still fall back to them in full if the
+     * new snapshot turns out unreadable.
+     */
+    public synchronized void snapshot() throws IOException {
+        long startedAt = System.nanoTime();
+        long firstSegment = writeAheadLog.rollSegment();
+        AccountSnapshots.write(directory, firstSegment, accountRepository);
+        for (long snapshot : AccountSnapshots.listSnapshots(directory)) {
+            if (snapshot < firstSegment) {
+                writeAheadLog.deleteSegmentsBefore(snapshot);
+                AccountSnapshots.deleteSnapshotsBefore(directory, snapshot);
+                break;
+            }
+        }
+        log.info("Wrote account snapshot {} in {} ms", firstSegment, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Account snapshot failed, keeping the full write-ahead log", e);
+        }
+    }
+}
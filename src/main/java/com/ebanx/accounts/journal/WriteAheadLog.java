@@ -0,0 +1,279 @@
+package com.ebanx.accounts.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Segmented binary write-ahead log. Appends only encode into an in-memory buffer; flushing swaps that buffer out,
+ * writes it to the current segment and fsyncs, so every record appended since the previous flush becomes durable
+ * with a single fsync. Tickets returned by {@link #append} are logical byte positions, and
+ * {@link #awaitDurable} blocks according to the configured {@link FsyncPolicy}.
+ */
+public class WriteAheadLog implements AccountJournal, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int INITIAL_BUFFER_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long groupCommitWindowNanos;
+    private final long segmentSize;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final JournalRecordCodec codec = new JournalRecordCodec();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long appendedPosition;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushed = flushLock.newCondition();
+    private ByteBuffer flushing = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private FileChannel segment;
+    private long segmentIndex;
+    private long segmentBytes;
+    private volatile long durablePosition;
+    private volatile IOException failure;
+
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    public WriteAheadLog(Path directory, long firstSegmentIndex, FsyncPolicy fsyncPolicy, Duration groupCommitWindow,
+                         long segmentSize) throws IOException {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.groupCommitWindowNanos = groupCommitWindow.toNanos();
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        openSegment(firstSegmentIndex);
+        if (fsyncPolicy == FsyncPolicy.PER_EVENT) {
+            this.flusher = null;
+        } else {
+            this.flusher = new Thread(this::runFlusher, "account-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    public static Path segmentPath(Path directory, long index) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    public static List<Long> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name, SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length(), 10))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    @Override
+    public long append(JournalRecordType type, String origin, String destination, long amount, long originBalance,
+                       long destinationBalance) {
+        int size = JournalRecordCodec.encodedSize(origin, destination);
+        appendLock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log is unavailable", failure);
+            }
+            if (pending.remaining() < size) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            codec.encode(pending, type, origin, destination, amount, originBalance, destinationBalance);
+            appendedPosition += size;
+            return appendedPosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the batch header and keeps the append lock until {@link #endBatch}, so the group is contiguous in the
+     * log and never split across flushes or segments.
+     */
+    @Override
+    public void beginBatch(int records) {
+        appendLock.lock();
+        try {
+            append(JournalRecordType.BATCH, null, null, records, 0L, 0L);
+        } catch (RuntimeException e) {
+            appendLock.unlock();
+            throw e;
+        }
+    }
+
+    @Override
+    public void endBatch() {
+        appendLock.unlock();
+    }
+
+    @Override
+    public void awaitDurable(long ticket) {
+        switch (fsyncPolicy) {
+            case PER_EVENT -> {
+                if (durablePosition < ticket) {
+                    flush();
+                }
+            }
+            case GROUP_COMMIT -> {
+                if (durablePosition < ticket) {
+                    awaitFlush(ticket);
+                }
+            }
+            case ASYNC -> {
+            }
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            long target;
+            appendLock.lock();
+            try {
+                if (appendedPosition == durablePosition) {
+                    return;
+                }
+                ByteBuffer appended = pending;
+                pending = flushing;
+                flushing = appended;
+                target = appendedPosition;
+            } finally {
+                appendLock.unlock();
+            }
+            flushing.flip();
+            while (flushing.hasRemaining()) {
+                segmentBytes += segment.write(flushing);
+            }
+            flushing.clear();
+            segment.force(false);
+            durablePosition = target;
+            flushed.signalAll();
+            if (segmentBytes >= segmentSize) {
+                openSegment(segmentIndex + 1);
+            }
+        } catch (IOException e) {
+            failure = e;
+            flushed.signalAll();
+            throw new UncheckedIOException("Failed to flush the write-ahead log", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and starts a new segment, returning its index. Every record appended before this call lives in an
+     * earlier segment, so a snapshot taken afterwards only needs the log from the returned index onwards.
+     */
+    public long rollSegment() {
+        flushLock.lock();
+        try {
+            flush();
+            openSegment(segmentIndex + 1);
+            return segmentIndex;
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException("Failed to roll the write-ahead log", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public void deleteSegmentsBefore(long index) throws IOException {
+        for (long segment : listSegments(directory)) {
+            if (segment < index) {
+                Files.deleteIfExists(segmentPath(directory, segment));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushLock.lock();
+        try {
+            flush();
+            segment.close();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void awaitFlush(long ticket) {
+        flushLock.lock();
+        try {
+            while (durablePosition < ticket) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log is unavailable", failure);
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            LockSupport.parkNanos(groupCommitWindowNanos);
+            try {
+                flush();
+            } catch (UncheckedIOException e) {
+                log.error("Write-ahead log flush failed, rejecting further writes", e);
+                return;
+            }
+        }
+    }
+
+    private void openSegment(long index) throws IOException {
+        if (segment != null) {
+            segment.force(false);
+            segment.close();
+        }
+        segment = FileChannel.open(segmentPath(directory, index), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentIndex = index;
+        segmentBytes = 0;
+        syncDirectory(directory);
+    }
+
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // directories can't be opened for fsync on every platform; the file data itself is still forced
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.ebanx.accounts.ledger;
+
+import com.ebanx.accounts.AccountIds;
+import com.ebanx.accounts.dtos.AccountEventType;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only history of every change applied by {@code AccountRepository}.
+ * <p>
+ * Transactions are numbered from {@code 1} in the order they are appended and stored column-wise in chunks of
+ * primitive arrays, about 73 bytes each, with accounts kept as their keys in the repository's {@link AccountIds}.
+ * Each transaction links to the previous transaction of its origin and of its destination, so an account's history
+ * is a chain from its newest transaction backwards. The repository keeps the newest transaction of every account
+ * next to its balance and appends while it holds the account's lock, which orders every chain. Appends only claim a
+ * sequence number otherwise and never wait for one another.
+ * <p>
+ * At most {@code maxChunks} chunks are kept. Opening a new chunk beyond that drops the oldest one, and the history of
+ * every account ends where the retained transactions begin.
+ * <p>
+ * Once a chunk is full, {@link #indexSealedChunks} can index the first transaction of every account in it. The
+ * balance of an account as of some past transaction is the one left by the transaction its first later transaction
+ * links back to. That one is found by scanning the rest of the chunk holding the point, then probing the indexes of
+ * the following chunks, so no lookup reads more than two chunks of history however old the point or however busy
+ * the account.
+ */
+public class AccountLedger {
+    public static final int CHUNK_SIZE = 1 << 16;
+    public static final long NO_TRANSACTION = 0L;
+    public static final long NO_BALANCE = -1L;
+    public static final long NOT_RETAINED = -2L;
+
+    private static final int CHUNK_BITS = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+    private static final VarHandle TYPES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final AccountEventType[] EVENT_TYPES = AccountEventType.values();
+
+    private final int maxChunks;
+    private final AccountIds accountIds;
+    private volatile Store store;
+
+    public AccountLedger(int maxChunks, AccountIds accountIds) {
+        this.maxChunks = Math.max(2, maxChunks);
+        this.accountIds = accountIds;
+        this.store = new Store(this.maxChunks);
+    }
+
+    /**
+     * Records a change and returns its sequence. {@code origin} and {@code destination} are account keys,
+     * {@link AccountIds#NO_KEY} for a missing side. {@code previousOrigin} and {@code previousDestination} are the
+     * newest transactions of the accounts involved, {@link #NO_TRANSACTION} for a missing or repeated account.
+     */
+    public long append(AccountEventType type, long origin, long destination, long amount, long originBalance,
+                       long destinationBalance, long previousOrigin, long previousDestination) {
+        return store.append(type, origin, destination, amount, originBalance, destinationBalance, previousOrigin,
+                previousDestination);
+    }
+
+    /**
+     * Drops every transaction. Must be called while no append is in progress.
+     */
+    public void clear() {
+        store = new Store(maxChunks);
+    }
+
+    /**
+     * Returns whether {@code sequence} is a retained transaction involving the account.
+     */
+    public boolean involves(long sequence, String accountId) {
+        return store.involving(sequence, accountIds.find(accountId)) != null;
+    }
+
+    /**
+     * Visits up to {@code limit} transactions of the account, newest first, starting at {@code from}. Returns the
+     * transaction to continue from, or {@link #NO_TRANSACTION} once the retained history is exhausted.
+     */
+    public long visitAccount(String accountId, long from, int limit, TransactionVisitor visitor) {
+        Store current = store;
+        long key = accountIds.find(accountId);
+        long sequence = from;
+        for (int visited = 0; visited < limit; visited++) {
+            Chunk chunk = current.involving(sequence, key);
+            if (chunk == null) {
+                return NO_TRANSACTION;
+            }
+            int index = (int) (sequence & (CHUNK_SIZE - 1));
+            chunk.visit(sequence, index, accountIds, visitor);
+            sequence = chunk.origins[index] == key ? chunk.previousOrigin[index] : chunk.previousDestination[index];
+        }
+        return current.involving(sequence, key) == null ? NO_TRANSACTION : sequence;
+    }
+
+    /**
+     * Visits every retained transaction in sequence order, reading the ledger as it goes rather than copying it.
+     * Transactions appended while the visit runs may or may not be included.
+     */
+    public void visitAll(TransactionVisitor visitor) {
+        Store current = store;
+        long end = current.next.get();
+        for (long sequence = current.firstRetained; sequence < end; sequence++) {
+            Chunk chunk = current.chunk(sequence);
+            if (chunk == null) {
+                // either not opened yet or already dropped, in which case skip to the oldest retained transaction
+                sequence = Math.max(sequence, current.firstRetained - 1);
+                continue;
+            }
+            int index = (int) (sequence & (CHUNK_SIZE - 1));
+            if ((byte) TYPES.getAcquire(chunk.types, index) != 0) {
+                chunk.visit(sequence, index, accountIds, visitor);
+            }
+        }
+    }
+
+    /**
+     * Returns the account's balance right after transaction {@code asOf}, given its newest transaction. Returns
+     * {@link #NO_BALANCE} if the account had no transaction by then, or {@link #NOT_RETAINED} if the history needed
+     * has been dropped.
+     */
+    public long balanceAt(String accountId, long newest, long asOf) {
+        Store current = store;
+        if (newest == NO_TRANSACTION) {
+            return NO_BALANCE;
+        }
+        long id = accountIds.find(accountId);
+        Chunk chunk = current.involving(newest, id);
+        if (chunk == null) {
+            return NOT_RETAINED;
+        }
+        int index = (int) (newest & (CHUNK_SIZE - 1));
+        long sequence = newest;
+        if (newest > asOf) {
+            long after = current.firstAfter(id, Math.max(asOf, current.firstRetained - 1), newest);
+            chunk = current.chunk(after);
+            if (after == NO_TRANSACTION || chunk == null) {
+                return NOT_RETAINED;
+            }
+            index = (int) (after & (CHUNK_SIZE - 1));
+            sequence = chunk.origins[index] == id ? chunk.previousOrigin[index] : chunk.previousDestination[index];
+            if (sequence == NO_TRANSACTION) {
+                return NO_BALANCE;
+            }
+            chunk = current.involving(sequence, id);
+            if (chunk == null) {
+                return NOT_RETAINED;
+            }
+            index = (int) (sequence & (CHUNK_SIZE - 1));
+        }
+        return chunk.origins[index] == id ? chunk.originBalances[index] : chunk.destinationBalances[index];
+    }
+
+    /**
+     * Returns the newest transaction recorded at or before {@code timestamp}, {@link #NO_TRANSACTION} if none was, or
+     * {@link #NOT_RETAINED} if it has been dropped. Timestamps are taken as transactions are appended, so concurrent
+     * transactions within the same millisecond may resolve either way.
+     */
+    public long sequenceAt(long timestamp) {
+        Store current = store;
+        long low = current.firstRetained;
+        long high = current.next.get() - 1;
+        long found = low > 1L ? NOT_RETAINED : NO_TRANSACTION;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            Chunk chunk = current.chunk(middle);
+            if (chunk == null && middle < current.firstRetained) {
+                low = middle + 1;
+            } else if (chunk != null && chunk.timestamps[(int) (middle & (CHUNK_SIZE - 1))] <= timestamp) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the newest transaction appended so far, {@link #NO_TRANSACTION} if there is none.
+     */
+    public long lastSequence() {
+        return store.next.get() - 1;
+    }
+
+    /**
+     * Indexes every full chunk not indexed yet whose transactions have all been written, and returns how many it
+     * indexed.
+     */
+    public int indexSealedChunks() {
+        Store current = store;
+        long open = (current.next.get() - 1) >>> CHUNK_BITS;
+        int indexed = 0;
+        for (long number = current.firstRetained >>> CHUNK_BITS; number < open; number++) {
+            Chunk chunk = current.chunk(number << CHUNK_BITS);
+            if (chunk != null && chunk.index == null && chunk.published()) {
+                chunk.index = new ChunkIndex(chunk);
+                indexed++;
+            }
+        }
+        return indexed;
+    }
+
+    public long size() {
+        Store current = store;
+        return current.next.get() - current.firstRetained;
+    }
+
+    @FunctionalInterface
+    public interface TransactionVisitor {
+        void visit(long sequence, long timestamp, AccountEventType type, String origin, String destination,
+                   long amount, long originBalance, long destinationBalance);
+    }
+
+    private static final class Store {
+        private final AtomicLong next = new AtomicLong(1L);
+        private final AtomicReferenceArray<Chunk> chunks;
+        private volatile long firstRetained = 1L;
+
+        private Store(int maxChunks) {
+            this.chunks = new AtomicReferenceArray<>(maxChunks);
+        }
+
+        private long append(AccountEventType type, long origin, long destination, long amount,
+                            long originBalance, long destinationBalance, long previousOrigin,
+                            long previousDestination) {
+            long sequence = next.getAndIncrement();
+            Chunk chunk = chunkForAppend(sequence);
+            int index = (int) (sequence & (CHUNK_SIZE - 1));
+            chunk.timestamps[index] = System.currentTimeMillis();
+            chunk.amounts[index] = amount;
+            chunk.originBalances[index] = originBalance;
+            chunk.destinationBalances[index] = destinationBalance;
+            chunk.previousOrigin[index] = previousOrigin;
+            chunk.previousDestination[index] = previousDestination;
+            chunk.origins[index] = origin;
+            chunk.destinations[index] = destination;
+            TYPES.setRelease(chunk.types, index, (byte) (type.ordinal() + 1));
+            return sequence;
+        }
+
+        private Chunk chunk(long sequence) {
+            long number = sequence >>> CHUNK_BITS;
+            Chunk chunk = chunks.get((int) (number % chunks.length()));
+            return chunk != null && chunk.number == number ? chunk : null;
+        }
+
+        /**
+         * Returns the chunk holding {@code sequence} if that transaction is retained and involves the account.
+         */
+        private Chunk involving(long sequence, long key) {
+            if (key == AccountIds.NO_KEY || sequence < firstRetained) {
+                return null;
+            }
+            Chunk chunk = chunk(sequence);
+            if (chunk == null) {
+                return null;
+            }
+            int index = (int) (sequence & (CHUNK_SIZE - 1));
+            if ((byte) TYPES.getAcquire(chunk.types, index) == 0) {
+                return null;
+            }
+            return chunk.origins[index] == key || chunk.destinations[index] == key ? chunk : null;
+        }
+
+        /**
+         * Returns the account's first transaction after {@code from}, which must exist no later than
+         * {@code newest}, or {@link #NO_TRANSACTION} if it was dropped meanwhile. Only the chunk holding
+         * {@code from} and that holding {@code newest} may need a scan; full chunks in between are skipped by their
+         * index.
+         */
+        private long firstAfter(long id, long from, long newest) {
+            long sequence = from + 1;
+            while (sequence <= newest) {
+                Chunk chunk = chunk(sequence);
+                ChunkIndex index = chunk == null ? null : chunk.index;
+                if (index != null) {
+                    long first = index.firstOf(id);
+                    if (first >= sequence) {
+                        return first;
+                    }
+                    if (first == NO_TRANSACTION) {
+                        sequence = (chunk.number + 1) << CHUNK_BITS;
+                        continue;
+                    }
+                }
+                if (chunk != null) {
+                    long end = Math.min(newest, ((chunk.number + 1) << CHUNK_BITS) - 1);
+                    long found = chunk.scan(id, sequence, end);
+                    if (found != NO_TRANSACTION) {
+                        return found;
+                    }
+                }
+                sequence = ((sequence >>> CHUNK_BITS) + 1) << CHUNK_BITS;
+            }
+            return NO_TRANSACTION;
+        }
+
+        private Chunk chunkForAppend(long sequence) {
+            Chunk chunk = chunk(sequence);
+            if (chunk != null) {
+                return chunk;
+            }
+            synchronized (this) {
+                chunk = chunk(sequence);
+                if (chunk == null) {
+                    long number = sequence >>> CHUNK_BITS;
+                    if (number >= chunks.length()) {
+                        firstRetained = Math.max(firstRetained, (number - chunks.length() + 1) << CHUNK_BITS);
+                    }
+                    chunk = new Chunk(number);
+                    chunks.set((int) (number % chunks.length()), chunk);
+                }
+                return chunk;
+            }
+        }
+    }
+
+    private static final class Chunk {
+        private final long number;
+        private final byte[] types = new byte[CHUNK_SIZE];
+        private final long[] timestamps = new long[CHUNK_SIZE];
+        private final long[] amounts = new long[CHUNK_SIZE];
+        private final long[] originBalances = new long[CHUNK_SIZE];
+        private final long[] destinationBalances = new long[CHUNK_SIZE];
+        private final long[] previousOrigin = new long[CHUNK_SIZE];
+        private final long[] previousDestination = new long[CHUNK_SIZE];
+        private final long[] origins = new long[CHUNK_SIZE];
+        private final long[] destinations = new long[CHUNK_SIZE];
+
+        private volatile ChunkIndex index;
+
+        /**
+         * Account columns start out as {@link AccountIds#NO_KEY}, so a slot not written yet never matches an account.
+         */
+        private Chunk(long number) {
+            this.number = number;
+            Arrays.fill(origins, AccountIds.NO_KEY);
+            Arrays.fill(destinations, AccountIds.NO_KEY);
+        }
+
+        private boolean published() {
+            for (int index = number == 0 ? 1 : 0; index < CHUNK_SIZE; index++) {
+                if ((byte) TYPES.getAcquire(types, index) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the first transaction of the account from {@code from} to {@code to}.
+         */
+        private long scan(long id, long from, long to) {
+            for (int index = (int) (from & (CHUNK_SIZE - 1)); index <= (int) (to & (CHUNK_SIZE - 1)); index++) {
+                if (origins[index] == id || destinations[index] == id) {
+                    return (number << CHUNK_BITS) + index;
+                }
+            }
+            return NO_TRANSACTION;
+        }
+
+        private void visit(long sequence, int index, AccountIds accountIds, TransactionVisitor visitor) {
+            visitor.visit(sequence, timestamps[index], EVENT_TYPES[types[index] - 1], accountIds.idOf(origins[index]),
+                    accountIds.idOf(destinations[index]), amounts[index], originBalances[index],
+                    destinationBalances[index]);
+        }
+    }
+
+    /**
+     * Open-addressing table from every account of a full chunk to its first transaction in the chunk.
+     */
+    private static final class ChunkIndex {
+        private long[] keys = new long[1 << 14];
+        private long[] sequences = new long[1 << 14];
+        private int size;
+
+        /**
+         * A transaction is the first of its account in the chunk exactly when it links back past the chunk's start,
+         * so every account is inserted once without looking it up first.
+         */
+        private ChunkIndex(Chunk chunk) {
+            long first = chunk.number << CHUNK_BITS;
+            for (int index = chunk.number == 0 ? 1 : 0; index < CHUNK_SIZE; index++) {
+                long origin = chunk.origins[index];
+                long destination = chunk.destinations[index];
+                if (origin != AccountIds.NO_KEY && chunk.previousOrigin[index] < Math.max(first, 1L)) {
+                    insert(origin, first + index);
+                }
+                if (destination != AccountIds.NO_KEY && destination != origin
+                        && chunk.previousDestination[index] < Math.max(first, 1L)) {
+                    insert(destination, first + index);
+                }
+            }
+        }
+
+        /**
+         * Free slots are the ones without a sequence, since sequences start at 1.
+         */
+        private long firstOf(long key) {
+            int mask = keys.length - 1;
+            for (int slot = AccountIds.hash(key) & mask; ; slot = (slot + 1) & mask) {
+                if (sequences[slot] == NO_TRANSACTION) {
+                    return NO_TRANSACTION;
+                }
+                if (keys[slot] == key) {
+                    return sequences[slot];
+                }
+            }
+        }
+
+        private void insert(long key, long sequence) {
+            int mask = keys.length - 1;
+            int slot = AccountIds.hash(key) & mask;
+            while (sequences[slot] != NO_TRANSACTION) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            sequences[slot] = sequence;
+            if (++size > keys.length >> 1) {
+                resize();
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldSequences = sequences;
+            keys = new long[oldKeys.length << 1];
+            sequences = new long[oldKeys.length << 1];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldSequences[i] != NO_TRANSACTION) {
+                    int slot = AccountIds.hash(oldKeys[i]) & mask;
+                    while (sequences[slot] != NO_TRANSACTION) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    sequences[slot] = oldSequences[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ebanx.accounts.ledger;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.ledger", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(AccountLedgerProperties.class)
+public class AccountLedgerConfiguration {
+
+    @Bean
+    public AccountLedger accountLedger(AccountRepository accountRepository, AccountService accountService,
+                                       AccountLedgerProperties properties) {
+        AccountLedger ledger = new AccountLedger(properties.getMaxChunks(), accountRepository.getAccountIds());
+        accountRepository.setLedger(ledger);
+        accountService.setLedger(ledger);
+        return ledger;
+    }
+
+    @Bean(destroyMethod = "close")
+    public LedgerIndexer ledgerIndexer(AccountLedger ledger, AccountLedgerProperties properties) {
+        return new LedgerIndexer(ledger, properties.getIndexInterval());
+    }
+}
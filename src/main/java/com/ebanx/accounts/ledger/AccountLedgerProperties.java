@@ -0,0 +1,44 @@
+package com.ebanx.accounts.ledger;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "accounts.ledger")
+public class AccountLedgerProperties {
+    private boolean enabled = true;
+    private long maxTransactions = 1L << 20;
+    private Duration indexInterval = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxTransactions() {
+        return maxTransactions;
+    }
+
+    public void setMaxTransactions(long maxTransactions) {
+        this.maxTransactions = maxTransactions;
+    }
+
+    public Duration getIndexInterval() {
+        return indexInterval;
+    }
+
+    public void setIndexInterval(Duration indexInterval) {
+        this.indexInterval = indexInterval;
+    }
+
+    /**
+     * Chunks needed to keep at least {@code maxTransactions}, the oldest one being dropped as soon as a new one opens.
+     */
+    public int getMaxChunks() {
+        return (int) Math.min(Integer.MAX_VALUE,
+                (maxTransactions + AccountLedger.CHUNK_SIZE - 1) / AccountLedger.CHUNK_SIZE + 1);
+    }
+}
@@ -0,0 +1,48 @@
+package com.ebanx.accounts.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexes the full chunks of an {@link AccountLedger} in the background, so point-in-time lookups skip over them
+ * instead of scanning them and appends never pay for the indexing.
+ */
+public class LedgerIndexer implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(LedgerIndexer.class);
+
+    private final AccountLedger ledger;
+    private final ScheduledExecutorService scheduler;
+
+    public LedgerIndexer(AccountLedger ledger, Duration interval) {
+        this.ledger = ledger;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-ledger-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::indexQuietly, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void indexQuietly() {
+        try {
+            int indexed = ledger.indexSealedChunks();
+            if (indexed > 0) {
+                log.debug("Indexed {} ledger chunks", indexed);
+            }
+        } catch (RuntimeException e) {
+            log.error("Ledger indexing failed, point-in-time lookups will scan unindexed chunks", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ebanx.accounts.metrics;
+
+/**
+ * Receives what {@code AccountService} and {@code AccountRepository} observe on every request. Implementations are
+ * called on the request path and must neither block nor allocate.
+ */
+public interface AccountMetrics {
+    AccountMetrics NONE = new AccountMetrics() {
+        @Override
+        public void recordOperation(AccountOperation operation, AccountOutcome outcome, long startedAt) {
+        }
+
+        @Override
+        public void recordAccess(String accountId) {
+        }
+
+        @Override
+        public void recordLockContention() {
+        }
+    };
+
+    /**
+     * Records an operation that started at {@code startedAt}, as given by {@link System#nanoTime()}.
+     */
+    void recordOperation(AccountOperation operation, AccountOutcome outcome, long startedAt);
+
+    void recordAccess(String accountId);
+
+    /**
+     * Records a lock that was already held by another thread when the repository tried to take it.
+     */
+    void recordLockContention();
+}
@@ -0,0 +1,27 @@
+package com.ebanx.accounts.metrics;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(AccountMetricsProperties.class)
+public class AccountMetricsConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public MicrometerAccountMetrics accountMetrics(MeterRegistry registry, AccountService accountService,
+                                                   AccountRepository accountRepository,
+                                                   AccountMetricsProperties properties) {
+        MicrometerAccountMetrics accountMetrics = new MicrometerAccountMetrics(registry, accountRepository,
+                new HotAccountTracker(properties.getHotAccountSlots(), properties.getHotAccountSampleRate()),
+                properties.getHotAccountThreshold(), properties.getHotAccountWindow());
+        accountService.setMetrics(accountMetrics);
+        accountRepository.setMetrics(accountMetrics);
+        return accountMetrics;
+    }
+}
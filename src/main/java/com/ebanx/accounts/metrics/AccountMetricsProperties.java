@@ -0,0 +1,54 @@
+package com.ebanx.accounts.metrics;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "accounts.metrics")
+public class AccountMetricsProperties {
+    private boolean enabled = true;
+    private int hotAccountSampleRate = 64;
+    private int hotAccountSlots = 32;
+    private double hotAccountThreshold = 0.05;
+    private Duration hotAccountWindow = Duration.ofSeconds(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getHotAccountSampleRate() {
+        return hotAccountSampleRate;
+    }
+
+    public void setHotAccountSampleRate(int hotAccountSampleRate) {
+        this.hotAccountSampleRate = hotAccountSampleRate;
+    }
+
+    public int getHotAccountSlots() {
+        return hotAccountSlots;
+    }
+
+    public void setHotAccountSlots(int hotAccountSlots) {
+        this.hotAccountSlots = hotAccountSlots;
+    }
+
+    public double getHotAccountThreshold() {
+        return hotAccountThreshold;
+    }
+
+    public void setHotAccountThreshold(double hotAccountThreshold) {
+        this.hotAccountThreshold = hotAccountThreshold;
+    }
+
+    public Duration getHotAccountWindow() {
+        return hotAccountWindow;
+    }
+
+    public void setHotAccountWindow(Duration hotAccountWindow) {
+        this.hotAccountWindow = hotAccountWindow;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ebanx.accounts.metrics;
+
+public enum AccountOperation {
+    BALANCE,
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER,
+    BATCH;
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,31 @@
+package com.ebanx.accounts.metrics;
+
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.exceptions.AccountNotFoundException;
+
+public enum AccountOutcome {
+    OK,
+    NOT_FOUND,
+    INSUFFICIENT_FUNDS;
+
+    public static AccountOutcome of(AccountResult<?> result) {
+        if (result instanceof AccountResult.Success) {
+            return OK;
+        }
+        if (result instanceof AccountResult.NotFound) {
+            return NOT_FOUND;
+        }
+        if (result instanceof AccountResult.InsufficientFunds) {
+            return INSUFFICIENT_FUNDS;
+        }
+        throw new IllegalArgumentException("No outcome for " + result);
+    }
+
+    public static AccountOutcome of(RuntimeException failure) {
+        return failure instanceof AccountNotFoundException ? NOT_FOUND : INSUFFICIENT_FUNDS;
+    }
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,86 @@
+package com.ebanx.accounts.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Finds the accounts that take a disproportionate share of operations. One access in {@code sampleRate} is counted
+ * in a fixed set of slots with the Misra-Gries algorithm, so any account with more than {@code 1 / slots} of the
+ * sampled accesses is guaranteed to hold a slot. Sampling never waits: a sample arriving while another thread is
+ * counting is dropped, which only thins the sample further.
+ */
+public class HotAccountTracker {
+    private final int sampleMask;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final String[] ids;
+    private final long[] counts;
+    private long samples;
+
+    public HotAccountTracker(int slots, int sampleRate) {
+        this.sampleMask = Integer.highestOneBit(Math.max(1, sampleRate)) - 1;
+        this.ids = new String[slots];
+        this.counts = new long[slots];
+    }
+
+    public void sample(String accountId) {
+        if ((ThreadLocalRandom.current().nextInt() & sampleMask) != 0 || !lock.tryLock()) {
+            return;
+        }
+        try {
+            samples++;
+            int free = -1;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == null) {
+                    free = free < 0 ? i : free;
+                } else if (ids[i].equals(accountId)) {
+                    counts[i]++;
+                    return;
+                }
+            }
+            if (free >= 0) {
+                ids[free] = accountId;
+                counts[free] = 1;
+                return;
+            }
+            for (int i = 0; i < ids.length; i++) {
+                if (--counts[i] == 0) {
+                    ids[i] = null;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the accounts with at least {@code threshold} of the accesses sampled since the previous call, hottest
+     * first, and starts counting a new window.
+     */
+    public List<HotAccount> drain(double threshold) {
+        List<HotAccount> hotAccounts = new ArrayList<>();
+        lock.lock();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != null && samples > 0 && (double) counts[i] / samples >= threshold) {
+                    hotAccounts.add(new HotAccount(ids[i], (double) counts[i] / samples, counts[i]));
+                }
+                ids[i] = null;
+                counts[i] = 0;
+            }
+            samples = 0;
+        } finally {
+            lock.unlock();
+        }
+        hotAccounts.sort(Comparator.comparingDouble(HotAccount::share).reversed());
+        return hotAccounts;
+    }
+
+    /**
+     * An account and lower bounds of its share and its number of the sampled accesses.
+     */
+    public record HotAccount(String accountId, double share, long samples) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.ebanx.accounts.metrics;
+
+import com.ebanx.accounts.AccountMapper;
+import com.ebanx.accounts.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes account metrics to Micrometer. Every timer and counter is registered up front and looked up by ordinal,
+ * so recording is an array read and an add. Hot accounts are published once per window from a background thread.
+ */
+public class MicrometerAccountMetrics implements AccountMetrics, Closeable {
+    private final Timer[][] timers;
+    private final Counter lockContention;
+    private final HotAccountTracker hotAccountTracker;
+    private final double hotAccountThreshold;
+    private final MultiGauge hotAccountShares;
+    private final AtomicInteger hotAccounts = new AtomicInteger();
+    private final ScheduledExecutorService scheduler;
+
+    public MicrometerAccountMetrics(MeterRegistry registry, AccountRepository accountRepository,
+                                    HotAccountTracker hotAccountTracker, double hotAccountThreshold,
+                                    Duration hotAccountWindow) {
+        this.timers = new Timer[AccountOperation.values().length][AccountOutcome.values().length];
+        for (AccountOperation operation : AccountOperation.values()) {
+            for (AccountOutcome outcome : AccountOutcome.values()) {
+                timers[operation.ordinal()][outcome.ordinal()] = Timer.builder("accounts.operations")
+                        .description("Account operations by outcome")
+                        .tag("operation", operation.tag())
+                        .tag("outcome", outcome.tag())
+                        .publishPercentileHistogram()
+                        .register(registry);
+            }
+        }
+        this.lockContention = Counter.builder("accounts.lock.contention")
+                .description("Repository lock acquisitions that found the lock already held")
+                .register(registry);
+        Gauge.builder("accounts.size", accountRepository, AccountRepository::getSize)
+                .description("Accounts in the repository")
+                .register(registry);
+        Gauge.builder("accounts.balance.total", accountRepository,
+                        repository -> AccountMapper.toExactAmount(repository.getTotalBalance()).doubleValue())
+                .description("Sum of the balances of every account")
+                .register(registry);
+        Gauge.builder("accounts.hot.count", hotAccounts, AtomicInteger::get)
+                .description("Accounts above the hot account threshold in the last window")
+                .register(registry);
+        this.hotAccountShares = MultiGauge.builder("accounts.hot.share")
+                .description("Share of the sampled operations of each hot account in the last window")
+                .register(registry);
+        this.hotAccountTracker = hotAccountTracker;
+        this.hotAccountThreshold = hotAccountThreshold;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-hot-account-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::publishHotAccounts, hotAccountWindow.toMillis(),
+                hotAccountWindow.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void recordOperation(AccountOperation operation, AccountOutcome outcome, long startedAt) {
+        timers[operation.ordinal()][outcome.ordinal()].record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordAccess(String accountId) {
+        hotAccountTracker.sample(accountId);
+    }
+
+    @Override
+    public void recordLockContention() {
+        lockContention.increment();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    void publishHotAccounts() {
+        List<HotAccountTracker.HotAccount> hot = hotAccountTracker.drain(hotAccountThreshold);
+        List<MultiGauge.Row<?>> rows = new ArrayList<>(hot.size());
+        for (HotAccountTracker.HotAccount hotAccount : hot) {
+            rows.add(MultiGauge.Row.of(Tags.of("account", hotAccount.accountId()), hotAccount.share()));
+        }
+        hotAccountShares.register(rows, true);
+        hotAccounts.set(hot.size());
+    }
+}
@@ -0,0 +1,24 @@
+package com.ebanx.accounts.pipeline;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.pipeline", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AccountPipelineProperties.class)
+public class AccountPipelineConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public ShardedAccountPipeline shardedAccountPipeline(AccountPipelineProperties properties,
+                                                         Environment environment) {
+        if (environment.getProperty("accounts.journal.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("accounts.pipeline.enabled can't be combined with accounts.journal.enabled:"
+                    + " the write-ahead log only records changes made through AccountRepository");
+        }
+        return new ShardedAccountPipeline(properties.getShards(), properties.getRingSize(),
+                properties.getExpectedAccounts());
+    }
+}
@@ -0,0 +1,71 @@
+package com.ebanx.accounts.pipeline;
+
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.exceptions.AccountNotFoundException;
+import com.ebanx.accounts.exceptions.AccountWithLowerBalanceException;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Serves the {@code AccountController} API in pipeline mode. Requests release their servlet thread once the event
+ * is published and the response is written when the owning shard completes it.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "accounts.pipeline", name = "enabled", havingValue = "true")
+public class AccountPipelineController {
+    private final ShardedAccountService accountService;
+
+    public AccountPipelineController(ShardedAccountService accountService) {
+        this.accountService = accountService;
+    }
+
+    @RequestMapping(value="balance", method = RequestMethod.GET)
+    public CompletableFuture<ResponseEntity<?>> getAccountBalance(@RequestParam("account_id") String accountId){
+        return accountService.getAccountBalance(accountId)
+                .handle((balance, failure) -> failure == null
+                        ? new ResponseEntity<>(balance, HttpStatus.OK) : failed(failure));
+    }
+
+    @RequestMapping(value="event", method = RequestMethod.POST)
+    public CompletableFuture<ResponseEntity<?>> handleAccountEvent(@Valid
+                                                                   @RequestBody AccountRequestDto accountRequestDto){
+        if(accountRequestDto.validDepositRequest()) {
+            return created(accountService.depositToAccount(accountRequestDto));
+        }
+        if(accountRequestDto.validWithdrawRequest()) {
+            return created(accountService.withdrawFromAccount(accountRequestDto));
+        }
+        if(accountRequestDto.validTransferRequest()) {
+            return created(accountService.transferBetweenAccount(accountRequestDto));
+        }
+        return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+    }
+
+    @RequestMapping(value="reset", method = RequestMethod.POST)
+    public CompletableFuture<ResponseEntity<?>> resetDatabase(){
+        return accountService.resetDatabase().thenApply(done -> new ResponseEntity<>("OK", HttpStatus.OK));
+    }
+
+    private static CompletableFuture<ResponseEntity<?>> created(CompletableFuture<?> result) {
+        return result.handle((responseBody, failure) -> failure == null
+                ? new ResponseEntity<>(responseBody, HttpStatus.CREATED) : failed(failure));
+    }
+
+    private static ResponseEntity<?> failed(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        if (cause instanceof AccountNotFoundException) {
+            return new ResponseEntity<>(0.0f, HttpStatus.NOT_FOUND);
+        }
+        if (cause instanceof AccountWithLowerBalanceException) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        throw new CompletionException(cause);
+    }
+}
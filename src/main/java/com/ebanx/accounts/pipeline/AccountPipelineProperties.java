@@ -0,0 +1,43 @@
+package com.ebanx.accounts.pipeline;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "accounts.pipeline")
+public class AccountPipelineProperties {
+    private boolean enabled;
+    private int shards = Runtime.getRuntime().availableProcessors();
+    private int ringSize = 16384;
+    private int expectedAccounts;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    public void setRingSize(int ringSize) {
+        this.ringSize = ringSize;
+    }
+
+    public int getExpectedAccounts() {
+        return expectedAccounts;
+    }
+
+    public void setExpectedAccounts(int expectedAccounts) {
+        this.expectedAccounts = expectedAccounts;
+    }
+}
@@ -0,0 +1,210 @@
+package com.ebanx.accounts.pipeline;
+
+import com.ebanx.accounts.AccountEntity;
+import com.ebanx.accounts.AccountIds;
+import com.ebanx.accounts.AccountTable;
+import com.ebanx.accounts.AccountTransferEntity;
+import com.ebanx.accounts.exceptions.AccountNotFoundException;
+import com.ebanx.accounts.exceptions.AccountWithLowerBalanceException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One partition of the account state, owned by a single writer thread. Any thread publishes events into a bounded
+ * multi-producer ring buffer by claiming a sequence, filling the slot and publishing the sequence; the writer applies
+ * them in sequence order to a table no other thread touches, so it needs no locks. Credits handed over by other
+ * shards arrive on a separate unbounded queue, which keeps a writer from ever blocking on another shard's full ring.
+ */
+final class AccountShard {
+    private static final int MAX_BATCH = 256;
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long PARK_NANOS = 1_000_000L;
+    private static final long FULL_RING_PARK_NANOS = 1_000L;
+
+    private final ShardedAccountPipeline pipeline;
+    private final AccountTable table;
+    private final AccountIds accountIds = new AccountIds();
+    private final ShardEvent[] ring;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final ConcurrentLinkedQueue<TransferCredit> credits = new ConcurrentLinkedQueue<>();
+    private final Thread writer;
+
+    private volatile long consumed = -1L;
+    private volatile boolean sleeping;
+    private volatile boolean running = true;
+
+    AccountShard(ShardedAccountPipeline pipeline, int index, int ringSize, int expectedAccounts) {
+        this.pipeline = pipeline;
+        this.table = new AccountTable(expectedAccounts);
+        this.ring = new ShardEvent[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            ring[i] = new ShardEvent();
+        }
+        this.mask = ringSize - 1;
+        this.writer = new Thread(this::run, "account-shard-" + index);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    CompletableFuture<Object> publish(ShardEventType type, String origin, String destination, long amount) {
+        CompletableFuture<Object> completion = new CompletableFuture<>();
+        if (!running) {
+            completion.completeExceptionally(new RejectedExecutionException("Account pipeline is closed"));
+            return completion;
+        }
+        long sequence = claimed.getAndIncrement();
+        while (sequence - ring.length > consumed) {
+            LockSupport.parkNanos(FULL_RING_PARK_NANOS);
+        }
+        ShardEvent event = ring[(int) sequence & mask];
+        event.type = type;
+        event.origin = origin;
+        event.destination = destination;
+        event.amount = amount;
+        event.completion = completion;
+        event.sequence = sequence;
+        wakeUp();
+        return completion;
+    }
+
+    void handOff(TransferCredit credit) {
+        credits.offer(credit);
+        wakeUp();
+    }
+
+    void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void wakeUp() {
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void run() {
+        long next = 0;
+        int idleSpins = 0;
+        while (running || hasWork(next)) {
+            boolean worked = false;
+            TransferCredit credit;
+            while ((credit = credits.poll()) != null) {
+                credit(credit);
+                worked = true;
+            }
+            for (int i = 0; i < MAX_BATCH && ring[(int) next & mask].sequence == next; i++) {
+                ShardEvent event = ring[(int) next & mask];
+                apply(event);
+                event.clear();
+                consumed = next++;
+                worked = true;
+            }
+            if (worked) {
+                idleSpins = 0;
+            } else if (++idleSpins < SPINS_BEFORE_PARK) {
+                Thread.onSpinWait();
+            } else {
+                sleeping = true;
+                if (!hasWork(next)) {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+    private boolean hasWork(long next) {
+        return ring[(int) next & mask].sequence == next || !credits.isEmpty();
+    }
+
+    private void apply(ShardEvent event) {
+        CompletableFuture<Object> completion = event.completion;
+        try {
+            switch (event.type) {
+                case BALANCE -> completion.complete(account(event.origin));
+                case DEPOSIT -> completion.complete(deposit(event.destination, event.amount));
+                case WITHDRAW -> completion.complete(withdraw(event.origin, event.amount));
+                case TRANSFER -> transfer(event.origin, event.destination, event.amount, completion);
+                case RESET -> {
+                    table.clear();
+                    accountIds.clear();
+                    completion.complete(null);
+                }
+            }
+        } catch (RuntimeException e) {
+            completion.completeExceptionally(e);
+        }
+    }
+
+    private int find(String id) {
+        long key = accountIds.find(id);
+        return key == AccountIds.NO_KEY ? AccountTable.NOT_FOUND : table.find(key);
+    }
+
+    private AccountEntity account(String id) {
+        int slot = find(id);
+        if (slot == AccountTable.NOT_FOUND) {
+            throw new AccountNotFoundException();
+        }
+        return new AccountEntity(id, table.balanceAt(slot));
+    }
+
+    private AccountEntity deposit(String id, long amount) {
+        int slot = table.findOrInsert(accountIds.keyOf(id));
+        long balance = table.balanceAt(slot) + amount;
+        table.setBalanceAt(slot, balance);
+        return new AccountEntity(id, balance);
+    }
+
+    private AccountEntity withdraw(String id, long amount) {
+        int slot = find(id);
+        if (slot == AccountTable.NOT_FOUND) {
+            throw new AccountNotFoundException();
+        }
+        long balance = table.balanceAt(slot);
+        if (balance < amount) {
+            throw new AccountWithLowerBalanceException();
+        }
+        table.setBalanceAt(slot, balance - amount);
+        return new AccountEntity(id, balance - amount);
+    }
+
+    /**
+     * Phase one of every transfer: the origin is debited here, on its owner. A destination on this shard is credited
+     * straight away; otherwise the credit, which cannot fail, is handed to the destination's shard and the transfer
+     * completes once that shard has applied it.
+     */
+    private void transfer(String originId, String destinationId, long amount, CompletableFuture<Object> completion) {
+        if (originId.equals(destinationId)) {
+            AccountEntity origin = account(originId);
+            if (origin.getBalance() < amount) {
+                throw new AccountWithLowerBalanceException();
+            }
+            completion.complete(new AccountTransferEntity(origin, origin));
+            return;
+        }
+        AccountEntity origin = withdraw(originId, amount);
+        AccountShard destinationShard = pipeline.shardFor(destinationId);
+        if (destinationShard == this) {
+            completion.complete(new AccountTransferEntity(origin, deposit(destinationId, amount)));
+        } else {
+            destinationShard.handOff(new TransferCredit(origin, destinationId, amount, completion));
+        }
+    }
+
+    private void credit(TransferCredit credit) {
+        AccountEntity destination = deposit(credit.destination, credit.amount);
+        credit.completion.complete(new AccountTransferEntity(credit.origin, destination));
+    }
+}
@@ -0,0 +1,23 @@
+package com.ebanx.accounts.pipeline;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Preallocated ring buffer slot. A publisher fills the fields and then writes {@link #sequence}, which is what makes
+ * them visible to the shard's writer thread.
+ */
+final class ShardEvent {
+    volatile long sequence = -1L;
+
+    ShardEventType type;
+    String origin;
+    String destination;
+    long amount;
+    CompletableFuture<Object> completion;
+
+    void clear() {
+        origin = null;
+        destination = null;
+        completion = null;
+    }
+}
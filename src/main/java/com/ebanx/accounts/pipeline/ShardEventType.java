@@ -0,0 +1,9 @@
+package com.ebanx.accounts.pipeline;
+
+enum ShardEventType {
+    BALANCE,
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER,
+    RESET
+}
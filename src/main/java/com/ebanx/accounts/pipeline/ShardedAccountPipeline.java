@@ -0,0 +1,76 @@
+package com.ebanx.accounts.pipeline;
+
+import com.ebanx.accounts.AccountEntity;
+import com.ebanx.accounts.AccountTable;
+import com.ebanx.accounts.AccountTransferEntity;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Account state partitioned by account id across {@link AccountShard}s, each applying its events on its own writer
+ * thread. Events for one account are applied in the order they were published. A transfer between shards debits the
+ * origin on its shard and then credits the destination on the other, so for that short interval the amount is in
+ * neither account; it can never be lost, since the credit cannot fail once the debit succeeded.
+ */
+public class ShardedAccountPipeline implements Closeable {
+    private final AccountShard[] shards;
+
+    public ShardedAccountPipeline(int shardCount, int ringSize, int expectedAccounts) {
+        if (Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + ringSize);
+        }
+        this.shards = new AccountShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new AccountShard(this, i, ringSize, expectedAccounts / shardCount);
+        }
+    }
+
+    public CompletableFuture<AccountEntity> getAccount(String id) {
+        return shardFor(id).publish(ShardEventType.BALANCE, id, null, 0L).thenApply(AccountEntity.class::cast);
+    }
+
+    public CompletableFuture<AccountEntity> deposit(String id, long amount) {
+        return shardFor(id).publish(ShardEventType.DEPOSIT, null, id, amount).thenApply(AccountEntity.class::cast);
+    }
+
+    public CompletableFuture<AccountEntity> withdraw(String id, long amount) {
+        return shardFor(id).publish(ShardEventType.WITHDRAW, id, null, amount).thenApply(AccountEntity.class::cast);
+    }
+
+    public CompletableFuture<AccountTransferEntity> transfer(String originId, String destinationId, long amount) {
+        return shardFor(originId).publish(ShardEventType.TRANSFER, originId, destinationId, amount)
+                .thenApply(AccountTransferEntity.class::cast);
+    }
+
+    /**
+     * Clears every shard. Events published concurrently may be applied before or after the reset of their shard.
+     */
+    public CompletableFuture<Void> reset() {
+        CompletableFuture<?>[] resets = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            resets[i] = shards[i].publish(ShardEventType.RESET, null, null, 0L);
+        }
+        return CompletableFuture.allOf(resets);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Picks the shard from the high bits of the spread hash, leaving the low bits each shard's table probes with
+     * evenly distributed.
+     */
+    AccountShard shardFor(String id) {
+        long hash = AccountTable.spread(id.hashCode()) & 0xFFFFFFFFL;
+        return shards[(int) ((hash * shards.length) >>> 32)];
+    }
+
+    @Override
+    public void close() {
+        for (AccountShard shard : shards) {
+            shard.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ebanx.accounts.pipeline;
+
+import com.ebanx.accounts.AccountMapper;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.dtos.AccountResponseDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous counterpart of {@code AccountService} backed by the {@link ShardedAccountPipeline}. Futures complete
+ * exceptionally with the same exceptions {@code AccountService} throws.
+ */
+@Service
+@ConditionalOnProperty(prefix = "accounts.pipeline", name = "enabled", havingValue = "true")
+public class ShardedAccountService {
+    private final ShardedAccountPipeline pipeline;
+
+    public ShardedAccountService(ShardedAccountPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public CompletableFuture<Void> resetDatabase() {
+        return pipeline.reset();
+    }
+
+    public CompletableFuture<Float> getAccountBalance(String accountId) {
+        return pipeline.getAccount(accountId).thenApply(account -> AccountMapper.toAmount(account.getBalance()));
+    }
+
+    public CompletableFuture<AccountResponseDto> depositToAccount(AccountRequestDto accountRequest) {
+        return pipeline.deposit(accountRequest.getDestination(), AccountMapper.toMinorUnits(accountRequest.getAmount()))
+                .thenApply(account -> AccountMapper.toResponseDto(AccountMapper.toDto(account),
+                        accountRequest.getEventType()));
+    }
+
+    public CompletableFuture<AccountResponseDto> withdrawFromAccount(AccountRequestDto accountRequest) {
+        return pipeline.withdraw(accountRequest.getOrigin(), AccountMapper.toMinorUnits(accountRequest.getAmount()))
+                .thenApply(account -> AccountMapper.toResponseDto(AccountMapper.toDto(account),
+                        accountRequest.getEventType()));
+    }
+
+    public CompletableFuture<AccountResponseDto> transferBetweenAccount(AccountRequestDto accountRequest) {
+        return pipeline.transfer(accountRequest.getOrigin(), accountRequest.getDestination(),
+                        AccountMapper.toMinorUnits(accountRequest.getAmount()))
+                .thenApply(transfer -> AccountMapper.toResponseDto(transfer.getOriginAccount(),
+                        transfer.getDestinationAccount()));
+    }
+}
@@ -0,0 +1,23 @@
+package com.ebanx.accounts.pipeline;
+
+import com.ebanx.accounts.AccountEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Second phase of a cross-shard transfer, handed from the origin shard, which has already debited the origin, to the
+ * shard owning the destination.
+ */
+final class TransferCredit {
+    final AccountEntity origin;
+    final String destination;
+    final long amount;
+    final CompletableFuture<Object> completion;
+
+    TransferCredit(AccountEntity origin, String destination, long amount, CompletableFuture<Object> completion) {
+        this.origin = origin;
+        this.destination = destination;
+        this.amount = amount;
+        this.completion = completion;
+    }
+}
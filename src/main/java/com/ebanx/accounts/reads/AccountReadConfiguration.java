@@ -0,0 +1,22 @@
+package com.ebanx.accounts.reads;
+
+import com.ebanx.accounts.AccountRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.reads", name = "consistency", havingValue = "bounded_staleness")
+@EnableConfigurationProperties(AccountReadProperties.class)
+public class AccountReadConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public BalanceSnapshotPublisher balanceSnapshotPublisher(AccountRepository accountRepository,
+                                                             AccountReadProperties properties) {
+        BalanceSnapshotPublisher publisher = new BalanceSnapshotPublisher(accountRepository,
+                properties.getMaxStaleness());
+        accountRepository.setReadConsistency(ReadConsistency.BOUNDED_STALENESS);
+        return publisher;
+    }
+}
@@ -0,0 +1,27 @@
+package com.ebanx.accounts.reads;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "accounts.reads")
+public class AccountReadProperties {
+    private ReadConsistency consistency = ReadConsistency.LINEARIZABLE;
+    private Duration maxStaleness = Duration.ofMillis(10);
+
+    public ReadConsistency getConsistency() {
+        return consistency;
+    }
+
+    public void setConsistency(ReadConsistency consistency) {
+        this.consistency = consistency;
+    }
+
+    public Duration getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public void setMaxStaleness(Duration maxStaleness) {
+        this.maxStaleness = maxStaleness;
+    }
+}
@@ -0,0 +1,49 @@
+package com.ebanx.accounts.reads;
+
+import com.ebanx.accounts.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Republishes the changed segments of an {@link AccountRepository} for
+ * {@link ReadConsistency#BOUNDED_STALENESS} reads. A write shows up in reads once the next pass starting after it
+ * completes, so reads lag writes by at most the interval plus twice the time of a pass, which grows with the number of
+ * pages of slots written since the previous one.
+ */
+public class BalanceSnapshotPublisher implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(BalanceSnapshotPublisher.class);
+
+    private final AccountRepository accountRepository;
+    private final ScheduledExecutorService scheduler;
+
+    public BalanceSnapshotPublisher(AccountRepository accountRepository, Duration interval) {
+        this.accountRepository = accountRepository;
+        accountRepository.publishSnapshots();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-snapshot-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long micros = Math.max(1L, interval.toNanos() / 1000L);
+        scheduler.scheduleWithFixedDelay(this::publishQuietly, micros, micros, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void publishQuietly() {
+        try {
+            accountRepository.publishSnapshots();
+        } catch (RuntimeException e) {
+            log.error("Publishing balance snapshots failed, reads keep the previous ones", e);
+        }
+    }
+}
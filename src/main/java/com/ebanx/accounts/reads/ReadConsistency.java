@@ -0,0 +1,10 @@
+package com.ebanx.accounts.reads;
+
+/**
+ * What a balance read may return. {@link #LINEARIZABLE} reads see every write completed before they started;
+ * {@link #BOUNDED_STALENESS} reads may miss the writes of roughly the last {@code accounts.reads.max-staleness}.
+ */
+public enum ReadConsistency {
+    LINEARIZABLE,
+    BOUNDED_STALENESS
+}
@@ -0,0 +1,162 @@
+package com.ebanx.accounts.replication;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.journal.AccountJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replication role of this instance. A primary wraps the repository's journal in a {@link ReplicationLog} and serves
+ * it on its replication port. A follower keeps its repository, read-only, in step with a primary until
+ * {@link #promote()} makes it a primary in turn: its log continues the stream it followed, so the other followers
+ * switch to it without a snapshot unless they had applied records it never got.
+ */
+public class AccountReplication implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(AccountReplication.class);
+
+    private final AccountRepository accountRepository;
+    private final AccountJournal journal;
+    private final AccountReplicationProperties properties;
+    private volatile ReplicationRole role;
+    private volatile ReplicationLog replicationLog;
+    private volatile ReplicationServer server;
+    private volatile ReplicationFollower follower;
+
+    /**
+     * @param journal the journal the repository already has, which a primary's log forwards every record to
+     */
+    public AccountReplication(AccountRepository accountRepository, AccountJournal journal,
+                              AccountReplicationProperties properties) throws IOException {
+        this.accountRepository = accountRepository;
+        this.journal = journal;
+        this.properties = properties;
+        this.role = properties.getRole();
+        if (role == ReplicationRole.PRIMARY) {
+            startPrimary(ReplicationProtocol.NO_LOG, 0L);
+        } else {
+            accountRepository.setReadOnly(true);
+            follower = new ReplicationFollower(accountRepository, parseAddress(properties.getPrimary()),
+                    properties.getHeartbeatInterval(), ReplicationProtocol.NO_LOG, 0L);
+            follower.start();
+        }
+    }
+
+    public ReplicationRole getRole() {
+        return role;
+    }
+
+    /**
+     * Returns the port followers connect to, or {@code -1} on a follower.
+     */
+    public int getPort() {
+        ReplicationServer current = server;
+        return current == null ? -1 : current.getPort();
+    }
+
+    ReplicationLog getReplicationLog() {
+        return replicationLog;
+    }
+
+    public ReplicationStatus getStatus() {
+        ReplicationFollower currentFollower = follower;
+        if (currentFollower != null) {
+            return currentFollower.getStatus();
+        }
+        return ReplicationStatus.primary(replicationLog.getSequence(), server.getFollowers());
+    }
+
+    /**
+     * Makes a follower a primary: it stops following, starts serving its stream and accepts writes. Does nothing on a
+     * primary.
+     *
+     * @throws IllegalStateException if the follower is still loading a snapshot, which would leave it with only part
+     *                               of the accounts
+     */
+    public synchronized ReplicationStatus promote() {
+        ReplicationFollower current = follower;
+        if (current == null) {
+            return getStatus();
+        }
+        if (current.isLoadingSnapshot() || current.getLogId() == ReplicationProtocol.NO_LOG) {
+            throw new IllegalStateException("The follower hasn't loaded a snapshot of the primary yet");
+        }
+        current.close();
+        try {
+            startPrimary(current.getLogId(), current.getAppliedSequence());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the replication port", e);
+        }
+        follower = null;
+        role = ReplicationRole.PRIMARY;
+        accountRepository.setReadOnly(false);
+        log.info("Promoted to primary at sequence {}", current.getAppliedSequence());
+        return getStatus();
+    }
+
+    /**
+     * Points a follower at another primary, typically a promoted follower, keeping its position so it continues
+     * without a snapshot when the new primary's log allows.
+     *
+     * @param primary {@code host:port} of the new primary's replication port
+     * @throws IllegalStateException on a primary, whose writes the new primary may not have
+     */
+    public synchronized ReplicationStatus follow(String primary) {
+        InetSocketAddress address = parseAddress(primary);
+        ReplicationFollower current = follower;
+        if (current == null) {
+            throw new IllegalStateException("A primary can't follow another primary");
+        }
+        current.close();
+        follower = new ReplicationFollower(accountRepository, address, properties.getHeartbeatInterval(),
+                current.getLogId(), current.getAppliedSequence());
+        follower.start();
+        log.info("Following {} from sequence {}", primary, current.getAppliedSequence());
+        return getStatus();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (follower != null) {
+            follower.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+        if (replicationLog != null) {
+            replicationLog.close();
+        }
+    }
+
+    private void startPrimary(long predecessorId, long firstSequence) throws IOException {
+        ReplicationLog primaryLog = new ReplicationLog(journal, ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE),
+                predecessorId, firstSequence, properties.getBatchDelay(), properties.getRetainedSize().toBytes());
+        ReplicationServer primaryServer;
+        try {
+            primaryServer = new ReplicationServer(primaryLog, accountRepository,
+                    new InetSocketAddress(properties.getAddress(), properties.getPort()),
+                    properties.getHeartbeatInterval());
+        } catch (IOException e) {
+            primaryLog.close();
+            throw e;
+        }
+        accountRepository.setJournal(primaryLog);
+        replicationLog = primaryLog;
+        server = primaryServer;
+        primaryServer.start();
+    }
+
+    private static InetSocketAddress parseAddress(String address) {
+        int separator = address.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("accounts.replication.primary must be host:port, not '" + address + "'");
+        }
+        return new InetSocketAddress(address.substring(0, separator),
+                Integer.parseInt(address.substring(separator + 1)));
+    }
+}
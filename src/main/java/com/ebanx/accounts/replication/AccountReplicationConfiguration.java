@@ -0,0 +1,42 @@
+package com.ebanx.accounts.replication;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.journal.AccountJournal;
+import com.ebanx.accounts.journal.WriteAheadLog;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.replication", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AccountReplicationProperties.class)
+public class AccountReplicationConfiguration {
+
+    /**
+     * Asks for the write-ahead log first, so recovery is over and the log attached before the replication log wraps
+     * it.
+     */
+    @Bean(destroyMethod = "close")
+    public AccountReplication accountReplication(AccountRepository accountRepository,
+                                                 ObjectProvider<WriteAheadLog> writeAheadLog,
+                                                 AccountReplicationProperties properties, Environment environment)
+            throws IOException {
+        for (String mode : new String[] {"pipeline", "cluster"}) {
+            if (environment.getProperty("accounts." + mode + ".enabled", Boolean.class, false)) {
+                throw new IllegalStateException("accounts.replication.enabled can't be combined with accounts." + mode
+                        + ".enabled: replication streams the changes of the shared repository");
+            }
+        }
+        if (properties.getRole() == ReplicationRole.FOLLOWER
+                && environment.getProperty("accounts.ingest.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("accounts.ingest.enabled needs a primary: followers reject writes");
+        }
+        AccountJournal journal = writeAheadLog.getIfAvailable();
+        return new AccountReplication(accountRepository, journal == null ? AccountJournal.NONE : journal, properties);
+    }
+}
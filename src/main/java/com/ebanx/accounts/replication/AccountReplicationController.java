@@ -0,0 +1,50 @@
+package com.ebanx.accounts.replication;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@ConditionalOnProperty(prefix = "accounts.replication", name = "enabled", havingValue = "true")
+public class AccountReplicationController {
+    private final AccountReplication accountReplication;
+
+    public AccountReplicationController(AccountReplication accountReplication) {
+        this.accountReplication = accountReplication;
+    }
+
+    @RequestMapping(value="replication", method = RequestMethod.GET)
+    public ResponseEntity<ReplicationStatus> getStatus(){
+        return new ResponseEntity<>(accountReplication.getStatus(), HttpStatus.OK);
+    }
+
+    /**
+     * Makes this follower the primary, once the previous one is gone; 409 while it is still loading a snapshot.
+     */
+    @RequestMapping(value="replication/promote", method = RequestMethod.POST)
+    public ResponseEntity<ReplicationStatus> promote(){
+        try {
+            return new ResponseEntity<>(accountReplication.promote(), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+
+    /**
+     * Points this follower at another primary's replication port; 409 on a primary.
+     */
+    @RequestMapping(value="replication/follow", method = RequestMethod.POST)
+    public ResponseEntity<ReplicationStatus> follow(@RequestParam("primary") String primary){
+        try {
+            return new ResponseEntity<>(accountReplication.follow(primary), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+}
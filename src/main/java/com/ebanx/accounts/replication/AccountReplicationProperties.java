@@ -0,0 +1,88 @@
+package com.ebanx.accounts.replication;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "accounts.replication")
+public class AccountReplicationProperties {
+    private boolean enabled = false;
+    private ReplicationRole role = ReplicationRole.PRIMARY;
+    /**
+     * Address the replication port binds: the primary's from the start, a follower's once promoted.
+     */
+    private String address = "0.0.0.0";
+    private int port = 7201;
+    /**
+     * {@code host:port} of the primary's replication port, for a follower.
+     */
+    private String primary = "";
+    private Duration batchDelay = Duration.ofMillis(2);
+    private Duration heartbeatInterval = Duration.ofMillis(100);
+    private DataSize retainedSize = DataSize.ofMegabytes(64);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public ReplicationRole getRole() {
+        return role;
+    }
+
+    public void setRole(ReplicationRole role) {
+        this.role = role;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getPrimary() {
+        return primary;
+    }
+
+    public void setPrimary(String primary) {
+        this.primary = primary;
+    }
+
+    public Duration getBatchDelay() {
+        return batchDelay;
+    }
+
+    public void setBatchDelay(Duration batchDelay) {
+        this.batchDelay = batchDelay;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public DataSize getRetainedSize() {
+        return retainedSize;
+    }
+
+    public void setRetainedSize(DataSize retainedSize) {
+        this.retainedSize = retainedSize;
+    }
+}
@@ -0,0 +1,12 @@
+package com.ebanx.accounts.replication;
+
+/**
+ * Consecutive records of a {@link ReplicationLog}, deflated once when sealed however many followers they are sent to.
+ * {@code data} inflates to {@code rawLength} bytes of records in {@code JournalRecordCodec} layout.
+ */
+record ReplicationChunk(long firstSequence, int records, int rawLength, byte[] data) {
+
+    long nextSequence() {
+        return firstSequence + records;
+    }
+}
@@ -0,0 +1,301 @@
+package com.ebanx.accounts.replication;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.journal.JournalRecord;
+import com.ebanx.accounts.journal.JournalRecordCodec;
+import com.ebanx.accounts.journal.JournalRecordType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+
+import static com.ebanx.accounts.replication.ReplicationProtocol.*;
+
+/**
+ * Keeps a repository in step with a primary's {@link ReplicationLog}: connects to its replication port, loads a
+ * snapshot when the primary can't continue from the last record applied, and applies every chunk in order, a record
+ * or an atomic group of records at a time, with {@link AccountRepository#replicateBalances}. Reconnects after any
+ * failure, with a backoff, until closed.
+ */
+public class ReplicationFollower implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicationFollower.class);
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+
+    private final AccountRepository accountRepository;
+    private final InetSocketAddress primary;
+    private final int readTimeoutMillis;
+    private final Thread thread;
+    private final Inflater inflater = new Inflater(true);
+    private final JournalRecordCodec codec = new JournalRecordCodec();
+    private final JournalRecord record = new JournalRecord();
+    private byte[] deflated = new byte[BUFFER_SIZE];
+    private byte[] raw = new byte[BUFFER_SIZE];
+    private String[] ids = new String[16];
+    private long[] balances = new long[16];
+
+    private volatile long logId;
+    private volatile long appliedSequence;
+    private volatile long primarySequence;
+    private volatile boolean connected;
+    private volatile boolean loadingSnapshot;
+    /**
+     * When the follower last had every record it knew of, {@code 0} while it has.
+     */
+    private volatile long behindSinceNanos = System.nanoTime();
+    private volatile long lastContactNanos = System.nanoTime();
+    private volatile Socket socket;
+    private volatile boolean closed;
+
+    /**
+     * @param logId           the log the repository's state came from, {@link ReplicationProtocol#NO_LOG} to start
+     *                        over from a snapshot
+     * @param appliedSequence how many records of that log the state covers
+     */
+    public ReplicationFollower(AccountRepository accountRepository, InetSocketAddress primary,
+                               Duration heartbeatInterval, long logId, long appliedSequence) {
+        this.accountRepository = accountRepository;
+        this.primary = primary;
+        this.logId = logId;
+        this.appliedSequence = appliedSequence;
+        this.primarySequence = appliedSequence;
+        this.readTimeoutMillis = (int) Math.max(1000, heartbeatInterval.toMillis() * 5);
+        this.thread = new Thread(this::run, "account-replication-follower");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Returns the log whose records were applied, or {@link ReplicationProtocol#NO_LOG} until a snapshot is loaded.
+     */
+    public long getLogId() {
+        return logId;
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public boolean isLoadingSnapshot() {
+        return loadingSnapshot;
+    }
+
+    public ReplicationStatus getStatus() {
+        long behindSince = behindSinceNanos;
+        long lagMillis = behindSince == 0L ? 0L : (System.nanoTime() - behindSince) / 1_000_000;
+        return ReplicationStatus.follower(appliedSequence, primarySequence, lagMillis, connected);
+    }
+
+    /**
+     * Stops following; once this returns nothing else is applied to the repository.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // the follower thread notices and exits
+            }
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        inflater.end();
+    }
+
+    private void run() {
+        long backoffMillis = 10;
+        while (!closed) {
+            try (Socket connection = new Socket()) {
+                socket = connection;
+                if (closed) {
+                    return;
+                }
+                connection.connect(primary, CONNECT_TIMEOUT_MILLIS);
+                connection.setSoTimeout(readTimeoutMillis);
+                connection.setTcpNoDelay(true);
+                follow(new DataInputStream(new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE)),
+                        new DataOutputStream(new BufferedOutputStream(connection.getOutputStream())));
+            } catch (EOFException | SocketException e) {
+                log.debug("Replication connection to {} closed", primary, e);
+            } catch (IOException | RuntimeException e) {
+                if (!closed) {
+                    log.warn("Replication from {} failed", primary, e);
+                }
+            } finally {
+                if (connected) {
+                    connected = false;
+                    if (behindSinceNanos == 0L) {
+                        behindSinceNanos = lastContactNanos;
+                    }
+                    backoffMillis = 10;
+                }
+            }
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoffMillis = Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+        }
+    }
+
+    private void follow(DataInputStream in, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeLong(logId);
+        out.writeLong(appliedSequence);
+        out.flush();
+        long primaryLog = in.readLong();
+        connected = true;
+        log.info("Following {} from {}", primary, appliedSequence);
+        while (!closed) {
+            byte type = in.readByte();
+            lastContactNanos = System.nanoTime();
+            switch (type) {
+                case CHUNK -> {
+                    long first = in.readLong();
+                    int records = in.readInt();
+                    int rawLength = readDeflated(in);
+                    long sequence = in.readLong();
+                    if (first != appliedSequence) {
+                        throw new ProtocolException("Chunk at " + first + " while expecting " + appliedSequence);
+                    }
+                    applyRecords(ByteBuffer.wrap(raw, 0, rawLength), records);
+                    logId = primaryLog;
+                    appliedSequence = first + records;
+                    updatePrimarySequence(sequence);
+                }
+                case HEARTBEAT -> {
+                    logId = primaryLog;
+                    updatePrimarySequence(in.readLong());
+                }
+                case SNAPSHOT_BEGIN -> {
+                    logId = NO_LOG;
+                    loadingSnapshot = true;
+                    if (behindSinceNanos == 0L) {
+                        behindSinceNanos = lastContactNanos;
+                    }
+                    accountRepository.replicateReset();
+                }
+                case SNAPSHOT -> {
+                    int accounts = in.readInt();
+                    ByteBuffer block = ByteBuffer.wrap(raw, 0, readDeflated(in));
+                    ensureCapacity(accounts);
+                    for (int i = 0; i < accounts; i++) {
+                        ids[i] = codec.getId(block);
+                        balances[i] = block.getLong();
+                    }
+                    accountRepository.replicateBalances(ids, balances, accounts);
+                }
+                case SNAPSHOT_END -> {
+                    appliedSequence = in.readLong();
+                    logId = primaryLog;
+                    loadingSnapshot = false;
+                    updatePrimarySequence(appliedSequence);
+                }
+                default -> throw new ProtocolException("Invalid replication frame " + type);
+            }
+        }
+    }
+
+    /**
+     * Reads {@code [int raw length][int deflated length][deflated bytes]} and inflates it into {@link #raw}.
+     */
+    private int readDeflated(DataInputStream in) throws IOException {
+        int rawLength = in.readInt();
+        int deflatedLength = in.readInt();
+        if (rawLength < 0 || deflatedLength < 0) {
+            throw new ProtocolException("Invalid replication frame lengths " + rawLength + ", " + deflatedLength);
+        }
+        if (deflated.length < deflatedLength) {
+            deflated = new byte[Math.max(deflatedLength, deflated.length * 2)];
+        }
+        if (raw.length < rawLength) {
+            raw = new byte[Math.max(rawLength, raw.length * 2)];
+        }
+        in.readFully(deflated, 0, deflatedLength);
+        ReplicationProtocol.inflate(inflater, deflated, deflatedLength, raw, rawLength);
+        return rawLength;
+    }
+
+    private void applyRecords(ByteBuffer buffer, int records) throws ProtocolException {
+        for (int i = 0; i < records; i++) {
+            decode(buffer);
+            if (record.getType() == JournalRecordType.RESET) {
+                accountRepository.replicateReset();
+            } else if (record.getType() == JournalRecordType.BATCH) {
+                int size = (int) record.getAmount();
+                int count = 0;
+                for (int j = 0; j < size; j++) {
+                    decode(buffer);
+                    count = collect(count);
+                }
+                accountRepository.replicateBalances(ids, balances, count);
+                i += size;
+            } else {
+                accountRepository.replicateBalances(ids, balances, collect(0));
+            }
+        }
+    }
+
+    private void decode(ByteBuffer buffer) throws ProtocolException {
+        if (!codec.decode(buffer, record)) {
+            throw new ProtocolException("Corrupt replication record at " + buffer.position());
+        }
+    }
+
+    /**
+     * Adds the balances the current record leaves behind after the first {@code count} and returns the new count.
+     */
+    private int collect(int count) {
+        ensureCapacity(count + 2);
+        if (record.getOrigin() != null) {
+            ids[count] = record.getOrigin();
+            balances[count++] = record.getOriginBalance();
+        }
+        if (record.getDestination() != null) {
+            ids[count] = record.getDestination();
+            balances[count++] = record.getDestinationBalance();
+        }
+        return count;
+    }
+
+    private void ensureCapacity(int count) {
+        if (ids.length < count) {
+            int capacity = Math.max(count, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+        }
+    }
+
+    private void updatePrimarySequence(long sequence) {
+        primarySequence = sequence;
+        if (appliedSequence >= sequence) {
+            behindSinceNanos = 0L;
+        } else if (behindSinceNanos == 0L) {
+            behindSinceNanos = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.ebanx.accounts.replication;
+
+import com.ebanx.accounts.journal.AccountJournal;
+import com.ebanx.accounts.journal.JournalRecordCodec;
+import com.ebanx.accounts.journal.JournalRecordType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+
+/**
+ * Journal that numbers the records the repository appends and keeps the newest of them in memory for followers.
+ * Appends are forwarded to the journal it wraps (the write-ahead log, or none) under its own lock, so both see the
+ * records in the same order, and are encoded into a buffer that a background thread seals every batch delay into a
+ * deflated {@link ReplicationChunk}. Chunks are dropped oldest first once they take more than the retained bytes.
+ * <p>
+ * Records carry the balances they leave behind, so a follower that applies them in order from a sequence its state
+ * already covers converges on the primary's balances, even if that state was copied while writes went on.
+ */
+public class ReplicationLog implements AccountJournal, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicationLog.class);
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final AccountJournal delegate;
+    private final long id;
+    private final long predecessorId;
+    private final long firstSequence;
+    private final long batchDelayNanos;
+    private final long maxRetainedBytes;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final JournalRecordCodec codec = new JournalRecordCodec();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private int pendingRecords;
+    private volatile long sequence;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private ByteBuffer sealing = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private final ArrayDeque<ReplicationChunk> chunks = new ArrayDeque<>();
+    private long retainedBytes;
+    private long sealedSequence;
+    private long rawBytes;
+    private long deflatedBytes;
+
+    private final Thread sealer;
+    private volatile boolean closed;
+
+    /**
+     * @param predecessorId the log this one continues, whose first {@code firstSequence} records it shares, or
+     *                      {@link ReplicationProtocol#NO_LOG}
+     */
+    public ReplicationLog(AccountJournal delegate, long id, long predecessorId, long firstSequence,
+                          Duration batchDelay, long maxRetainedBytes) {
+        this.delegate = delegate;
+        this.id = id;
+        this.predecessorId = predecessorId;
+        this.firstSequence = firstSequence;
+        this.batchDelayNanos = batchDelay.toNanos();
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.sequence = firstSequence;
+        this.sealedSequence = firstSequence;
+        this.sealer = new Thread(this::runSealer, "account-replication-sealer");
+        sealer.setDaemon(true);
+        sealer.start();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the number of records appended since the stream began, those of the predecessor included.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public long append(JournalRecordType type, String origin, String destination, long amount, long originBalance,
+                       long destinationBalance) {
+        appendLock.lock();
+        try {
+            long ticket = delegate.append(type, origin, destination, amount, originBalance, destinationBalance);
+            encode(type, origin, destination, amount, originBalance, destinationBalance);
+            return ticket;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Keeps the append lock until {@link #endBatch}, so the group is never split across chunks.
+     */
+    @Override
+    public void beginBatch(int records) {
+        appendLock.lock();
+        try {
+            delegate.beginBatch(records);
+            encode(JournalRecordType.BATCH, null, null, records, 0L, 0L);
+        } catch (RuntimeException e) {
+            appendLock.unlock();
+            throw e;
+        }
+    }
+
+    @Override
+    public void endBatch() {
+        try {
+            delegate.endBatch();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long ticket) {
+        delegate.awaitDurable(ticket);
+    }
+
+    /**
+     * Seals every record appended so far into a chunk and returns the sequence the next chunk will start at.
+     */
+    public synchronized long seal() {
+        ByteBuffer sealed;
+        int records;
+        long next;
+        appendLock.lock();
+        try {
+            if (pendingRecords == 0) {
+                return sequence;
+            }
+            sealed = pending;
+            pending = sealing;
+            records = pendingRecords;
+            pendingRecords = 0;
+            next = sequence;
+        } finally {
+            appendLock.unlock();
+        }
+        ReplicationChunk chunk = new ReplicationChunk(next - records, records, sealed.position(),
+                ReplicationProtocol.deflate(deflater, sealed.array(), sealed.position()));
+        sealed.clear();
+        sealing = sealed;
+        synchronized (chunks) {
+            chunks.addLast(chunk);
+            retainedBytes += chunk.data().length;
+            rawBytes += chunk.rawLength();
+            deflatedBytes += chunk.data().length;
+            while (retainedBytes > maxRetainedBytes && chunks.size() > 1) {
+                retainedBytes -= chunks.removeFirst().data().length;
+            }
+            sealedSequence = next;
+            chunks.notifyAll();
+        }
+        return next;
+    }
+
+    /**
+     * Returns the chunk starting at the sequence, waiting up to the timeout for it to be sealed, or {@code null} if
+     * none was sealed in time or it is no longer retained (see {@link #retains}).
+     */
+    ReplicationChunk chunkAt(long sequence, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (chunks) {
+            while (sealedSequence <= sequence && !closed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                TimeUnit.NANOSECONDS.timedWait(chunks, remaining);
+            }
+            for (Iterator<ReplicationChunk> iterator = chunks.descendingIterator(); iterator.hasNext(); ) {
+                ReplicationChunk chunk = iterator.next();
+                if (chunk.firstSequence() <= sequence) {
+                    return chunk.firstSequence() == sequence ? chunk : null;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns how many bytes of records were sealed, before and after deflating.
+     */
+    long[] getSealedBytes() {
+        synchronized (chunks) {
+            return new long[] {rawBytes, deflatedBytes};
+        }
+    }
+
+    /**
+     * Returns whether every record from the sequence on can still be sent.
+     */
+    boolean retains(long sequence) {
+        synchronized (chunks) {
+            long oldest = chunks.isEmpty() ? sealedSequence : chunks.peekFirst().firstSequence();
+            return sequence >= oldest && sequence <= sealedSequence;
+        }
+    }
+
+    /**
+     * Returns whether a follower that applied the first {@code sequence} records of the log {@code logId} can
+     * continue from there, rather than start over from a snapshot.
+     */
+    boolean canContinue(long logId, long sequence) {
+        if (logId == id) {
+            return retains(sequence);
+        }
+        return logId == predecessorId && predecessorId != ReplicationProtocol.NO_LOG && sequence == firstSequence
+                && retains(sequence);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(sealer);
+        try {
+            sealer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        seal();
+        synchronized (chunks) {
+            chunks.notifyAll();
+        }
+        deflater.end();
+    }
+
+    private void encode(JournalRecordType type, String origin, String destination, long amount, long originBalance,
+                        long destinationBalance) {
+        int size = JournalRecordCodec.encodedSize(origin, destination);
+        if (pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        codec.encode(pending, type, origin, destination, amount, originBalance, destinationBalance);
+        pendingRecords++;
+        sequence++;
+    }
+
+    private void runSealer() {
+        while (!closed) {
+            LockSupport.parkNanos(batchDelayNanos);
+            try {
+                seal();
+            } catch (RuntimeException e) {
+                log.error("Failed to seal a replication chunk", e);
+            }
+        }
+    }
+}
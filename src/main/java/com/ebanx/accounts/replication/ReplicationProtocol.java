@@ -0,0 +1,77 @@
+package com.ebanx.accounts.replication;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stream from a primary to one follower. The follower opens the connection with
+ * {@code [int MAGIC][long log id][long sequence]}, naming the stream it followed and how many of its records it applied
+ * ({@link #NO_LOG} if none), and the primary answers with its own log id followed by frames, each a type byte and:
+ * <ul>
+ * <li>{@code CHUNK}: {@code [long first sequence][int records][int raw length][int deflated length][deflated records]
+ * [long primary sequence]}, the records in {@code JournalRecordCodec} layout;</li>
+ * <li>{@code HEARTBEAT}: {@code [long primary sequence]}, sent when no chunk was sealed for a heartbeat interval;</li>
+ * <li>{@code SNAPSHOT_BEGIN}: nothing, the follower drops every account;</li>
+ * <li>{@code SNAPSHOT}: {@code [int accounts][int raw length][int deflated length][deflated entries]}, each entry an id
+ * in {@code JournalRecordCodec} layout followed by a {@code long} balance;</li>
+ * <li>{@code SNAPSHOT_END}: {@code [long sequence]} the chunks continue from.</li>
+ * </ul>
+ * The primary sequence is the number of records the primary had appended when the frame was sent.
+ */
+final class ReplicationProtocol {
+    static final int MAGIC = 0x45425250;
+    static final long NO_LOG = 0L;
+
+    static final byte CHUNK = 1;
+    static final byte HEARTBEAT = 2;
+    static final byte SNAPSHOT_BEGIN = 3;
+    static final byte SNAPSHOT = 4;
+    static final byte SNAPSHOT_END = 5;
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private ReplicationProtocol() {}
+
+    /**
+     * Deflates the first {@code length} bytes of {@code raw} into a new array of exactly the deflated size.
+     */
+    static byte[] deflate(Deflater deflater, byte[] raw, int length) {
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        byte[] deflated = new byte[Math.max(64, length / 2)];
+        int deflatedLength = 0;
+        while (!deflater.finished()) {
+            if (deflatedLength == deflated.length) {
+                deflated = Arrays.copyOf(deflated, deflated.length * 2);
+            }
+            deflatedLength += deflater.deflate(deflated, deflatedLength, deflated.length - deflatedLength);
+        }
+        return deflatedLength == deflated.length ? deflated : Arrays.copyOf(deflated, deflatedLength);
+    }
+
+    static void inflate(Inflater inflater, byte[] deflated, int deflatedLength, byte[] raw, int rawLength)
+            throws IOException {
+        inflater.reset();
+        inflater.setInput(deflated, 0, deflatedLength);
+        try {
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, inflated, rawLength - inflated);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += read;
+            }
+            if (inflated != rawLength) {
+                throw new IOException("Replication frame inflated to " + inflated + " bytes instead of " + rawLength);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt replication frame", e);
+        }
+    }
+}
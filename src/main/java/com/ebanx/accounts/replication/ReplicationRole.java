@@ -0,0 +1,16 @@
+package com.ebanx.accounts.replication;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public enum ReplicationRole {
+    /**
+     * Accepts writes and streams them to its followers.
+     */
+    @JsonProperty("primary")
+    PRIMARY,
+    /**
+     * Applies the stream of a primary and serves reads only, until promoted.
+     */
+    @JsonProperty("follower")
+    FOLLOWER
+}
@@ -0,0 +1,210 @@
+package com.ebanx.accounts.replication;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.journal.JournalRecordCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import static com.ebanx.accounts.replication.ReplicationProtocol.*;
+
+/**
+ * Streams a {@link ReplicationLog} to followers, one thread per follower. A follower that can't continue from where it
+ * stopped, or that falls further behind than the log retains, first gets a snapshot of the repository: the log is
+ * sealed, every account is sent, and the chunks follow from the sealed sequence, which the snapshot already covers.
+ */
+public class ReplicationServer implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicationServer.class);
+
+    private final ReplicationLog replicationLog;
+    private final AccountRepository accountRepository;
+    private final long heartbeatNanos;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    public ReplicationServer(ReplicationLog replicationLog, AccountRepository accountRepository,
+                             InetSocketAddress address, Duration heartbeatInterval) throws IOException {
+        this.replicationLog = replicationLog;
+        this.accountRepository = accountRepository;
+        this.heartbeatNanos = heartbeatInterval.toNanos();
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        AtomicInteger threads = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "account-replication-sender-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.acceptor = new Thread(this::accept, "account-replication-acceptor");
+        acceptor.setDaemon(true);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getFollowers() {
+        return sockets.size();
+    }
+
+    public void start() {
+        acceptor.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the replication port", e);
+        }
+        for (Socket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // the sender notices and exits
+            }
+        }
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Failed to accept a replication connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+                    BUFFER_SIZE));
+            if (in.readInt() != MAGIC) {
+                throw new ProtocolException("Not a replication handshake");
+            }
+            long followedLog = in.readLong();
+            long next = in.readLong();
+            out.writeLong(replicationLog.getId());
+            if (!replicationLog.canContinue(followedLog, next)) {
+                next = sendSnapshot(out);
+            }
+            log.info("Follower {} streaming from {}", socket.getRemoteSocketAddress(), next);
+            while (!closed) {
+                ReplicationChunk chunk = replicationLog.chunkAt(next, heartbeatNanos);
+                if (chunk != null) {
+                    out.writeByte(CHUNK);
+                    out.writeLong(chunk.firstSequence());
+                    out.writeInt(chunk.records());
+                    out.writeInt(chunk.rawLength());
+                    out.writeInt(chunk.data().length);
+                    out.write(chunk.data());
+                    out.writeLong(replicationLog.getSequence());
+                    next = chunk.nextSequence();
+                } else if (replicationLog.retains(next)) {
+                    out.writeByte(HEARTBEAT);
+                    out.writeLong(replicationLog.getSequence());
+                } else {
+                    log.warn("Follower {} fell behind the retained log at {}, sending a snapshot",
+                            socket.getRemoteSocketAddress(), next);
+                    next = sendSnapshot(out);
+                }
+                out.flush();
+            }
+        } catch (EOFException | SocketException e) {
+            log.debug("Replication connection closed", e);
+        } catch (IOException e) {
+            log.warn("Replication connection failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Sends every account in blocks of at most {@link ReplicationProtocol#BUFFER_SIZE} bytes before deflating, and
+     * returns the sequence the chunks continue from.
+     */
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        long startedAt = System.nanoTime();
+        long sequence = replicationLog.seal();
+        out.writeByte(SNAPSHOT_BEGIN);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        ByteBuffer block = ByteBuffer.allocate(BUFFER_SIZE);
+        int[] accounts = new int[2];
+        try {
+            accountRepository.forEachAccount((id, balance) -> {
+                if (block.remaining() < JournalRecordCodec.idSize(id) + Long.BYTES) {
+                    writeSnapshotBlock(out, deflater, block, accounts[0]);
+                    accounts[0] = 0;
+                }
+                JournalRecordCodec.putId(block, id);
+                block.putLong(balance);
+                accounts[0]++;
+                accounts[1]++;
+            });
+            writeSnapshotBlock(out, deflater, block, accounts[0]);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            deflater.end();
+        }
+        out.writeByte(SNAPSHOT_END);
+        out.writeLong(sequence);
+        out.flush();
+        log.info("Sent a snapshot of {} accounts at sequence {} in {} ms", accounts[1], sequence,
+                (System.nanoTime() - startedAt) / 1_000_000);
+        return sequence;
+    }
+
+    private static void writeSnapshotBlock(DataOutputStream out, Deflater deflater, ByteBuffer block, int accounts) {
+        if (accounts == 0) {
+            return;
+        }
+        byte[] deflated = ReplicationProtocol.deflate(deflater, block.array(), block.position());
+        try {
+            out.writeByte(SNAPSHOT);
+            out.writeInt(accounts);
+            out.writeInt(block.position());
+            out.writeInt(deflated.length);
+            out.write(deflated);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        block.clear();
+    }
+}
@@ -0,0 +1,75 @@
+package com.ebanx.accounts.replication;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Position of this instance in the replication stream. Sequences count the records of the stream since it began, so
+ * the follower's lag in events is the primary's sequence minus its own. Only a follower reports the primary's sequence
+ * and its lag, and only a primary its followers.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReplicationStatus {
+    private final ReplicationRole role;
+    private final long sequence;
+    private final Long primarySequence;
+    private final Long lagEvents;
+    private final Long lagMillis;
+    private final Boolean connected;
+    private final Integer followers;
+
+    private ReplicationStatus(ReplicationRole role, long sequence, Long primarySequence, Long lagEvents,
+                              Long lagMillis, Boolean connected, Integer followers) {
+        this.role = role;
+        this.sequence = sequence;
+        this.primarySequence = primarySequence;
+        this.lagEvents = lagEvents;
+        this.lagMillis = lagMillis;
+        this.connected = connected;
+        this.followers = followers;
+    }
+
+    public static ReplicationStatus primary(long sequence, int followers) {
+        return new ReplicationStatus(ReplicationRole.PRIMARY, sequence, null, null, null, null, followers);
+    }
+
+    public static ReplicationStatus follower(long sequence, long primarySequence, long lagMillis, boolean connected) {
+        return new ReplicationStatus(ReplicationRole.FOLLOWER, sequence, primarySequence,
+                Math.max(0L, primarySequence - sequence), lagMillis, connected, null);
+    }
+
+    public ReplicationRole getRole() {
+        return role;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    @JsonProperty("primary_sequence")
+    public Long getPrimarySequence() {
+        return primarySequence;
+    }
+
+    @JsonProperty("lag_events")
+    public Long getLagEvents() {
+        return lagEvents;
+    }
+
+    /**
+     * How long the follower has known of records it hasn't applied yet, or since it last heard from the primary when
+     * disconnected; {@code 0} when it has applied everything the primary last reported.
+     */
+    @JsonProperty("lag_millis")
+    public Long getLagMillis() {
+        return lagMillis;
+    }
+
+    public Boolean getConnected() {
+        return connected;
+    }
+
+    public Integer getFollowers() {
+        return followers;
+    }
+}
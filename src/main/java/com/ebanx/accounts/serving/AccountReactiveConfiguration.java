@@ -0,0 +1,36 @@
+package com.ebanx.accounts.serving;
+
+import com.ebanx.accounts.journal.FsyncPolicy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class AccountReactiveConfiguration {
+
+    /**
+     * Serves on Netty even though Tomcat is on the classpath for the servlet modes.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Where {@code AccountService} calls run. They only touch memory and are cheaper to run on the event loop than to
+     * hand off, unless the journal makes every write wait for an fsync.
+     */
+    @Bean
+    public Scheduler accountServiceScheduler(Environment environment) {
+        boolean journalEnabled = environment.getProperty("accounts.journal.enabled", Boolean.class, false);
+        FsyncPolicy fsyncPolicy = environment.getProperty("accounts.journal.fsync-policy", FsyncPolicy.class,
+                FsyncPolicy.GROUP_COMMIT);
+        return journalEnabled && fsyncPolicy != FsyncPolicy.ASYNC ? Schedulers.boundedElastic()
+                : Schedulers.immediate();
+    }
+}
@@ -0,0 +1,74 @@
+package com.ebanx.accounts.serving;
+
+import com.ebanx.accounts.AccountController;
+import com.ebanx.accounts.AccountService;
+import com.ebanx.accounts.dtos.AccountBatchResultDto;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.exceptions.AccountReadOnlyException;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+
+/**
+ * Serves the {@code AccountController} API on WebFlux, delegating every request to the same handling so statuses
+ * and bodies match the servlet modes. A malformed NDJSON line fails the whole {@code /events} request with 400
+ * here, since the body is decoded before any event is applied.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(prefix = "accounts", name = {"pipeline.enabled", "cluster.enabled"}, havingValue = "false",
+        matchIfMissing = true)
+public class AccountReactiveController {
+    private final AccountController accountController;
+    private final Scheduler scheduler;
+
+    public AccountReactiveController(AccountService accountService, Scheduler accountServiceScheduler) {
+        this.accountController = new AccountController(accountService);
+        this.scheduler = accountServiceScheduler;
+    }
+
+    @RequestMapping(value="balance", method = RequestMethod.GET)
+    public Mono<ResponseEntity<Float>> getAccountBalance(@RequestParam("account_id") String accountId,
+                                                         @RequestParam(value = "as_of", required = false) String asOf){
+        return Mono.fromCallable(() -> accountController.getAccountBalance(accountId, asOf)).subscribeOn(scheduler);
+    }
+
+    @RequestMapping(value="event", method = RequestMethod.POST)
+    public Mono<ResponseEntity<?>> handleAccountEvent(@Valid @RequestBody AccountRequestDto accountRequestDto){
+        return Mono.<ResponseEntity<?>>fromCallable(() -> accountController.handleAccountEvent(accountRequestDto))
+                .subscribeOn(scheduler);
+    }
+
+    @RequestMapping(value="events", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<AccountBatchResultDto>>> handleAccountEvents(
+            @RequestBody List<AccountRequestDto> accountRequests,
+            @RequestParam(value = "atomic", defaultValue = "false") boolean atomic){
+        return Mono.fromCallable(() -> accountController.handleAccountEvents(accountRequests, atomic))
+                .subscribeOn(scheduler);
+    }
+
+    @RequestMapping(value="events", method = RequestMethod.POST, consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<List<AccountBatchResultDto>>> handleAccountEventStream(
+            @RequestBody Flux<AccountRequestDto> accountRequests,
+            @RequestParam(value = "atomic", defaultValue = "false") boolean atomic){
+        return accountRequests.collectList().flatMap(events -> handleAccountEvents(events, atomic));
+    }
+
+    @RequestMapping(value="reset", method = RequestMethod.POST)
+    public Mono<ResponseEntity<?>> resetDatabase(){
+        return Mono.<ResponseEntity<?>>fromCallable(accountController::resetDatabase).subscribeOn(scheduler);
+    }
+
+    @ExceptionHandler(AccountReadOnlyException.class)
+    public ResponseEntity<Void> readOnly() {
+        return accountController.readOnly();
+    }
+}
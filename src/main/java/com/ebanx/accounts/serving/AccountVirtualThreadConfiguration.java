@@ -0,0 +1,21 @@
+package com.ebanx.accounts.serving;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Fails startup when virtual threads are requested on a JVM that can't provide them, which Spring Boot would
+ * otherwise ignore and silently serve from the platform thread pool.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.threads.virtual", name = "enabled", havingValue = "true")
+public class AccountVirtualThreadConfiguration {
+    private static final int VIRTUAL_THREADS_VERSION = 21;
+
+    public AccountVirtualThreadConfiguration() {
+        if (Runtime.version().feature() < VIRTUAL_THREADS_VERSION) {
+            throw new IllegalStateException("spring.threads.virtual.enabled needs Java " + VIRTUAL_THREADS_VERSION
+                    + " or later but this is Java " + Runtime.version().feature());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ebanx.accounts.split;
+
+import com.ebanx.accounts.AccountRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.split", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AccountSplitProperties.class)
+public class AccountSplitConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public SplitBalancer splitBalancer(AccountRepository accountRepository, AccountSplitProperties properties,
+                                       Environment environment) {
+        for (String mode : new String[] {"journal", "pipeline", "cluster", "replication"}) {
+            if (environment.getProperty("accounts." + mode + ".enabled", Boolean.class, false)) {
+                throw new IllegalStateException("accounts.split.enabled can't be combined with accounts." + mode
+                        + ".enabled: split deposits don't record the balance each one leaves");
+            }
+        }
+        if (environment.getProperty("accounts.ledger.enabled", Boolean.class, true)) {
+            throw new IllegalStateException("accounts.split.enabled needs accounts.ledger.enabled=false: split "
+                    + "deposits don't record the balance each one leaves");
+        }
+        return new SplitBalancer(accountRepository, properties);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ebanx.accounts.split;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "accounts.split")
+public class AccountSplitProperties {
+    private boolean enabled;
+    private Duration window = Duration.ofSeconds(1);
+    private long minContention = 100;
+    private double minShare = 0.1;
+    private long minDeposits = 1000;
+    private int maxAccounts = 16;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public long getMinContention() {
+        return minContention;
+    }
+
+    public void setMinContention(long minContention) {
+        this.minContention = minContention;
+    }
+
+    public double getMinShare() {
+        return minShare;
+    }
+
+    public void setMinShare(double minShare) {
+        this.minShare = minShare;
+    }
+
+    public long getMinDeposits() {
+        return minDeposits;
+    }
+
+    public void setMinDeposits(long minDeposits) {
+        this.minDeposits = minDeposits;
+    }
+
+    public int getMaxAccounts() {
+        return maxAccounts;
+    }
+
+    public void setMaxAccounts(int maxAccounts) {
+        this.maxAccounts = maxAccounts;
+    }
+}
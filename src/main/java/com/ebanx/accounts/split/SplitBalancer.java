@@ -0,0 +1,79 @@
+package com.ebanx.accounts.split;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.metrics.HotAccountTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits and merges account balances from measured contention, once per window. An account is split when at least
+ * {@code minContention} of its deposits found the segment locked during the window and it took at least
+ * {@code minShare} of all such deposits; a split account is merged back once a window passes with fewer than
+ * {@code minDeposits} deposits to it.
+ */
+public class SplitBalancer implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SplitBalancer.class);
+    private static final int TRACKER_SLOTS = 16;
+
+    private final AccountRepository accountRepository;
+    private final AccountSplitProperties properties;
+    private final HotAccountTracker depositContention = new HotAccountTracker(TRACKER_SLOTS, 1);
+    private final ScheduledExecutorService scheduler;
+
+    public SplitBalancer(AccountRepository accountRepository, AccountSplitProperties properties) {
+        this.accountRepository = accountRepository;
+        this.properties = properties;
+        accountRepository.setDepositContention(depositContention);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-split-balancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1L, properties.getWindow().toMillis());
+        scheduler.scheduleWithFixedDelay(this::rebalanceQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        accountRepository.setDepositContention(null);
+    }
+
+    void rebalance() {
+        int split = 0;
+        for (Map.Entry<String, Long> deposits : accountRepository.drainSplitDeposits().entrySet()) {
+            if (deposits.getValue() < properties.getMinDeposits()) {
+                if (accountRepository.mergeBalance(deposits.getKey())) {
+                    log.info("Merged the balance of account {} after {} deposits", deposits.getKey(),
+                            deposits.getValue());
+                }
+            } else {
+                split++;
+            }
+        }
+        for (HotAccountTracker.HotAccount hot : depositContention.drain(properties.getMinShare())) {
+            if (split >= properties.getMaxAccounts()) {
+                break;
+            }
+            if (hot.samples() >= properties.getMinContention() && accountRepository.splitBalance(hot.accountId())) {
+                split++;
+                log.info("Split the balance of account {} after {} contended deposits", hot.accountId(),
+                        hot.samples());
+            }
+        }
+    }
+
+    private void rebalanceQuietly() {
+        try {
+            rebalance();
+        } catch (RuntimeException e) {
+            log.error("Rebalancing split accounts failed", e);
+        }
+    }
+}
@@ -1,37 +1,41 @@
 package com.ebanx.accounts;
 
+import com.ebanx.accounts.dtos.AccountBatchResultDto;
 import com.ebanx.accounts.dtos.AccountEventType;
 import com.ebanx.accounts.dtos.AccountRequestDto;
 import com.ebanx.accounts.dtos.AccountResponseDto;
+import com.ebanx.accounts.dtos.AccountTransactionPageDto;
+import com.ebanx.accounts.idempotency.IdempotencyCache;
+import com.ebanx.accounts.ledger.AccountLedger;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.when;
 import static org.springframework.test.util.AssertionErrors.*;
 
 
 @SpringBootTest
 public class AccountControllerTests {
-    @Mock
     private AccountRepository accountRepository;
 
-    @InjectMocks
     private AccountController accountController;
 
     private static Validator validator;
@@ -43,7 +47,7 @@ public class AccountControllerTests {
 
     @BeforeEach
     public void setUp() {
-        MockitoAnnotations.openMocks(this);
+        accountRepository = new AccountRepository();
         AccountService accountService = new AccountService(accountRepository);
         accountController = new AccountController(accountService);
     }
@@ -51,9 +55,9 @@ public class AccountControllerTests {
     @Test
     void getAccountBalanceTest() {
         String accountId = "1234";
-        float accountBalance = 123.456f;
-        AccountEntity accountEntity = new AccountEntity(accountId, accountBalance);
-        when(accountRepository.getAccountById(accountId)).thenReturn(Optional.of(accountEntity));
+        float accountBalance = 123.45f;
+        AccountEntity accountEntity = accountEntity(accountId, accountBalance);
+        accountRepository.putAccount(accountEntity);
 
         ResponseEntity<Float> response = accountController.getAccountBalance(accountId);
         assertEquals("Status should be 200 OK", HttpStatus.OK, response.getStatusCode());
@@ -72,7 +76,7 @@ public class AccountControllerTests {
     @Test
     void insertAccountWithBalanceTest() {
         String accountId = "1234";
-        float accountBalance = 123.456f;
+        float accountBalance = 123.45f;
 
         AccountRequestDto accountRequest = new AccountRequestDto(AccountEventType.DEPOSIT, accountBalance, accountId);
 
@@ -97,7 +101,7 @@ public class AccountControllerTests {
     @Test
     void insertAccountWrongBalanceTest() {
         String accountId = "1234";
-        AccountRequestDto accountRequest = new AccountRequestDto(AccountEventType.DEPOSIT, -123.456f, accountId);
+        AccountRequestDto accountRequest = new AccountRequestDto(AccountEventType.DEPOSIT, -123.45f, accountId);
         Set<ConstraintViolation<AccountRequestDto>> violations = validator.validate(accountRequest);
 
         assertThat(violations).hasSize(1);
@@ -113,9 +117,9 @@ public class AccountControllerTests {
     @Test
     void depositToAccountTest() {
         String accountId = "1234";
-        float accountBalance = 123.456f, offsetBalance = 20.f;
-        AccountEntity accountEntity = new AccountEntity(accountId, accountBalance);
-        when(accountRepository.getAccountById(accountId)).thenReturn(Optional.of(accountEntity));
+        float accountBalance = 123.45f, offsetBalance = 20.f;
+        AccountEntity accountEntity = accountEntity(accountId, accountBalance);
+        accountRepository.putAccount(accountEntity);
 
         ResponseEntity<Float> balanceResponse = accountController.getAccountBalance(accountId);
         assertEquals("Response body should be the actual account balance", accountBalance,
@@ -137,12 +141,25 @@ public class AccountControllerTests {
                 accountBalance + offsetBalance, balanceResponse.getBody());
     }
 
+    @Test
+    void depositCentsDoNotDriftTest() {
+        String accountId = "1234";
+        AccountRequestDto accountRequest = new AccountRequestDto(AccountEventType.DEPOSIT, 0.1f, accountId);
+
+        for (int i = 0; i < 1000; i++) {
+            accountController.handleAccountEvent(accountRequest);
+        }
+
+        assertEquals("Response body should be the exact sum of deposits", 100.0f,
+                accountController.getAccountBalance(accountId).getBody());
+    }
+
     @Test
     void withdrawFromAccountTest() {
         String accountId = "1234";
-        float accountBalance = 123.456f, offsetBalance = 20.f;
-        AccountEntity accountEntity = new AccountEntity(accountId, accountBalance);
-        when(accountRepository.getAccountById(accountId)).thenReturn(Optional.of(accountEntity));
+        float accountBalance = 123.45f, offsetBalance = 20.f;
+        AccountEntity accountEntity = accountEntity(accountId, accountBalance);
+        accountRepository.putAccount(accountEntity);
 
         ResponseEntity<Float> balanceResponse = accountController.getAccountBalance(accountId);
         assertEquals("Response body should be the actual account balance", accountBalance,
@@ -181,10 +198,10 @@ public class AccountControllerTests {
     @Test
     void withdrawFromAccountWrongBalanceTest() {
         String accountId = "1234";
-        float accountBalance = 123.456f, offsetBalance = 130.0f;
+        float accountBalance = 123.45f, offsetBalance = 130.0f;
 
-        AccountEntity accountEntity = new AccountEntity(accountId, accountBalance);
-        when(accountRepository.getAccountById(accountId)).thenReturn(Optional.of(accountEntity));
+        AccountEntity accountEntity = accountEntity(accountId, accountBalance);
+        accountRepository.putAccount(accountEntity);
 
         ResponseEntity<Float> balanceResponse = accountController.getAccountBalance(accountId);
         assertEquals("Response body should be the actual account balance", accountBalance,
@@ -205,12 +222,10 @@ public class AccountControllerTests {
     @Test
     void transferBetweenAccountsTest() {
         String originAccountId = "1234", destAccountId = "5678";
-        float originAccountBalance = 123.456f, destAccountBalance = 50.0f, offsetBalance = 23.456f;
+        float originAccountBalance = 123.45f, destAccountBalance = 50.0f, offsetBalance = 23.45f;
 
-        when(accountRepository.getAccountById(originAccountId)).thenReturn(
-                Optional.of(new AccountEntity(originAccountId, originAccountBalance)));
-        when(accountRepository.getAccountById(destAccountId)).thenReturn(
-                Optional.of(new AccountEntity(destAccountId, destAccountBalance)));
+        accountRepository.putAccount(accountEntity(originAccountId, originAccountBalance));
+        accountRepository.putAccount(accountEntity(destAccountId, destAccountBalance));
 
         assertEquals("OriginAccount balance doesn't match", originAccountBalance,
                 accountController.getAccountBalance(originAccountId).getBody());
@@ -241,10 +256,9 @@ public class AccountControllerTests {
     @Test
     void transferBetweenAccountsDestinationDoesntExistTest() {
         String originAccountId = "1234", destAccountId = "5678";
-        float originAccountBalance = 123.456f, offsetBalance = 23.456f;
+        float originAccountBalance = 123.45f, offsetBalance = 23.45f;
 
-        when(accountRepository.getAccountById(originAccountId)).thenReturn(
-                Optional.of(new AccountEntity(originAccountId, originAccountBalance)));
+        accountRepository.putAccount(accountEntity(originAccountId, originAccountBalance));
 
         assertEquals("OriginAccount balance doesn't match", originAccountBalance,
                 accountController.getAccountBalance(originAccountId).getBody());
@@ -276,10 +290,9 @@ public class AccountControllerTests {
     @Test
     void transferBetweenAccountsOriginDoesntExistTest() {
         String originAccountId = "1234", destAccountId = "5678";
-        float destAccountBalance = 123.456f, offsetBalance = 23.456f;
+        float destAccountBalance = 123.45f, offsetBalance = 23.45f;
 
-        when(accountRepository.getAccountById(destAccountId)).thenReturn(
-                Optional.of(new AccountEntity(destAccountId, destAccountBalance)));
+        accountRepository.putAccount(accountEntity(destAccountId, destAccountBalance));
 
         ResponseEntity<Float> originBalanceStatus = accountController.getAccountBalance(originAccountId);
         assertEquals("Status should be 404 NOT FOUND", HttpStatus.NOT_FOUND, originBalanceStatus.getStatusCode());
@@ -300,12 +313,10 @@ public class AccountControllerTests {
     @Test
     void transferBetweenAccountsWrongOffsetTest() {
         String originAccountId = "1234", destAccountId = "5678";
-        float originAccountBalance = 123.456f, destAccountBalance = 50.0f, offsetBalance = 2300.456f;
+        float originAccountBalance = 123.45f, destAccountBalance = 50.0f, offsetBalance = 2300.45f;
 
-        when(accountRepository.getAccountById(originAccountId)).thenReturn(
-                Optional.of(new AccountEntity(originAccountId, originAccountBalance)));
-        when(accountRepository.getAccountById(destAccountId)).thenReturn(
-                Optional.of(new AccountEntity(destAccountId, destAccountBalance)));
+        accountRepository.putAccount(accountEntity(originAccountId, originAccountBalance));
+        accountRepository.putAccount(accountEntity(destAccountId, destAccountBalance));
 
         assertEquals("OriginAccount balance doesn't match", originAccountBalance,
                 accountController.getAccountBalance(originAccountId).getBody());
@@ -325,4 +336,232 @@ public class AccountControllerTests {
         assertEquals("DestAccount balance doesn't match", destAccountBalance,
                 accountController.getAccountBalance(destAccountId).getBody());
     }
+
+    @Test
+    void handleAccountEventsBestEffortTest() {
+        List<AccountRequestDto> accountRequests = List.of(
+                new AccountRequestDto(AccountEventType.DEPOSIT, 100.0f, "100"),
+                new AccountRequestDto(AccountEventType.WITHDRAW, 10.0f, "200"),
+                new AccountRequestDto(AccountEventType.TRANSFER, 25.5f, "100", "300"),
+                new AccountRequestDto(AccountEventType.WITHDRAW, 500.0f, "100"));
+
+        ResponseEntity<List<AccountBatchResultDto>> response =
+                accountController.handleAccountEvents(accountRequests, false);
+        List<AccountBatchResultDto> results = Objects.requireNonNull(response.getBody());
+
+        assertEquals("Status should be 200 OK", HttpStatus.OK, response.getStatusCode());
+        assertEquals("Every event should have a result", 4, results.size());
+        assertEquals("Deposit should be created", 201, results.get(0).getStatus());
+        assertEquals("Wrong deposit balance", 100.0f, results.get(0).getResult().getDestination().getBalance());
+        assertEquals("Withdraw from missing account should be 404", 404, results.get(1).getStatus());
+        assertEquals("Transfer should be created", 201, results.get(2).getStatus());
+        assertEquals("Wrong origin balance", 74.5f, results.get(2).getResult().getOrigin().getBalance());
+        assertEquals("Wrong destination balance", 25.5f, results.get(2).getResult().getDestination().getBalance());
+        assertEquals("Overdraft should be 400", 400, results.get(3).getStatus());
+        assertEquals("Failed events shouldn't undo earlier ones", 74.5f,
+                accountController.getAccountBalance("100").getBody());
+    }
+
+    @Test
+    void handleAccountEventsAtomicTest() {
+        accountRepository.putAccount(accountEntity("100", 50.0f));
+        List<AccountRequestDto> accountRequests = List.of(
+                new AccountRequestDto(AccountEventType.DEPOSIT, 100.0f, "100"),
+                new AccountRequestDto(AccountEventType.TRANSFER, 120.0f, "100", "300"),
+                new AccountRequestDto(AccountEventType.WITHDRAW, 40.0f, "100"));
+
+        ResponseEntity<List<AccountBatchResultDto>> response =
+                accountController.handleAccountEvents(accountRequests, true);
+        List<AccountBatchResultDto> results = Objects.requireNonNull(response.getBody());
+
+        assertEquals("Status should be 400 BAD REQUEST", HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Events before the failure weren't applied", 424, results.get(0).getStatus());
+        assertEquals("Events before the failure weren't applied", 424, results.get(1).getStatus());
+        assertEquals("Overdraft should be 400", 400, results.get(2).getStatus());
+        assertEquals("Balance shouldn't change", 50.0f, accountController.getAccountBalance("100").getBody());
+        assertEquals("Transfer destination shouldn't be created", HttpStatus.NOT_FOUND,
+                accountController.getAccountBalance("300").getStatusCode());
+
+        response = accountController.handleAccountEvents(accountRequests.subList(0, 2), true);
+        results = Objects.requireNonNull(response.getBody());
+
+        assertEquals("Status should be 201 CREATED", HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("Wrong deposit balance", 150.0f, results.get(0).getResult().getDestination().getBalance());
+        assertEquals("Wrong origin balance", 30.0f, results.get(1).getResult().getOrigin().getBalance());
+        assertEquals("Wrong destination balance", 120.0f, accountController.getAccountBalance("300").getBody());
+    }
+
+    @Test
+    void handleAccountEventStreamTest() throws IOException {
+        String events = """
+                {"type":"deposit","destination":"100","amount":10}
+                not json
+
+                {"type":"transfer","origin":"100","destination":"200","amount":2.5}
+                {"type":"withdraw","origin":"100"}
+                """;
+
+        ResponseEntity<List<AccountBatchResultDto>> response = accountController.handleAccountEventStream(
+                new ByteArrayInputStream(events.getBytes(StandardCharsets.UTF_8)), false);
+        List<AccountBatchResultDto> results = Objects.requireNonNull(response.getBody());
+
+        assertEquals("Blank lines shouldn't produce results", 4, results.size());
+        assertEquals("Deposit should be created", 201, results.get(0).getStatus());
+        assertEquals("Malformed line should be 400", 400, results.get(1).getStatus());
+        assertEquals("Transfer should be created", 201, results.get(2).getStatus());
+        assertEquals("Missing amount should be 400", 400, results.get(3).getStatus());
+        assertEquals("Wrong balance", 7.5f, accountController.getAccountBalance("100").getBody());
+    }
+
+    @Test
+    void retriedEventWithIdempotencyKeyIsAppliedOnceTest() {
+        AccountService accountService = new AccountService(accountRepository);
+        accountService.setIdempotencyCache(new IdempotencyCache(4, 100, Long.MAX_VALUE));
+        accountController = new AccountController(accountService);
+        accountRepository.putAccount(accountEntity("100", 50.0f));
+        AccountRequestDto transfer = new AccountRequestDto(AccountEventType.TRANSFER, 20.0f, "100", "300");
+        transfer.setIdempotencyKey("retry-1");
+
+        ResponseEntity<?> first = accountController.handleAccountEvent(transfer);
+        ResponseEntity<?> retry = accountController.handleAccountEvent(transfer);
+
+        assertEquals("Status should be 201 CREATED", HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals("Retry should return the original response", first.getBody(), retry.getBody());
+        assertEquals("Transfer should be applied once", 30.0f, accountController.getAccountBalance("100").getBody());
+
+        AccountRequestDto overdraft = new AccountRequestDto(AccountEventType.WITHDRAW, 100.0f, "100");
+        overdraft.setIdempotencyKey("retry-2");
+        accountController.handleAccountEvent(overdraft);
+        accountRepository.putAccount(accountEntity("100", 500.0f));
+        assertEquals("Retry should repeat the decline", HttpStatus.BAD_REQUEST,
+                accountController.handleAccountEvent(overdraft).getStatusCode());
+        assertEquals("Declined withdraw shouldn't be applied", 500.0f,
+                accountController.getAccountBalance("100").getBody());
+    }
+
+    @Test
+    void idempotencyKeyReusedForAnotherEventTest() {
+        AccountService accountService = new AccountService(accountRepository);
+        accountService.setIdempotencyCache(new IdempotencyCache(4, 100, Long.MAX_VALUE));
+        accountController = new AccountController(accountService);
+        AccountRequestDto deposit = new AccountRequestDto(AccountEventType.DEPOSIT, 10.0f, "100");
+        deposit.setIdempotencyKey("key");
+        AccountRequestDto otherDeposit = new AccountRequestDto(AccountEventType.DEPOSIT, 15.0f, "100");
+        otherDeposit.setIdempotencyKey("key");
+
+        accountController.handleAccountEvent(deposit);
+        ResponseEntity<?> response = accountController.handleAccountEvent(otherDeposit);
+
+        assertEquals("Status should be 422 UNPROCESSABLE ENTITY", HttpStatus.UNPROCESSABLE_ENTITY,
+                response.getStatusCode());
+        assertEquals("Second deposit shouldn't be applied", 10.0f,
+                accountController.getAccountBalance("100").getBody());
+
+        AccountRequestDto depositToAa = new AccountRequestDto(AccountEventType.DEPOSIT, 10.0f, "Aa");
+        depositToAa.setIdempotencyKey("colliding");
+        AccountRequestDto depositToBB = new AccountRequestDto(AccountEventType.DEPOSIT, 10.0f, "BB");
+        depositToBB.setIdempotencyKey("colliding");
+        accountController.handleAccountEvent(depositToAa);
+        assertEquals("Ids with equal hash codes should still tell the events apart", HttpStatus.UNPROCESSABLE_ENTITY,
+                accountController.handleAccountEvent(depositToBB).getStatusCode());
+    }
+
+    @Test
+    void idempotencyKeysAreForgottenOnResetTest() {
+        AccountService accountService = new AccountService(accountRepository);
+        accountService.setIdempotencyCache(new IdempotencyCache(4, 100, Long.MAX_VALUE));
+        accountController = new AccountController(accountService);
+        AccountRequestDto deposit = new AccountRequestDto(AccountEventType.DEPOSIT, 10.0f, "100");
+        deposit.setIdempotencyKey("key");
+        accountController.handleAccountEvent(deposit);
+
+        accountController.resetDatabase();
+        ResponseEntity<?> response = accountController.handleAccountEvent(deposit);
+
+        assertEquals("Status should be 201 CREATED", HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("Deposit should be applied again after the reset", 10.0f,
+                accountController.getAccountBalance("100").getBody());
+    }
+
+    @Test
+    void atomicBatchRejectsIdempotencyKeysTest() {
+        AccountService accountService = new AccountService(accountRepository);
+        accountService.setIdempotencyCache(new IdempotencyCache(4, 100, Long.MAX_VALUE));
+        accountController = new AccountController(accountService);
+        AccountRequestDto keyed = new AccountRequestDto(AccountEventType.DEPOSIT, 15.0f, "100");
+        keyed.setIdempotencyKey("key");
+        List<AccountRequestDto> accountRequests = List.of(
+                new AccountRequestDto(AccountEventType.DEPOSIT, 10.0f, "100"), keyed);
+
+        ResponseEntity<List<AccountBatchResultDto>> response =
+                accountController.handleAccountEvents(accountRequests, true);
+        List<AccountBatchResultDto> results = Objects.requireNonNull(response.getBody());
+
+        assertEquals("Status should be 400 BAD REQUEST", HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Other events weren't applied", 424, results.get(0).getStatus());
+        assertEquals("Keyed event should be 400", 400, results.get(1).getStatus());
+        assertEquals("No event should be applied", HttpStatus.NOT_FOUND,
+                accountController.getAccountBalance("100").getStatusCode());
+    }
+
+    @Test
+    void accountTransactionsArePagedAndExportedTest() throws IOException {
+        AccountService accountService = new AccountService(accountRepository);
+        AccountLedger ledger = new AccountLedger(4, accountRepository.getAccountIds());
+        accountRepository.setLedger(ledger);
+        accountService.setLedger(ledger);
+        accountController = new AccountController(accountService);
+        accountController.handleAccountEvent(new AccountRequestDto(AccountEventType.DEPOSIT, 10.0f, "100"));
+        accountController.handleAccountEvent(new AccountRequestDto(AccountEventType.TRANSFER, 4.0f, "100", "200"));
+        accountController.handleAccountEvent(new AccountRequestDto(AccountEventType.WITHDRAW, 1.0f, "100"));
+
+        ResponseEntity<?> first = accountController.getAccountTransactions("100", null, 2);
+        assertEquals("Status should be 200 OK", HttpStatus.OK, first.getStatusCode());
+        AccountTransactionPageDto page = (AccountTransactionPageDto) Objects.requireNonNull(first.getBody());
+        assertEquals("Wrong page size", 2, page.getTransactions().size());
+        assertEquals("Newest transaction should come first", AccountEventType.WITHDRAW,
+                page.getTransactions().get(0).getType());
+        assertEquals("Wrong resulting balance", 6.0f, page.getTransactions().get(1).getOrigin().getBalance());
+        AccountTransactionPageDto last = (AccountTransactionPageDto) Objects.requireNonNull(
+                accountController.getAccountTransactions("100", page.getNext(), 2).getBody());
+        assertEquals("Wrong last page", AccountEventType.DEPOSIT, last.getTransactions().get(0).getType());
+        assertNull("Last page shouldn't have a cursor", last.getNext());
+
+        assertEquals("Status should be 404 NOT FOUND", HttpStatus.NOT_FOUND,
+                accountController.getAccountTransactions("300", null, 2).getStatusCode());
+        assertEquals("Status should be 400 BAD REQUEST", HttpStatus.BAD_REQUEST,
+                accountController.getAccountTransactions("200", 0L, 2).getStatusCode());
+
+        ByteArrayOutputStream export = new ByteArrayOutputStream();
+        Objects.requireNonNull(accountController.exportTransactions().getBody()).writeTo(export);
+        String[] lines = export.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("Every transaction should be exported", 3, lines.length);
+        assertTrue("Export should start at the oldest transaction", lines[0].contains("\"deposit\""));
+    }
+
+    @Test
+    void getAccountBalanceAsOfTest() {
+        AccountService accountService = new AccountService(accountRepository);
+        AccountLedger ledger = new AccountLedger(4, accountRepository.getAccountIds());
+        accountRepository.setLedger(ledger);
+        accountService.setLedger(ledger);
+        accountController = new AccountController(accountService);
+        accountController.handleAccountEvent(new AccountRequestDto(AccountEventType.DEPOSIT, 10.0f, "100"));
+        accountController.handleAccountEvent(new AccountRequestDto(AccountEventType.WITHDRAW, 4.0f, "100"));
+
+        assertEquals("Wrong balance as of the deposit", 10.0f,
+                accountController.getAccountBalance("100", "1").getBody());
+        assertEquals("Wrong balance as of now", 6.0f,
+                accountController.getAccountBalance("100", Instant.now().plusSeconds(60).toString()).getBody());
+        assertEquals("Status should be 404 NOT FOUND", HttpStatus.NOT_FOUND,
+                accountController.getAccountBalance("100", "0").getStatusCode());
+        assertEquals("Status should be 400 BAD REQUEST", HttpStatus.BAD_REQUEST,
+                accountController.getAccountBalance("100", "3").getStatusCode());
+        assertEquals("Status should be 400 BAD REQUEST", HttpStatus.BAD_REQUEST,
+                accountController.getAccountBalance("100", "yesterday").getStatusCode());
+    }
+
+    private static AccountEntity accountEntity(String accountId, float balance) {
+        return new AccountEntity(accountId, AccountMapper.toMinorUnits(new BigDecimal(Float.toString(balance))));
+    }
 }
@@ -0,0 +1,106 @@
+package com.ebanx.accounts;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Events per second through the single-event {@code /event} endpoint against {@code /events} batches sent as a JSON
+ * array and as NDJSON, best-effort and atomic. Every request is sent sequentially from one client so the figures
+ * compare per-request overhead rather than server concurrency. Run with
+ * {@code ./gradlew benchmark --tests '*AccountEventsEndpointBenchmark'}, optionally overriding
+ * {@code -Daccounts.events.count=200000}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class AccountEventsEndpointBenchmark {
+    private static final int DEFAULT_EVENTS = 200_000;
+    private static final int[] BATCH_SIZES = {10, 100, 1000};
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String JSON = "application/json";
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void eventsThroughputReport() throws Exception {
+        int events = Integer.getInteger("accounts.events.count", DEFAULT_EVENTS);
+        System.out.printf("%-10s %-8s %-7s %12s%n", "endpoint", "format", "batch", "events/s");
+
+        reset();
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            post("/event", JSON, event(i));
+        }
+        report("/event", "json", "1", events, startedAt);
+
+        for (int batchSize : BATCH_SIZES) {
+            for (boolean atomic : new boolean[] {false, true}) {
+                String path = "/events?atomic=" + atomic;
+                String mode = batchSize + (atomic ? "a" : "");
+                reset();
+                startedAt = System.nanoTime();
+                for (int i = 0; i < events; i += batchSize) {
+                    post(path, JSON, jsonArray(i, batchSize));
+                }
+                report("/events", "json", mode, events, startedAt);
+
+                reset();
+                startedAt = System.nanoTime();
+                for (int i = 0; i < events; i += batchSize) {
+                    post(path, NDJSON, ndjson(i, batchSize));
+                }
+                report("/events", "ndjson", mode, events, startedAt);
+            }
+        }
+    }
+
+    private static String event(int i) {
+        return "{\"type\":\"deposit\",\"destination\":\"" + (i % 10_000) + "\",\"amount\":1.25}";
+    }
+
+    private static String jsonArray(int first, int size) {
+        StringBuilder body = new StringBuilder(size * 64).append('[');
+        for (int i = first; i < first + size; i++) {
+            body.append(i == first ? "" : ",").append(event(i));
+        }
+        return body.append(']').toString();
+    }
+
+    private static String ndjson(int first, int size) {
+        StringBuilder body = new StringBuilder(size * 64);
+        for (int i = first; i < first + size; i++) {
+            body.append(event(i)).append('\n');
+        }
+        return body.toString();
+    }
+
+    private void reset() throws IOException, InterruptedException {
+        post("/reset", JSON, "");
+    }
+
+    private void post(String path, String contentType, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(path + " answered " + response.statusCode());
+        }
+    }
+
+    private static void report(String endpoint, String format, String batch, int events, long startedAt) {
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        System.out.printf("%-10s %-8s %-7s %12.0f%n", endpoint, format, batch, events / seconds);
+    }
+}
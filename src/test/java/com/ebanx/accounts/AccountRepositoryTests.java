@@ -0,0 +1,318 @@
+package com.ebanx.accounts;
+
+import com.ebanx.accounts.dtos.AccountEventType;
+import com.ebanx.accounts.exceptions.AccountNotFoundException;
+import com.ebanx.accounts.reads.ReadConsistency;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class AccountRepositoryTests {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 10_000;
+
+    private AccountRepository accountRepository;
+
+    @BeforeEach
+    public void setUp() {
+        accountRepository = new AccountRepository();
+    }
+
+    @Test
+    void createOrCreditCreatesMissingAccountTest() {
+        long balance = accountRepository.createOrCreditAccount("100", 1000L);
+
+        assertEquals("Wrong account balance", 1000L, balance);
+        assertEquals("Account should be stored", 1000L, accountRepository.getBalance("100"));
+        assertEquals("Repository should hold one account", 1, accountRepository.getSize());
+    }
+
+    @Test
+    void creditMissingAccountTest() {
+        assertEquals("Credit shouldn't create accounts", AccountRepository.NO_ACCOUNT,
+                accountRepository.creditAccount("100", 1000L));
+        assertEquals("Repository should be empty", 0, accountRepository.getSize());
+    }
+
+    @Test
+    void debitWithLowerBalanceTest() {
+        accountRepository.putAccount(new AccountEntity("100", 1000L));
+
+        assertEquals("Debit should be declined", AccountRepository.INSUFFICIENT_FUNDS,
+                accountRepository.debitAccount("100", 2000L));
+        assertEquals("Balance shouldn't change", 1000L, accountRepository.getBalance("100"));
+    }
+
+    @Test
+    void concurrentDepositsToSameAccountAreNotLostTest() throws Exception {
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                accountRepository.createOrCreditAccount("100", 1L);
+            }
+            return null;
+        });
+
+        assertEquals("Every deposit should be applied", (long) THREADS * OPERATIONS_PER_THREAD,
+                accountRepository.getBalance("100"));
+    }
+
+    @Test
+    void concurrentDepositsToDisjointAccountsTest() throws Exception {
+        AtomicInteger threadIds = new AtomicInteger();
+        runConcurrently(() -> {
+            int threadId = threadIds.getAndIncrement();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                accountRepository.createOrCreditAccount(threadId + "-" + (i % 100), 1L);
+            }
+            return null;
+        });
+
+        assertEquals("Every thread should create its own accounts", THREADS * 100, accountRepository.getSize());
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertEquals("Every deposit should be applied", (long) OPERATIONS_PER_THREAD / 100,
+                    accountRepository.getBalance(thread + "-0"));
+        }
+    }
+
+    @Test
+    void concurrentWithdrawsNeverOverdrawTest() throws Exception {
+        int initialBalance = OPERATIONS_PER_THREAD;
+        accountRepository.putAccount(new AccountEntity("100", initialBalance));
+        AtomicInteger accepted = new AtomicInteger();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                if (accountRepository.debitAccount("100", 1L) != AccountRepository.INSUFFICIENT_FUNDS) {
+                    accepted.incrementAndGet();
+                }
+            }
+            return null;
+        });
+
+        assertEquals("Only the available balance should be withdrawn", initialBalance, accepted.get());
+        assertEquals("Balance should be exhausted", 0L, accountRepository.getBalance("100"));
+    }
+
+    @Test
+    void tableGrowsPastInitialCapacityTest() {
+        accountRepository = new AccountRepository(2, 0);
+        for (int i = 0; i < 100_000; i++) {
+            accountRepository.createOrCreditAccount(String.valueOf(i), i);
+        }
+
+        assertEquals("Every account should be stored", 100_000, accountRepository.getSize());
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals("Balance should survive resizes", (long) i, accountRepository.getBalance(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    void concurrentAtomicBatchesConserveMoneyTest() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            accountRepository.putAccount(new AccountEntity(String.valueOf(i), 1000L));
+        }
+        AtomicInteger threadIds = new AtomicInteger();
+
+        runConcurrently(() -> {
+            int threadId = threadIds.getAndIncrement();
+            for (int i = 0; i < OPERATIONS_PER_THREAD / 10; i++) {
+                AccountBatch batch = new AccountBatch(3);
+                String origin = String.valueOf((threadId + i) % 10);
+                batch.add(AccountEventType.TRANSFER, origin, String.valueOf((threadId + i + 3) % 10), 400L);
+                batch.add(AccountEventType.TRANSFER, origin, String.valueOf((threadId + i + 7) % 10), 400L);
+                batch.add(AccountEventType.TRANSFER, String.valueOf((threadId + i + 3) % 10), origin, 300L);
+                accountRepository.applyAtomically(batch);
+                accountRepository.transferBetweenAccounts(String.valueOf(i % 10), String.valueOf(threadId % 10), 1L);
+            }
+            return null;
+        });
+
+        long total = 0;
+        for (int i = 0; i < 10; i++) {
+            long balance = accountRepository.getBalance(String.valueOf(i));
+            assertTrue("Balance should never be negative", balance >= 0);
+            total += balance;
+        }
+        assertEquals("Batches shouldn't create or destroy money", 10_000L, total);
+    }
+
+    @Test
+    void failedAtomicBatchChangesNothingTest() {
+        accountRepository.putAccount(new AccountEntity("100", 1000L));
+        AccountBatch batch = new AccountBatch(3);
+        batch.add(AccountEventType.DEPOSIT, null, "200", 500L);
+        batch.add(AccountEventType.TRANSFER, "100", "300", 800L);
+        batch.add(AccountEventType.WITHDRAW, "400", null, 1L);
+
+        assertFalse("Batch should fail", accountRepository.applyAtomically(batch));
+        assertEquals("Wrong failed event", 2, batch.getFailedIndex());
+        assertTrue("Wrong failure", batch.getFailure() instanceof AccountNotFoundException);
+        assertEquals("Balance shouldn't change", 1000L, accountRepository.getBalance("100"));
+        assertEquals("No account should be created", 1, accountRepository.getSize());
+    }
+
+    @Test
+    void numericAndOtherIdsAreDistinctAccountsTest() {
+        List<String> ids = List.of("0", "100", "0100", "-100", "100 ", "conta", "999999999999999999",
+                "1000000000000000000", "");
+        for (int i = 0; i < ids.size(); i++) {
+            accountRepository.createOrCreditAccount(ids.get(i), i + 1L);
+        }
+        accountRepository.transferBetweenAccounts("0100", "conta", 3L);
+
+        List<String> stored = new ArrayList<>();
+        accountRepository.forEachAccount((id, balance) -> stored.add(id));
+        assertEquals("Every id should be its own account", ids.size(), stored.size());
+        assertTrue("Ids should be kept as given", stored.containsAll(ids));
+        assertEquals("Wrong balance for a leading zero id", 0L, accountRepository.getBalance("0100"));
+        assertEquals("Wrong balance for an interned id", 9L, accountRepository.getBalance("conta"));
+        assertEquals("Wrong balance for a numeric id", 2L, accountRepository.getBalance(new String("100")));
+        assertEquals("Unknown ids shouldn't be found", AccountRepository.NO_ACCOUNT,
+                accountRepository.debitAccount("never-stored", 1L));
+        assertEquals("Unknown ids shouldn't be interned", AccountIds.NO_KEY,
+                accountRepository.getAccountIds().find("never-stored"));
+    }
+
+    @Test
+    void declinedEventsDontInternIdsTest() {
+        accountRepository.createOrCreditAccount("conta", 5L);
+        accountRepository.transferBetweenAccounts("conta", "declined-transfer", 10L);
+        accountRepository.transferBetweenAccounts("missing-origin", "declined-destination", 1L);
+        AccountBatch batch = new AccountBatch(2);
+        batch.add(AccountEventType.DEPOSIT, null, "rejected-batch", 1L);
+        batch.add(AccountEventType.WITHDRAW, "missing-account", null, 1L);
+        accountRepository.applyAtomically(batch);
+        accountRepository.getBalance("read-only");
+
+        AccountIds accountIds = accountRepository.getAccountIds();
+        for (String id : List.of("declined-transfer", "missing-origin", "declined-destination", "rejected-batch",
+                "missing-account", "read-only")) {
+            assertEquals("Id " + id + " shouldn't be interned", AccountIds.NO_KEY, accountIds.find(id));
+        }
+        assertEquals("Wrong balance", 5L, accountRepository.getBalance("conta"));
+        assertEquals("No account should be created", 1, accountRepository.getSize());
+    }
+
+    @Test
+    void resetClearsInternedIdsTest() {
+        accountRepository.createOrCreditAccount("conta", 5L);
+        AccountIds accountIds = accountRepository.getAccountIds();
+        long key = accountIds.find("conta");
+
+        accountRepository.emptyDatabase();
+
+        assertEquals("Reset should drop interned ids", AccountIds.NO_KEY, accountIds.find("conta"));
+        assertNull("Keys from before the reset shouldn't resolve", accountIds.idOf(key));
+        accountRepository.putBalances(new long[] {key}, new long[] {7L}, 1);
+        assertEquals("Keys from before the reset should be skipped", 0, accountRepository.getSize());
+        accountRepository.createOrCreditAccount("conta", 3L);
+        assertNotEquals("Keys shouldn't be reused after a reset", key, accountIds.find("conta"));
+        assertEquals("Wrong balance after the reset", 3L, accountRepository.getBalance("conta"));
+    }
+
+    @Test
+    void readsDuringWritesAndResizesSeeEveryCompletedWriteTest() throws Exception {
+        accountRepository = new AccountRepository(2, 0);
+        accountRepository.putBalance("hot", 0L);
+        AtomicInteger threadIds = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        runConcurrently(() -> {
+            if (threadIds.getAndIncrement() == 0) {
+                for (int i = 0; i < OPERATIONS_PER_THREAD * 10; i++) {
+                    accountRepository.createOrCreditAccount("hot", 1L);
+                    accountRepository.createOrCreditAccount(String.valueOf(i), 1L);
+                }
+                writing.set(false);
+                return null;
+            }
+            long previous = 0L;
+            while (writing.get()) {
+                long balance = accountRepository.getBalance("hot");
+                assertTrue("Reads should never go back in time, got " + balance + " after " + previous,
+                        balance >= previous);
+                previous = balance;
+            }
+            return null;
+        });
+
+        assertEquals("Every deposit should be applied", OPERATIONS_PER_THREAD * 10L,
+                accountRepository.getBalance("hot"));
+    }
+
+    @Test
+    void boundedStalenessReadsServePublishedSnapshotTest() {
+        accountRepository.putBalance("100", 1000L);
+        accountRepository.setReadConsistency(ReadConsistency.BOUNDED_STALENESS);
+        assertEquals("Reads should be live until a snapshot is published", 1000L,
+                accountRepository.getBalance("100"));
+
+        assertEquals("Every segment should be published once", 1024, accountRepository.publishSnapshots());
+        accountRepository.creditAccount("100", 500L);
+        accountRepository.putBalance("200", 1L);
+        assertEquals("Reads should come from the snapshot", 1000L, accountRepository.getBalance("100"));
+        assertEquals("New accounts should wait for the next snapshot", AccountRepository.NO_ACCOUNT,
+                accountRepository.getBalance("200"));
+
+        assertTrue("Only changed segments should be republished", accountRepository.publishSnapshots() <= 2);
+        assertEquals("Reads should catch up with the snapshot", 1500L, accountRepository.getBalance("100"));
+        assertEquals("New accounts should be published", 1L, accountRepository.getBalance("200"));
+        assertEquals("Nothing should be republished without writes", 0, accountRepository.publishSnapshots());
+    }
+
+    @Test
+    void snapshotsCopyOnlyWrittenPagesTest() {
+        accountRepository = new AccountRepository(2, 0);
+        accountRepository.setReadConsistency(ReadConsistency.BOUNDED_STALENESS);
+        for (int i = 0; i < 5_000; i++) {
+            accountRepository.putBalance(Integer.toString(i), i);
+        }
+        accountRepository.publishSnapshots();
+
+        accountRepository.creditAccount("1234", 1_000_000L);
+        accountRepository.putBalance("conta", 7L);
+        accountRepository.publishSnapshots();
+        for (int i = 0; i < 5_000; i++) {
+            long expected = i == 1234 ? 1_001_234L : i;
+            assertEquals("Wrong balance read from the snapshot", expected,
+                    accountRepository.getBalance(Integer.toString(i)));
+        }
+        assertEquals("New accounts should be published", 7L, accountRepository.getBalance("conta"));
+
+        for (int i = 5_000; i < 20_000; i++) {
+            accountRepository.putBalance(Integer.toString(i), i);
+        }
+        accountRepository.publishSnapshots();
+        assertEquals("Resized tables should be published whole", 19_999L, accountRepository.getBalance("19999"));
+        assertEquals("Resized tables should keep every account", 4_999L, accountRepository.getBalance("4999"));
+
+        accountRepository.emptyDatabase();
+        accountRepository.publishSnapshots();
+        assertEquals("Reset should be published", AccountRepository.NO_ACCOUNT, accountRepository.getBalance("4999"));
+    }
+
+    private void runConcurrently(Callable<Void> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
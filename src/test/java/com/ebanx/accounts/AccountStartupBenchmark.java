@@ -0,0 +1,137 @@
+package com.ebanx.accounts;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Time from launching the JVM to the first {@code /balance} answered by the controller, and the resident memory of the
+ * process at that moment, for the stock boot jar and for the extracted application with the class-data-sharing
+ * archive, without and with the AOT bean definitions. Each mode starts {@code -Daccounts.startup.runs} times (default
+ * 5) and reports the medians. The artifacts come from {@code ./gradlew -Paot cdsArchive}, so run with
+ * {@code ./gradlew -Paot cdsArchive benchmark --tests '*AccountStartupBenchmark'}; {@code -Daccounts.startup.modes}
+ * picks among {@code stock,cds,cds+aot}. Memory is read from {@code /proc} and is only reported on Linux.
+ */
+@Tag("benchmark")
+public class AccountStartupBenchmark {
+    private static final Path LIBS = Path.of("build", "libs");
+    private static final Path CDS = Path.of("build", "cds");
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+    @Test
+    void startupReport() throws Exception {
+        int runs = Integer.getInteger("accounts.startup.runs", 5);
+        String[] modes = System.getProperty("accounts.startup.modes", "stock,cds,cds+aot").split(",");
+        System.out.printf("%-8s %18s %10s%n", "mode", "first /balance ms", "RSS MB");
+        for (String mode : modes) {
+            List<String> command = command(mode.trim());
+            long[] millis = new long[runs];
+            long[] rss = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                long[] result = start(command);
+                millis[run] = result[0];
+                rss[run] = result[1];
+            }
+            Arrays.sort(millis);
+            Arrays.sort(rss);
+            System.out.printf("%-8s %18d %10s%n", mode.trim(), millis[runs / 2],
+                    rss[runs / 2] < 0 ? "n/a" : String.valueOf(rss[runs / 2] / 1024));
+        }
+    }
+
+    private static List<String> command(String mode) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (mode.equals("stock")) {
+            command.add("-jar");
+            command.add(bootJar().toString());
+            return command;
+        }
+        command.add("-XX:SharedArchiveFile=" + CDS.resolve("application.jsa"));
+        command.add("-Dspring.aot.enabled=" + mode.equals("cds+aot"));
+        command.add("-jar");
+        command.add(CDS.resolve("application").resolve(bootJar().getFileName()).toString());
+        return command;
+    }
+
+    private static Path bootJar() throws IOException {
+        try (var jars = Files.list(LIBS)) {
+            return jars.filter(jar -> jar.toString().endsWith(".jar") && !jar.toString().endsWith("-plain.jar"))
+                    .findFirst().orElseThrow(() -> new IllegalStateException("Run ./gradlew -Paot cdsArchive first"));
+        }
+    }
+
+    /**
+     * Returns the milliseconds until the controller answered and the resident memory in KB, or -1 if unknown.
+     */
+    private long[] start(List<String> command) throws Exception {
+        int port = freePort();
+        List<String> withPort = new ArrayList<>(command);
+        withPort.add("--server.port=" + port);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/balance?account_id=1"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        long startedAt = System.nanoTime();
+        Process process = new ProcessBuilder(withPort).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.to(new File(System.getProperty("java.io.tmpdir"),
+                        "accounts-startup.log")))
+                .start();
+        try {
+            while (System.nanoTime() - startedAt < STARTUP_TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The application exited with " + process.exitValue()
+                            + ", see accounts-startup.log in " + System.getProperty("java.io.tmpdir"));
+                }
+                try {
+                    int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    if (status == 200 || status == 404) {
+                        long millis = (System.nanoTime() - startedAt) / 1_000_000L;
+                        return new long[] {millis, residentKilobytes(process.pid())};
+                    }
+                } catch (ConnectException e) {
+                    // not listening yet
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException("The application didn't answer within " + STARTUP_TIMEOUT);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static long residentKilobytes(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return -1L;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1L;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
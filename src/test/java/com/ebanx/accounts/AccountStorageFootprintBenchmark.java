@@ -0,0 +1,160 @@
+package com.ebanx.accounts;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Before/after heap footprint and GC report for account storage: the original {@code HashMap} of boxed
+ * {@code Float} entities against {@link AccountRepository}'s primitive segments. Run with
+ * {@code ./gradlew benchmark --tests '*AccountStorageFootprintBenchmark'} and a large enough heap, optionally
+ * overriding {@code -Daccounts.footprint.sizes=1000000,10000000}.
+ */
+@Tag("benchmark")
+public class AccountStorageFootprintBenchmark {
+    private static final String DEFAULT_SIZES = "1000000,10000000,50000000";
+    private static final int DEPOSITS = 10_000_000;
+    private static final String[] HOT_IDS = new String[1024];
+
+    static {
+        for (int i = 0; i < HOT_IDS.length; i++) {
+            HOT_IDS[i] = String.valueOf(i);
+        }
+    }
+
+    @Test
+    void storageFootprintReport() {
+        String[] sizes = System.getProperty("accounts.footprint.sizes", DEFAULT_SIZES).split(",");
+        System.out.printf("%-10s %-8s %14s %12s %10s %10s %16s%n",
+                "accounts", "store", "retained MB", "bytes/acct", "GC count", "GC ms", "alloc B/deposit");
+        for (String size : sizes) {
+            int accounts = Integer.parseInt(size.trim());
+            report(accounts, "legacy", LegacyStore::new);
+            report(accounts, "primitive", PrimitiveStore::new);
+        }
+    }
+
+    private static void report(int accounts, String name, IntFunction<Store> storeFactory) {
+        Store store = null;
+        try {
+            long baseline = usedHeapAfterGc();
+            store = storeFactory.apply(accounts);
+            for (int i = 0; i < accounts; i++) {
+                store.deposit(accountId(i), 100);
+            }
+            long retained = usedHeapAfterGc() - baseline;
+
+            long gcCount = gcCount();
+            long gcTime = gcTime();
+            long allocated = allocatedBytes();
+            for (int i = 0; i < DEPOSITS; i++) {
+                store.deposit(accountId(i % 1024), 1);
+            }
+            long allocatedPerDeposit = (allocatedBytes() - allocated) / DEPOSITS;
+
+            System.out.printf("%-10d %-8s %14d %12d %10d %10d %16d%n", accounts, name, retained >> 20,
+                    retained / accounts, gcCount() - gcCount, gcTime() - gcTime, allocatedPerDeposit);
+        } catch (OutOfMemoryError e) {
+            System.out.printf("%-10d %-8s %14s%n", accounts, name, "out of memory");
+        } finally {
+            if (store != null) {
+                store.clear();
+            }
+        }
+    }
+
+    private static String accountId(int i) {
+        return i < HOT_IDS.length ? HOT_IDS[i] : String.valueOf(i);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += gc.getCollectionTime();
+        }
+        return time;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private interface Store {
+        void deposit(String accountId, long amount);
+
+        void clear();
+    }
+
+    private static final class LegacyStore implements Store {
+        private Map<String, LegacyAccount> accounts;
+
+        private LegacyStore(int expectedAccounts) {
+            this.accounts = new HashMap<>();
+        }
+
+        @Override
+        public void deposit(String accountId, long amount) {
+            LegacyAccount account = accounts.get(accountId);
+            if (account == null) {
+                accounts.put(accountId, new LegacyAccount(accountId, amount / 100.0f));
+            } else {
+                account.balance = account.balance + amount / 100.0f;
+                accounts.put(accountId, account);
+            }
+        }
+
+        @Override
+        public void clear() {
+            accounts = null;
+        }
+    }
+
+    private static final class LegacyAccount {
+        private final String accountId;
+        private Float balance;
+
+        private LegacyAccount(String accountId, Float balance) {
+            this.accountId = accountId;
+            this.balance = balance;
+        }
+    }
+
+    private static final class PrimitiveStore implements Store {
+        private AccountRepository accountRepository;
+
+        private PrimitiveStore(int expectedAccounts) {
+            this.accountRepository = new AccountRepository(1024, expectedAccounts);
+        }
+
+        @Override
+        public void deposit(String accountId, long amount) {
+            accountRepository.createOrCreditAccount(accountId, amount);
+        }
+
+        @Override
+        public void clear() {
+            accountRepository = null;
+        }
+    }
+}
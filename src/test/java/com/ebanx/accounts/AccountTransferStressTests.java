@@ -0,0 +1,95 @@
+package com.ebanx.accounts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class AccountTransferStressTests {
+    private static final int ACCOUNTS = 1_000;
+    private static final int HOT_ACCOUNTS = 3;
+    private static final int INITIAL_BALANCE = 1_000;
+    private static final int MAX_AMOUNT = 50;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS = 2_000_000;
+
+    @Test
+    void randomTransfersConserveMoneyTest() throws Exception {
+        AccountRepository accountRepository = seededRepository();
+        AtomicLong accepted = runTransfers(accountRepository, 0);
+
+        assertTransfersConservedMoney(accountRepository);
+        assertTrue("Some transfers should be accepted", accepted.get() > 0);
+    }
+
+    @Test
+    void hotAccountTransfersConserveMoneyTest() throws Exception {
+        AccountRepository accountRepository = seededRepository();
+        AtomicLong accepted = runTransfers(accountRepository, 80);
+
+        assertTransfersConservedMoney(accountRepository);
+        assertTrue("Some transfers should be accepted", accepted.get() > 0);
+    }
+
+    private static AccountRepository seededRepository() {
+        AccountRepository accountRepository = new AccountRepository();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountRepository.putAccount(new AccountEntity(String.valueOf(i), INITIAL_BALANCE));
+        }
+        return accountRepository;
+    }
+
+    private static AtomicLong runTransfers(AccountRepository accountRepository, int hotAccountPercentage)
+            throws Exception {
+        AtomicLong accepted = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < TRANSFERS / THREADS; i++) {
+                        String origin = String.valueOf(pickAccount(random, hotAccountPercentage));
+                        String destination = String.valueOf(pickAccount(random, hotAccountPercentage));
+                        AccountResult<AccountTransferEntity> result = accountRepository.transferBetweenAccounts(
+                                origin, destination, random.nextInt(1, MAX_AMOUNT + 1));
+                        if (result instanceof AccountResult.Success) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return accepted;
+    }
+
+    private static int pickAccount(ThreadLocalRandom random, int hotAccountPercentage) {
+        if (random.nextInt(100) < hotAccountPercentage) {
+            return random.nextInt(HOT_ACCOUNTS);
+        }
+        return random.nextInt(ACCOUNTS);
+    }
+
+    private static void assertTransfersConservedMoney(AccountRepository accountRepository) {
+        long total = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            long balance = accountRepository.getBalance(String.valueOf(i));
+            assertTrue("Balances should never go negative", balance >= 0);
+            total += balance;
+        }
+        assertEquals("Transfers shouldn't create nor destroy accounts", ACCOUNTS, accountRepository.getSize());
+        assertEquals("Total money should be conserved", (long) ACCOUNTS * INITIAL_BALANCE, total);
+    }
+}
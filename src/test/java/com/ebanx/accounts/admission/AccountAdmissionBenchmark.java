@@ -0,0 +1,104 @@
+package com.ebanx.accounts.admission;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latency of the admitted requests when requests arrive faster than the service can take them, with and without a
+ * {@link GradientLimit} in front of it. The server is simulated in process so the overload is exact: a pool of 200
+ * request threads with an unbounded queue, as Tomcat's, in front of a service that handles 4 requests at a time for
+ * 1ms each. Arrivals are open loop, at half the capacity for a second and then at {@code overload} times the
+ * capacity; latencies are measured from arrival over the second part, and the first row is a reference run at half
+ * the capacity throughout. Run with {@code ./gradlew benchmark --tests '*AccountAdmissionBenchmark'}, optionally
+ * overriding {@code -Daccounts.admission.overload=2} and {@code -Daccounts.admission.seconds=5}.
+ */
+@Tag("benchmark")
+public class AccountAdmissionBenchmark {
+    private static final int REQUEST_THREADS = 200;
+    private static final int SERVICE_PERMITS = 4;
+    private static final long SERVICE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double CAPACITY = SERVICE_PERMITS * 1e9 / SERVICE_NANOS;
+
+    @Test
+    void overloadReport() throws Exception {
+        double overload = Double.parseDouble(System.getProperty("accounts.admission.overload", "2"));
+        int seconds = Integer.getInteger("accounts.admission.seconds", 5);
+        System.out.printf("%-10s %6s %10s %10s %12s %10s %10s %10s %7s%n", "admission", "load", "offered/s",
+                "served/s", "rejected/s", "p50 ms", "p99 ms", "max ms", "limit");
+        run(false, 0.5, seconds);
+        run(false, overload, seconds);
+        run(true, overload, seconds);
+    }
+
+    private static void run(boolean limited, double load, int seconds) throws Exception {
+        GradientLimit limit = limited ? new GradientLimit(20, 1, 200, 1.5, Duration.ofMillis(100)) : null;
+        Semaphore service = new Semaphore(SERVICE_PERMITS);
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        int measured = (int) (CAPACITY * load * seconds);
+        long[] latencies = new long[measured];
+        AtomicInteger admitted = new AtomicInteger();
+        LongAdder rejected = new LongAdder();
+        long warmupNanos = TimeUnit.SECONDS.toNanos(1);
+        long warmupRequests = (long) (CAPACITY / 2);
+        long start = System.nanoTime();
+        for (long sent = 0; sent < warmupRequests + measured; ) {
+            long elapsed = System.nanoTime() - start;
+            long due = elapsed < warmupNanos ? (long) (warmupRequests * elapsed / (double) warmupNanos)
+                    : warmupRequests + (long) ((elapsed - warmupNanos) * CAPACITY * load / 1e9);
+            for (; sent < Math.min(due, warmupRequests + measured); sent++) {
+                long arrivedAt = System.nanoTime();
+                boolean counted = sent >= warmupRequests;
+                requestThreads.execute(() -> {
+                    if (limit != null && !limit.tryAcquire()) {
+                        if (counted) {
+                            rejected.increment();
+                        }
+                        return;
+                    }
+                    long startedAt = System.nanoTime();
+                    service.acquireUninterruptibly();
+                    try {
+                        LockSupport.parkNanos(SERVICE_NANOS);
+                    } finally {
+                        service.release();
+                        if (limit != null) {
+                            limit.release(startedAt);
+                        }
+                    }
+                    if (counted) {
+                        latencies[admitted.getAndIncrement()] = System.nanoTime() - arrivedAt;
+                    }
+                });
+            }
+            LockSupport.parkNanos(50_000);
+        }
+        long sendingEnded = System.nanoTime();
+        requestThreads.shutdown();
+        requestThreads.awaitTermination(10, TimeUnit.MINUTES);
+        double sendingSeconds = (sendingEnded - start - warmupNanos) / 1e9;
+        double servingSeconds = (System.nanoTime() - start - warmupNanos) / 1e9;
+        long[] sorted = Arrays.copyOf(latencies, admitted.get());
+        Arrays.sort(sorted);
+        System.out.printf("%-10s %5.1fx %10.0f %10.0f %12.0f %10.2f %10.2f %10.2f %7s%n", limited ? "gradient" : "none",
+                load, measured / sendingSeconds, sorted.length / servingSeconds, rejected.sum() / sendingSeconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0),
+                limit == null ? "-" : String.valueOf(limit.getLimit()));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1e6;
+    }
+}
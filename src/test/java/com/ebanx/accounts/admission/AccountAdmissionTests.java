@@ -0,0 +1,103 @@
+package com.ebanx.accounts.admission;
+
+import com.ebanx.accounts.AccountController;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountService;
+import com.ebanx.accounts.dtos.AccountEventType;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class AccountAdmissionTests {
+
+    @Test
+    void limitShrinksWhileLatencyRisesAndGrowsBackTest() {
+        GradientLimit limit = new GradientLimit(20, 2, 200, 1.5, Duration.ZERO);
+        runWindows(limit, 30, 1);
+        int steady = limit.getLimit();
+        assertTrue("Limit should grow while latency is flat, was " + steady, steady > 20);
+
+        runWindows(limit, 30, 10);
+        int overloaded = limit.getLimit();
+        assertTrue("Limit should shrink while latency rises, was " + overloaded, overloaded < steady / 2);
+
+        runWindows(limit, 30, 1);
+        assertTrue("Limit should grow back once latency recovers, was " + limit.getLimit(),
+                limit.getLimit() > overloaded);
+    }
+
+    @Test
+    void limitRejectsOnceFullTest() {
+        GradientLimit limit = new GradientLimit(3, 1, 10, 1.5, Duration.ofHours(1));
+        for (int i = 0; i < 3; i++) {
+            assertTrue("Request under the limit should be admitted", limit.tryAcquire());
+        }
+        assertFalse("Request over the limit should be rejected", limit.tryAcquire());
+        assertEquals("Rejections", 1L, limit.getRejected());
+        limit.release(System.nanoTime());
+        assertTrue("Released slot should be reused", limit.tryAcquire());
+        assertEquals("In flight", 3, limit.getInFlight());
+    }
+
+    @Test
+    void rateLimiterCapsOneAccountOnlyTest() {
+        AccountRateLimiter rateLimiter = new AccountRateLimiter(0.001, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue("Burst should be admitted", rateLimiter.tryAcquire("100"));
+        }
+        assertFalse("Account over its rate should be rejected", rateLimiter.tryAcquire("100"));
+        assertTrue("Other accounts should keep their own rate", rateLimiter.tryAcquire("200"));
+        assertEquals("Rejections", 1L, rateLimiter.getRejected());
+    }
+
+    @Test
+    void controllerRejectsWithoutCallingTheServiceTest() {
+        AccountRepository accountRepository = new AccountRepository();
+        AccountController accountController = new AccountController(new AccountService(accountRepository));
+        GradientLimit writes = new GradientLimit(1, 1, 1, 1.5, Duration.ofHours(1));
+        accountController.setAdmission(new AccountAdmission(new GradientLimit(10, 1, 10, 1.5, Duration.ofHours(1)),
+                writes, new AccountRateLimiter(0.001, 1)));
+
+        AccountRequestDto deposit = new AccountRequestDto(AccountEventType.DEPOSIT, 10f, "100");
+        assertTrue("Slot should be free", writes.tryAcquire());
+        assertEquals("Deposit over the concurrency limit", HttpStatus.SERVICE_UNAVAILABLE,
+                accountController.handleAccountEvent(deposit).getStatusCode());
+        assertEquals("Deposit over the concurrency limit", HttpStatus.SERVICE_UNAVAILABLE, accountController
+                .handleAccountEvent(new AccountRequestDto(AccountEventType.DEPOSIT, 10f, "200")).getStatusCode());
+        writes.releaseUnmeasured();
+
+        assertEquals("Rejected deposit shouldn't spend the account rate", HttpStatus.CREATED,
+                accountController.handleAccountEvent(deposit).getStatusCode());
+        assertEquals("Deposit over the account rate", HttpStatus.TOO_MANY_REQUESTS,
+                accountController.handleAccountEvent(deposit).getStatusCode());
+        AccountRequestDto malformed = new AccountRequestDto(AccountEventType.TRANSFER, 10f, "100", null);
+        assertEquals("Malformed event", HttpStatus.BAD_REQUEST,
+                accountController.handleAccountEvent(malformed).getStatusCode());
+
+        assertEquals("Only the admitted deposit should be applied", 10f,
+                accountController.getAccountBalance("100").getBody());
+        assertEquals("Rejected account should not exist", HttpStatus.NOT_FOUND,
+                accountController.getAccountBalance("200").getStatusCode());
+        assertEquals("Writes in flight", 0, writes.getInFlight());
+    }
+
+    /**
+     * Fills the limit and releases every request as if it took {@code rttMillis}, once per window.
+     */
+    private static void runWindows(GradientLimit limit, int windows, long rttMillis) {
+        for (int window = 0; window < windows; window++) {
+            int admitted = 0;
+            while (admitted < Math.max(10, limit.getLimit()) && limit.tryAcquire()) {
+                admitted++;
+            }
+            long startedAt = System.nanoTime() - Duration.ofMillis(rttMillis).toNanos();
+            for (int i = 0; i < admitted; i++) {
+                limit.release(startedAt);
+            }
+        }
+    }
+}
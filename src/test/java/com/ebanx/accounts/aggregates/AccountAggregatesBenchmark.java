@@ -0,0 +1,117 @@
+package com.ebanx.accounts.aggregates;
+
+import com.ebanx.accounts.AccountRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Time to answer each aggregate over a repository of {@code accounts} accounts, against a top-10 computed by walking
+ * {@link AccountRepository#forEachAccount} as an export would, and the deposit rate of a writer thread alone and while
+ * scans run back to back. Run with {@code ./gradlew benchmark --tests '*AccountAggregatesBenchmark'}, optionally
+ * overriding {@code -Daccounts.aggregates.accounts=10000000}, {@code -Daccounts.aggregates.parallelism} (default: one
+ * per processor) and the heap with {@code -PbenchmarkHeap=4g}.
+ */
+@Tag("benchmark")
+public class AccountAggregatesBenchmark {
+    private static final int RUNS = 7;
+    private static final int LOAD_BATCH = 1 << 16;
+    private static final long WRITER_NANOS = 2_000_000_000L;
+
+    @Test
+    void aggregatesReport() throws Exception {
+        int accounts = Integer.getInteger("accounts.aggregates.accounts", 10_000_000);
+        int parallelism = Integer.getInteger("accounts.aggregates.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        AccountRepository accountRepository = new AccountRepository(1024, accounts);
+        SplittableRandom random = new SplittableRandom(7);
+        long[] keys = new long[LOAD_BATCH];
+        long[] balances = new long[LOAD_BATCH];
+        for (int loaded = 0; loaded < accounts; loaded += LOAD_BATCH) {
+            int count = Math.min(LOAD_BATCH, accounts - loaded);
+            for (int i = 0; i < count; i++) {
+                keys[i] = loaded + i;
+                balances[i] = random.nextLong(10_000_000L);
+            }
+            accountRepository.putBalances(keys, balances, count);
+        }
+        long[] bounds = {10_000L, 100_000L, 1_000_000L, 5_000_000L};
+
+        try (AccountAggregates aggregates = new AccountAggregates(accountRepository, parallelism)) {
+            System.out.printf("%d accounts, %d scan threads, %d processors%n", accounts, parallelism,
+                    Runtime.getRuntime().availableProcessors());
+            System.out.printf("%-28s %12s%n", "query", "median ms");
+            report("summary", aggregates::summary);
+            report("top 10", () -> aggregates.top(10));
+            report("top 1000", () -> aggregates.top(1000));
+            report("histogram, 5 buckets", () -> aggregates.histogram(bounds));
+            report("top 10 by forEachAccount", () -> topByVisitor(accountRepository));
+
+            double alone = depositsPerSecond(accountRepository, accounts, () -> { });
+            double duringScans = depositsPerSecond(accountRepository, accounts, () -> aggregates.top(10));
+            System.out.printf("deposits/s alone %.0f, during back-to-back top-10 scans %.0f%n", alone, duringScans);
+        }
+    }
+
+    private static void report(String query, Supplier<?> run) {
+        double[] millis = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long startedAt = System.nanoTime();
+            run.get();
+            millis[i] = (System.nanoTime() - startedAt) / 1e6;
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-28s %12.3f%n", query, millis[RUNS / 2]);
+    }
+
+    private static Object topByVisitor(AccountRepository accountRepository) {
+        PriorityQueue<Long> top = new PriorityQueue<>();
+        accountRepository.forEachAccount((id, balance) -> {
+            top.add(balance);
+            if (top.size() > 10) {
+                top.poll();
+            }
+        });
+        return top;
+    }
+
+    private static double depositsPerSecond(AccountRepository accountRepository, int accounts, Runnable scan)
+            throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> scans = executor.submit(() -> {
+                while (writing.get()) {
+                    scan.run();
+                    Thread.yield();
+                }
+            });
+            String[] ids = new String[4096];
+            SplittableRandom random = new SplittableRandom(11);
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = String.valueOf(random.nextInt(accounts));
+            }
+            long deposits = 0;
+            long startedAt = System.nanoTime();
+            while (System.nanoTime() - startedAt < WRITER_NANOS) {
+                for (int i = 0; i < 1000; i++) {
+                    accountRepository.createOrCreditAccount(ids[(int) (deposits++ & (ids.length - 1))], 1L);
+                }
+            }
+            double rate = deposits / ((System.nanoTime() - startedAt) / 1e9);
+            writing.set(false);
+            scans.get();
+            return rate;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
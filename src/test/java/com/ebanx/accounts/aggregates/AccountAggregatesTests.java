@@ -0,0 +1,233 @@
+package com.ebanx.accounts.aggregates;
+
+import com.ebanx.accounts.AccountBatch;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.dtos.AccountDto;
+import com.ebanx.accounts.dtos.AccountEventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class AccountAggregatesTests {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+
+    private AccountRepository accountRepository;
+    private AccountAggregates accountAggregates;
+
+    @BeforeEach
+    public void setUp() {
+        accountRepository = new AccountRepository(64, 0);
+        accountAggregates = new AccountAggregates(accountRepository, 4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        accountAggregates.close();
+    }
+
+    @Test
+    void totalsFollowEveryWriteTest() {
+        accountRepository.createOrCreditAccount("100", 1000L);
+        accountRepository.createOrCreditAccount("100", 500L);
+        accountRepository.creditAccount("100", 250L);
+        assertTotals("Deposits");
+        accountRepository.debitAccount("100", 300L);
+        accountRepository.debitAccount("100", 1_000_000L);
+        assertTotals("Withdrawals");
+        accountRepository.transferBetweenAccounts("100", "200", 400L);
+        assertTotals("Transfer to a new account");
+        accountRepository.putBalance("300", 7000L);
+        accountRepository.putBalance("100", 10L);
+        accountRepository.putBalances(new long[] {400L, 200L}, new long[] {20L, 30L}, 2);
+        accountRepository.replicateBalances(new String[] {"500", "500"}, new long[] {1L, 2L}, 2);
+        assertTotals("Balances set");
+        AccountBatch batch = new AccountBatch(3);
+        batch.add(AccountEventType.DEPOSIT, null, "600", 90L);
+        batch.add(AccountEventType.WITHDRAW, "300", null, 100L);
+        batch.add(AccountEventType.TRANSFER, "300", "700", 200L);
+        assertTrue("Batch should apply", accountRepository.applyAtomically(batch));
+        assertTotals("Batch");
+
+        assertTrue("Account should be split", accountRepository.splitBalance("300"));
+        accountRepository.createOrCreditAccount("300", 5L);
+        accountRepository.creditAccount("300", 5L);
+        assertTotals("Split deposits");
+        accountRepository.putBalance("300", 1L);
+        accountRepository.createOrCreditAccount("300", 5L);
+        accountRepository.debitAccount("300", 2L);
+        accountRepository.mergeBalance("300");
+        assertTotals("Split account written and merged");
+
+        accountRepository.splitBalance("300");
+        accountRepository.createOrCreditAccount("300", 5L);
+        accountRepository.emptyDatabase();
+        assertEquals("Reset should remove every account", 0, accountRepository.getSize());
+        assertEquals("Reset should remove every balance", 0L, accountRepository.getTotalBalance());
+        accountRepository.createOrCreditAccount("100", 42L);
+        assertTotals("After reset");
+    }
+
+    @Test
+    void concurrentWritesKeepTotalsExactTest() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            accountRepository.createOrCreditAccount(String.valueOf(i), 1000L);
+        }
+        accountRepository.splitBalance("0");
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            Future<Integer> scans = executor.submit(() -> {
+                int count = 0;
+                while (writing.get()) {
+                    accountAggregates.top(5);
+                    accountAggregates.histogram(new long[] {0L, 500L, 5000L});
+                    count++;
+                }
+                return count;
+            });
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                writers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        String account = String.valueOf(random.nextInt(120));
+                        long amount = 1 + random.nextInt(100);
+                        switch (random.nextInt(4)) {
+                            case 0 -> accountRepository.createOrCreditAccount(account, amount);
+                            case 1 -> accountRepository.debitAccount(account, amount);
+                            case 2 -> accountRepository.transferBetweenAccounts(account,
+                                    String.valueOf(random.nextInt(120)), amount);
+                            default -> accountRepository.createOrCreditAccount("0", amount);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            writing.set(false);
+            assertTrue("Scans should run alongside the writers", scans.get() > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTotals("Concurrent writes");
+    }
+
+    @Test
+    void transfersNeverShowMoneyInFlightTest() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            accountRepository.createOrCreditAccount(String.valueOf(i), 1000L);
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            Future<Long> wrongTotals = executor.submit(() -> {
+                long wrong = 0L;
+                while (writing.get()) {
+                    if (accountRepository.getTotalBalance() != 100_000L) {
+                        wrong++;
+                    }
+                }
+                return wrong;
+            });
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                writers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        String origin = String.valueOf(random.nextInt(100));
+                        String destination = String.valueOf(random.nextInt(100));
+                        if (random.nextBoolean()) {
+                            accountRepository.transferBetweenAccounts(origin, destination, 1 + random.nextInt(10));
+                        } else {
+                            AccountBatch batch = new AccountBatch(2);
+                            batch.add(AccountEventType.TRANSFER, origin, destination, 1 + random.nextInt(10));
+                            batch.add(AccountEventType.TRANSFER, destination, origin, 1 + random.nextInt(10));
+                            accountRepository.applyAtomically(batch);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            writing.set(false);
+            assertEquals("Transfers shouldn't show in the total", 0L, wrongTotals.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTotals("Transfers");
+    }
+
+    @Test
+    void topAndHistogramMatchTheAccountsTest() {
+        Random random = new Random(42);
+        List<long[]> accounts = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long balance = random.nextInt(1000) * 100L;
+            accountRepository.putBalance(String.valueOf(i), balance);
+            accounts.add(new long[] {i, balance});
+        }
+        accountRepository.putBalance("named", 1000L * 100L);
+        accounts.sort(Comparator.<long[]>comparingLong(account -> -account[1])
+                .thenComparingLong(account -> account[0]));
+
+        List<AccountDto> top = accountAggregates.top(50);
+        assertEquals("Top size", 50, top.size());
+        assertEquals("Largest account", "named", top.get(0).getId());
+        for (int i = 1; i < top.size(); i++) {
+            assertEquals("Top account " + i, String.valueOf(accounts.get(i - 1)[0]), top.get(i).getId());
+            assertEquals("Top balance " + i, accounts.get(i - 1)[1] / 100f, top.get(i).getBalance());
+        }
+        assertEquals("Top of more than every account", 10_001, accountAggregates.top(20_000).size());
+
+        List<BalanceBucket> histogram = accountAggregates.histogram(new long[] {10_000L, 50_000L});
+        long[] expected = new long[3];
+        long[] sums = new long[3];
+        for (long[] account : accounts) {
+            int bucket = account[1] < 10_000L ? 0 : account[1] < 50_000L ? 1 : 2;
+            expected[bucket]++;
+            sums[bucket] += account[1];
+        }
+        expected[2]++;
+        sums[2] += 100_000L;
+        for (int bucket = 0; bucket < 3; bucket++) {
+            assertEquals("Accounts in bucket " + bucket, expected[bucket], histogram.get(bucket).accounts());
+            assertEquals("Balance in bucket " + bucket, BigDecimal.valueOf(sums[bucket], 2),
+                    histogram.get(bucket).totalBalance());
+        }
+        assertNull("First bucket should be open below", histogram.get(0).from());
+        assertEquals("Bucket bound", new BigDecimal("500.00"), histogram.get(2).from());
+        assertNull("Last bucket should be open above", histogram.get(2).to());
+        assertThrows(IllegalArgumentException.class, () -> accountAggregates.histogram(new long[] {5L, 5L}));
+    }
+
+    private void assertTotals(String message) {
+        long[] recount = new long[2];
+        accountRepository.forEachAccount((id, balance) -> {
+            recount[0]++;
+            recount[1] += balance;
+        });
+        assertEquals(message + ": accounts", (int) recount[0], accountRepository.getSize());
+        assertEquals(message + ": total balance", recount[1], accountRepository.getTotalBalance());
+        AccountSummary summary = accountAggregates.summary();
+        assertEquals(message + ": summary", BigDecimal.valueOf(recount[1], 2), summary.totalBalance());
+        assertEquals(message + ": histogram", recount[0],
+                accountAggregates.histogram(new long[] {0L}).stream().mapToLong(BalanceBucket::accounts).sum());
+    }
+}
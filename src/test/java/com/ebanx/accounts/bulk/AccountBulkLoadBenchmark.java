@@ -0,0 +1,69 @@
+package com.ebanx.accounts.bulk;
+
+import com.ebanx.accounts.AccountRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Loads {@code -Daccounts.bulk.accounts} accounts (default 10M, numeric ids) from a CSV file and from the binary file
+ * exported after it, with {@code -Daccounts.bulk.parallelism} fork-join threads (default: the processors), and times
+ * the exports. Run with {@code ./gradlew benchmark --tests '*AccountBulkLoadBenchmark'}; 50M accounts need
+ * {@code -PbenchmarkHeap=12g} or so.
+ */
+@Tag("benchmark")
+public class AccountBulkLoadBenchmark {
+    @TempDir
+    Path directory;
+
+    @Test
+    void bulkLoadReport() throws IOException {
+        int accounts = Integer.getInteger("accounts.bulk.accounts", 10_000_000);
+        int parallelism = Integer.getInteger("accounts.bulk.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        Path csv = directory.resolve("accounts.csv");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(csv), 1 << 20)) {
+            out.write((BulkFormat.CSV_HEADER + "\n").getBytes(StandardCharsets.US_ASCII));
+            for (int i = 0; i < accounts; i++) {
+                out.write((i + "," + (i % 100_000) + "." + (i % 100) + "\n").getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        Path binary = directory.resolve("accounts.bin");
+        System.out.printf("%-8s %-7s %12s %10s %14s %10s%n", "format", "step", "accounts", "seconds", "accounts/s",
+                "MB/s");
+
+        AccountRepository accountRepository = new AccountRepository(1024, accounts);
+        load(accountRepository, csv, BulkFormat.CSV, parallelism);
+        time("export", BulkFormat.BINARY, binary, accountRepository);
+        time("export", BulkFormat.CSV, directory.resolve("exported.csv"), accountRepository);
+        accountRepository = null;
+        load(new AccountRepository(1024, accounts), binary, BulkFormat.BINARY, parallelism);
+    }
+
+    private static void load(AccountRepository accountRepository, Path file, BulkFormat format, int parallelism)
+            throws IOException {
+        BulkLoadProgress result = new AccountBulkLoader(accountRepository, parallelism, 16L << 20)
+                .load(file, format, Duration.ofSeconds(5), progress -> { });
+        report(format, "load", result.accounts(), result.elapsedMillis() / 1000.0, result.totalBytes());
+    }
+
+    private static void time(String step, BulkFormat format, Path file, AccountRepository accountRepository)
+            throws IOException {
+        long startedAt = System.nanoTime();
+        long accounts = new AccountBulkExporter(accountRepository).export(file, format);
+        report(format, step, accounts, (System.nanoTime() - startedAt) / 1e9, Files.size(file));
+    }
+
+    private static void report(BulkFormat format, String step, long accounts, double seconds, long bytes) {
+        System.out.printf("%-8s %-7s %12d %10.2f %14.0f %10.0f%n", format, step, accounts, seconds,
+                accounts / seconds, bytes / seconds / (1 << 20));
+    }
+}
@@ -0,0 +1,147 @@
+package com.ebanx.accounts.bulk;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.ledger.AccountLedger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class AccountBulkTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void csvLoadsAcrossChunkBoundariesTest() throws IOException {
+        Path file = directory.resolve("accounts.csv");
+        Files.writeString(file, "account_id,balance\r\n100,10\r\n\"a,\"\"b\"\"\",0.5\r\n200,1234.05\r\n"
+                + "conta-\u00e7,7\r\n300,2.1\r\n", StandardCharsets.UTF_8);
+
+        for (long chunkSize : new long[] {1, 3, 7, 1 << 20}) {
+            AccountRepository accountRepository = new AccountRepository();
+            BulkLoadProgress result = new AccountBulkLoader(accountRepository, 4, chunkSize)
+                    .load(file, BulkFormat.CSV, Duration.ofSeconds(1), progress -> { });
+
+            assertEquals("Every account should load with chunks of " + chunkSize, 5L, result.accounts());
+            assertEquals("Every byte should be read", Files.size(file), result.bytesRead());
+            assertEquals("Wrong balances with chunks of " + chunkSize, Map.of("100", 1000L, "a,\"b\"", 50L,
+                    "200", 123405L, "conta-\u00e7", 700L, "300", 210L), balances(accountRepository));
+        }
+    }
+
+    @Test
+    void exportRoundTripsInBothFormatsTest() throws IOException {
+        AccountRepository source = new AccountRepository();
+        for (int i = 0; i < 10_000; i++) {
+            source.putBalance(String.valueOf(i), i * 101L);
+        }
+        source.putBalance("0100", 1L);
+        source.putBalance("acct,\"quoted\"", 99L);
+        source.putBalance("\u00fcber", 12L);
+
+        for (BulkFormat format : BulkFormat.values()) {
+            Path file = directory.resolve("export-" + format);
+            long exported = new AccountBulkExporter(source, 4096).export(file, format);
+            AccountRepository target = new AccountRepository();
+            List<BulkLoadProgress> reports = new ArrayList<>();
+            BulkLoadProgress result = new AccountBulkLoader(target, 4, 10_000)
+                    .load(file, format, Duration.ofMillis(1), reports::add);
+
+            assertEquals("Every account should be exported as " + format, 10_003L, exported);
+            assertEquals("Every account should be loaded from " + format, 10_003L, result.accounts());
+            assertEquals("Balances should round-trip through " + format, balances(source), balances(target));
+            assertEquals("The final progress should be reported", result, reports.get(reports.size() - 1));
+        }
+    }
+
+    @Test
+    void malformedFilesAreRejectedTest() throws IOException {
+        AccountBulkLoader loader = new AccountBulkLoader(new AccountRepository(), 2, 1 << 20);
+        for (String content : new String[] {"100\n", "100,1.234\n", "100,abc\n", ",5\n", "\"100,5\n", "100,1.\n",
+                "100,-5.00\n", "100,+5\n"}) {
+            Path file = directory.resolve("bad.csv");
+            Files.writeString(file, content);
+            assertThrows(IllegalArgumentException.class,
+                    () -> loader.load(file, BulkFormat.CSV, Duration.ofSeconds(1), progress -> { }));
+        }
+
+        AccountRepository source = new AccountRepository();
+        source.putBalance("100", 5L);
+        Path binary = directory.resolve("accounts.bin");
+        new AccountBulkExporter(source).export(binary, BulkFormat.BINARY);
+        byte[] bytes = Files.readAllBytes(binary);
+        Path truncated = directory.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> loader.load(truncated, BulkFormat.BINARY, Duration.ofSeconds(1), progress -> { }));
+
+        // magic, block length and count, id length and "100", then the balance
+        int balanceOffset = Long.BYTES + 2 * Integer.BYTES + Short.BYTES + 3;
+        ByteBuffer record = ByteBuffer.wrap(bytes);
+        assertEquals("Wrong balance offset", 5L, record.getLong(balanceOffset));
+        record.putLong(balanceOffset, -5L);
+        Path negative = directory.resolve("negative.bin");
+        Files.write(negative, bytes);
+        assertThrows(IllegalArgumentException.class,
+                () -> loader.load(negative, BulkFormat.BINARY, Duration.ofSeconds(1), progress -> { }));
+    }
+
+    @Test
+    void importsStayInsideTheBulkDirectoryTest() throws IOException {
+        Path bulk = Files.createDirectory(directory.resolve("bulk"));
+        Files.writeString(bulk.resolve("accounts.csv"), "100,10\n");
+        Files.writeString(directory.resolve("outside.csv"), "200,20\n");
+        AccountRepository accountRepository = new AccountRepository();
+        AccountBulkProperties properties = new AccountBulkProperties();
+        AccountBulkController controller = new AccountBulkController(accountRepository,
+                new AccountBulkLoader(accountRepository, 2, 1 << 20), new AccountBulkExporter(accountRepository),
+                properties);
+
+        assertEquals("Imports should be refused without a directory", HttpStatus.FORBIDDEN,
+                controller.importAccounts("accounts.csv", "csv").getStatusCode());
+
+        properties.setDirectory(bulk.toString());
+        assertEquals("Files of the directory should load", HttpStatus.OK,
+                controller.importAccounts("accounts.csv", "csv").getStatusCode());
+        assertEquals("Missing files should be reported", HttpStatus.NOT_FOUND,
+                controller.importAccounts("missing.csv", "csv").getStatusCode());
+        for (String name : new String[] {"../outside.csv", "../missing.csv", "sub/../../outside.csv",
+                directory.resolve("outside.csv").toString(), "", "bad\0name"}) {
+            assertEquals("Name " + name + " should be rejected", HttpStatus.BAD_REQUEST,
+                    controller.importAccounts(name, "csv").getStatusCode());
+        }
+        assertEquals("Only the file in the directory should load", Map.of("100", 1000L), balances(accountRepository));
+    }
+
+    @Test
+    void bulkLoadsRequireNoLedgerTest() throws IOException {
+        Path file = directory.resolve("accounts.csv");
+        Files.writeString(file, "100,10\n");
+        AccountRepository accountRepository = new AccountRepository();
+        accountRepository.setLedger(new AccountLedger(4, accountRepository.getAccountIds()));
+
+        assertThrows(IllegalStateException.class, () -> new AccountBulkLoader(accountRepository, 2, 1 << 20)
+                .load(file, BulkFormat.CSV, Duration.ofSeconds(1), progress -> { }));
+        assertEquals("Nothing should be loaded", 0, accountRepository.getSize());
+    }
+
+    private static Map<String, Long> balances(AccountRepository accountRepository) {
+        Map<String, Long> balances = new HashMap<>();
+        accountRepository.forEachAccount(balances::put);
+        return balances;
+    }
+}
@@ -0,0 +1,124 @@
+package com.ebanx.accounts.cluster;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Throughput and latency of a cluster of {@link ClusterNode}s on localhost, all in this JVM, for growing node counts.
+ * Closed-loop clients send every operation either to a random node, which forwards it to the owner, or, like a
+ * partition-aware client, straight to the owner. Transfers run between random accounts, most of them on different
+ * nodes and so through the two-phase commit, or between accounts of the same node. Run with
+ * {@code ./gradlew benchmark --tests '*AccountClusterBenchmark'}, optionally overriding
+ * {@code -Daccounts.cluster.clients=16} and {@code -Daccounts.cluster.nodes=1,2,3}.
+ */
+@Tag("benchmark")
+public class AccountClusterBenchmark {
+    private static final int ACCOUNTS = 10_000;
+    private static final int OPERATIONS_PER_CLIENT = 5_000;
+
+    @Test
+    void clusterThroughputReport() throws Exception {
+        int clients = Integer.getInteger("accounts.cluster.clients", 16);
+        String[] nodeCounts = System.getProperty("accounts.cluster.nodes", "1,2,3").split(",");
+        System.out.printf("%-6s %-26s %12s %10s %10s%n", "nodes", "workload", "ops/s", "p50 us", "p99 us");
+        for (String nodeCount : nodeCounts) {
+            List<ClusterNode> nodes = new ArrayList<>();
+            try {
+                for (int i = 0; i < Integer.parseInt(nodeCount.trim()); i++) {
+                    ClusterNode node = new ClusterNode("node-" + i, new InetSocketAddress("127.0.0.1", 0),
+                            Duration.ofSeconds(5));
+                    nodes.add(node);
+                    if (i == 0) {
+                        node.bootstrap();
+                    } else {
+                        node.joinThrough(new InetSocketAddress("127.0.0.1", nodes.get(0).getMember().port()));
+                    }
+                }
+                report(nodes, clients);
+            } finally {
+                nodes.forEach(ClusterNode::close);
+            }
+        }
+    }
+
+    private static void report(List<ClusterNode> nodes, int clients) throws Exception {
+        String[] ids = new String[ACCOUNTS];
+        int[] owners = new int[ACCOUNTS];
+        List<List<Integer>> accountsByOwner = new ArrayList<>();
+        nodes.forEach(node -> accountsByOwner.add(new ArrayList<>()));
+        ClusterView view = nodes.get(0).view();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids[i] = String.valueOf(i);
+            owners[i] = nodes.indexOf(nodeOf(nodes, view.ownerOf(ids[i])));
+            accountsByOwner.get(owners[i]).add(i);
+            nodes.get(0).depositToAccount(ids[i], 1_000_000L);
+        }
+        String label = String.valueOf(nodes.size());
+        run(label, "deposit, any node", clients, operation ->
+                nodes.get(operation % nodes.size()).depositToAccount(ids[account(operation)], 1L));
+        run(label, "deposit, owner", clients, operation -> {
+            int account = account(operation);
+            nodes.get(owners[account]).depositToAccount(ids[account], 1L);
+        });
+        run(label, "transfer, any accounts", clients, operation ->
+                nodes.get(operation % nodes.size()).transferBetweenAccounts(ids[account(operation)],
+                        ids[account(operation + 1)], 1L));
+        run(label, "transfer, same node", clients, operation -> {
+            int origin = account(operation);
+            List<Integer> sameOwner = accountsByOwner.get(owners[origin]);
+            int destination = sameOwner.get(operation % sameOwner.size());
+            nodes.get(owners[origin]).transferBetweenAccounts(ids[origin], ids[destination], 1L);
+        });
+    }
+
+    private static ClusterNode nodeOf(List<ClusterNode> nodes, ClusterMember member) {
+        return nodes.stream().filter(node -> node.getMember().equals(member)).findFirst().orElseThrow();
+    }
+
+    private static int account(int operation) {
+        return (int) ((operation * 7919L) % ACCOUNTS);
+    }
+
+    private static void run(String nodes, String workload, int clients, IntConsumer operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long[] latencies = new long[clients * OPERATIONS_PER_CLIENT];
+        long startedAt = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int client = 0; client < clients; client++) {
+                int offset = client * OPERATIONS_PER_CLIENT;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < OPERATIONS_PER_CLIENT; i++) {
+                        long sentAt = System.nanoTime();
+                        operation.accept(offset + i);
+                        latencies[offset + i] = System.nanoTime() - sentAt;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        Arrays.sort(latencies);
+        System.out.printf("%-6s %-26s %12.0f %10.1f %10.1f%n", nodes, workload, latencies.length / seconds,
+                percentile(latencies, 0.5), percentile(latencies, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(quantile * sorted.length))] / 1000.0;
+    }
+}
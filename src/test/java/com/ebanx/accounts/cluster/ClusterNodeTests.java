@@ -0,0 +1,196 @@
+package com.ebanx.accounts.cluster;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.AccountTransferEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class ClusterNodeTests {
+    private final List<ClusterNode> nodes = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        ClusterNode first = start("node-1");
+        first.bootstrap();
+        join("node-2");
+        join("node-3");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        nodes.forEach(ClusterNode::close);
+    }
+
+    @Test
+    void anyNodeServesAnyAccountTest() {
+        for (int i = 0; i < 100; i++) {
+            nodes.get(i % 3).depositToAccount("acct-" + i, 1000L);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Wrong balance for acct-" + i, 1000L, nodes.get((i + 1) % 3).getBalance("acct-" + i));
+        }
+        assertEquals("Missing accounts shouldn't be found", AccountRepository.NO_ACCOUNT,
+                nodes.get(2).getBalance("missing"));
+        assertEquals("Withdraws should be declined on the owner", AccountRepository.INSUFFICIENT_FUNDS,
+                nodes.get(1).withdrawFromAccount("acct-7", 5000L));
+        int owned = nodes.stream().mapToInt(ClusterNode::getOwnedPartitions).sum();
+        assertEquals("Every partition should have exactly one owner", ClusterView.PARTITIONS, owned);
+    }
+
+    @Test
+    void transfersBetweenNodesCommitOnBothSidesTest() {
+        String origin = accountOwnedBy(nodes.get(0).getMember(), "origin-");
+        String destination = accountOwnedBy(nodes.get(1).getMember(), "destination-");
+        nodes.get(2).depositToAccount(origin, 1000L);
+
+        AccountResult<AccountTransferEntity> transfer = nodes.get(2).transferBetweenAccounts(origin, destination,
+                400L);
+
+        assertTrue("Transfer should succeed", transfer instanceof AccountResult.Success);
+        AccountTransferEntity balances = ((AccountResult.Success<AccountTransferEntity>) transfer).value();
+        assertEquals("Wrong origin balance", 600L, balances.getOriginAccount().getBalance());
+        assertEquals("Wrong destination balance", 400L, balances.getDestinationAccount().getBalance());
+        assertEquals("Destination should be credited on its owner", 400L, nodes.get(1).balance(destination));
+        assertTrue("Declined transfers should change nothing",
+                nodes.get(2).transferBetweenAccounts(origin, destination, 601L)
+                        instanceof AccountResult.InsufficientFunds);
+        assertTrue("Missing origins should be reported",
+                nodes.get(0).transferBetweenAccounts("missing", destination, 1L) instanceof AccountResult.NotFound);
+        assertEquals("Origin shouldn't change", 600L, nodes.get(1).getBalance(origin));
+    }
+
+    @Test
+    void joiningNodeTakesOverPartitionsWithTheirBalancesTest() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            nodes.get(0).depositToAccount(Integer.toString(i), i);
+        }
+        ClusterView before = nodes.get(0).view();
+
+        ClusterNode fourth = join("node-4");
+
+        int moved = 0;
+        for (int partition = 0; partition < ClusterView.PARTITIONS; partition++) {
+            ClusterMember owner = fourth.view().ownerOf(partition);
+            if (!owner.equals(before.ownerOf(partition))) {
+                moved++;
+                assertEquals("Partitions should only move to the new node", fourth.getMember(), owner);
+            }
+        }
+        assertTrue("About a quarter of the partitions should move, got " + moved, moved > 30 && moved < 110);
+        assertEquals("The new node should store what it was given", moved, fourth.getOwnedPartitions());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("Balance should survive the move", (long) i, nodes.get(i % 4).getBalance(Integer.toString(i)));
+        }
+    }
+
+    @Test
+    void concurrentTransfersAcrossNodesConserveMoneyTest() throws Exception {
+        int accounts = 20;
+        for (int i = 0; i < accounts; i++) {
+            nodes.get(0).depositToAccount("a" + i, 1000L);
+        }
+
+        runTransfers(accounts, () -> null);
+
+        assertMoneyConserved(accounts);
+    }
+
+    @Test
+    void transfersWhileANodeJoinsConserveMoneyTest() throws Exception {
+        int accounts = 200;
+        for (int i = 0; i < accounts; i++) {
+            nodes.get(0).depositToAccount("a" + i, 1000L);
+        }
+
+        runTransfers(accounts, () -> join("node-4"));
+
+        assertTrue("The new node should own partitions", nodes.get(3).getOwnedPartitions() > 0);
+        assertMoneyConserved(accounts);
+    }
+
+    @Test
+    void undecidedPreparedTransferIsAbortedAfterTimeoutTest() throws Exception {
+        ClusterNode origin = nodes.get(0);
+        String account = accountOwnedBy(origin.getMember(), "held-");
+        origin.depositToAccount(account, 1000L);
+
+        assertEquals("Prepare should debit right away", 700L,
+                origin.prepareDebit(42L, nodes.get(1).getMember().id(), account, 300L));
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (origin.getBalance(account) != 1000L && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals("The debit should be returned once the coordinator aborts", 1000L, origin.getBalance(account));
+        assertFalse("The coordinator should have decided to abort", nodes.get(1).resolve(42L));
+    }
+
+    private void runTransfers(int accounts, Callable<?> meanwhile) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 6; thread++) {
+                int seed = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        nodes.get((seed + i) % 3).transferBetweenAccounts("a" + ((seed * 7 + i) % accounts),
+                                "a" + ((seed + i * 3) % accounts), 1 + i % 300);
+                    }
+                    return null;
+                }));
+            }
+            meanwhile.call();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertMoneyConserved(int accounts) {
+        long total = 0;
+        for (int i = 0; i < accounts; i++) {
+            long balance = nodes.get(i % 3).getBalance("a" + i);
+            assertTrue("Balance should never be negative", balance >= 0);
+            total += balance;
+        }
+        assertEquals("Transfers shouldn't create or destroy money", accounts * 1000L, total);
+    }
+
+    private ClusterNode start(String id) throws IOException {
+        ClusterNode node = new ClusterNode(id, new InetSocketAddress("127.0.0.1", 0), Duration.ofMillis(200));
+        nodes.add(node);
+        return node;
+    }
+
+    private ClusterNode join(String id) throws IOException {
+        ClusterNode node = start(id);
+        node.joinThrough(new InetSocketAddress("127.0.0.1", nodes.get(0).getMember().port()));
+        return node;
+    }
+
+    private String accountOwnedBy(ClusterMember member, String prefix) {
+        ClusterView view = nodes.get(0).view();
+        for (int i = 0; ; i++) {
+            if (view.ownerOf(prefix + i).equals(member)) {
+                return prefix + i;
+            }
+        }
+    }
+}
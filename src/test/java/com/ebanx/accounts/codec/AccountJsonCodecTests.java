@@ -0,0 +1,133 @@
+package com.ebanx.accounts.codec;
+
+import com.ebanx.accounts.dtos.AccountDto;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import com.ebanx.accounts.dtos.AccountResponseDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class AccountJsonCodecTests {
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build();
+    private final AccountJsonCodec codec = new AccountJsonCodec(objectMapper);
+
+    @Test
+    void documentedRequestsAreParsedWithoutJacksonTest() throws IOException {
+        List<String> requests = List.of(
+                "{\"type\":\"deposit\", \"destination\":\"100\", \"amount\":10}",
+                "{\"type\":\"withdraw\",\"origin\":\"100\",\"amount\":5.50}",
+                " {\n\t\"type\" : \"transfer\" ,\"origin\":\"100\",\"amount\":15,\"destination\":\"300\"}\r\n",
+                "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":0.01,\"idempotency_key\":\"k-1\"}",
+                "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":-0.0}",
+                "{\"type\":null,\"origin\":null,\"destination\":\"\",\"amount\":null,\"idempotency_key\":null}",
+                "{\"type\":\"deposit\",\"amount\":1,\"amount\":2.000}",
+                "{}");
+        for (String request : requests) {
+            byte[] json = request.getBytes(StandardCharsets.UTF_8);
+            assertNotNull("Should be parsed by the codec: " + request,
+                    AccountJsonCodec.parseRequest(json, 0, json.length));
+            assertSameRequest(request);
+        }
+    }
+
+    @Test
+    void otherRequestsFallBackToJacksonTest() throws IOException {
+        List<String> requests = List.of(
+                "{\"type\":\"deposit\",\"destination\":\"1\\u00300\",\"amount\":10}",
+                "{\"type\":\"deposit\",\"destination\":\"cont\u00e1\",\"amount\":10}",
+                "{\"type\":\"deposit\",\"destination\":100,\"amount\":\"10.5\"}",
+                "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":1e3}",
+                "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":12345678901234567890.5}",
+                "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":10,\"note\":{\"a\":[1,2]}}",
+                "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":10} ",
+                "{\"type\":0,\"destination\":\"100\",\"amount\":10}");
+        for (String request : requests) {
+            assertSameRequest(request);
+        }
+        assertNull("A null body should stay null", codec.readRequest(bytes("null"), 0, 4));
+    }
+
+    @Test
+    void invalidRequestsFailLikeJacksonTest() {
+        List<String> requests = List.of(
+                "{\"type\":\"DEPOSIT\",\"destination\":\"100\",\"amount\":10}",
+                "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":01}",
+                "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":10.}",
+                "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":10",
+                "{\"type\":\"deposit\" \"destination\":\"100\"}",
+                "{\"type\":\"deposit\",\"destination\":\"100}",
+                "[]");
+        for (String request : requests) {
+            byte[] json = bytes(request);
+            assertThrows(JsonProcessingException.class, () -> objectMapper.readValue(json, AccountRequestDto.class));
+            assertThrows(JsonProcessingException.class, () -> codec.readRequest(json, 0, json.length));
+        }
+    }
+
+    @Test
+    void bodiesLargerThanTheBufferAreReadWholeTest() throws IOException {
+        char[] key = new char[5000];
+        Arrays.fill(key, 'k');
+        String request = "{\"type\":\"deposit\",\"destination\":\"100\",\"amount\":10,\"idempotency_key\":\""
+                + new String(key) + "\"}";
+
+        AccountRequestDto parsed = codec.readRequest(new ByteArrayInputStream(bytes(request)));
+
+        assertEquals("Wrong idempotency key", new String(key), parsed.getIdempotencyKey());
+        assertEquals("Wrong destination", "100",
+                codec.readRequest(new ByteArrayInputStream(bytes("{\"destination\":\"100\"}"))).getDestination());
+    }
+
+    @Test
+    void responsesAndBalancesMatchJacksonBytesTest() throws IOException {
+        List<AccountResponseDto> responses = List.of(
+                new AccountResponseDto(null, new AccountDto("100", 20f)),
+                new AccountResponseDto(new AccountDto("100", 15.25f), null),
+                new AccountResponseDto(new AccountDto("100", 0f), new AccountDto("300", 1.0E9f)),
+                new AccountResponseDto(null, new AccountDto("a\"b\\c\u0001", 1.5f)),
+                new AccountResponseDto(null, new AccountDto("cont\u00e1", 1.5f)),
+                new AccountResponseDto(null, new AccountDto("100", Float.NaN)),
+                new AccountResponseDto(null, null));
+        for (AccountResponseDto response : responses) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.writeResponse(response, out);
+            assertEquals("Response bytes should match Jackson", objectMapper.writeValueAsString(response),
+                    out.toString(StandardCharsets.UTF_8));
+        }
+        for (float balance : new float[]{0f, -0f, 20f, 15.25f, 1.0E-5f, 3.4028235E38f, Float.NaN}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.writeBalance(balance, out);
+            assertEquals("Balance bytes should match Jackson", objectMapper.writeValueAsString(balance),
+                    out.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void assertSameRequest(String request) throws IOException {
+        byte[] json = bytes(request);
+        AccountRequestDto expected = objectMapper.readValue(json, AccountRequestDto.class);
+        AccountRequestDto actual = codec.readRequest(json, 0, json.length);
+        assertEquals("Wrong type for " + request, expected.getEventType(), actual.getEventType());
+        assertEquals("Wrong amount for " + request, expected.getAmount(), actual.getAmount());
+        assertEquals("Wrong origin for " + request, expected.getOrigin(), actual.getOrigin());
+        assertEquals("Wrong destination for " + request, expected.getDestination(), actual.getDestination());
+        assertEquals("Wrong idempotency key for " + request, expected.getIdempotencyKey(),
+                actual.getIdempotencyKey());
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,170 @@
+package com.ebanx.accounts.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class IdempotencyCacheTests {
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    @Test
+    void repeatedKeyReturnsRecordedOutcomeTest() {
+        IdempotencyCache cache = new IdempotencyCache(4, 100, NO_EXPIRY);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertEquals("Wrong outcome", 1, cache.execute("a", "Aa", runs::incrementAndGet, -1));
+        assertEquals("Retry should return the recorded outcome", 1,
+                cache.execute("a", "Aa", runs::incrementAndGet, -1));
+        assertEquals("Operation should run once", 1, runs.get());
+        assertEquals("Other request under the same key should be rejected even with an equal hash", -1,
+                cache.execute("a", "BB", runs::incrementAndGet, -1));
+    }
+
+    @Test
+    void keysAreBoundedTest() {
+        IdempotencyCache cache = new IdempotencyCache(4, 100, NO_EXPIRY);
+        for (int i = 0; i < 10_000; i++) {
+            cache.execute(String.valueOf(i), "request", () -> 0, -1);
+        }
+        assertTrue("Cache should hold at most 100 keys", cache.size() <= 100);
+        AtomicInteger runs = new AtomicInteger();
+        cache.execute("0", "request", runs::incrementAndGet, -1);
+        assertEquals("Evicted key should run again", 1, runs.get());
+    }
+
+    @Test
+    void keysExpireTest() throws InterruptedException {
+        IdempotencyCache cache = new IdempotencyCache(1, 100, TimeUnit.MILLISECONDS.toNanos(20));
+        AtomicInteger runs = new AtomicInteger();
+        cache.execute("a", "request", runs::incrementAndGet, -1);
+        Thread.sleep(50);
+
+        cache.execute("a", "request", runs::incrementAndGet, -1);
+        assertEquals("Expired key should run again", 2, runs.get());
+        assertEquals("Expired keys should be dropped", 1, cache.size());
+    }
+
+    @Test
+    void failedOperationIsNotRecordedTest() {
+        IdempotencyCache cache = new IdempotencyCache(4, 100, NO_EXPIRY);
+        assertThrows(IllegalStateException.class, () -> cache.execute("a", "request", () -> {
+            throw new IllegalStateException();
+        }, -1));
+        assertEquals("Key should be retried after a failure", 1, cache.execute("a", "request", () -> 1, -1));
+    }
+
+    @Test
+    void concurrentRetriesRunOnceTest() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(4, 100, NO_EXPIRY);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.execute("a", "request", () -> {
+                        sleep();
+                        return runs.incrementAndGet();
+                    }, -1);
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertEquals("Every retry should see the first outcome", 1, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("Operation should run once", 1, runs.get());
+    }
+
+    @Test
+    void runningClaimIsNeitherEvictedNorExpiredTest() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(2, 4, TimeUnit.MILLISECONDS.toNanos(10));
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> cache.execute("a", "request", () -> {
+                await(release);
+                return runs.incrementAndGet();
+            }, -1));
+            Thread.sleep(20);
+            for (int i = 0; i < 100; i++) {
+                cache.execute(String.valueOf(i), "request", () -> 0, -1);
+            }
+            Future<Integer> retry = executor.submit(() -> cache.execute("a", "request", runs::incrementAndGet, -1));
+            Thread.sleep(20);
+            release.countDown();
+
+            assertEquals("Wrong outcome", 1, first.get());
+            assertEquals("Retry should wait for the running claim", 1, retry.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("Operation should run once", 1, runs.get());
+    }
+
+    @Test
+    void retryClaimsKeyAfterFailedAttemptTest() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(4, 100, NO_EXPIRY);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> cache.execute("a", "request", () -> {
+                await(release);
+                throw new IllegalStateException();
+            }, -1));
+            Thread.sleep(20);
+            Future<Integer> retry = executor.submit(() -> cache.execute("a", "request", () -> 2, -1));
+            Thread.sleep(20);
+            release.countDown();
+
+            ExecutionException failure = assertThrows(ExecutionException.class, first::get);
+            assertTrue("First attempt should fail", failure.getCause() instanceof IllegalStateException);
+            assertEquals("Waiting retry should run once the first attempt fails", 2, retry.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("Retry outcome should be recorded", 2, cache.execute("a", "request", () -> 3, -1));
+    }
+
+    @Test
+    void clearForgetsKeysTest() {
+        IdempotencyCache cache = new IdempotencyCache(4, 100, NO_EXPIRY);
+        cache.execute("a", "request", () -> 1, -1);
+        cache.clear();
+
+        assertEquals("Cleared cache should hold no keys", 0, cache.size());
+        assertEquals("Cleared key should run again", 2, cache.execute("a", "request", () -> 2, -1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.ebanx.accounts.ingest;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Deposits per second sent one at a time to {@code /event} against the binary ingestion port with 1, 16, 256 and
+ * 2048 events in flight, from one producer connection. Run with
+ * {@code ./gradlew benchmark --tests '*AccountIngestBenchmark'}, optionally overriding
+ * {@code -Daccounts.ingest.events=1000000}; HTTP gets a tenth of that.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"accounts.ingest.enabled=true", "accounts.ingest.port=0"})
+public class AccountIngestBenchmark {
+    private static final int DEFAULT_EVENTS = 1_000_000;
+    private static final int[] WINDOWS = {1, 16, 256, 2048};
+    private static final int ACCOUNTS = 10_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AccountIngestServer ingestServer;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void ingestThroughputReport() throws Exception {
+        int events = Integer.getInteger("accounts.ingest.events", DEFAULT_EVENTS);
+        System.out.printf("%-8s %-7s %12s%n", "path", "window", "events/s");
+
+        int httpEvents = events / 10;
+        post("/reset", "");
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < httpEvents; i++) {
+            post("/event", "{\"type\":\"deposit\",\"destination\":\"" + (i % ACCOUNTS) + "\",\"amount\":1.25}");
+        }
+        report("http", "1", httpEvents, startedAt);
+
+        String[] accountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = Integer.toString(i);
+        }
+        for (int window : WINDOWS) {
+            post("/reset", "");
+            try (AccountIngestClient client = new AccountIngestClient(
+                    new InetSocketAddress("127.0.0.1", ingestServer.getPort()))) {
+                AccountIngestClient.AckListener listener = (status, originBalance, destinationBalance) -> {
+                    if (status != IngestProtocol.APPLIED) {
+                        throw new IllegalStateException("Deposit answered " + status);
+                    }
+                };
+                startedAt = System.nanoTime();
+                for (int i = 0; i < events; i++) {
+                    client.deposit(accountIds[i % ACCOUNTS], 125);
+                    if (client.getPendingAcks() == window) {
+                        client.awaitAcks(window, listener);
+                    }
+                }
+                client.awaitAcks(client.getPendingAcks(), listener);
+                report("binary", Integer.toString(window), events, startedAt);
+            }
+        }
+    }
+
+    private void post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(path + " answered " + response.statusCode());
+        }
+    }
+
+    private static void report(String path, String window, int events, long startedAt) {
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        System.out.printf("%-8s %-7s %12.0f%n", path, window, events / seconds);
+    }
+}
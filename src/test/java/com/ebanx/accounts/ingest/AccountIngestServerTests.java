@@ -0,0 +1,189 @@
+package com.ebanx.accounts.ingest;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.AccountService;
+import com.ebanx.accounts.journal.AccountJournal;
+import com.ebanx.accounts.journal.JournalRecordType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class AccountIngestServerTests {
+    private AccountService accountService;
+    private AccountIngestServer server;
+    private AccountIngestClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        accountService = new AccountService(new AccountRepository());
+        server = new AccountIngestServer(accountService, new InetSocketAddress("127.0.0.1", 0), 2, 1024);
+        client = new AccountIngestClient(new InetSocketAddress("127.0.0.1", server.getPort()));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void eventsAreAcknowledgedInOrderWithBalancesTest() throws IOException {
+        client.deposit("100", 1000);
+        client.withdraw("100", 250);
+        client.transfer("100", "300", 500);
+        client.withdraw("200", 100);
+        client.withdraw("100", 1000);
+        client.deposit("100", 0);
+        List<String> acks = new ArrayList<>();
+
+        client.awaitAcks(6, (status, originBalance, destinationBalance) ->
+                acks.add(status + ":" + originBalance + ":" + destinationBalance));
+
+        assertEquals("Wrong acks", List.of("0:-1:1000", "0:750:-1", "0:250:500", "1:-1:-1", "2:-1:-1", "3:-1:-1"),
+                acks);
+        assertEquals("Events should go through AccountService", 2.5f,
+                ((AccountResult.Success<Float>) accountService.getAccountBalance("100")).value());
+        assertEquals("Nothing should be left to acknowledge", 0, client.getPendingAcks());
+    }
+
+    @Test
+    void pipelinedEventsAreAllAppliedTest() throws IOException {
+        int events = 100_000;
+        long[] applied = new long[1];
+        for (int i = 0; i < events; i++) {
+            client.deposit(Integer.toString(i % 500), 1);
+            if (client.getPendingAcks() == 2000) {
+                client.awaitAcks(2000, (status, originBalance, destinationBalance) ->
+                        applied[0] += status == IngestProtocol.APPLIED ? 1 : 0);
+            }
+        }
+        client.awaitAcks(client.getPendingAcks(), (status, originBalance, destinationBalance) ->
+                applied[0] += status == IngestProtocol.APPLIED ? 1 : 0);
+
+        assertEquals("Every event should be applied", (long) events, applied[0]);
+        for (int account = 0; account < 500; account++) {
+            assertEquals("Wrong balance for " + account, 2.0f,
+                    ((AccountResult.Success<Float>) accountService.getAccountBalance(Integer.toString(account)))
+                            .value());
+        }
+    }
+
+    @Test
+    void malformedFramesCloseTheConnectionTest() throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(ByteBuffer.allocate(IngestProtocol.LENGTH_BYTES + IngestProtocol.EVENT_BYTES)
+                    .putInt(IngestProtocol.EVENT_BYTES).put((byte) 9).putInt(0).putInt(0).putLong(1).array());
+            out.flush();
+            InputStream in = socket.getInputStream();
+            assertEquals("Connection should be closed without an ack", -1, in.read());
+        }
+
+        client.withdraw("100", 1);
+        client.flush();
+        client.awaitAcks(1, (status, originBalance, destinationBalance) ->
+                assertEquals("Other connections should be unaffected", IngestProtocol.NOT_FOUND, status));
+    }
+
+    @Test
+    void handlesBeyondTheLimitCloseTheConnectionTest() throws IOException {
+        for (int i = 0; i < 1024; i++) {
+            client.deposit("account-" + i, 1);
+        }
+        client.awaitAcks(1024, (status, originBalance, destinationBalance) -> {});
+        client.deposit("account-1024", 1);
+
+        assertThrows(IOException.class,
+                () -> client.awaitAcks(1, (status, originBalance, destinationBalance) -> {}));
+    }
+
+    @Test
+    void failedEventClosesOnlyItsConnectionTest() throws IOException {
+        AccountRepository accountRepository = new AccountRepository();
+        accountRepository.setJournal(new AccountJournal() {
+            @Override
+            public long append(JournalRecordType type, String origin, String destination, long amount,
+                               long originBalance, long destinationBalance) {
+                if ("broken".equals(destination)) {
+                    throw new UncheckedIOException(new IOException("Write-ahead log is unavailable"));
+                }
+                return 0L;
+            }
+
+            @Override
+            public void awaitDurable(long ticket) {
+            }
+        });
+        try (AccountIngestServer singleWorker = new AccountIngestServer(new AccountService(accountRepository),
+                new InetSocketAddress("127.0.0.1", 0), 1, 1024);
+             AccountIngestClient failing = connect(singleWorker);
+             AccountIngestClient bystander = connect(singleWorker)) {
+            failing.deposit("broken", 1);
+            assertThrows(IOException.class,
+                    () -> failing.awaitAcks(1, (status, originBalance, destinationBalance) -> {}));
+
+            bystander.deposit("100", 1);
+            bystander.awaitAcks(1, (status, originBalance, destinationBalance) ->
+                    assertEquals("Connections sharing the worker should be unaffected", IngestProtocol.APPLIED,
+                            status));
+            try (AccountIngestClient later = connect(singleWorker)) {
+                later.deposit("100", 1);
+                later.awaitAcks(1, (status, originBalance, destinationBalance) ->
+                        assertEquals("The worker should keep taking connections", 2L, destinationBalance));
+            }
+        }
+    }
+
+    @Test
+    void eventsOfOneReadWaitForTheJournalOnceTest() throws IOException {
+        AccountRepository accountRepository = new AccountRepository();
+        AtomicLong appended = new AtomicLong();
+        AtomicLong awaited = new AtomicLong();
+        AtomicLong durable = new AtomicLong();
+        accountRepository.setJournal(new AccountJournal() {
+            @Override
+            public long append(JournalRecordType type, String origin, String destination, long amount,
+                               long originBalance, long destinationBalance) {
+                return appended.incrementAndGet();
+            }
+
+            @Override
+            public void awaitDurable(long ticket) {
+                awaited.incrementAndGet();
+                durable.accumulateAndGet(ticket, Math::max);
+            }
+        });
+        int events = 1000;
+        try (AccountIngestServer journaled = new AccountIngestServer(new AccountService(accountRepository),
+                new InetSocketAddress("127.0.0.1", 0), 1, 1024);
+             AccountIngestClient producer = connect(journaled)) {
+            for (int i = 0; i < events; i++) {
+                producer.deposit(Integer.toString(i % 10), 1);
+            }
+            producer.awaitAcks(events, (status, originBalance, destinationBalance) -> {});
+        }
+
+        assertEquals("Every event should be durable once acknowledged", (long) events, durable.get());
+        assertTrue("Events should wait for the journal per read, not per event: " + awaited.get(),
+                awaited.get() < events / 10);
+    }
+
+    private static AccountIngestClient connect(AccountIngestServer server) throws IOException {
+        return new AccountIngestClient(new InetSocketAddress("127.0.0.1", server.getPort()));
+    }
+}
@@ -0,0 +1,55 @@
+package com.ebanx.accounts.journal;
+
+import com.ebanx.accounts.AccountRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Startup recovery time from a snapshot alone and from the write-ahead log alone. Run with
+ * {@code ./gradlew benchmark --tests '*JournalRecoveryBenchmark'}, optionally overriding
+ * {@code -Daccounts.recovery.accounts=10000000}.
+ */
+@Tag("benchmark")
+public class JournalRecoveryBenchmark {
+    private static final int DEFAULT_ACCOUNTS = 10_000_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoveryReport() throws IOException {
+        int accounts = Integer.getInteger("accounts.recovery.accounts", DEFAULT_ACCOUNTS);
+        AccountRepository accountRepository = new AccountRepository(1024, accounts);
+        long startedAt = System.nanoTime();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 0, FsyncPolicy.ASYNC, Duration.ofMillis(2),
+                256L << 20)) {
+            accountRepository.setJournal(writeAheadLog);
+            for (int i = 0; i < accounts; i++) {
+                accountRepository.createOrCreditAccount(String.valueOf(i), 100L);
+            }
+        }
+        System.out.printf("%-28s %10d ms%n", "write log (async fsync)", millisSince(startedAt));
+
+        startedAt = System.nanoTime();
+        new JournalRecovery(directory).recover(new AccountRepository(1024, accounts));
+        System.out.printf("%-28s %10d ms%n", "replay log", millisSince(startedAt));
+
+        startedAt = System.nanoTime();
+        long firstSegment = WriteAheadLog.listSegments(directory).get(0) + 1_000_000;
+        AccountSnapshots.write(directory, firstSegment, accountRepository);
+        System.out.printf("%-28s %10d ms%n", "write snapshot", millisSince(startedAt));
+
+        startedAt = System.nanoTime();
+        new JournalRecovery(directory).recover(new AccountRepository(1024, accounts));
+        System.out.printf("%-28s %10d ms%n", "load snapshot", millisSince(startedAt));
+    }
+
+    private static long millisSince(long startedAt) {
+        return (System.nanoTime() - startedAt) / 1_000_000;
+    }
+}
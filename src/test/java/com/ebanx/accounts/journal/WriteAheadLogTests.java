@@ -0,0 +1,224 @@
+package com.ebanx.accounts.journal;
+
+import com.ebanx.accounts.AccountBatch;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.dtos.AccountEventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class WriteAheadLogTests {
+    private static final long SEGMENT_SIZE = 64L << 20;
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog writeAheadLog;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+    }
+
+    @Test
+    void replayRestoresEveryOperationTest() throws IOException {
+        for (FsyncPolicy fsyncPolicy : FsyncPolicy.values()) {
+            Path policyDirectory = directory.resolve(fsyncPolicy.name());
+            AccountRepository accountRepository = journaledRepository(policyDirectory, fsyncPolicy);
+            accountRepository.createOrCreditAccount("100", 1000L);
+            accountRepository.createOrCreditAccount("200", 500L);
+            accountRepository.debitAccount("100", 300L);
+            accountRepository.transferBetweenAccounts("100", "300", 200L);
+            accountRepository.creditAccount("200", 1L);
+            writeAheadLog.close();
+            writeAheadLog = null;
+
+            AccountRepository recovered = recover(policyDirectory);
+            assertEquals("Wrong recovered size for " + fsyncPolicy, 3, recovered.getSize());
+            assertEquals("Wrong balance of 100 for " + fsyncPolicy, 500L, recovered.getBalance("100"));
+            assertEquals("Wrong balance of 200 for " + fsyncPolicy, 501L, recovered.getBalance("200"));
+            assertEquals("Wrong balance of 300 for " + fsyncPolicy, 200L, recovered.getBalance("300"));
+        }
+    }
+
+    @Test
+    void resetIsReplayedTest() throws IOException {
+        AccountRepository accountRepository = journaledRepository(directory, FsyncPolicy.GROUP_COMMIT);
+        accountRepository.createOrCreditAccount("100", 1000L);
+        accountRepository.emptyDatabase();
+        accountRepository.createOrCreditAccount("200", 10L);
+        writeAheadLog.close();
+        writeAheadLog = null;
+
+        AccountRepository recovered = recover(directory);
+        assertEquals("Only the account created after the reset should exist", 1, recovered.getSize());
+        assertEquals("Wrong balance of 200", 10L, recovered.getBalance("200"));
+    }
+
+    @Test
+    void tornTailIsDiscardedTest() throws IOException {
+        AccountRepository accountRepository = journaledRepository(directory, FsyncPolicy.PER_EVENT);
+        accountRepository.createOrCreditAccount("100", 1000L);
+        accountRepository.createOrCreditAccount("100", 1000L);
+        writeAheadLog.close();
+        writeAheadLog = null;
+
+        Path segment = WriteAheadLog.segmentPath(directory, WriteAheadLog.listSegments(directory).get(0));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        AccountRepository recovered = recover(directory);
+        assertEquals("Only the intact record should be replayed", 1000L, recovered.getBalance("100"));
+    }
+
+    @Test
+    void tornBatchIsDiscardedAsAWholeTest() throws IOException {
+        AccountRepository accountRepository = journaledRepository(directory, FsyncPolicy.PER_EVENT);
+        accountRepository.createOrCreditAccount("100", 1000L);
+        AccountBatch batch = new AccountBatch(2);
+        batch.add(AccountEventType.TRANSFER, "100", "200", 300L);
+        batch.add(AccountEventType.DEPOSIT, null, "300", 10L);
+        assertTrue("Batch should be applied", accountRepository.applyAtomically(batch));
+        writeAheadLog.close();
+        writeAheadLog = null;
+
+        assertEquals("Batch should be recovered", 700L, recover(directory).getBalance("100"));
+
+        Path segment = WriteAheadLog.segmentPath(directory, WriteAheadLog.listSegments(directory).get(0));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        AccountRepository recovered = recover(directory);
+        assertEquals("No part of a torn batch should be replayed", 1000L, recovered.getBalance("100"));
+        assertEquals("No part of a torn batch should be replayed", 1, recovered.getSize());
+    }
+
+    @Test
+    void snapshotTruncatesTheLogTest() throws IOException {
+        AccountRepository accountRepository = journaledRepository(directory, FsyncPolicy.GROUP_COMMIT);
+        for (int i = 0; i < 1000; i++) {
+            accountRepository.createOrCreditAccount(String.valueOf(i), i + 1L);
+        }
+        try (JournalSnapshotter snapshotter = new JournalSnapshotter(directory, writeAheadLog, accountRepository,
+                Duration.ofHours(1))) {
+            snapshotter.snapshot();
+            accountRepository.transferBetweenAccounts("999", "1000", 1000L);
+            snapshotter.snapshot();
+            accountRepository.createOrCreditAccount("5", 1L);
+            snapshotter.snapshot();
+        }
+        accountRepository.debitAccount("0", 1L);
+        writeAheadLog.close();
+        writeAheadLog = null;
+
+        List<Long> snapshots = AccountSnapshots.listSnapshots(directory);
+        List<Long> segments = WriteAheadLog.listSegments(directory);
+        assertEquals("The newest snapshot and the previous one should be kept", 2, snapshots.size());
+        assertEquals("Segments before the previous snapshot should be deleted", snapshots.get(1), segments.get(0));
+
+        AccountRepository recovered = recover(directory);
+        assertEquals("Wrong recovered size", 1001, recovered.getSize());
+        assertEquals("Wrong balance of 0", 0L, recovered.getBalance("0"));
+        assertEquals("Wrong balance of 999", 0L, recovered.getBalance("999"));
+        assertEquals("Wrong balance of 1000", 1000L, recovered.getBalance("1000"));
+        assertEquals("Wrong balance of 5", 7L, recovered.getBalance("5"));
+    }
+
+    @Test
+    void unreadableSnapshotFallsBackToTheWholeHistoryTest() throws IOException {
+        AccountRepository accountRepository = journaledRepository(directory, FsyncPolicy.GROUP_COMMIT);
+        try (JournalSnapshotter snapshotter = new JournalSnapshotter(directory, writeAheadLog, accountRepository,
+                Duration.ofHours(1))) {
+            accountRepository.createOrCreditAccount("100", 10L);
+            snapshotter.snapshot();
+            accountRepository.createOrCreditAccount("200", 20L);
+            snapshotter.snapshot();
+            accountRepository.createOrCreditAccount("300", 30L);
+            snapshotter.snapshot();
+        }
+        accountRepository.createOrCreditAccount("400", 40L);
+        writeAheadLog.close();
+        writeAheadLog = null;
+        corrupt(AccountSnapshots.snapshotPath(directory, AccountSnapshots.listSnapshots(directory).get(0)));
+
+        AccountRepository recovered = recover(directory);
+        assertEquals("Every account should be recovered", 4, recovered.getSize());
+        assertEquals("Wrong balance of 100", 10L, recovered.getBalance("100"));
+        assertEquals("Wrong balance of 400", 40L, recovered.getBalance("400"));
+    }
+
+    @Test
+    void missingHistoryFailsRecoveryTest() throws IOException {
+        AccountRepository accountRepository = journaledRepository(directory, FsyncPolicy.GROUP_COMMIT);
+        try (JournalSnapshotter snapshotter = new JournalSnapshotter(directory, writeAheadLog, accountRepository,
+                Duration.ofHours(1))) {
+            accountRepository.createOrCreditAccount("100", 10L);
+            snapshotter.snapshot();
+            accountRepository.createOrCreditAccount("200", 20L);
+            snapshotter.snapshot();
+        }
+        writeAheadLog.close();
+        writeAheadLog = null;
+        List<Long> snapshots = AccountSnapshots.listSnapshots(directory);
+        corrupt(AccountSnapshots.snapshotPath(directory, snapshots.get(0)));
+        corrupt(AccountSnapshots.snapshotPath(directory, snapshots.get(1)));
+        assertThrows(IOException.class, () -> recover(directory));
+
+        Path gap = directory.resolve("gap");
+        Files.createDirectories(gap);
+        Files.copy(WriteAheadLog.segmentPath(directory, snapshots.get(0)),
+                WriteAheadLog.segmentPath(gap, snapshots.get(0)));
+        assertThrows(IOException.class, () -> recover(gap));
+    }
+
+    @Test
+    void snapshotIsReadInWindowsTest() throws IOException {
+        AccountRepository accountRepository = new AccountRepository();
+        for (int i = 0; i < 50_000; i++) {
+            accountRepository.createOrCreditAccount(i % 7 == 0 ? "account-" + i : String.valueOf(i), i + 1L);
+        }
+        AccountSnapshots.write(directory, 3, accountRepository);
+        AccountRepository recovered = new AccountRepository();
+        assertTrue("Snapshot should be read", AccountSnapshots.read(AccountSnapshots.snapshotPath(directory, 3),
+                recovered, 1 << 17));
+        assertEquals("Every account should be read", 50_000, recovered.getSize());
+        assertEquals("Wrong balance", 50_000L, recovered.getBalance("49999"));
+        assertEquals("Wrong balance", 49_988L, recovered.getBalance("account-49987"));
+    }
+
+    private static void corrupt(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+    }
+
+    private AccountRepository journaledRepository(Path journalDirectory, FsyncPolicy fsyncPolicy) throws IOException {
+        AccountRepository accountRepository = new AccountRepository();
+        long firstSegment = new JournalRecovery(journalDirectory).recover(accountRepository);
+        writeAheadLog = new WriteAheadLog(journalDirectory, firstSegment, fsyncPolicy, Duration.ofMillis(1),
+                SEGMENT_SIZE);
+        accountRepository.setJournal(writeAheadLog);
+        return accountRepository;
+    }
+
+    private static AccountRepository recover(Path journalDirectory) throws IOException {
+        AccountRepository accountRepository = new AccountRepository();
+        new JournalRecovery(journalDirectory).recover(accountRepository);
+        return accountRepository;
+    }
+}
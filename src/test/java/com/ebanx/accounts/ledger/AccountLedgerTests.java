@@ -0,0 +1,192 @@
+package com.ebanx.accounts.ledger;
+
+import com.ebanx.accounts.AccountBatch;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.dtos.AccountEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class AccountLedgerTests {
+    private AccountRepository accountRepository;
+    private AccountLedger ledger;
+
+    @BeforeEach
+    public void setUp() {
+        accountRepository = new AccountRepository();
+        ledger = new AccountLedger(4, accountRepository.getAccountIds());
+        accountRepository.setLedger(ledger);
+    }
+
+    @Test
+    void historyIsNewestFirstWithResultingBalancesTest() {
+        accountRepository.createOrCreditAccount("100", 1000L);
+        accountRepository.debitAccount("100", 300L);
+        accountRepository.transferBetweenAccounts("100", "200", 200L);
+        accountRepository.debitAccount("100", 10_000L);
+
+        List<Long> balances = new ArrayList<>();
+        List<AccountEventType> types = new ArrayList<>();
+        long next = ledger.visitAccount("100", accountRepository.getLastTransaction("100"), 10,
+                (sequence, timestamp, type, origin, destination, amount, originBalance, destinationBalance) -> {
+                    types.add(type);
+                    balances.add("100".equals(origin) ? originBalance : destinationBalance);
+                });
+
+        assertEquals("Declined operations shouldn't be recorded",
+                List.of(AccountEventType.TRANSFER, AccountEventType.WITHDRAW, AccountEventType.DEPOSIT), types);
+        assertEquals("Wrong resulting balances", List.of(500L, 700L, 1000L), balances);
+        assertEquals("History should be exhausted", AccountLedger.NO_TRANSACTION, next);
+    }
+
+    @Test
+    void transferBelongsToBothAccountsTest() {
+        accountRepository.createOrCreditAccount("100", 1000L);
+        accountRepository.createOrCreditAccount("300", 1L);
+        accountRepository.transferBetweenAccounts("100", "200", 200L);
+        accountRepository.createOrCreditAccount("200", 5L);
+
+        accountRepository.transferBetweenAccounts("300", "300", 1L);
+
+        assertEquals("Wrong history of 100", List.of(3L, 1L), sequences("100", 10));
+        assertEquals("Wrong history of 200", List.of(4L, 3L), sequences("200", 10));
+        assertEquals("Wrong history of 300", List.of(5L, 2L), sequences("300", 10));
+    }
+
+    @Test
+    void cursorResumesWhereThePreviousPageEndedTest() {
+        for (int i = 0; i < 25; i++) {
+            accountRepository.createOrCreditAccount("100", 1L);
+            accountRepository.createOrCreditAccount("200", 1L);
+        }
+
+        List<Long> sequences = new ArrayList<>();
+        long cursor = accountRepository.getLastTransaction("100");
+        int pages = 0;
+        do {
+            cursor = ledger.visitAccount("100", cursor, 10,
+                    (sequence, timestamp, type, origin, destination, amount, originBalance, destinationBalance) ->
+                            sequences.add(sequence));
+            pages++;
+        } while (cursor != AccountLedger.NO_TRANSACTION);
+
+        assertEquals("Wrong number of pages", 3, pages);
+        assertEquals("Every transaction should be listed once", 25, sequences.size());
+        assertEquals("Wrong newest transaction", 49L, sequences.get(0));
+        assertEquals("Wrong oldest transaction", 1L, sequences.get(24));
+        assertTrue("Transaction should involve 100", ledger.involves(1L, "100"));
+        assertFalse("Transaction shouldn't involve 100", ledger.involves(2L, "100"));
+        assertFalse("Transaction shouldn't exist yet", ledger.involves(51L, "100"));
+    }
+
+    @Test
+    void oldestChunksAreDroppedTest() {
+        long transactions = 6L * AccountLedger.CHUNK_SIZE - 1;
+        for (long i = 0; i < transactions; i++) {
+            accountRepository.createOrCreditAccount(String.valueOf(i % 2), 1L);
+        }
+
+        assertEquals("Only the newest chunks should be retained", 4L * AccountLedger.CHUNK_SIZE, ledger.size());
+        List<Long> exported = new ArrayList<>();
+        ledger.visitAll((sequence, timestamp, type, origin, destination, amount, originBalance, destinationBalance) ->
+                exported.add(sequence));
+        assertEquals("Export should start at the oldest retained transaction", 2L * AccountLedger.CHUNK_SIZE,
+                exported.get(0));
+        assertEquals("Export should cover every retained transaction", ledger.size(), (long) exported.size());
+        assertEquals("History should end at the oldest retained transaction", 2 * AccountLedger.CHUNK_SIZE,
+                sequences("0", Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void atomicBatchesAndResetTest() {
+        AccountBatch batch = new AccountBatch(2);
+        batch.add(AccountEventType.DEPOSIT, null, "100", 500L);
+        batch.add(AccountEventType.TRANSFER, "100", "200", 200L);
+        assertTrue("Batch should be applied", accountRepository.applyAtomically(batch));
+        assertEquals("Every event of the batch should be recorded", 2L, ledger.size());
+
+        accountRepository.emptyDatabase();
+        assertEquals("Reset should clear the ledger", 0L, ledger.size());
+        accountRepository.createOrCreditAccount("100", 1L);
+        assertEquals("Reset should clear the history", List.of(1L), sequences("100", 10));
+    }
+
+    @Test
+    void balanceAsOfAnyTransactionTest() {
+        String[] ids = {"hot", "0", "cold-1", "300"};
+        Random random = new Random(7);
+        List<Map<String, Long>> balancesAfter = new ArrayList<>();
+        balancesAfter.add(Map.of());
+        Map<String, Long> balances = new HashMap<>();
+        long transactions = 3L * AccountLedger.CHUNK_SIZE + 100;
+        for (long i = 1; i <= transactions; i++) {
+            int pick = random.nextInt(1000);
+            String id = pick < 900 ? ids[0] : pick < 990 ? ids[1] : pick < 999 ? ids[2] : ids[3];
+            if (id.equals(ids[3]) && balances.containsKey(id)) {
+                id = ids[0];
+            }
+            balances.put(id, accountRepository.createOrCreditAccount(id, 1L));
+            balancesAfter.add(i % 1000 == 0 || i < 10 || i > transactions - 10 ? new HashMap<>(balances) : null);
+        }
+        assertEquals("Every full chunk should be indexed", 3, ledger.indexSealedChunks());
+
+        for (int sequence = 0; sequence < balancesAfter.size(); sequence++) {
+            Map<String, Long> expected = balancesAfter.get(sequence);
+            if (expected == null) {
+                continue;
+            }
+            for (String id : ids) {
+                long balance = ledger.balanceAt(id, accountRepository.getLastTransaction(id), sequence);
+                assertEquals("Wrong balance of " + id + " as of " + sequence,
+                        expected.getOrDefault(id, AccountLedger.NO_BALANCE), balance);
+            }
+        }
+    }
+
+    @Test
+    void droppedHistoryIsReportedTest() {
+        accountRepository.createOrCreditAccount("cold", 5L);
+        for (long i = 0; i < 5L * AccountLedger.CHUNK_SIZE; i++) {
+            accountRepository.createOrCreditAccount("hot", 1L);
+        }
+        accountRepository.createOrCreditAccount("cold", 5L);
+        ledger.indexSealedChunks();
+
+        long newest = accountRepository.getLastTransaction("cold");
+        assertEquals("Dropped history should be reported", AccountLedger.NOT_RETAINED,
+                ledger.balanceAt("cold", newest, newest - 1));
+        assertEquals("Retained history should be answered", 10L, ledger.balanceAt("cold", newest, newest));
+        assertEquals("Dropped history should be reported", AccountLedger.NOT_RETAINED, ledger.sequenceAt(0L));
+        assertEquals("Timestamps after the last transaction resolve to it", ledger.lastSequence(),
+                ledger.sequenceAt(Long.MAX_VALUE));
+    }
+
+    @Test
+    void timestampsResolveToTheLastTransactionBeforeThemTest() throws InterruptedException {
+        assertEquals("Nothing should be recorded yet", AccountLedger.NO_TRANSACTION,
+                ledger.sequenceAt(System.currentTimeMillis()));
+        accountRepository.createOrCreditAccount("100", 1L);
+        Thread.sleep(5);
+        long between = System.currentTimeMillis();
+        Thread.sleep(5);
+        accountRepository.createOrCreditAccount("100", 1L);
+
+        assertEquals("Wrong transaction", 1L, ledger.sequenceAt(between));
+        assertEquals("Wrong transaction", AccountLedger.NO_TRANSACTION, ledger.sequenceAt(between - 1000));
+    }
+
+    private List<Long> sequences(String accountId, int limit) {
+        List<Long> sequences = new ArrayList<>();
+        ledger.visitAccount(accountId, accountRepository.getLastTransaction(accountId), limit,
+                (sequence, timestamp, type, origin, destination, amount, originBalance, destinationBalance) ->
+                        sequences.add(sequence));
+        return sequences;
+    }
+}
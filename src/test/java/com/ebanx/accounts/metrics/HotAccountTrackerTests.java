@@ -0,0 +1,53 @@
+package com.ebanx.accounts.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class HotAccountTrackerTests {
+
+    @Test
+    void accountAboveThresholdIsReportedTest() {
+        HotAccountTracker tracker = new HotAccountTracker(8, 1);
+        for (int i = 0; i < 10_000; i++) {
+            tracker.sample(i % 4 == 0 ? "hot" : String.valueOf(i));
+        }
+
+        List<HotAccountTracker.HotAccount> hotAccounts = tracker.drain(0.1);
+        assertEquals("Only the hot account should be reported", 1, hotAccounts.size());
+        assertEquals("Wrong hot account", "hot", hotAccounts.get(0).accountId());
+        assertTrue("Share should be a lower bound of 25%", hotAccounts.get(0).share() <= 0.25
+                && hotAccounts.get(0).share() > 0.1);
+    }
+
+    @Test
+    void hotAccountsAreSortedByShareTest() {
+        HotAccountTracker tracker = new HotAccountTracker(8, 1);
+        for (int i = 0; i < 1000; i++) {
+            tracker.sample("warm");
+            tracker.sample("hot");
+            tracker.sample("hot");
+        }
+
+        List<HotAccountTracker.HotAccount> hotAccounts = tracker.drain(0.1);
+        assertEquals("Both accounts should be reported", 2, hotAccounts.size());
+        assertEquals("Hottest account should come first", "hot", hotAccounts.get(0).accountId());
+        assertEquals("Wrong share", 2.0 / 3, hotAccounts.get(0).share());
+    }
+
+    @Test
+    void drainStartsANewWindowTest() {
+        HotAccountTracker tracker = new HotAccountTracker(8, 1);
+        for (int i = 0; i < 100; i++) {
+            tracker.sample("hot");
+        }
+        tracker.drain(0.1);
+
+        for (int i = 0; i < 100; i++) {
+            tracker.sample(String.valueOf(i));
+        }
+        assertTrue("Previous window shouldn't be reported", tracker.drain(0.1).isEmpty());
+    }
+}
@@ -0,0 +1,72 @@
+package com.ebanx.accounts.metrics;
+
+import com.ebanx.accounts.AccountEntity;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountService;
+import com.ebanx.accounts.dtos.AccountEventType;
+import com.ebanx.accounts.dtos.AccountRequestDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class MicrometerAccountMetricsTests {
+    private MeterRegistry registry;
+    private AccountRepository accountRepository;
+    private AccountService accountService;
+    private MicrometerAccountMetrics accountMetrics;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        accountRepository = new AccountRepository();
+        accountService = new AccountService(accountRepository);
+        accountMetrics = new MicrometerAccountMetrics(registry, accountRepository, new HotAccountTracker(8, 1), 0.5,
+                Duration.ofHours(1));
+        accountService.setMetrics(accountMetrics);
+        accountRepository.setMetrics(accountMetrics);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        accountMetrics.close();
+    }
+
+    @Test
+    void operationsAreTimedByOutcomeTest() {
+        accountRepository.putAccount(new AccountEntity("100", 1000L));
+        accountService.withdrawFromAccount(new AccountRequestDto(AccountEventType.WITHDRAW, 5.0f, "100"));
+        accountService.withdrawFromAccount(new AccountRequestDto(AccountEventType.WITHDRAW, 50.0f, "100"));
+        accountService.withdrawFromAccount(new AccountRequestDto(AccountEventType.WITHDRAW, 5.0f, "200"));
+        accountService.getAccountBalance("100");
+
+        assertEquals("Wrong successful withdraws", 1L, timerCount("withdraw", "ok"));
+        assertEquals("Wrong declined withdraws", 1L, timerCount("withdraw", "insufficient_funds"));
+        assertEquals("Wrong withdraws from missing accounts", 1L, timerCount("withdraw", "not_found"));
+        assertEquals("Wrong balance reads", 1L, timerCount("balance", "ok"));
+        assertEquals("Wrong repository size", 1.0, registry.find("accounts.size").gauge().value());
+    }
+
+    @Test
+    void hotAccountsArePublishedTest() {
+        for (int i = 0; i < 100; i++) {
+            accountService.getAccountBalance("hot");
+        }
+        accountService.getAccountBalance("cold");
+        accountMetrics.publishHotAccounts();
+
+        assertEquals("Wrong hot account count", 1.0, registry.find("accounts.hot.count").gauge().value());
+        assertTrue("Hot account share should be published",
+                registry.find("accounts.hot.share").tag("account", "hot").gauge().value() > 0.5);
+    }
+
+    private long timerCount(String operation, String outcome) {
+        return registry.find("accounts.operations").tag("operation", operation).tag("outcome", outcome).timer()
+                .count();
+    }
+}
@@ -0,0 +1,98 @@
+package com.ebanx.accounts.pipeline;
+
+import com.ebanx.accounts.AccountRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+
+/**
+ * Throughput and latency percentiles of the sharded pipeline for growing shard counts, next to the lock-striped
+ * {@link AccountRepository} on the same workload: closed-loop client threads, like servlet threads, each waiting for
+ * its event to complete before sending the next one, with 20% of transfers touching a single hot account. Run with
+ * {@code ./gradlew benchmark --tests '*ShardedAccountPipelineBenchmark'}, optionally overriding
+ * {@code -Daccounts.pipeline.clients=64} and {@code -Daccounts.pipeline.shards=1,2,4,8}.
+ */
+@Tag("benchmark")
+public class ShardedAccountPipelineBenchmark {
+    private static final int ACCOUNTS = 100_000;
+    private static final int OPERATIONS_PER_CLIENT = 50_000;
+
+    @Test
+    void pipelineScalingReport() throws Exception {
+        int clients = Integer.getInteger("accounts.pipeline.clients", 64);
+        String[] shardCounts = System.getProperty("accounts.pipeline.shards", "1,2,4,8").split(",");
+        String[] ids = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids[i] = String.valueOf(i);
+        }
+        System.out.printf("%-16s %12s %10s %10s %10s%n", "store", "ops/s", "p50 us", "p99 us", "p99.9 us");
+
+        AccountRepository accountRepository = new AccountRepository(1024, ACCOUNTS);
+        for (String id : ids) {
+            accountRepository.createOrCreditAccount(id, 1_000_000L);
+        }
+        run("locked repository", clients, operation -> {
+            accountRepository.transferBetweenAccounts(ids[origin(operation)], ids[destination(operation)], 1L);
+            return true;
+        });
+
+        for (String shardCount : shardCounts) {
+            try (ShardedAccountPipeline pipeline = new ShardedAccountPipeline(Integer.parseInt(shardCount.trim()),
+                    16384, ACCOUNTS)) {
+                for (String id : ids) {
+                    pipeline.deposit(id, 1_000_000L).join();
+                }
+                run("pipeline x" + pipeline.getShardCount(), clients, operation -> pipeline.transfer(
+                        ids[origin(operation)], ids[destination(operation)], 1L).join() != null);
+            }
+        }
+    }
+
+    private static int origin(int operation) {
+        return (int) ((operation * 7919L) % ACCOUNTS);
+    }
+
+    private static int destination(int operation) {
+        return operation % 5 == 0 ? 0 : (int) ((operation * 104729L + 1) % ACCOUNTS);
+    }
+
+    private static void run(String name, int clients, IntPredicate operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long[] latencies = new long[clients * OPERATIONS_PER_CLIENT];
+        long startedAt = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int client = 0; client < clients; client++) {
+                int offset = client * OPERATIONS_PER_CLIENT;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < OPERATIONS_PER_CLIENT; i++) {
+                        long sentAt = System.nanoTime();
+                        operation.test(offset + i);
+                        latencies[offset + i] = System.nanoTime() - sentAt;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        Arrays.sort(latencies);
+        System.out.printf("%-16s %12.0f %10.1f %10.1f %10.1f%n", name, latencies.length / seconds,
+                percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(quantile * sorted.length))] / 1000.0;
+    }
+}
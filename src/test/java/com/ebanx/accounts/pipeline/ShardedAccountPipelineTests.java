@@ -0,0 +1,129 @@
+package com.ebanx.accounts.pipeline;
+
+import com.ebanx.accounts.AccountEntity;
+import com.ebanx.accounts.AccountTransferEntity;
+import com.ebanx.accounts.exceptions.AccountNotFoundException;
+import com.ebanx.accounts.exceptions.AccountWithLowerBalanceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class ShardedAccountPipelineTests {
+    private static final int THREADS = 8;
+    private static final int ACCOUNTS = 64;
+
+    private ShardedAccountPipeline pipeline;
+
+    @BeforeEach
+    public void setUp() {
+        pipeline = new ShardedAccountPipeline(4, 64, 0);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    @Test
+    void depositWithdrawAndBalanceTest() throws Exception {
+        assertEquals("Wrong balance", 1000L, pipeline.deposit("100", 1000L).get().getBalance());
+        assertEquals("Wrong balance", 700L, pipeline.withdraw("100", 300L).get().getBalance());
+        assertEquals("Wrong balance", 700L, pipeline.getAccount("100").get().getBalance());
+
+        assertFailsWith(AccountNotFoundException.class, pipeline.getAccount("200"));
+        assertFailsWith(AccountNotFoundException.class, pipeline.withdraw("200", 1L));
+        assertFailsWith(AccountWithLowerBalanceException.class, pipeline.withdraw("100", 701L));
+    }
+
+    @Test
+    void transferAcrossShardsTest() throws Exception {
+        String origin = "100";
+        String destination = idOnOtherShard(origin);
+        pipeline.deposit(origin, 1000L).get();
+
+        AccountTransferEntity transfer = pipeline.transfer(origin, destination, 400L).get();
+
+        assertEquals("Wrong origin balance", 600L, transfer.getOriginAccount().getBalance());
+        assertEquals("Wrong destination balance", 400L, transfer.getDestinationAccount().getBalance());
+        assertEquals("Destination should be credited", 400L, pipeline.getAccount(destination).get().getBalance());
+        assertFailsWith(AccountWithLowerBalanceException.class, pipeline.transfer(origin, destination, 601L));
+        assertFailsWith(AccountNotFoundException.class, pipeline.transfer("missing", destination, 1L));
+    }
+
+    @Test
+    void concurrentTransfersConserveMoneyTest() throws Exception {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            pipeline.deposit(String.valueOf(i), 1000L).get();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> publishers = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int seed = thread;
+                publishers.add(executor.submit(() -> {
+                    List<CompletableFuture<?>> transfers = new ArrayList<>();
+                    for (int i = 0; i < 10_000; i++) {
+                        String origin = String.valueOf((seed * 31 + i * 7) % ACCOUNTS);
+                        String destination = String.valueOf((seed * 17 + i * 13) % ACCOUNTS);
+                        transfers.add(pipeline.transfer(origin, destination, 1 + i % 50L)
+                                .exceptionally(failure -> null));
+                    }
+                    CompletableFuture.allOf(transfers.toArray(new CompletableFuture<?>[0])).join();
+                    return null;
+                }));
+            }
+            for (Future<?> publisher : publishers) {
+                publisher.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long total = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            AccountEntity account = pipeline.getAccount(String.valueOf(i)).get();
+            assertTrue("Balance should never be negative", account.getBalance() >= 0);
+            total += account.getBalance();
+        }
+        assertEquals("Transfers shouldn't create or destroy money", ACCOUNTS * 1000L, total);
+    }
+
+    @Test
+    void resetClearsEveryShardTest() throws Exception {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            pipeline.deposit(String.valueOf(i), 1L).get();
+        }
+
+        pipeline.reset().get();
+
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertFailsWith(AccountNotFoundException.class, pipeline.getAccount(String.valueOf(i)));
+        }
+    }
+
+    private String idOnOtherShard(String id) {
+        for (int i = 0; ; i++) {
+            String candidate = String.valueOf(i);
+            if (pipeline.shardFor(candidate) != pipeline.shardFor(id)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> expected, CompletableFuture<?> future) {
+        ExecutionException failure = assertThrows(ExecutionException.class, future::get);
+        assertEquals("Wrong failure", expected, failure.getCause().getClass());
+    }
+}
@@ -0,0 +1,167 @@
+package com.ebanx.accounts.replication;
+
+import com.ebanx.accounts.AccountBatch;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.dtos.AccountEventType;
+import com.ebanx.accounts.exceptions.AccountReadOnlyException;
+import com.ebanx.accounts.journal.AccountJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class AccountReplicationTests {
+    private final List<AccountReplication> replications = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        replications.forEach(AccountReplication::close);
+    }
+
+    @Test
+    void followerAppliesEveryKindOfChangeTest() throws Exception {
+        AccountRepository primaryRepository = new AccountRepository();
+        AccountReplication primary = start(primaryRepository, ReplicationRole.PRIMARY, "",
+                DataSize.ofMegabytes(64));
+        AccountRepository followerRepository = new AccountRepository();
+        AccountReplication follower = start(followerRepository, ReplicationRole.FOLLOWER, address(primary),
+                DataSize.ofMegabytes(64));
+
+        primaryRepository.createOrCreditAccount("100", 1000L);
+        primaryRepository.createOrCreditAccount("acct-200", 500L);
+        primaryRepository.debitAccount("100", 300L);
+        primaryRepository.transferBetweenAccounts("100", "300", 200L);
+        AccountBatch batch = new AccountBatch(2);
+        batch.add(AccountEventType.DEPOSIT, null, "400", 50L);
+        batch.add(AccountEventType.TRANSFER, "400", "acct-200", 20L);
+        assertTrue("The batch should apply", primaryRepository.applyAtomically(batch));
+        awaitCaughtUp(primary, follower);
+
+        assertEquals("Follower should hold the primary's balances", balances(primaryRepository),
+                balances(followerRepository));
+        assertEquals("Wrong replicated balance", 30L, followerRepository.getBalance("400"));
+        ReplicationStatus status = follower.getStatus();
+        assertEquals("A caught-up follower should have no lag in events", 0L, status.getLagEvents());
+        assertEquals("Follower should be connected", true, status.getConnected());
+
+        primaryRepository.emptyDatabase();
+        primaryRepository.createOrCreditAccount("500", 10L);
+        awaitCaughtUp(primary, follower);
+
+        assertEquals("Reset should be replicated", Map.of("500", 10L), balances(followerRepository));
+        assertThrows(AccountReadOnlyException.class, () -> followerRepository.createOrCreditAccount("100", 1L));
+    }
+
+    @Test
+    void followerJoiningLateStartsFromSnapshotTest() throws Exception {
+        AccountRepository primaryRepository = new AccountRepository();
+        AccountReplication primary = start(primaryRepository, ReplicationRole.PRIMARY, "", DataSize.ofKilobytes(4));
+        for (int i = 0; i < 5000; i++) {
+            primaryRepository.createOrCreditAccount(String.valueOf(i % 2000), 10L);
+        }
+        AccountRepository followerRepository = new AccountRepository();
+        followerRepository.createOrCreditAccount("stale", 1L);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writes = executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    primaryRepository.transferBetweenAccounts(String.valueOf(i % 2000),
+                            String.valueOf((i * 7) % 2000), 1L);
+                }
+            });
+            AccountReplication follower = start(followerRepository, ReplicationRole.FOLLOWER, address(primary),
+                    DataSize.ofMegabytes(64));
+            writes.get();
+            awaitCaughtUp(primary, follower);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("Follower should converge on the primary's balances", balances(primaryRepository),
+                balances(followerRepository));
+    }
+
+    @Test
+    void promotedFollowerAcceptsWritesAndStreamsToTheOthersTest() throws Exception {
+        AccountRepository primaryRepository = new AccountRepository();
+        AccountReplication primary = start(primaryRepository, ReplicationRole.PRIMARY, "",
+                DataSize.ofMegabytes(64));
+        AccountRepository firstRepository = new AccountRepository();
+        AccountReplication first = start(firstRepository, ReplicationRole.FOLLOWER, address(primary),
+                DataSize.ofMegabytes(64));
+        AccountRepository secondRepository = new AccountRepository();
+        AccountReplication second = start(secondRepository, ReplicationRole.FOLLOWER, address(primary),
+                DataSize.ofMegabytes(64));
+        for (int i = 0; i < 100; i++) {
+            primaryRepository.createOrCreditAccount("acct-" + i, 100L);
+        }
+        awaitCaughtUp(primary, first);
+        awaitCaughtUp(primary, second);
+
+        primary.close();
+        ReplicationStatus promoted = first.promote();
+        second.follow(address(first));
+        firstRepository.transferBetweenAccounts("acct-1", "acct-2", 40L);
+        firstRepository.createOrCreditAccount("acct-new", 5L);
+        awaitCaughtUp(first, second);
+
+        assertEquals("Promoted follower should be a primary", ReplicationRole.PRIMARY, promoted.getRole());
+        assertEquals("Promoted follower should continue the stream's numbering", 100L, promoted.getSequence());
+        assertEquals("Other follower should apply the new primary's writes", 140L,
+                secondRepository.getBalance("acct-2"));
+        assertEquals("Other follower should hold the new primary's balances", balances(firstRepository),
+                balances(secondRepository));
+        assertThrows(IllegalStateException.class, () -> first.follow("127.0.0.1:1"));
+    }
+
+    private AccountReplication start(AccountRepository repository, ReplicationRole role, String primary,
+                                     DataSize retainedSize) throws IOException {
+        AccountReplicationProperties properties = new AccountReplicationProperties();
+        properties.setRole(role);
+        properties.setAddress("127.0.0.1");
+        properties.setPort(0);
+        properties.setPrimary(primary);
+        properties.setBatchDelay(Duration.ofMillis(1));
+        properties.setHeartbeatInterval(Duration.ofMillis(20));
+        properties.setRetainedSize(retainedSize);
+        AccountReplication replication = new AccountReplication(repository, AccountJournal.NONE, properties);
+        replications.add(replication);
+        return replication;
+    }
+
+    private static String address(AccountReplication primary) {
+        return "127.0.0.1:" + primary.getPort();
+    }
+
+    private static void awaitCaughtUp(AccountReplication primary, AccountReplication follower)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            ReplicationStatus status = follower.getStatus();
+            if (status.getSequence() == primary.getStatus().getSequence() && status.getLagEvents() == 0L) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("Follower stuck at " + follower.getStatus().getSequence() + " of " + primary.getStatus().getSequence());
+    }
+
+    private static Map<String, Long> balances(AccountRepository repository) {
+        Map<String, Long> balances = new HashMap<>();
+        repository.forEachAccount(balances::put);
+        return balances;
+    }
+}
@@ -0,0 +1,112 @@
+package com.ebanx.accounts.replication;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.journal.AccountJournal;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams writes from a primary to a follower in the same JVM and reports how far the follower falls behind, at a
+ * fixed rate and with the writer unthrottled. Every write is a deposit or a transfer over
+ * {@code -Daccounts.replication.accounts} accounts (default 1M), after a warm-up of the same writes. Run with
+ * {@code ./gradlew benchmark --tests '*ReplicationThroughputBenchmark'}, optionally overriding
+ * {@code -Daccounts.replication.rates=100000,0} (events per second, {@code 0} unthrottled) and
+ * {@code -Daccounts.replication.seconds=10}.
+ */
+@Tag("benchmark")
+public class ReplicationThroughputBenchmark {
+    private static final int WARMUP_SECONDS = 5;
+
+    @Test
+    void replicationLagReport() throws Exception {
+        int accounts = Integer.getInteger("accounts.replication.accounts", 1_000_000);
+        int seconds = Integer.getInteger("accounts.replication.seconds", 10);
+        System.out.printf("%-12s %12s %12s %14s %14s %12s %12s%n", "target/s", "written/s", "applied/s",
+                "max lag events", "max lag ms", "catch-up ms", "deflated");
+        for (String rate : System.getProperty("accounts.replication.rates", "100000,0").split(",")) {
+            run(accounts, Integer.parseInt(rate.trim()), seconds);
+        }
+    }
+
+    private static void run(int accounts, int rate, int seconds) throws Exception {
+        AccountRepository primaryRepository = new AccountRepository();
+        AccountRepository followerRepository = new AccountRepository();
+        for (int i = 0; i < accounts; i++) {
+            primaryRepository.createOrCreditAccount(String.valueOf(i), 1_000_000L);
+        }
+        try (AccountReplication primary = start(primaryRepository, ReplicationRole.PRIMARY, "");
+             AccountReplication follower = start(followerRepository, ReplicationRole.FOLLOWER,
+                     "127.0.0.1:" + primary.getPort())) {
+            write(primaryRepository, accounts, rate, WARMUP_SECONDS);
+            awaitCaughtUp(primary, follower, Duration.ofMinutes(5));
+            long startSequence = follower.getStatus().getSequence();
+            long[] maxLag = new long[2];
+            Thread writer = new Thread(() -> write(primaryRepository, accounts, rate, seconds));
+            long startedAt = System.nanoTime();
+            writer.start();
+            while (writer.isAlive()) {
+                ReplicationStatus status = follower.getStatus();
+                maxLag[0] = Math.max(maxLag[0], primary.getStatus().getSequence() - status.getSequence());
+                maxLag[1] = Math.max(maxLag[1], status.getLagMillis());
+                Thread.sleep(10);
+            }
+            double writeSeconds = (System.nanoTime() - startedAt) / 1e9;
+            long written = primary.getStatus().getSequence() - startSequence;
+            long drainStartedAt = System.nanoTime();
+            awaitCaughtUp(primary, follower, Duration.ofMinutes(5));
+            double applySeconds = (System.nanoTime() - startedAt) / 1e9;
+            long[] sealed = primary.getReplicationLog().getSealedBytes();
+            System.out.printf("%-12s %12.0f %12.0f %14d %14d %12d %11.0f%%%n", rate == 0 ? "max" : rate,
+                    written / writeSeconds, written / applySeconds, maxLag[0], maxLag[1],
+                    (System.nanoTime() - drainStartedAt) / 1_000_000, 100.0 * sealed[1] / Math.max(1, sealed[0]));
+        }
+    }
+
+    private static void write(AccountRepository repository, int accounts, int rate, int seconds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long startedAt = System.nanoTime();
+        long end = startedAt + Duration.ofSeconds(seconds).toNanos();
+        for (long i = 0; ; i++) {
+            long due = rate == 0 ? System.nanoTime() : startedAt + i * 1_000_000_000L / rate;
+            if (due >= end) {
+                return;
+            }
+            while (System.nanoTime() < due) {
+                LockSupport.parkNanos(due - System.nanoTime());
+            }
+            String origin = String.valueOf(random.nextInt(accounts));
+            if ((i & 1) == 0) {
+                repository.createOrCreditAccount(origin, 1L);
+            } else {
+                repository.transferBetweenAccounts(origin, String.valueOf(random.nextInt(accounts)), 1L);
+            }
+        }
+    }
+
+    private static AccountReplication start(AccountRepository repository, ReplicationRole role, String primary)
+            throws Exception {
+        AccountReplicationProperties properties = new AccountReplicationProperties();
+        properties.setRole(role);
+        properties.setAddress("127.0.0.1");
+        properties.setPort(0);
+        properties.setPrimary(primary);
+        return new AccountReplication(repository, AccountJournal.NONE, properties);
+    }
+
+    private static void awaitCaughtUp(AccountReplication primary, AccountReplication follower, Duration timeout)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            ReplicationStatus status = follower.getStatus();
+            if (status.getSequence() == primary.getStatus().getSequence() && status.getLagEvents() == 0L) {
+                return;
+            }
+            Thread.sleep(1);
+        }
+        throw new IllegalStateException("Follower didn't catch up");
+    }
+}
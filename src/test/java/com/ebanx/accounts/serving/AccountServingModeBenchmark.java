@@ -0,0 +1,154 @@
+package com.ebanx.accounts.serving;
+
+import com.ebanx.accounts.AccountApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput, latency and memory of the platform thread, virtual thread and reactive serving modes with many
+ * concurrent connections: every connection is a closed-loop client alternating a deposit and a balance read. The
+ * write-ahead log runs with group commit by default so writes wait on an fsync, which is where a request holds its
+ * thread; {@code -Daccounts.serving.journal=false} measures the in-memory store alone. Run with
+ * {@code ./gradlew benchmark --tests '*AccountServingModeBenchmark'}, optionally overriding
+ * {@code -Daccounts.serving.connections=10000} and {@code -Daccounts.serving.seconds=30}. The virtual mode is
+ * skipped below Java 21, and 10k connections need a file descriptor limit above 20k for the client and server ends.
+ */
+@Tag("benchmark")
+public class AccountServingModeBenchmark {
+    private static final String[] MODES = {"platform", "virtual", "reactive"};
+    private static final int ACCOUNTS = 10_000;
+    private static final int CLIENTS = 4;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void servingModeReport() throws Exception {
+        int connections = Integer.getInteger("accounts.serving.connections", 10_000);
+        int seconds = Integer.getInteger("accounts.serving.seconds", 30);
+        boolean journal = Boolean.parseBoolean(System.getProperty("accounts.serving.journal", "true"));
+        System.out.printf("%d connections for %d s, journal %s%n", connections, seconds,
+                journal ? "group commit" : "disabled");
+        System.out.printf("%-10s %12s %10s %10s %10s %12s %12s%n", "mode", "requests/s", "p50 ms", "p99 ms",
+                "p99.9 ms", "peak threads", "heap MB");
+        for (String mode : MODES) {
+            if (mode.equals("virtual") && Runtime.version().feature() < 21) {
+                System.out.printf("%-10s skipped, needs Java 21%n", mode);
+                continue;
+            }
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("server.port", "0");
+            properties.put("accounts.journal.enabled", String.valueOf(journal));
+            properties.put("accounts.journal.directory", directory.resolve(mode).toString());
+            SpringApplication application = new SpringApplication(AccountApplication.class);
+            application.setDefaultProperties(properties);
+            if (!mode.equals("platform")) {
+                application.setAdditionalProfiles(mode);
+            }
+            try (ConfigurableApplicationContext context = application.run()) {
+                run(mode, URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")),
+                        connections, seconds);
+            }
+        }
+    }
+
+    private static void run(String mode, URI target, int connections, int seconds) throws Exception {
+        HttpClient[] clients = new HttpClient[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        threads.resetPeakThreadCount();
+
+        long[][] latencies = new long[connections][];
+        AtomicInteger[] counts = new AtomicInteger[connections];
+        AtomicLong completed = new AtomicLong();
+        CountDownLatch finished = new CountDownLatch(connections);
+        long startedAt = System.nanoTime();
+        long stopAt = startedAt + seconds * 1_000_000_000L;
+        for (int connection = 0; connection < connections; connection++) {
+            latencies[connection] = new long[1024];
+            counts[connection] = new AtomicInteger();
+            send(clients[connection % CLIENTS], target, connection, 0, stopAt, latencies, counts, completed,
+                    finished);
+        }
+        Thread.sleep(seconds * 500L);
+        long heapUnderLoad = memory.getHeapMemoryUsage().getUsed();
+        finished.await();
+        double elapsed = (System.nanoTime() - startedAt) / 1e9;
+
+        long[] merged = new long[(int) completed.get()];
+        int next = 0;
+        for (int connection = 0; connection < connections; connection++) {
+            int count = Math.min(counts[connection].get(), latencies[connection].length);
+            System.arraycopy(latencies[connection], 0, merged, next, count);
+            next += count;
+        }
+        merged = Arrays.copyOf(merged, next);
+        Arrays.sort(merged);
+        System.out.printf("%-10s %12.0f %10.2f %10.2f %10.2f %12d %12d%n", mode, completed.get() / elapsed,
+                percentile(merged, 0.5), percentile(merged, 0.99), percentile(merged, 0.999),
+                threads.getPeakThreadCount(), (heapUnderLoad - heapBefore) >> 20);
+    }
+
+    /**
+     * Sends the connection's next request once the previous one completes, until the run is over. Latencies are
+     * kept per connection, growing the array when it fills up, since only that connection's chain writes to it.
+     */
+    private static void send(HttpClient client, URI target, int connection, int sequence, long stopAt,
+                             long[][] latencies, AtomicInteger[] counts, AtomicLong completed,
+                             CountDownLatch finished) {
+        if (System.nanoTime() >= stopAt) {
+            finished.countDown();
+            return;
+        }
+        String account = String.valueOf((connection * 31L + sequence) % ACCOUNTS);
+        HttpRequest request = sequence % 2 == 0
+                ? HttpRequest.newBuilder(target.resolve("/event"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"type\":\"deposit\",\"destination\":\"" + account + "\",\"amount\":1}"))
+                        .build()
+                : HttpRequest.newBuilder(target.resolve("/balance?account_id=" + account)).GET().build();
+        long sentAt = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            if (failure == null) {
+                int count = counts[connection].getAndIncrement();
+                if (count == latencies[connection].length) {
+                    latencies[connection] = Arrays.copyOf(latencies[connection], count * 2);
+                }
+                latencies[connection][count] = System.nanoTime() - sentAt;
+                completed.incrementAndGet();
+            }
+            send(client, target, connection, sequence + 1, stopAt, latencies, counts, completed, finished);
+        });
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(quantile * sorted.length))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,119 @@
+package com.ebanx.accounts.split;
+
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.metrics.AccountMetrics;
+import com.ebanx.accounts.metrics.AccountOperation;
+import com.ebanx.accounts.metrics.AccountOutcome;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deposit throughput when one account takes 90% of the deposits and the rest spread over many accounts, with the hot
+ * account's balance under the segment lock, split from the start, or split by a {@link SplitBalancer} once it measures
+ * the contention. A second workload also withdraws from the hot account on 1% of the operations, each withdrawal
+ * folding its split credits. Run with {@code ./gradlew benchmark --tests '*SplitBalanceBenchmark'}, optionally
+ * overriding {@code -Daccounts.split.threads=8}.
+ */
+@Tag("benchmark")
+public class SplitBalanceBenchmark {
+    private static final int ACCOUNTS = 10_000;
+    private static final int OPERATIONS_PER_THREAD = 2_000_000;
+    private static final String HOT_ACCOUNT = "0";
+
+    @Test
+    void hotAccountDepositReport() throws Exception {
+        int threads = Integer.getInteger("accounts.split.threads", 8);
+        String[] ids = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids[i] = String.valueOf(i);
+        }
+        System.out.printf("%-12s %-22s %12s %14s %6s%n", "balance", "workload", "ops/s", "lock waits/s",
+                "split");
+        for (int withdrawPercent : new int[] {0, 1}) {
+            String workload = withdrawPercent == 0 ? "90% to one account" : "90% to one, 1% debits";
+            for (String mode : new String[] {"locked", "split", "auto-split"}) {
+                AccountRepository accountRepository = new AccountRepository();
+                for (String id : ids) {
+                    accountRepository.createOrCreditAccount(id, 1_000L);
+                }
+                SplitBalancer balancer = null;
+                if (mode.equals("split")) {
+                    accountRepository.splitBalance(HOT_ACCOUNT);
+                } else if (mode.equals("auto-split")) {
+                    AccountSplitProperties properties = new AccountSplitProperties();
+                    properties.setWindow(Duration.ofMillis(100));
+                    properties.setMinContention(10);
+                    balancer = new SplitBalancer(accountRepository, properties);
+                }
+                ContentionCounter contention = new ContentionCounter();
+                accountRepository.setMetrics(contention);
+                try {
+                    run(mode, workload, threads, accountRepository, ids, withdrawPercent, contention);
+                } finally {
+                    if (balancer != null) {
+                        balancer.close();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void run(String mode, String workload, int threads, AccountRepository accountRepository,
+                            String[] ids, int withdrawPercent, ContentionCounter contention) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long startedAt = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        int roll = random.nextInt(100);
+                        if (roll < withdrawPercent) {
+                            accountRepository.debitAccount(HOT_ACCOUNT, 1L);
+                        } else if (roll < 90) {
+                            accountRepository.createOrCreditAccount(HOT_ACCOUNT, 1L);
+                        } else {
+                            accountRepository.createOrCreditAccount(ids[1 + random.nextInt(ACCOUNTS - 1)], 1L);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        System.out.printf("%-12s %-22s %12.0f %14.0f %6s%n", mode, workload, threads * OPERATIONS_PER_THREAD / seconds,
+                contention.waits.sum() / seconds, accountRepository.getSplitAccounts().contains(HOT_ACCOUNT));
+    }
+
+    private static final class ContentionCounter implements AccountMetrics {
+        private final LongAdder waits = new LongAdder();
+
+        @Override
+        public void recordOperation(AccountOperation operation, AccountOutcome outcome, long startedAt) {
+        }
+
+        @Override
+        public void recordAccess(String accountId) {
+        }
+
+        @Override
+        public void recordLockContention() {
+            waits.increment();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.ebanx.accounts.split;
+
+import com.ebanx.accounts.AccountBatch;
+import com.ebanx.accounts.AccountRepository;
+import com.ebanx.accounts.AccountResult;
+import com.ebanx.accounts.dtos.AccountEventType;
+import com.ebanx.accounts.ledger.AccountLedger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.AssertionErrors.*;
+
+public class SplitBalancerTests {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+
+    private AccountRepository accountRepository;
+    private SplitBalancer balancer;
+
+    @BeforeEach
+    public void setUp() {
+        accountRepository = new AccountRepository();
+        AccountSplitProperties properties = new AccountSplitProperties();
+        properties.setWindow(Duration.ofHours(1));
+        properties.setMinContention(2);
+        properties.setMinShare(0.5);
+        properties.setMinDeposits(10);
+        balancer = new SplitBalancer(accountRepository, properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        balancer.close();
+    }
+
+    @Test
+    void splitAccountConservesMoneyAndNeverOverdrawsTest() throws Exception {
+        accountRepository.createOrCreditAccount("100", 0L);
+        accountRepository.createOrCreditAccount("200", 0L);
+        assertTrue("Account should be split", accountRepository.splitBalance("100"));
+        AtomicLong withdrawn = new AtomicLong();
+        AtomicLong transferred = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        if (thread % 2 == 0) {
+                            accountRepository.createOrCreditAccount("100", 3L);
+                        } else if (i % 2 == 0) {
+                            long balance = accountRepository.debitAccount("100", 5L);
+                            if (balance >= 0L) {
+                                withdrawn.addAndGet(5L);
+                            }
+                        } else if (accountRepository.transferBetweenAccounts("100", "200", 2L)
+                                instanceof AccountResult.Success<?>) {
+                            withdrawn.addAndGet(2L);
+                            transferred.addAndGet(2L);
+                        }
+                        if (accountRepository.getBalance("100") < 0L) {
+                            throw new IllegalStateException("Split balance went negative");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long deposited = 3L * OPERATIONS_PER_THREAD * (THREADS / 2);
+        assertEquals("Money should be conserved", deposited - withdrawn.get(), accountRepository.getBalance("100"));
+        assertTrue("Account should have been debited", withdrawn.get() > 0L);
+        assertTrue("Account should be merged", accountRepository.mergeBalance("100"));
+        assertEquals("Merging shouldn't change the balance", deposited - withdrawn.get(),
+                accountRepository.getBalance("100"));
+        assertEquals("Account should receive the transfers", transferred.get(), accountRepository.getBalance("200"));
+    }
+
+    @Test
+    void splittingAndMergingDuringDepositsLosesNothingTest() throws Exception {
+        accountRepository.createOrCreditAccount("100", 0L);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 1; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        accountRepository.creditAccount("100", 1L);
+                    }
+                    return null;
+                }));
+            }
+            Future<?> toggler = executor.submit(() -> {
+                while (!futures.stream().allMatch(Future::isDone)) {
+                    accountRepository.splitBalance("100");
+                    Thread.yield();
+                    accountRepository.mergeBalance("100");
+                }
+                return null;
+            });
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            toggler.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("No deposit should be lost", (long) (THREADS - 1) * OPERATIONS_PER_THREAD,
+                accountRepository.getBalance("100"));
+    }
+
+    @Test
+    void everyPathSeesSplitCreditsTest() {
+        accountRepository.createOrCreditAccount("100", 10L);
+        assertTrue("Account should be split", accountRepository.splitBalance("100"));
+        assertFalse("Account is already split", accountRepository.splitBalance("100"));
+        assertFalse("A missing account can't be split", accountRepository.splitBalance("999"));
+
+        assertEquals("Deposit should return the new balance", 40L, accountRepository.creditAccount("100", 30L));
+        assertEquals("Reads should include split credits", 40L, accountRepository.getBalance("100"));
+        assertEquals("Debits should see split credits", AccountRepository.INSUFFICIENT_FUNDS,
+                accountRepository.debitAccount("100", 41L));
+        assertEquals("Debits should see split credits", 5L, accountRepository.debitAccount("100", 35L));
+        accountRepository.createOrCreditAccount("100", 7L);
+        AccountBatch batch = new AccountBatch(1);
+        batch.add(AccountEventType.TRANSFER, "100", "200", 12L);
+        assertTrue("Batches should see split credits", accountRepository.applyAtomically(batch));
+        accountRepository.createOrCreditAccount("100", 1L);
+        Map<String, Long> balances = new HashMap<>();
+        accountRepository.forEachAccount(balances::put);
+        assertEquals("Iteration should include split credits", Map.of("100", 1L, "200", 12L), balances);
+
+        accountRepository.putBalance("100", 100L);
+        assertEquals("Setting a balance should drop split credits", 100L, accountRepository.getBalance("100"));
+        accountRepository.emptyDatabase();
+        assertEquals("Reset should merge every account", List.of(), accountRepository.getSplitAccounts());
+        assertEquals("Reset should remove split accounts", AccountRepository.NO_ACCOUNT,
+                accountRepository.getBalance("100"));
+    }
+
+    @Test
+    void balancerSplitsContendedAccountAndMergesIdleOneTest() throws Exception {
+        accountRepository.createOrCreditAccount("100", 0L);
+        accountRepository.createOrCreditAccount("200", 0L);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Future<?> holder = executor.submit(() -> {
+                accountRepository.forEachAccount((id, balance) -> {
+                    if (id.equals("100")) {
+                        holding.countDown();
+                        awaitQuietly(release);
+                    }
+                });
+                return null;
+            });
+            assertTrue("Holder should take the lock", holding.await(10, TimeUnit.SECONDS));
+            List<Future<?>> deposits = new ArrayList<>();
+            for (int t = 1; t < THREADS; t++) {
+                deposits.add(executor.submit(() -> accountRepository.createOrCreditAccount("100", 1L)));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+            for (Future<?> deposit : deposits) {
+                deposit.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        balancer.rebalance();
+        assertEquals("Contended account should be split", List.of("100"), accountRepository.getSplitAccounts());
+        for (int i = 0; i < 10; i++) {
+            accountRepository.createOrCreditAccount("100", 1L);
+        }
+        balancer.rebalance();
+        assertEquals("Busy account should stay split", List.of("100"), accountRepository.getSplitAccounts());
+        balancer.rebalance();
+        assertEquals("Idle account should be merged", List.of(), accountRepository.getSplitAccounts());
+        assertEquals("No deposit should be lost", THREADS - 1 + 10L, accountRepository.getBalance("100"));
+    }
+
+    @Test
+    void splitBalanceRequiresNoLedgerTest() {
+        accountRepository.createOrCreditAccount("100", 10L);
+        accountRepository.setLedger(new AccountLedger(4, accountRepository.getAccountIds()));
+
+        assertThrows(IllegalStateException.class, () -> accountRepository.splitBalance("100"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}